@@ -0,0 +1,189 @@
+package dev.jeka.core.api.depmanagement;
+
+import dev.jeka.core.api.file.JkPathFile;
+import dev.jeka.core.api.system.JkException;
+import dev.jeka.core.api.system.JkLocator;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsString;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/*
+ * Lock file pinning the result of module dependency resolutions : resolved versions, scopes of each module and
+ * artifact files along their SHA-1 checksums. The lock holds one section per set of resolved scopes and is
+ * valid as long as the fingerprint of declared dependencies, repositories and resolution parameters does not change.
+ * While valid, resolution is replaced by locating artifact files in the local cache and verifying their checksums.
+ * Locked files missing from the local cache are fetched again from repositories, so a lock is never silently
+ * replaced by a fresh resolution that could pick other versions.
+ * Files located in the Jeka user home are recorded relatively to it, so the lock can be shared across machines.
+ */
+final class DependencyLock {
+
+    private static final String HEADER = "# Jeka dependency lock v1";
+
+    private static final String SEPARATOR = "\t";
+
+    private static final String FINGERPRINT = "fingerprint";
+
+    private static final String SCOPES = "scopes";
+
+    private static final String USER_HOME_PREFIX = "~/";
+
+    private static final String CHECKSUM_ALGORITHM = "SHA-1";
+
+    private final Path file;
+
+    private final Path userHome;
+
+    private DependencyLock(Path file, Path userHome) {
+        this.file = file;
+        this.userHome = userHome;
+    }
+
+    static DependencyLock of(Path file) {
+        return new DependencyLock(file, JkLocator.getJekaUserHomeDir());
+    }
+
+    static DependencyLock of(Path file, Path userHome) {
+        return new DependencyLock(file, userHome);
+    }
+
+    /*
+     * Returns the locked result for the specified scopes or <code>null</code> if the lock does not match the
+     * specified fingerprint or has no section for these scopes. Artifact files missing from the cache are fetched
+     * using the specified resolver.
+     * @throws JkException if an artifact file can not be fetched or does not match its locked checksum.
+     */
+    JkResolveResult get(String fingerprint, JkScope[] scopes, Set<JkScope> knownScopes,
+                        JkInternalDepResolver fetcher) {
+        final Map<String, List<String>> sections = read(fingerprint);
+        final List<String> section = sections.get(sectionKey(scopes));
+        if (section == null) {
+            if (sections.isEmpty() && Files.exists(file)) {
+                JkLog.info("Dependency lock " + file + " does not match declared dependencies and repositories.");
+            }
+            return null;
+        }
+        final Map<String, JkScope> scopeMap = new HashMap<>();
+        knownScopes.forEach(scope -> scopeMap.put(scope.getName(), scope));
+        final JkDependencyNode tree = ResolutionCache.readNode(section.listIterator(), 0, scopeMap,
+                (module, item) -> decodeFile(module, item, fetcher));
+        return JkResolveResult.of(tree, JkResolveResult.JkErrorReport.allFine());
+    }
+
+    /*
+     * Records the specified result for the specified scopes. Sections recorded for a different fingerprint are
+     * discarded. Results having errors are not recorded.
+     */
+    void put(String fingerprint, JkScope[] scopes, JkResolveResult resolveResult) {
+        if (resolveResult.getErrorReport().hasErrors()) {
+            return;
+        }
+        final Map<String, List<String>> sections = new TreeMap<>(read(fingerprint));
+        final List<String> section = new LinkedList<>();
+        ResolutionCache.writeNode(resolveResult.getDependencyTree(), 0, section, this::encodeFile);
+        sections.put(sectionKey(scopes), section);
+        final List<String> lines = new LinkedList<>();
+        lines.add(HEADER);
+        lines.add(FINGERPRINT + SEPARATOR + fingerprint);
+        sections.forEach((key, sectionLines) -> {
+            lines.add(SCOPES + SEPARATOR + key);
+            lines.addAll(sectionLines);
+        });
+        JkUtilsPath.createDirectories(file.toAbsolutePath().getParent());
+        try {
+            final Path tempFile = Files.createTempFile(file.toAbsolutePath().getParent(),
+                    file.getFileName().toString(), ".tmp");
+            Files.write(tempFile, lines, StandardCharsets.UTF_8);
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        JkLog.info("Dependency lock " + file + " updated for scopes " + Arrays.asList(scopes) + ".");
+    }
+
+    // Returns sections keyed by scopes, or an empty map if the lock does not exist or does not match
+    private Map<String, List<String>> read(String fingerprint) {
+        final Map<String, List<String>> result = new HashMap<>();
+        if (!Files.exists(file)) {
+            return result;
+        }
+        final List<String> lines;
+        try {
+            lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (lines.size() < 2 || !HEADER.equals(lines.get(0))
+                || !(FINGERPRINT + SEPARATOR + fingerprint).equals(lines.get(1))) {
+            return result;
+        }
+        List<String> section = null;
+        for (final String line : lines.subList(2, lines.size())) {
+            if (line.startsWith(SCOPES + SEPARATOR)) {
+                section = new LinkedList<>();
+                result.put(line.substring(SCOPES.length() + SEPARATOR.length()), section);
+            } else if (section != null && !line.isEmpty()) {
+                section.add(line);
+            }
+        }
+        return result;
+    }
+
+    private static String sectionKey(JkScope[] scopes) {
+        return ResolutionCache.toNames(new HashSet<>(Arrays.asList(scopes)));
+    }
+
+    // Files are written as checksum:location
+    private String encodeFile(Path path) {
+        final Path absolutePath = path.toAbsolutePath().normalize();
+        final String checksum = JkPathFile.of(absolutePath).getChecksum(CHECKSUM_ALGORITHM);
+        final Path home = userHome.toAbsolutePath().normalize();
+        final String location = absolutePath.startsWith(home)
+                ? USER_HOME_PREFIX + home.relativize(absolutePath).toString().replace('\\', '/')
+                : absolutePath.toString();
+        return checksum + ":" + location;
+    }
+
+    private Path decodeFile(JkVersionedModule module, String item, JkInternalDepResolver fetcher) {
+        final String checksum = JkUtilsString.substringBeforeFirst(item, ":");
+        final String location = JkUtilsString.substringAfterFirst(item, ":");
+        Path path = location.startsWith(USER_HOME_PREFIX)
+                ? userHome.resolve(location.substring(USER_HOME_PREFIX.length())) : Paths.get(location);
+        if (!Files.exists(path)) {
+            JkLog.info("Dependency lock refers to " + path + " which is not in local cache : fetching it.");
+            final JkModuleDependency dependency = artifactDependency(module, path.getFileName().toString());
+            final File fetchedFile = fetcher.get(dependency);
+            if (fetchedFile == null || !fetchedFile.exists()) {
+                throw new JkException("File " + path + " locked in " + file + " for " + dependency
+                        + " can not be fetched. Delete the lock file to resolve dependencies again.");
+            }
+            path = fetchedFile.toPath();
+        }
+        final String actualChecksum = JkPathFile.of(path).getChecksum(CHECKSUM_ALGORITHM);
+        if (!actualChecksum.equalsIgnoreCase(checksum)) {
+            throw new JkException("File " + path + " has checksum " + actualChecksum + " while dependency lock "
+                    + file + " expects " + checksum + ". Delete the lock file to resolve dependencies again.");
+        }
+        return path;
+    }
+
+    // Artifact files are named [module name]-[version](-[classifier]).[ext] in repositories
+    static JkModuleDependency artifactDependency(JkVersionedModule module, String fileName) {
+        final String ext = fileName.contains(".") ? JkUtilsString.substringAfterLast(fileName, ".") : null;
+        final String baseName = ext == null ? fileName : JkUtilsString.substringBeforeLast(fileName, ".");
+        final String prefix = module.getModuleId().getName() + "-" + module.getVersion().getValue() + "-";
+        final JkModuleDependency result = JkModuleDependency.of(module).withExt(ext);
+        return baseName.startsWith(prefix) ? result.withClassifier(baseName.substring(prefix.length())) : result;
+    }
+
+}
@@ -203,6 +203,33 @@ public class JkDependencyNode {
         }
     }
 
+    /**
+     * Returns a copy of this tree retaining only nodes involved in any of the specified scopes : module nodes
+     * resolved for one of these scopes and file nodes declared for one of these scopes. This allows to resolve
+     * dependencies once for several scopes, then to get the dependencies of each scope out of the resulting tree.
+     */
+    public JkDependencyNode withScopesOnly(Set<JkScope> scopes) {
+        final List<JkDependencyNode> result = new LinkedList<>();
+        for (final JkDependencyNode child : this.children) {
+            if (child.isInvolvedInAnyOf(scopes)) {
+                result.add(child.withScopesOnly(scopes));
+            }
+        }
+        return new JkDependencyNode(this.nodeInfo, Collections.unmodifiableList(result));
+    }
+
+    private boolean isInvolvedInAnyOf(Set<JkScope> scopes) {
+        if (this.isModuleNode()) {
+            return !Collections.disjoint(this.getModuleInfo().getResolvedScopes(), scopes);
+        }
+        for (final JkScope scope : scopes) {
+            if (scope.isInOrIsExtendingAnyOf(this.nodeInfo.getDeclaredScopes())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Returns all nodes descendant of this one, deep first.
      */
@@ -382,6 +409,10 @@ public class JkDependencyNode {
             return resolvedVersion == null;
         }
 
+        boolean isTreeRoot() {
+            return treeRoot;
+        }
+
         @Override
         public List<Path> getFiles() {
             return JkUtilsPath.toPaths(artifacts);
@@ -1,5 +1,6 @@
 package dev.jeka.core.api.depmanagement;
 
+import dev.jeka.core.api.system.JkLocator;
 import dev.jeka.core.api.system.JkLog;
 import dev.jeka.core.api.utils.JkUtilsIterable;
 import dev.jeka.core.api.utils.JkUtilsTime;
@@ -7,7 +8,9 @@ import dev.jeka.core.api.utils.JkUtilsTime;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static dev.jeka.core.api.utils.JkUtilsString.plurialize;
 
@@ -18,7 +21,33 @@ import static dev.jeka.core.api.utils.JkUtilsString.plurialize;
  */
 public final class JkDependencyResolver {
 
-    private final JkInternalDepResolver jkInternalModuleDepResolver;
+    private static final String DEFAULT_RESOLUTION_CACHE_DIR = "cache/resolution";
+
+    /**
+     * Engines able to resolve module dependencies.
+     */
+    public enum Engine {
+
+        /**
+         * Resolves dependencies using Apache Ivy, loaded in its own class loader. This is the default engine.
+         */
+        IVY,
+
+        /**
+         * Resolves dependencies by reading Maven POMs directly (parent POMs, dependency management, exclusions),
+         * picking the nearest version in case of conflict. It does not need Ivy but ignores Ivy repositories.
+         */
+        MAVEN;
+
+        // Resolvers are pooled for the whole build, so projects sharing repositories share parsed descriptors
+        JkInternalDepResolver internalResolver(JkRepoSet repos) {
+            return ResolutionSession.resolver(this, repos, () -> this == MAVEN ? JkInternalDepResolver.ofMaven(repos)
+                    : JkInternalDepResolver.of(repos));
+        }
+
+    }
+
+    private final Engine engine;
 
     private final JkResolutionParameters parameters;
 
@@ -29,13 +58,21 @@ public final class JkDependencyResolver {
 
     private final Path baseDir;
 
-    private JkDependencyResolver(JkInternalDepResolver jkInternalModuleDepResolver,
-                                 JkVersionedModule module, JkResolutionParameters resolutionParameters, JkRepoSet repos, Path baseDir) {
-        this.jkInternalModuleDepResolver = jkInternalModuleDepResolver;
+    // null means no cache
+    private final Path resolutionCacheDir;
+
+    // null means no lock
+    private final Path lockFile;
+
+    private JkDependencyResolver(Engine engine, JkVersionedModule module, JkResolutionParameters resolutionParameters, JkRepoSet repos,
+                                 Path baseDir, Path resolutionCacheDir, Path lockFile) {
+        this.engine = engine;
         this.module = module;
         this.parameters = resolutionParameters;
         this.repos = repos;
         this.baseDir = baseDir;
+        this.resolutionCacheDir = resolutionCacheDir;
+        this.lockFile = lockFile;
     }
 
     /**
@@ -43,8 +80,8 @@ public final class JkDependencyResolver {
      * the specified JkRepo contains no {@link JkRepo} then the created.
      */
     public static JkDependencyResolver of(JkRepoSet repos) {
-        final JkInternalDepResolver ivyResolver = JkInternalDepResolver.of(repos);
-        return new JkDependencyResolver(ivyResolver,  null, JkResolutionParameters.of(), repos, Paths.get(""));
+        return new JkDependencyResolver(Engine.IVY, null, JkResolutionParameters.of(), repos, Paths.get(""),
+                JkLocator.getJekaUserHomeDir().resolve(DEFAULT_RESOLUTION_CACHE_DIR), null);
     }
 
     /**
@@ -58,6 +95,14 @@ public final class JkDependencyResolver {
         return of(JkRepoSet.of());
     }
 
+    /**
+     * Forgets resolver engines and resolution results shared by all resolutions of the current build. JVMs running
+     * several builds, as the daemon, invoke this method between builds so that each build sees repository changes.
+     */
+    public static void resetSession() {
+        ResolutionSession.clear();
+    }
+
     /**
      * Returns the repositories the resolution is made on.
      */
@@ -84,9 +129,8 @@ public final class JkDependencyResolver {
         final String msg = scopes.length == 0 ? "Resolving dependencies " :
                 "Resolving dependencies with specified scopes " + Arrays.asList(scopes);
         JkLog.startTask(msg);
-        JkResolveResult resolveResult = (jkInternalModuleDepResolver == null || !dependencies.hasModules()) ? JkResolveResult.ofRoot(module) :
-                jkInternalModuleDepResolver.resolve(module, dependencies.withModulesOnly(),
-                    parameters, scopes);
+        JkResolveResult resolveResult = !dependencies.hasModules() ? JkResolveResult.ofRoot(module) :
+                resolveModules(dependencies.withModulesOnly(), scopes);
         final JkDependencyNode mergedNode = resolveResult.getDependencyTree().mergeNonModules(dependencies,
                     JkUtilsIterable.setOf(scopes));
         resolveResult = JkResolveResult.of(mergedNode, resolveResult.getErrorReport()).withBaseDir(baseDir);
@@ -102,6 +146,63 @@ public final class JkDependencyResolver {
         return resolveResult;
     }
 
+    // Locked results are used as long as the lock matches declared dependencies.
+    private JkResolveResult resolveModules(JkDependencySet moduleDependencies, JkScope ... scopes) {
+        if (lockFile == null) {
+            return resolveModulesOrGetCached(moduleDependencies, scopes);
+        }
+        final DependencyLock lock = DependencyLock.of(lockFile);
+        final String fingerprint = ResolutionCache.key(engine.name(), module, moduleDependencies, parameters, repos,
+                new JkScope[0]);
+        final Set<JkScope> knownScopes = new HashSet<>(moduleDependencies.getInvolvedScopes());
+        knownScopes.addAll(Arrays.asList(scopes));
+        final JkResolveResult lockedResult = lock.get(fingerprint, scopes, knownScopes, internalResolver());
+        if (lockedResult != null) {
+            JkLog.trace("Dependency resolution result taken from lock " + lockFile);
+            return lockedResult;
+        }
+        final JkResolveResult resolveResult = resolveModulesOrGetCached(moduleDependencies, scopes);
+        lock.put(fingerprint, scopes, resolveResult);
+        return resolveResult;
+    }
+
+    // Module resolution results that can not change over time are reused across projects of a build, unless
+    // refresh is required, and across runs.
+    private JkResolveResult resolveModulesOrGetCached(JkDependencySet moduleDependencies, JkScope ... scopes) {
+        final String sessionKey = ResolutionCache.key(engine.name(), null, moduleDependencies, parameters, repos,
+                scopes);
+        final JkResolveResult sessionResult = parameters.isRefreshed() ? null
+                : ResolutionSession.result(sessionKey, module);
+        if (sessionResult != null) {
+            JkLog.trace("Dependency resolution result taken from a previous resolution of this build.");
+            return sessionResult;
+        }
+        final JkResolveResult resolveResult = resolveModulesOrGetCachedOnDisk(moduleDependencies, scopes);
+        if (ResolutionCache.isCacheable(moduleDependencies)) {
+            ResolutionSession.putResult(sessionKey, resolveResult);
+        }
+        return resolveResult;
+    }
+
+    private JkResolveResult resolveModulesOrGetCachedOnDisk(JkDependencySet moduleDependencies, JkScope ... scopes) {
+        if (resolutionCacheDir == null || !ResolutionCache.isCacheable(moduleDependencies)) {
+            return internalResolver().resolve(module, moduleDependencies, parameters, scopes);
+        }
+        final ResolutionCache cache = ResolutionCache.of(resolutionCacheDir);
+        final String key = ResolutionCache.key(engine.name(), module, moduleDependencies, parameters, repos, scopes);
+        final Set<JkScope> knownScopes = new HashSet<>(moduleDependencies.getInvolvedScopes());
+        knownScopes.addAll(Arrays.asList(scopes));
+        final JkResolveResult cachedResult = parameters.isRefreshed() ? null : cache.get(key, knownScopes);
+        if (cachedResult != null) {
+            JkLog.trace("Dependency resolution result taken from cache " + key);
+            return cachedResult;
+        }
+        final JkResolveResult resolveResult = internalResolver().resolve(module, moduleDependencies,
+                parameters, scopes);
+        cache.put(key, resolveResult);
+        return resolveResult;
+    }
+
     /**
      * The underlying dependency manager can cache the resolution on file ofSystem
      * for faster result. To make this caching possible, you must set the
@@ -109,16 +210,16 @@ public final class JkDependencyResolver {
      * for of dependencies and have no effect for of dependencies.
      */
     public JkDependencyResolver withModuleHolder(JkVersionedModule versionedModule) {
-        return new JkDependencyResolver(this.jkInternalModuleDepResolver, versionedModule,
-                this.parameters, this.repos, this.baseDir);
+        return new JkDependencyResolver(this.engine, versionedModule,
+                this.parameters, this.repos, this.baseDir, this.resolutionCacheDir, this.lockFile);
     }
 
     /**
      * Returns an dependency resolver identical to this one but with the specified repositories.
      */
     public JkDependencyResolver withRepos(JkRepoSet otherRepos) {
-        return new JkDependencyResolver(JkInternalDepResolver.of(otherRepos), this.module,
-                this.parameters, otherRepos, this.baseDir);
+        return new JkDependencyResolver(this.engine, this.module,
+                this.parameters, otherRepos, this.baseDir, this.resolutionCacheDir, this.lockFile);
     }
 
     /**
@@ -139,8 +240,8 @@ public final class JkDependencyResolver {
      * Returns an dependency resolver identical to this one but with the specified repositories.
      */
     public JkDependencyResolver withParams(JkResolutionParameters params) {
-        return new JkDependencyResolver(this.jkInternalModuleDepResolver, this.module,
-                params, this.repos, this.baseDir);
+        return new JkDependencyResolver(this.engine, this.module,
+                params, this.repos, this.baseDir, this.resolutionCacheDir, this.lockFile);
     }
 
     /**
@@ -149,8 +250,70 @@ public final class JkDependencyResolver {
      * {@link #resolve(JkDependencySet, JkScope...)} method as it returns only absolute files.
      */
     public JkDependencyResolver withBasedir(Path baseDir) {
-        return new JkDependencyResolver(this.jkInternalModuleDepResolver, this.module,
-                this.parameters, this.repos, baseDir);
+        return new JkDependencyResolver(this.engine, this.module,
+                this.parameters, this.repos, baseDir, this.resolutionCacheDir, this.lockFile);
+    }
+
+    /**
+     * Returns an dependency resolver identical to this one but resolving module dependencies with the specified
+     * engine. By default, dependencies are resolved by {@link Engine#IVY}.
+     */
+    public JkDependencyResolver withEngine(Engine engine) {
+        if (engine == this.engine) {
+            return this;
+        }
+        return new JkDependencyResolver(engine, this.module,
+                this.parameters, this.repos, this.baseDir, this.resolutionCacheDir, this.lockFile);
+    }
+
+    /**
+     * Returns the engine resolving module dependencies.
+     */
+    public Engine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Returns an dependency resolver identical to this one but storing the resolution results in the specified
+     * directory. Cached results are reused by subsequent resolutions of the same dependencies against the same
+     * repositories, as long as these dependencies does not involve snapshot or dynamic versions.
+     * By default, results are cached in the Jeka user home.
+     * @param resolutionCacheDir The cache directory or <code>null</code> to disable caching.
+     */
+    public JkDependencyResolver withResolutionCacheDir(Path resolutionCacheDir) {
+        return new JkDependencyResolver(this.engine, this.module,
+                this.parameters, this.repos, this.baseDir, resolutionCacheDir, this.lockFile);
+    }
+
+    /**
+     * Returns an dependency resolver identical to this one but pinning resolution results in the specified lock
+     * file. The lock records, for each set of resolved scopes, the resolved module versions, their scopes and
+     * the SHA-1 checksums of their artifact files. As long as declared dependencies, repositories and resolution
+     * parameters are unchanged, resolution is replaced by locating the locked files in the local cache and verifying
+     * their checksums, so dynamic and snapshot versions stay pinned too. Locked files missing from the local cache
+     * are fetched from repositories and verified the same way : if they can not be fetched, resolution fails rather
+     * than replacing the lock. Otherwise, dependencies are resolved and the lock is rewritten. Delete the lock file
+     * to force a new resolution.
+     * @param lockFile The lock file, typically committed along the project sources, or <code>null</code> to not
+     *                 use any lock.
+     */
+    public JkDependencyResolver withLockFile(Path lockFile) {
+        return new JkDependencyResolver(this.engine, this.module,
+                this.parameters, this.repos, this.baseDir, this.resolutionCacheDir, lockFile);
+    }
+
+    /**
+     * Returns the lock file pinning resolution results, <code>null</code> if no lock is used.
+     */
+    public Path getLockFile() {
+        return lockFile;
+    }
+
+    /**
+     * Returns the directory where resolution results are cached, <code>null</code> if caching is disabled.
+     */
+    public Path getResolutionCacheDir() {
+        return resolutionCacheDir;
     }
 
     /**
@@ -164,21 +327,26 @@ public final class JkDependencyResolver {
      * Returns an alphabetical sorted list of groupId present in these repositories
      */
     public List<String> searchGroups() {
-        return this.jkInternalModuleDepResolver.searchGroups();
+        return this.internalResolver().searchGroups();
     }
 
     /**
      * Returns an alphabetical sorted list of module ids present in these repositories for the specified groupId.
      */
     public List<String> searchModules(String groupId) {
-        return this.jkInternalModuleDepResolver.searchModules(groupId);
+        return this.internalResolver().searchModules(groupId);
     }
 
     /**
      * Returns an alphabetical sorted list of version present in these repositories for the specified moduleId.
      */
     public List<String> searchVersions(JkModuleId moduleId) {
-        return this.jkInternalModuleDepResolver.searchVersions(moduleId);
+        return this.internalResolver().searchVersions(moduleId);
+    }
+
+    // The engine is created only once a resolution or a search actually needs it
+    private JkInternalDepResolver internalResolver() {
+        return engine.internalResolver(repos);
     }
 
     @Override
@@ -39,4 +39,11 @@ public interface JkInternalDepResolver {
                 JkInternalDepResolver.class, factoryClassName, "of", repos);
     }
 
+    /**
+     * Returns a resolver reading Maven POMs by itself, without relying on Ivy.
+     */
+    static JkInternalDepResolver ofMaven(JkRepoSet repos) {
+        return MavenInternalDepResolver.of(repos);
+    }
+
 }
\ No newline at end of file
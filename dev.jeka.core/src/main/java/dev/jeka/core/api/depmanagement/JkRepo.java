@@ -1,6 +1,7 @@
 package dev.jeka.core.api.depmanagement;
 
 import dev.jeka.core.api.system.JkLocator;
+import dev.jeka.core.api.utils.JkUtilsAssert;
 import dev.jeka.core.api.utils.JkUtilsFile;
 import dev.jeka.core.api.utils.JkUtilsIterable;
 import dev.jeka.core.api.utils.JkUtilsPath;
@@ -11,6 +12,8 @@ import java.io.Serializable;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -63,12 +66,15 @@ public final class JkRepo {
 
     private final JkPublishConfig publishConfig;
 
+    private final JkUpdatePolicy updatePolicy;
 
-    private JkRepo(URL url, JkRepoCredential credential, JkRepoIvyConfig ivyConfig, JkPublishConfig publishConfig) {
+    private JkRepo(URL url, JkRepoCredential credential, JkRepoIvyConfig ivyConfig, JkPublishConfig publishConfig,
+                   JkUpdatePolicy updatePolicy) {
         this.url = url;
         this.credential = credential;
         this.ivyConfig = ivyConfig;
         this.publishConfig = publishConfig;
+        this.updatePolicy = updatePolicy;
     }
 
     /**
@@ -81,23 +87,25 @@ public final class JkRepo {
             return ofLocal();
         }
         if (url.toLowerCase().startsWith(IVY_PREFIX)) {
-            return new JkRepo(toUrl(url.substring(4)), null, JkRepoIvyConfig.of(), JkPublishConfig.of());
+            return new JkRepo(toUrl(url.substring(4)), null, JkRepoIvyConfig.of(), JkPublishConfig.of(),
+                    JkUpdatePolicy.DAILY);
         }
-        return new JkRepo(toUrl(url), null, null, JkPublishConfig.of());
+        return new JkRepo(toUrl(url), null, null, JkPublishConfig.of(), JkUpdatePolicy.DAILY);
     }
 
     /**
      * Creates a Maven repository having the specified file location.
      */
     public static JkRepo ofMaven(Path dir) {
-        return new JkRepo(JkUtilsPath.toUrl(dir), null, null, JkPublishConfig.of());
+        return new JkRepo(JkUtilsPath.toUrl(dir), null, null, JkPublishConfig.of(), JkUpdatePolicy.DAILY);
     }
 
     /**
      * Creates a Ivy repository having the specified file location.
      */
     public static JkRepo ofIvy(Path dir) {
-        return new JkRepo(JkUtilsPath.toUrl(dir), null, JkRepoIvyConfig.of(), JkPublishConfig.of());
+        return new JkRepo(JkUtilsPath.toUrl(dir), null, JkRepoIvyConfig.of(), JkPublishConfig.of(),
+                JkUpdatePolicy.DAILY);
     }
 
     /**
@@ -186,11 +194,19 @@ public final class JkRepo {
         return publishConfig;
     }
 
+    /**
+     * Returns the policy telling how often snapshot and dynamic versions are checked again against this repository.
+     * Default is {@link JkUpdatePolicy#DAILY}.
+     */
+    public JkUpdatePolicy getUpdatePolicy() {
+        return updatePolicy;
+    }
+
     /**
      * Returns a copy of this repository but having the specified credentials.
      */
     public JkRepo with(JkRepoCredential credential) {
-        return new JkRepo(this.url, credential, this.ivyConfig, this.publishConfig);
+        return new JkRepo(this.url, credential, this.ivyConfig, this.publishConfig, this.updatePolicy);
     }
 
     public JkRepo withOptionalCredentials(String username, String password) {
@@ -201,7 +217,14 @@ public final class JkRepo {
     }
 
     public JkRepo with(JkPublishConfig publishConfig) {
-        return new JkRepo(this.url, this.credential, this.ivyConfig, publishConfig);
+        return new JkRepo(this.url, this.credential, this.ivyConfig, publishConfig, this.updatePolicy);
+    }
+
+    /**
+     * Returns a copy of this repository but having the specified update policy.
+     */
+    public JkRepo withUpdatePolicy(JkUpdatePolicy updatePolicy) {
+        return new JkRepo(this.url, this.credential, this.ivyConfig, this.publishConfig, updatePolicy);
     }
 
     public JkRepoSet toSet() {
@@ -400,4 +423,105 @@ public final class JkRepo {
         }
     }
 
+    /**
+     * Policy telling how often metadata of snapshot and dynamic versions (as <code>1.0-SNAPSHOT</code> or
+     * <code>1.+</code>) are checked again against a remote repository. Between two checks, metadata and artifacts
+     * previously downloaded in the local cache are used without accessing the network. File system repositories
+     * are always checked, as checking them is cheap.
+     */
+    public static final class JkUpdatePolicy {
+
+        private static final String INTERVAL_PREFIX = "interval:";
+
+        /**
+         * Checks on every resolution.
+         */
+        public static final JkUpdatePolicy ALWAYS = new JkUpdatePolicy("always", 0);
+
+        /**
+         * Checks on the first resolution of the day.
+         */
+        public static final JkUpdatePolicy DAILY = new JkUpdatePolicy("daily", -1);
+
+        /**
+         * Never checks again metadata present in the local cache.
+         */
+        public static final JkUpdatePolicy NEVER = new JkUpdatePolicy("never", Long.MAX_VALUE);
+
+        private final String name;
+
+        // Negative value stands for 'daily'
+        private final long intervalMillis;
+
+        private JkUpdatePolicy(String name, long intervalMillis) {
+            this.name = name;
+            this.intervalMillis = intervalMillis;
+        }
+
+        /**
+         * Creates a policy checking when the specified number of minutes has elapsed since the last check.
+         */
+        public static JkUpdatePolicy ofInterval(int minutes) {
+            JkUtilsAssert.isTrue(minutes >= 0, "Interval can not be negative.");
+            return new JkUpdatePolicy(INTERVAL_PREFIX + minutes, minutes * 60_000L);
+        }
+
+        /**
+         * Creates a policy from its Maven like representation : <code>always</code>, <code>daily</code>,
+         * <code>never</code> or <code>interval:X</code> where <code>X</code> is a number of minutes.
+         */
+        public static JkUpdatePolicy of(String policy) {
+            final String value = policy.trim().toLowerCase();
+            if (value.startsWith(INTERVAL_PREFIX)) {
+                return ofInterval(Integer.parseInt(value.substring(INTERVAL_PREFIX.length()).trim()));
+            }
+            for (final JkUpdatePolicy updatePolicy : JkUtilsIterable.listOf(ALWAYS, DAILY, NEVER)) {
+                if (updatePolicy.name.equals(value)) {
+                    return updatePolicy;
+                }
+            }
+            throw new IllegalArgumentException("Unknown update policy '" + policy + "'. Expecting 'always', "
+                    + "'daily', 'never' or 'interval:X'.");
+        }
+
+        /**
+         * Returns <code>true</code> if metadata checked at the specified time (in milliseconds since epoch) must be
+         * checked again now.
+         */
+        public boolean isExpired(long lastCheckMillis) {
+            return isExpired(lastCheckMillis, System.currentTimeMillis());
+        }
+
+        boolean isExpired(long lastCheckMillis, long nowMillis) {
+            if (intervalMillis < 0) {
+                final ZoneId zoneId = ZoneId.systemDefault();
+                final long startOfDay = Instant.ofEpochMilli(nowMillis).atZone(zoneId).toLocalDate()
+                        .atStartOfDay(zoneId).toInstant().toEpochMilli();
+                return lastCheckMillis < startOfDay;
+            }
+            return intervalMillis != Long.MAX_VALUE && nowMillis - lastCheckMillis >= intervalMillis;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            return name.equals(((JkUpdatePolicy) o).name);
+        }
+
+        @Override
+        public int hashCode() {
+            return name.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
 }
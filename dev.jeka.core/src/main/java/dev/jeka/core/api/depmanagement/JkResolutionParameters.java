@@ -7,6 +7,8 @@ import dev.jeka.core.api.utils.JkUtilsAssert;
  */
 public final class JkResolutionParameters {
 
+    private static final int DEFAULT_DOWNLOAD_THREADS = 8;
+
     /**
      * Creates resolution parameters without default mapping and no dynamic
      * version resolving refresh.
@@ -15,7 +17,7 @@ public final class JkResolutionParameters {
      * @see #isRefreshed()
      */
     public static JkResolutionParameters of() {
-        return new JkResolutionParameters(JkJavaDepScopes.DEFAULT_SCOPE_MAPPING, true);
+        return new JkResolutionParameters(JkJavaDepScopes.DEFAULT_SCOPE_MAPPING, false, DEFAULT_DOWNLOAD_THREADS);
     }
 
     /**
@@ -27,13 +29,15 @@ public final class JkResolutionParameters {
      */
     public static JkResolutionParameters of(JkScopeMapping scopeMapping) {
         JkUtilsAssert.notNull(scopeMapping,"Scope mapping cannot be null.");
-        return new JkResolutionParameters(scopeMapping, true);
+        return new JkResolutionParameters(scopeMapping, false, DEFAULT_DOWNLOAD_THREADS);
     }
 
     private final JkScopeMapping scopeMapping;
 
     private final boolean refreshed;
 
+    private final int downloadThreads;
+
     /**
      * Returns the default scope mapping to use for the {@link JkDependencySet}
      * to be resolved. <code>null</code> means no default scope mapping.
@@ -47,36 +51,56 @@ public final class JkResolutionParameters {
     }
 
     /**
-     * Returns <code>true</code> if during the resolution phase, the dynamic
-     * version must be resolved as well or the cache can be reused.
+     * Returns <code>true</code> if during the resolution phase, snapshot and dynamic
+     * versions must be checked against repositories whatever their update policy.
+     * Otherwise, the cache is reused until the update policy of the repository expires.
+     *
+     * @see JkRepo#getUpdatePolicy()
      */
     public boolean isRefreshed() {
         return refreshed;
     }
 
+    /**
+     * Returns the max number of artifacts downloaded concurrently once the module graph has been resolved.
+     */
+    public int getDownloadThreads() {
+        return downloadThreads;
+    }
+
     /**
      * @see JkResolutionParameters#isRefreshed()
      */
     public JkResolutionParameters isRefreshed(boolean refreshed) {
-        return new JkResolutionParameters(scopeMapping, refreshed);
+        return new JkResolutionParameters(scopeMapping, refreshed, downloadThreads);
     }
 
     /**
      * @see #getScopeMapping()
      */
     public JkResolutionParameters withScopeMapping(JkScopeMapping defaultMapping) {
-        return new JkResolutionParameters(defaultMapping, refreshed);
+        return new JkResolutionParameters(defaultMapping, refreshed, downloadThreads);
+    }
+
+    /**
+     * @see #getDownloadThreads()
+     * @param downloadThreads If 1 or less, artifacts are downloaded one at a time.
+     */
+    public JkResolutionParameters withDownloadThreads(int downloadThreads) {
+        return new JkResolutionParameters(scopeMapping, refreshed, downloadThreads);
     }
 
-    private JkResolutionParameters(JkScopeMapping defaultMapping, boolean refreshed) {
+    private JkResolutionParameters(JkScopeMapping defaultMapping, boolean refreshed, int downloadThreads) {
         super();
         this.scopeMapping = defaultMapping;
         this.refreshed = refreshed;
+        this.downloadThreads = downloadThreads;
     }
 
     @Override
     public String toString() {
-        return "scope mapping : " + scopeMapping + ", isRefreshed : " + refreshed;
+        return "scope mapping : " + scopeMapping + ", isRefreshed : " + refreshed
+                + ", download threads : " + downloadThreads;
     }
 
 }
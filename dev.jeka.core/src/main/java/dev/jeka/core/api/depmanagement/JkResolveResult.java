@@ -10,6 +10,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Result of a module dependency resolution for a given scope.<br/>
@@ -112,6 +113,17 @@ public final class JkResolveResult {
                 this.errorReport.merge(other.errorReport), this.baseDir);
     }
 
+    /**
+     * Returns a resolve result identical to this one but retaining only dependencies involved in any of the
+     * specified scopes (see {@link JkDependencyNode#withScopesOnly(Set)}). The error report retains only problems
+     * on modules involved in these scopes, plus problems on modules absent from the tree as their scopes are unknown.
+     */
+    public JkResolveResult withScopesOnly(JkScope... scopes) {
+        final JkDependencyNode scopedTree = this.depTree.withScopesOnly(JkUtilsIterable.setOf(scopes));
+        return new JkResolveResult(scopedTree, this.errorReport.withModulesOf(this.depTree, scopedTree),
+                this.baseDir);
+    }
+
     JkResolveResult withBaseDir(Path baseDir) {
         return new JkResolveResult(this.depTree, this.errorReport, baseDir.toFile());
     }
@@ -175,6 +187,18 @@ public final class JkResolveResult {
             return this.hasErrors;
         }
 
+        // Problems on modules dropped from the specified tree are dropped too. Errors not tied to a module are kept.
+        private JkErrorReport withModulesOf(JkDependencyNode tree, JkDependencyNode retainedTree) {
+            if (moduleProblems.isEmpty()) {
+                return this;
+            }
+            final List<JkModuleDepProblem> problems = moduleProblems.stream()
+                    .filter(problem -> retainedTree.contains(problem.getModuleId())
+                            || !tree.contains(problem.getModuleId()))
+                    .collect(Collectors.toList());
+            return new JkErrorReport(problems, false);
+        }
+
         @SuppressWarnings("unchecked")
         private JkErrorReport merge(JkErrorReport other) {
             return new JkErrorReport(JkUtilsIterable.concatLists(this.moduleProblems, other.moduleProblems),
@@ -0,0 +1,795 @@
+package dev.jeka.core.api.depmanagement;
+
+import dev.jeka.core.api.depmanagement.JkDependencyNode.JkModuleNodeInfo;
+import dev.jeka.core.api.system.JkLocator;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsIterable;
+import dev.jeka.core.api.utils.JkUtilsThrowable;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/*
+ * Dependency resolver reading Maven POM graphs by itself, within the current class loader. It is an alternative to
+ * the Ivy based resolver, that avoids to load Ivy in its own class loader and to serialize every call to it.
+ *
+ * Jeka scopes are mapped to POM configurations (master, compile, runtime, default, ...) the same way the Ivy based
+ * resolver does, so both resolvers produce similar dependency trees. Version conflicts are resolved as Maven does :
+ * the nearest declaration wins, direct dependencies always win, and versions mentioned in the version provider of
+ * the dependency set override transitive ones. Ivy repositories are ignored.
+ */
+final class MavenInternalDepResolver implements JkInternalDepResolver {
+
+    private static final String DEFAULT_CACHE_DIR = "cache/maven-repo";
+
+    private static final String MASTER = "master";
+
+    private static final String COMPILE = "compile";
+
+    private static final String RUNTIME = "runtime";
+
+    private static final String PROVIDED = "provided";
+
+    private static final String TEST = "test";
+
+    private static final String OPTIONAL = "optional";
+
+    private static final String SOURCES = "sources";
+
+    private static final String JAVADOC = "javadoc";
+
+    private static final String DEFAULT = "default";
+
+    private static final Set<String> POM_CONFS = JkUtilsIterable.setOf(DEFAULT, MASTER, COMPILE, PROVIDED, RUNTIME,
+            TEST, "system", SOURCES, JAVADOC, OPTIONAL);
+
+    private static final Set<String> JAR_PACKAGINGS = JkUtilsIterable.setOf("jar", "bundle", "ejb", "maven-plugin",
+            "eclipse-plugin", "jbi", "orbit", "hk2-jar");
+
+    private static final JkScope ANY_SCOPE = JkScope.of("*");
+
+    private final JkRepoSet repos;
+
+    private final Path cacheDir;
+
+    // Effective POMs of released modules, reused across resolutions
+    private final Map<String, MavenPom> poms = new ConcurrentHashMap<>();
+
+    // Keyed by refresh flag, so metadata are fetched once per build whatever the number of resolutions
+    private final Map<Boolean, MavenRepository> repositories = new ConcurrentHashMap<>();
+
+    private MavenInternalDepResolver(JkRepoSet repos, Path cacheDir) {
+        this.repos = repos;
+        this.cacheDir = cacheDir;
+    }
+
+    static MavenInternalDepResolver of(JkRepoSet repos) {
+        return of(repos, JkLocator.getJekaUserHomeDir().resolve(DEFAULT_CACHE_DIR));
+    }
+
+    static MavenInternalDepResolver of(JkRepoSet repos, Path cacheDir) {
+        return new MavenInternalDepResolver(repos, cacheDir);
+    }
+
+    @Override
+    public JkResolveResult resolve(JkVersionedModule module, JkDependencySet deps,
+                                   JkResolutionParameters parameters, JkScope... resolvedScopes) {
+        final JkResolutionParameters params = parameters == null ? JkResolutionParameters.of() : parameters;
+        final MavenRepository repository = repositories.computeIfAbsent(params.isRefreshed(),
+                refresh -> MavenRepository.of(repos, cacheDir, refresh));
+        return new Resolution(repository, deps, params).run(module, resolvedScopes);
+    }
+
+    @Override
+    public File get(JkModuleDependency dependency) {
+        final MavenRepository repository = MavenRepository.of(repos, cacheDir, true);
+        final String version = resolveVersion(repository, dependency.getModuleId(),
+                dependency.getVersion().getValue());
+        if (version == null) {
+            return null;
+        }
+        final String ext = dependency.getExt() == null ? "jar" : dependency.getExt();
+        final Path file = repository.getArtifact(dependency.getModuleId(), version, dependency.getClassifier(), ext);
+        return file == null ? null : file.toFile();
+    }
+
+    @Override
+    public List<String> searchGroups() {
+        JkLog.trace("Searching groups is not supported by the Maven dependency resolver engine.");
+        return new LinkedList<>();
+    }
+
+    @Override
+    public List<String> searchModules(String groupId) {
+        return MavenRepository.of(repos, cacheDir, true).getModules(groupId);
+    }
+
+    @Override
+    public List<String> searchVersions(JkModuleId moduleId) {
+        return MavenRepository.of(repos, cacheDir, true).getVersions(moduleId).stream()
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    private MavenPom pom(MavenRepository repository, JkModuleId moduleId, String version) {
+        final String key = moduleId + ":" + version;
+        final MavenPom cached = poms.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        final Path file = repository.getPom(moduleId, version);
+        if (file == null) {
+            return null;
+        }
+        final MavenPom pom = MavenPom.of(file, repository::getPom, (id, bomVersion) -> pom(repository, id, bomVersion));
+        if (!JkVersion.of(version).isSnapshot()) {
+            poms.put(key, pom);
+        }
+        return pom;
+    }
+
+    // Returns null if no available version matches
+    private static String resolveVersion(MavenRepository repository, JkModuleId moduleId, String version) {
+        if (!JkVersion.of(version).isDynamicAndResovable()) {
+            return version;
+        }
+        final MavenVersionRange range = MavenVersionRange.of(version);
+        final String result = repository.getVersions(moduleId).stream()
+                .filter(range::contains)
+                .max(MavenVersionRange::compare)
+                .orElse(null);
+        JkLog.trace("Version " + version + " of " + moduleId + " resolved to " + result);
+        return result;
+    }
+
+    // State of a single call to #resolve
+    private final class Resolution {
+
+        private final MavenRepository repository;
+
+        private final JkDependencySet deps;
+
+        private final JkResolutionParameters parameters;
+
+        private final Map<JkModuleId, Direct> directs = new LinkedHashMap<>();
+
+        // Modules by id and resolved version, shared by resolved scopes so POMs and artifacts are fetched once
+        private final Map<String, Module> modules = new LinkedHashMap<>();
+
+        // Resolved versions by module id and declared version, null standing for unresolvable ones
+        private final Map<String, String> resolvedVersions = new HashMap<>();
+
+        // Parent module to children, null standing for the root
+        private final Map<Module, Map<JkModuleId, Edge>> edges = new HashMap<>();
+
+        private final List<JkModuleDepProblem> problems = new LinkedList<>();
+
+        Resolution(MavenRepository repository, JkDependencySet deps, JkResolutionParameters parameters) {
+            this.repository = repository;
+            this.deps = deps;
+            this.parameters = parameters;
+            for (final JkScopedDependency scopedDependency : deps) {
+                if (scopedDependency.getDependency() instanceof JkModuleDependency) {
+                    final JkModuleDependency dependency = (JkModuleDependency) scopedDependency.getDependency();
+                    directs.computeIfAbsent(dependency.getModuleId(), Direct::new)
+                            .add(scopedDependency, parameters.getScopeMapping());
+                }
+            }
+        }
+
+        JkResolveResult run(JkVersionedModule module, JkScope[] resolvedScopes) {
+            for (final JkScope scope : rootScopes(resolvedScopes)) {
+                resolve(scope);
+            }
+            downloadArtifacts();
+            final JkModuleNodeInfo rootInfo = module == null ? JkModuleNodeInfo.ofAnonymousRoot()
+                    : JkModuleNodeInfo.ofRoot(module);
+            final JkDependencyNode tree = JkDependencyNode.ofModuleDep(rootInfo,
+                    children(null, new HashSet<>(), new HashMap<>()));
+            final JkResolveResult.JkErrorReport errorReport = problems.isEmpty()
+                    ? JkResolveResult.JkErrorReport.allFine() : JkResolveResult.JkErrorReport.failure(problems);
+            return JkResolveResult.of(tree, errorReport);
+        }
+
+        // With no scope specified, all declared ones are resolved, as Ivy does
+        private Collection<JkScope> rootScopes(JkScope[] resolvedScopes) {
+            if (resolvedScopes.length > 0) {
+                return Arrays.asList(resolvedScopes);
+            }
+            final Set<JkScope> result = new LinkedHashSet<>(deps.getInvolvedScopes());
+            result.addAll(parameters.getScopeMapping().getEntries());
+            if (result.isEmpty()) {
+                result.add(JkScope.of(DEFAULT));
+            }
+            return result;
+        }
+
+        /*
+         * Breadth first traversal so the nearest declaration of a module is met first. Versions are selected
+         * independently for each scope, so a version brought by a test dependency does not end in the compile scope.
+         * A module met again along a path excluding less modules is traversed again, as a module is excluded only
+         * if all paths leading to it exclude it.
+         */
+        private void resolve(JkScope scope) {
+            final Map<JkModuleId, Selection> selections = new HashMap<>();
+            final Map<Module, List<Visit>> visits = new HashMap<>();
+            final Deque<Occurrence> queue = new ArrayDeque<>();
+            for (final Direct direct : directs.values()) {
+                final Set<String> confs = direct.confs(scope);
+                if (confs.isEmpty() || isGloballyExcluded(direct.moduleId, scope)) {
+                    continue;
+                }
+                final String version = deps.getVersion(direct.moduleId).isUnspecified() ? null
+                        : deps.getVersion(direct.moduleId).getValue();
+                queue.add(new Occurrence(null, direct.moduleId, version, direct.declaredScopes(), confs,
+                        direct.exclusions(), direct.transitive, direct.artifacts(scope)));
+            }
+            while (!queue.isEmpty()) {
+                final Occurrence occurrence = queue.poll();
+                final Selection selection = selections.computeIfAbsent(occurrence.moduleId,
+                        moduleId -> new Selection(occurrence.version, module(moduleId, occurrence.version)));
+                edges.computeIfAbsent(occurrence.parent, key -> new LinkedHashMap<>())
+                        .computeIfAbsent(occurrence.moduleId, key -> new Edge(occurrence.version,
+                                occurrence.declaredScopes))
+                        .modules.add(selection.module);
+                final Module module = selection.module;
+                if (!selection.isSelectedBy(occurrence)) {
+                    JkLog.trace(occurrence.moduleId + ":" + occurrence.version + " evicted by " + module.version);
+                    continue;
+                }
+                module.scopes.add(scope);
+                final Set<String> expandedConfs = expand(occurrence.confs);
+                if (expandedConfs.contains(MASTER)) {
+                    module.artifacts.addAll(occurrence.artifacts);
+                }
+                final Set<String> confs = new HashSet<>(expandedConfs);
+                final List<Visit> moduleVisits = visits.computeIfAbsent(module, key -> new LinkedList<>());
+                moduleVisits.stream()
+                        .filter(visit -> occurrence.exclusions.containsAll(visit.exclusions))
+                        .forEach(visit -> confs.removeAll(visit.confs));
+                if (confs.isEmpty() || module.version == null) {
+                    continue;
+                }
+                moduleVisits.add(new Visit(occurrence.exclusions, confs));
+                if (confs.contains(SOURCES)) {
+                    module.artifacts.add(new Artifact(SOURCES, "jar", true));
+                }
+                if (confs.contains(JAVADOC)) {
+                    module.artifacts.add(new Artifact(JAVADOC, "jar", true));
+                }
+                if (!occurrence.transitive || module.pom == null) {
+                    continue;
+                }
+                for (final MavenPom.Dependency dependency : module.pom.getDependencies()) {
+                    final Set<String> childConfs = childConfs(confs, dependency);
+                    if (childConfs.isEmpty() || isExcluded(occurrence.exclusions, dependency.moduleId)
+                            || isGloballyExcluded(dependency.moduleId, scope)) {
+                        continue;
+                    }
+                    final JkVersion forcedVersion = deps.getVersionProvider().getVersionOf(dependency.moduleId);
+                    final String version = forcedVersion == null ? dependency.version : forcedVersion.getValue();
+                    final Set<JkModuleId> childExclusions = new HashSet<>(occurrence.exclusions);
+                    childExclusions.addAll(dependency.exclusions);
+                    queue.add(new Occurrence(module, dependency.moduleId, version, declaredScopes(dependency),
+                            childConfs, childExclusions, true, artifacts(dependency)));
+                }
+            }
+        }
+
+        // Returns the module standing for the specified declared version, creating it if it is the first request
+        private Module module(JkModuleId moduleId, String declaredVersion) {
+            final String versionKey = moduleId + ":" + declaredVersion;
+            final String version;
+            if (resolvedVersions.containsKey(versionKey)) {
+                version = resolvedVersions.get(versionKey);
+            } else {
+                version = resolveVersionOrReport(moduleId, declaredVersion);
+                resolvedVersions.put(versionKey, version);
+            }
+            final String moduleKey = version == null ? versionKey + " (unresolved)" : moduleId + ":" + version;
+            final Module existing = modules.get(moduleKey);
+            if (existing != null) {
+                return existing;
+            }
+            final Module module = new Module(moduleId, declaredVersion, version);
+            if (version != null) {
+                module.pom = loadPom(moduleId, version);
+            }
+            modules.put(moduleKey, module);
+            return module;
+        }
+
+        private String resolveVersionOrReport(JkModuleId moduleId, String declaredVersion) {
+            if (declaredVersion == null) {
+                problems.add(JkModuleDepProblem.of(moduleId, null, "No version specified."));
+                return null;
+            }
+            final String version = resolveVersion(repository, moduleId, declaredVersion);
+            if (version == null) {
+                problems.add(JkModuleDepProblem.of(moduleId, declaredVersion,
+                        "No version matching " + declaredVersion + " found."));
+            }
+            return version;
+        }
+
+        private MavenPom loadPom(JkModuleId moduleId, String version) {
+            try {
+                final MavenPom pom = pom(repository, moduleId, version);
+                if (pom == null) {
+                    JkLog.trace("No POM found for " + moduleId + ":" + version + ", assuming it has no dependency.");
+                }
+                return pom;
+            } catch (final RuntimeException e) {
+                problems.add(JkModuleDepProblem.of(moduleId, version, e.getMessage()));
+                return null;
+            }
+        }
+
+        private boolean isGloballyExcluded(JkModuleId moduleId, JkScope scope) {
+            for (final JkDepExclude exclude : deps.getGlobalExclusions()) {
+                if (exclude.getModuleId().equals(moduleId) && exclude.getType() == null && exclude.getExt() == null
+                        && (exclude.getScopes().isEmpty() || exclude.getScopes().contains(scope))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void downloadArtifacts() {
+            final List<Module> toDownload = modules.values().stream()
+                    .filter(module -> module.version != null && !module.artifacts.isEmpty())
+                    .collect(Collectors.toList());
+            final int threadCount = Math.min(parameters.getDownloadThreads(), toDownload.size());
+            if (threadCount <= 1) {
+                toDownload.forEach(module -> problems.addAll(download(module)));
+                return;
+            }
+            final ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+            try {
+                final List<Future<List<JkModuleDepProblem>>> futures = new LinkedList<>();
+                for (final Module module : toDownload) {
+                    futures.add(executorService.submit(() -> download(module)));
+                }
+                for (final Future<List<JkModuleDepProblem>> future : futures) {
+                    problems.addAll(get(future));
+                }
+            } finally {
+                executorService.shutdownNow();
+            }
+        }
+
+        private List<JkModuleDepProblem> download(Module module) {
+            final JkModuleId moduleId = module.moduleId;
+            final List<JkModuleDepProblem> result = new LinkedList<>();
+            for (final Artifact artifact : module.artifacts) {
+                final boolean main = artifact.classifier == null && artifact.ext == null;
+                final String packaging = module.pom == null ? "jar" : module.pom.getPackaging();
+                final String ext = !main ? artifact.ext : JAR_PACKAGINGS.contains(packaging) || "pom".equals(packaging)
+                        ? "jar" : packaging;
+                final boolean optional = artifact.optional || (main && "pom".equals(packaging));
+                try {
+                    final Path file = repository.getArtifact(moduleId, module.version, artifact.classifier, ext);
+                    if (file != null && !isExcludedExt(moduleId, ext)) {
+                        module.files.add(file);
+                    } else if (file == null && !optional) {
+                        result.add(JkModuleDepProblem.of(moduleId, module.version, "Artifact "
+                                + (artifact.classifier == null ? "" : artifact.classifier + ":") + ext
+                                + " not found."));
+                    }
+                } catch (final RuntimeException e) {
+                    result.add(JkModuleDepProblem.of(moduleId, module.version, e.getMessage()));
+                }
+            }
+            return result;
+        }
+
+        private boolean isExcludedExt(JkModuleId moduleId, String ext) {
+            for (final JkDepExclude exclude : deps.getGlobalExclusions()) {
+                if (exclude.getModuleId().equals(moduleId) && ext.equals(exclude.getExt())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Children are computed once per module : a module met again in its own subtree is displayed as a leaf.
+        // A dependency selected with distinct versions in distinct scopes stands for one node per version.
+        private List<JkDependencyNode> children(Module parent, Set<Module> inProgress,
+                                                Map<Module, List<JkDependencyNode>> computed) {
+            final List<JkDependencyNode> result = new LinkedList<>();
+            final Map<JkModuleId, Edge> childEdges = edges.getOrDefault(parent, Collections.emptyMap());
+            for (final Map.Entry<JkModuleId, Edge> entry : childEdges.entrySet()) {
+                for (final Module module : entry.getValue().modules) {
+                    final JkVersion resolvedVersion = JkVersion.of(module.version == null ? module.declaredVersion
+                            : module.version);
+                    final JkModuleNodeInfo info = JkModuleNodeInfo.of(entry.getKey(),
+                            JkVersion.of(entry.getValue().version), entry.getValue().declaredScopes, module.scopes,
+                            resolvedVersion, module.files);
+                    List<JkDependencyNode> children = computed.get(module);
+                    if (children == null) {
+                        if (inProgress.add(module)) {
+                            children = children(module, inProgress, computed);
+                            inProgress.remove(module);
+                            computed.put(module, children);
+                        } else {
+                            children = new LinkedList<>();
+                        }
+                    }
+                    result.add(JkDependencyNode.ofModuleDep(info, children));
+                }
+            }
+            return result;
+        }
+
+    }
+
+    // Module dependencies declared in the dependency set, merged by module id
+    private static final class Direct {
+
+        private final JkModuleId moduleId;
+
+        private final List<Declaration> declarations = new LinkedList<>();
+
+        private boolean transitive = true;
+
+        Direct(JkModuleId moduleId) {
+            this.moduleId = moduleId;
+        }
+
+        // Declared non-transitive once means non transitive, as for the Ivy based resolver
+        void add(JkScopedDependency scopedDependency, JkScopeMapping defaultMapping) {
+            final JkModuleDependency dependency = (JkModuleDependency) scopedDependency.getDependency();
+            transitive = transitive && dependency.isTransitive();
+            final boolean main = dependency.getClassifier() == null && dependency.getExt() == null;
+            final Artifact artifact = main ? Artifact.MAIN : new Artifact(dependency.getClassifier(),
+                    dependency.getExt() == null ? "jar" : dependency.getExt(), false);
+            declarations.add(new Declaration(confs(scopedDependency, defaultMapping), artifact,
+                    dependency.getExcludes()));
+        }
+
+        Set<String> confs(JkScope scope) {
+            final Set<String> result = new LinkedHashSet<>();
+            declarations.stream().filter(declaration -> declaration.isInvolvedIn(scope))
+                    .forEach(declaration -> declaration.confs.entrySet().stream()
+                            .filter(entry -> isInvolved(entry.getKey(), scope))
+                            .forEach(entry -> result.addAll(entry.getValue())));
+            return result;
+        }
+
+        Set<Artifact> artifacts(JkScope scope) {
+            return declarations.stream().filter(declaration -> declaration.isInvolvedIn(scope))
+                    .map(declaration -> declaration.artifact)
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+        }
+
+        Set<JkScope> declaredScopes() {
+            final Set<JkScope> result = new HashSet<>();
+            declarations.forEach(declaration -> result.addAll(declaration.confs.keySet()));
+            return result;
+        }
+
+        Set<JkModuleId> exclusions() {
+            final Set<JkModuleId> result = new HashSet<>();
+            declarations.forEach(declaration -> declaration.excludes.stream()
+                    .filter(exclude -> exclude.getType() == null && exclude.getExt() == null)
+                    .forEach(exclude -> result.add(exclude.getModuleId())));
+            return result;
+        }
+
+        // Same rules as the Ivy translation of dependency sets
+        private static Map<JkScope, Set<String>> confs(JkScopedDependency scopedDependency,
+                                                       JkScopeMapping defaultMapping) {
+            final Map<JkScope, Set<String>> result = new LinkedHashMap<>();
+            if (scopedDependency.getScopeType() == JkScopedDependency.ScopeType.MAPPED) {
+                final JkScopeMapping mapping = scopedDependency.getScopeMapping();
+                mapping.getEntries().forEach(scope -> result.put(scope, mapping.getMappedScopes(scope)));
+            } else if (scopedDependency.getScopeType() == JkScopedDependency.ScopeType.SIMPLE) {
+                for (final JkScope scope : scopedDependency.getScopes()) {
+                    final Set<String> targets;
+                    if (defaultMapping.getEntries().isEmpty()) {
+                        targets = JkUtilsIterable.setOf(scope.getName());
+                    } else if (defaultMapping.getEntries().contains(scope)) {
+                        targets = defaultMapping.getMappedScopes(scope);
+                    } else {
+                        targets = JkUtilsIterable.setOf(scope.getName() + "(" + DEFAULT + ")");
+                    }
+                    result.computeIfAbsent(scope, key -> new LinkedHashSet<>()).addAll(targets);
+                }
+            } else if (defaultMapping.getEntries().isEmpty()) {
+                result.put(ANY_SCOPE, JkUtilsIterable.setOf("*"));
+            } else {
+                defaultMapping.getEntries().forEach(scope -> result.put(scope, defaultMapping.getMappedScopes(scope)));
+            }
+            return result;
+        }
+
+        private static boolean isInvolved(JkScope declaredScope, JkScope resolvedScope) {
+            return declaredScope.equals(ANY_SCOPE) || resolvedScope.isInOrIsExtendingAnyOf(declaredScope);
+        }
+
+    }
+
+    private static final class Declaration {
+
+        private final Map<JkScope, Set<String>> confs;  // Jeka scope to POM configurations
+
+        private final Artifact artifact;
+
+        private final List<JkDepExclude> excludes;
+
+        Declaration(Map<JkScope, Set<String>> confs, Artifact artifact, List<JkDepExclude> excludes) {
+            this.confs = confs;
+            this.artifact = artifact;
+            this.excludes = excludes;
+        }
+
+        boolean isInvolvedIn(JkScope scope) {
+            return confs.keySet().stream().anyMatch(declaredScope -> Direct.isInvolved(declaredScope, scope));
+        }
+
+    }
+
+    private static final class Occurrence {
+
+        private final Module parent;
+
+        private final JkModuleId moduleId;
+
+        private final String version;
+
+        private final Set<JkScope> declaredScopes;
+
+        private final Set<String> confs;
+
+        private final Set<JkModuleId> exclusions;  // group or name may be '*'
+
+        private final boolean transitive;
+
+        private final Set<Artifact> artifacts;
+
+        Occurrence(Module parent, JkModuleId moduleId, String version, Set<JkScope> declaredScopes,
+                   Set<String> confs, Set<JkModuleId> exclusions, boolean transitive, Set<Artifact> artifacts) {
+            this.parent = parent;
+            this.moduleId = moduleId;
+            this.version = version;
+            this.declaredScopes = declaredScopes;
+            this.confs = confs;
+            this.exclusions = exclusions;
+            this.transitive = transitive;
+            this.artifacts = artifacts;
+        }
+
+    }
+
+    private static final class Module {
+
+        private final JkModuleId moduleId;
+
+        private final String declaredVersion;
+
+        private final String version;  // null if it could not be resolved
+
+        private final Set<JkScope> scopes = new LinkedHashSet<>();
+
+        private final Set<Artifact> artifacts = new LinkedHashSet<>();
+
+        private final List<Path> files = new LinkedList<>();
+
+        private MavenPom pom;
+
+        Module(JkModuleId moduleId, String declaredVersion, String version) {
+            this.moduleId = moduleId;
+            this.declaredVersion = declaredVersion;
+            this.version = version;
+        }
+
+    }
+
+    // Module selected for a module id while resolving a scope, according its first occurrence
+    private static final class Selection {
+
+        private final String declaredVersion;
+
+        private final Module module;
+
+        Selection(String declaredVersion, Module module) {
+            this.declaredVersion = declaredVersion;
+            this.module = module;
+        }
+
+        boolean isSelectedBy(Occurrence occurrence) {
+            return Objects.equals(occurrence.version, declaredVersion)
+                    || Objects.equals(occurrence.version, module.version);
+        }
+
+    }
+
+    // Configurations of a module already traversed along a path having the specified exclusions
+    private static final class Visit {
+
+        private final Set<JkModuleId> exclusions;
+
+        private final Set<String> confs;
+
+        Visit(Set<JkModuleId> exclusions, Set<String> confs) {
+            this.exclusions = exclusions;
+            this.confs = confs;
+        }
+
+    }
+
+    private static final class Edge {
+
+        private final String version;
+
+        private final Set<JkScope> declaredScopes;
+
+        private final Set<Module> modules = new LinkedHashSet<>();  // Selected ones, one per version
+
+        Edge(String version, Set<JkScope> declaredScopes) {
+            this.version = version;
+            this.declaredScopes = declaredScopes;
+        }
+
+    }
+
+    private static final class Artifact {
+
+        static final Artifact MAIN = new Artifact(null, null, false);
+
+        private final String classifier;
+
+        private final String ext;  // null for the main artifact, which depends on the packaging
+
+        private final boolean optional;
+
+        Artifact(String classifier, String ext, boolean optional) {
+            this.classifier = classifier;
+            this.ext = ext;
+            this.optional = optional;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final Artifact artifact = (Artifact) o;
+            return Objects.equals(classifier, artifact.classifier) && Objects.equals(ext, artifact.ext);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(classifier, ext);
+        }
+
+    }
+
+    private static boolean isExcluded(Set<JkModuleId> exclusions, JkModuleId moduleId) {
+        for (final JkModuleId exclusion : exclusions) {
+            if (matches(exclusion.getGroup(), moduleId.getGroup()) && matches(exclusion.getName(), moduleId.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(String pattern, String value) {
+        return "*".equals(pattern) || pattern.equals(value);
+    }
+
+    // Resolves 'conf(fallback)' and '*' expressions then adds the configurations extended by the POM ones
+    private static Set<String> expand(Set<String> confs) {
+        final Set<String> result = new HashSet<>();
+        for (final String conf : confs) {
+            final int parenthesis = conf.indexOf('(');
+            final String name = parenthesis < 0 ? conf.trim() : conf.substring(0, parenthesis).trim();
+            final String fallback = parenthesis < 0 ? null : conf.substring(parenthesis + 1).replace(")", "").trim();
+            if (name.equals("*")) {
+                result.addAll(POM_CONFS);
+            } else if (POM_CONFS.contains(name)) {
+                result.add(name);
+            } else if ("*".equals(fallback)) {
+                result.addAll(POM_CONFS);
+            } else if (POM_CONFS.contains(fallback)) {
+                result.add(fallback);
+            }
+        }
+        if (result.contains(DEFAULT)) {
+            result.add(RUNTIME);
+            result.add(MASTER);
+        }
+        if (result.contains(TEST)) {
+            result.add(RUNTIME);
+        }
+        if (result.contains(RUNTIME)) {
+            result.add(COMPILE);
+        }
+        return result;
+    }
+
+    // Configurations fetched from a POM dependency, according the configurations fetched from its dependee
+    private static Set<String> childConfs(Set<String> parentConfs, MavenPom.Dependency dependency) {
+        final Set<String> result = new LinkedHashSet<>();
+        final String scope = dependency.getScope();
+        if (dependency.optional) {
+            if (parentConfs.contains(OPTIONAL)) {
+                result.addAll(Arrays.asList(COMPILE, PROVIDED, RUNTIME, MASTER));
+            }
+        } else if (COMPILE.equals(scope)) {
+            if (parentConfs.contains(COMPILE)) {
+                result.addAll(Arrays.asList(COMPILE, MASTER));
+            }
+            if (parentConfs.contains(RUNTIME)) {
+                result.add(RUNTIME);
+            }
+        } else if (RUNTIME.equals(scope)) {
+            if (parentConfs.contains(RUNTIME)) {
+                result.addAll(Arrays.asList(COMPILE, RUNTIME, MASTER));
+            }
+        } else if (PROVIDED.equals(scope)) {
+            if (parentConfs.contains(PROVIDED)) {
+                result.addAll(Arrays.asList(COMPILE, PROVIDED, RUNTIME, MASTER));
+            }
+        } else if (TEST.equals(scope)) {
+            if (parentConfs.contains(TEST)) {
+                result.addAll(Arrays.asList(RUNTIME, MASTER));
+            }
+        }
+        return result;
+    }
+
+    private static Set<JkScope> declaredScopes(MavenPom.Dependency dependency) {
+        if (dependency.optional) {
+            return JkUtilsIterable.setOf(JkScope.of(OPTIONAL));
+        }
+        if (COMPILE.equals(dependency.getScope())) {
+            return JkUtilsIterable.setOf(JkScope.of(COMPILE), JkScope.of(RUNTIME));
+        }
+        return JkUtilsIterable.setOf(JkScope.of(dependency.getScope()));
+    }
+
+    private static Set<Artifact> artifacts(MavenPom.Dependency dependency) {
+        final Set<Artifact> result = new LinkedHashSet<>();
+        if ("pom".equals(dependency.type)) {
+            return result;
+        }
+        if ("test-jar".equals(dependency.type)) {
+            result.add(new Artifact(dependency.classifier == null ? "tests" : dependency.classifier, "jar", false));
+        } else if ("ejb-client".equals(dependency.type)) {
+            result.add(new Artifact(dependency.classifier == null ? "client" : dependency.classifier, "jar", false));
+        } else if (dependency.classifier == null && ("jar".equals(dependency.type)
+                || JAR_PACKAGINGS.contains(dependency.type))) {
+            result.add(Artifact.MAIN);
+        } else {
+            final String ext = JAR_PACKAGINGS.contains(dependency.type) ? "jar" : dependency.type;
+            result.add(new Artifact(dependency.classifier, ext, false));
+        }
+        return result;
+    }
+
+    private static <T> T get(Future<T> future) {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw JkUtilsThrowable.unchecked(e.getCause(), "Artifact download failed.");
+        }
+    }
+
+}
@@ -0,0 +1,337 @@
+package dev.jeka.core.api.depmanagement;
+
+import dev.jeka.core.api.utils.JkUtilsIterable;
+import dev.jeka.core.api.utils.JkUtilsString;
+import dev.jeka.core.api.utils.JkUtilsXml;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.BiFunction;
+
+/*
+ * Effective model of a Maven POM, limited to what matters for dependency resolution : packaging, managed
+ * dependencies and dependencies. As Maven does, parent POMs are inherited first, then placeholders are
+ * interpolated, then BOMs are imported and finally managed versions, scopes and exclusions are injected
+ * into dependencies. Profiles are ignored.
+ */
+final class MavenPom {
+
+    static final String COMPILE = "compile";
+
+    private static final String DEFAULT_TYPE = "jar";
+
+    private static final int MAX_PARENT_DEPTH = 50;
+
+    private final String packaging;
+
+    private final Map<String, Dependency> managedDependencies;
+
+    private final List<Dependency> dependencies;
+
+    private MavenPom(String packaging, Map<String, Dependency> managedDependencies, List<Dependency> dependencies) {
+        this.packaging = packaging;
+        this.managedDependencies = managedDependencies;
+        this.dependencies = dependencies;
+    }
+
+    /**
+     * Creates the effective model of the specified POM file.
+     * @param pomLoader Returns the POM file of the specified module and version, <code>null</code> if it can not
+     *                  be found. It is used to load parent POMs.
+     * @param bomLoader Returns the effective model of the specified module and version. It is used to import BOMs.
+     */
+    static MavenPom of(Path pomFile, BiFunction<JkModuleId, String, Path> pomLoader,
+                       BiFunction<JkModuleId, String, MavenPom> bomLoader) {
+        final Model model = Model.of(pomFile);
+        final Set<String> visited = new HashSet<>();
+        Model current = model;
+        while (current.parentModuleId != null) {
+            final String parent = current.parentModuleId + ":" + current.parentVersion;
+            if (!visited.add(parent) || visited.size() > MAX_PARENT_DEPTH) {
+                throw new IllegalStateException("Cyclic parent declaration " + parent + " in " + pomFile);
+            }
+            final Path parentFile = pomLoader.apply(current.parentModuleId, current.parentVersion);
+            if (parentFile == null) {
+                throw new IllegalStateException("Parent POM " + parent + " of " + pomFile + " not found.");
+            }
+            final Model parentModel = Model.of(parentFile);
+            model.inherit(parentModel);
+            current = parentModel;
+        }
+        final Map<String, String> properties = model.interpolationProperties();
+        final Map<String, Dependency> managedDependencies = new LinkedHashMap<>();
+        final List<Dependency> imports = new LinkedList<>();
+        for (final Dependency dependency : model.managedDependencies.values()) {
+            final Dependency interpolated = dependency.interpolate(properties);
+            if ("import".equals(interpolated.scope) && "pom".equals(interpolated.type)) {
+                imports.add(interpolated);
+            } else {
+                managedDependencies.put(interpolated.key(), interpolated);
+            }
+        }
+        for (final Dependency imported : imports) {  // explicitly managed dependencies win over imported ones
+            final MavenPom bom = bomLoader.apply(imported.moduleId, imported.version);
+            if (bom == null) {
+                throw new IllegalStateException("Imported BOM " + imported.moduleId + ":" + imported.version
+                        + " of " + pomFile + " not found.");
+            }
+            bom.managedDependencies.forEach(managedDependencies::putIfAbsent);
+        }
+        final List<Dependency> dependencies = new LinkedList<>();
+        for (final Dependency dependency : model.dependencies.values()) {
+            final Dependency interpolated = dependency.interpolate(properties);
+            dependencies.add(interpolated.manage(managedDependencies.get(interpolated.key())));
+        }
+        final String packaging = model.packaging == null ? DEFAULT_TYPE : interpolate(model.packaging, properties);
+        return new MavenPom(packaging, managedDependencies, dependencies);
+    }
+
+    String getPackaging() {
+        return packaging;
+    }
+
+    List<Dependency> getDependencies() {
+        return dependencies;
+    }
+
+    /*
+     * A dependency declared in a POM. Version may be null when it is neither declared nor managed.
+     */
+    static final class Dependency {
+
+        final JkModuleId moduleId;
+
+        final String version;
+
+        final String scope;
+
+        final String type;
+
+        final String classifier;
+
+        final boolean optional;
+
+        final List<JkModuleId> exclusions;  // group or name may be '*'
+
+        private Dependency(JkModuleId moduleId, String version, String scope, String type, String classifier,
+                           boolean optional, List<JkModuleId> exclusions) {
+            this.moduleId = moduleId;
+            this.version = version;
+            this.scope = scope;
+            this.type = type;
+            this.classifier = classifier;
+            this.optional = optional;
+            this.exclusions = exclusions;
+        }
+
+        private static Dependency of(Element element) {
+            final List<JkModuleId> exclusions = new LinkedList<>();
+            final Element exclusionsEl = JkUtilsXml.directChild(element, "exclusions");
+            if (exclusionsEl != null) {
+                for (final Element exclusion : JkUtilsXml.directChildren(exclusionsEl, "exclusion")) {
+                    exclusions.add(JkModuleId.of(text(exclusion, "groupId", "*"), text(exclusion, "artifactId", "*")));
+                }
+            }
+            return new Dependency(JkModuleId.of(text(element, "groupId", null), text(element, "artifactId", null)),
+                    text(element, "version", null), text(element, "scope", null),
+                    text(element, "type", DEFAULT_TYPE), text(element, "classifier", null),
+                    Boolean.parseBoolean(text(element, "optional", "false")), exclusions);
+        }
+
+        String getScope() {
+            return scope == null ? COMPILE : scope;
+        }
+
+        boolean isExcluding(JkModuleId candidate) {
+            for (final JkModuleId exclusion : exclusions) {
+                if (matches(exclusion.getGroup(), candidate.getGroup())
+                        && matches(exclusion.getName(), candidate.getName())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private String key() {
+            return moduleId + ":" + type + ":" + (classifier == null ? "" : classifier);
+        }
+
+        private Dependency interpolate(Map<String, String> properties) {
+            final List<JkModuleId> interpolatedExclusions = new LinkedList<>();
+            exclusions.forEach(exclusion -> interpolatedExclusions.add(JkModuleId.of(
+                    MavenPom.interpolate(exclusion.getGroup(), properties),
+                    MavenPom.interpolate(exclusion.getName(), properties))));
+            return new Dependency(JkModuleId.of(MavenPom.interpolate(moduleId.getGroup(), properties),
+                    MavenPom.interpolate(moduleId.getName(), properties)), MavenPom.interpolate(version, properties),
+                    MavenPom.interpolate(scope, properties), MavenPom.interpolate(type, properties),
+                    MavenPom.interpolate(classifier, properties), optional, interpolatedExclusions);
+        }
+
+        private Dependency manage(Dependency managed) {
+            if (managed == null) {
+                return this;
+            }
+            final List<JkModuleId> mergedExclusions = new LinkedList<>(exclusions);  // Managed ones add up
+            JkUtilsIterable.addAllWithoutDuplicate(mergedExclusions, managed.exclusions);
+            return new Dependency(moduleId, version == null ? managed.version : version,
+                    scope == null ? managed.scope : scope, type, classifier, optional, mergedExclusions);
+        }
+
+        private static boolean matches(String pattern, String value) {
+            return "*".equals(pattern) || pattern.equals(value);
+        }
+
+        @Override
+        public String toString() {
+            return moduleId + ":" + version + " (" + getScope() + ")";
+        }
+
+    }
+
+    // Raw content of a POM file, before interpolation
+    private static final class Model {
+
+        private JkModuleId parentModuleId;
+
+        private String parentVersion;
+
+        private String groupId;
+
+        private String artifactId;
+
+        private String version;
+
+        private String packaging;
+
+        private Model parentModel;
+
+        private final Map<String, String> properties = new HashMap<>();
+
+        private final Map<String, Dependency> managedDependencies = new LinkedHashMap<>();
+
+        private final Map<String, Dependency> dependencies = new LinkedHashMap<>();
+
+        private static Model of(Path pomFile) {
+            final Element project = JkUtilsXml.documentFrom(pomFile).getDocumentElement();
+            final Model model = new Model();
+            final Element parent = JkUtilsXml.directChild(project, "parent");
+            if (parent != null) {
+                model.parentModuleId = JkModuleId.of(text(parent, "groupId", null), text(parent, "artifactId", null));
+                model.parentVersion = text(parent, "version", null);
+            }
+            model.groupId = text(project, "groupId", model.parentModuleId == null ? null
+                    : model.parentModuleId.getGroup());
+            model.artifactId = text(project, "artifactId", null);
+            model.version = text(project, "version", model.parentVersion);
+            model.packaging = text(project, "packaging", null);
+            final Element properties = JkUtilsXml.directChild(project, "properties");
+            if (properties != null) {
+                final NodeList nodes = properties.getChildNodes();
+                for (int i = 0; i < nodes.getLength(); i++) {
+                    if (nodes.item(i) instanceof Element) {
+                        final Element property = (Element) nodes.item(i);
+                        model.properties.put(property.getTagName(), property.getTextContent().trim());
+                    }
+                }
+            }
+            final Element dependencyManagement = JkUtilsXml.directChild(project, "dependencyManagement");
+            if (dependencyManagement != null) {
+                addDependencies(JkUtilsXml.directChild(dependencyManagement, "dependencies"),
+                        model.managedDependencies);
+            }
+            addDependencies(JkUtilsXml.directChild(project, "dependencies"), model.dependencies);
+            return model;
+        }
+
+        private static void addDependencies(Element dependenciesEl, Map<String, Dependency> dependencies) {
+            if (dependenciesEl == null) {
+                return;
+            }
+            for (final Element element : JkUtilsXml.directChildren(dependenciesEl, "dependency")) {
+                final Dependency dependency = Dependency.of(element);
+                dependencies.put(dependency.key(), dependency);
+            }
+        }
+
+        // Elements declared in this model win over the ones inherited from the parent
+        private void inherit(Model parent) {
+            parent.properties.forEach(properties::putIfAbsent);
+            parent.managedDependencies.forEach(managedDependencies::putIfAbsent);
+            parent.dependencies.forEach(dependencies::putIfAbsent);
+            if (parentModel == null) {
+                parentModel = parent;
+            }
+        }
+
+        private Map<String, String> interpolationProperties() {
+            final Map<String, String> result = new HashMap<>();
+            System.getProperties().forEach((key, value) -> result.put(key.toString(), value.toString()));
+            result.putAll(properties);
+            putProjectProperties(result, "project.", this);
+            putProjectProperties(result, "pom.", this);
+            putProjectProperties(result, "", this);
+            if (parentModel != null) {
+                putProjectProperties(result, "project.parent.", parentModel);
+                putProjectProperties(result, "parent.", parentModel);
+            }
+            return result;
+        }
+
+        private static void putProjectProperties(Map<String, String> properties, String prefix, Model model) {
+            putIfNotNull(properties, prefix + "groupId", model.groupId);
+            putIfNotNull(properties, prefix + "artifactId", model.artifactId);
+            putIfNotNull(properties, prefix + "version", model.version);
+        }
+
+        private static void putIfNotNull(Map<String, String> map, String key, String value) {
+            if (value != null) {
+                map.put(key, value);
+            }
+        }
+
+    }
+
+    private static String text(Element parent, String childName, String defaultValue) {
+        final String value = JkUtilsXml.directChildText(parent, childName);
+        return JkUtilsString.isBlank(value) ? defaultValue : value.trim();
+    }
+
+    // Replaces ${...} placeholders, including nested ones. Unknown placeholders are left as is.
+    static String interpolate(String value, Map<String, String> properties) {
+        if (value == null || !value.contains("${")) {
+            return value;
+        }
+        String result = value;
+        for (int i = 0; i < 20 && result.contains("${"); i++) {
+            final StringBuilder builder = new StringBuilder();
+            int index = 0;
+            boolean replaced = false;
+            while (index < result.length()) {
+                final int start = result.indexOf("${", index);
+                final int end = start < 0 ? -1 : result.indexOf('}', start);
+                if (start < 0 || end < 0) {
+                    builder.append(result.substring(index));
+                    break;
+                }
+                builder.append(result, index, start);
+                final String name = result.substring(start + 2, end);
+                final String propertyValue = properties.get(name);
+                if (propertyValue != null) {
+                    builder.append(propertyValue);
+                    replaced = true;
+                } else {
+                    builder.append(result, start, end + 1);
+                }
+                index = end + 1;
+            }
+            result = builder.toString();
+            if (!replaced) {
+                break;
+            }
+        }
+        return result;
+    }
+
+}
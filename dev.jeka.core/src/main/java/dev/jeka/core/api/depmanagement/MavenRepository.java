@@ -0,0 +1,371 @@
+package dev.jeka.core.api.depmanagement;
+
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsHttp;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsString;
+import dev.jeka.core.api.utils.JkUtilsXml;
+import org.w3c.dom.Element;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/*
+ * Set of Maven repositories accessed without Ivy. Files of remote repositories are downloaded in a local cache
+ * having the Maven repository layout, files of file system repositories are used in place. Downloaded files are
+ * verified against their SHA-1 checksum when the repository provides one.
+ * Released files are downloaded once while snapshots and version listings are looked up again when the update
+ * policy of their repository has expired since the last check, which is the last modification time of the cached
+ * file, or when refresh is required. Such lookups are conditional requests, so unchanged files are not downloaded
+ * again. Connections are released without being closed to be reused for next requests on the same host.
+ */
+final class MavenRepository {
+
+    private static final int CONNECT_TIMEOUT = 30_000;
+
+    private static final int READ_TIMEOUT = 60_000;
+
+    private static final int MAX_REDIRECTS = 5;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String METADATA_FILE = "maven-metadata.xml";
+
+    private final List<JkRepo> repos;
+
+    private final Path cacheDir;
+
+    private final boolean refresh;
+
+    // Metadata content by url, empty array meaning 'not found'
+    private final Map<String, byte[]> metadata = new ConcurrentHashMap<>();
+
+    private MavenRepository(List<JkRepo> repos, Path cacheDir, boolean refresh) {
+        this.repos = repos;
+        this.cacheDir = cacheDir;
+        this.refresh = refresh;
+    }
+
+    /*
+     * Ivy repositories of the specified set are ignored.
+     */
+    static MavenRepository of(JkRepoSet repoSet, Path cacheDir, boolean refresh) {
+        final List<JkRepo> repos = repoSet.getRepoList().stream()
+                .filter(repo -> !repo.isIvyRepo())
+                .collect(Collectors.toList());
+        if (repos.size() < repoSet.getRepoList().size()) {
+            JkLog.trace("Ivy repositories are ignored by the Maven dependency resolver engine.");
+        }
+        return new MavenRepository(repos, cacheDir, refresh);
+    }
+
+    Path getCacheDir() {
+        return cacheDir;
+    }
+
+    /*
+     * Returns the POM file of the specified module, <code>null</code> if no repository contains it.
+     */
+    Path getPom(JkModuleId moduleId, String version) {
+        return getFile(moduleId, version, null, "pom");
+    }
+
+    /*
+     * Returns the specified artifact file, <code>null</code> if no repository contains it.
+     */
+    Path getArtifact(JkModuleId moduleId, String version, String classifier, String ext) {
+        return getFile(moduleId, version, classifier, ext);
+    }
+
+    /*
+     * Returns the versions of the specified module available in the repositories, as mentioned in the
+     * maven-metadata.xml files.
+     */
+    List<String> getVersions(JkModuleId moduleId) {
+        final Set<String> result = new LinkedHashSet<>();
+        final String path = moduleDir(moduleId) + "/" + METADATA_FILE;
+        for (final JkRepo repo : repos) {
+            final byte[] content = getMetadata(repo, path);
+            if (content.length == 0) {
+                if (isFileSystem(repo)) {  // local repositories may have no metadata
+                    result.addAll(listDirs(fileSystemPath(repo).resolve(moduleDir(moduleId))));
+                }
+                continue;
+            }
+            final Element versioning = JkUtilsXml.directChild(JkUtilsXml.documentFrom(
+                    new String(content, StandardCharsets.UTF_8)).getDocumentElement(), "versioning");
+            final Element versions = versioning == null ? null : JkUtilsXml.directChild(versioning, "versions");
+            if (versions != null) {
+                JkUtilsXml.directChildren(versions, "version").forEach(el -> result.add(el.getTextContent().trim()));
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    /*
+     * Returns the module names of the specified group, found in file system repositories.
+     */
+    List<String> getModules(String groupId) {
+        final Set<String> result = new TreeSet<>();
+        for (final JkRepo repo : repos) {
+            if (isFileSystem(repo)) {
+                result.addAll(listDirs(fileSystemPath(repo).resolve(groupId.replace('.', '/'))));
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    private Path getFile(JkModuleId moduleId, String version, String classifier, String ext) {
+        final boolean snapshot = JkVersion.of(version).isSnapshot();
+        final String dir = moduleDir(moduleId) + "/" + version;
+        final String baseName = fileName(moduleId, version, classifier, ext);
+        final Path cachedFile = cacheDir.resolve(dir).resolve(baseName);
+        if (!snapshot && Files.exists(cachedFile)) {
+            return cachedFile;
+        }
+        for (final JkRepo repo : repos) {
+            if (isFileSystem(repo)) {
+                final Path file = fileSystemPath(repo).resolve(dir).resolve(baseName);
+                if (Files.exists(file)) {
+                    return file;
+                }
+                continue;
+            }
+            final String name = snapshot ? snapshotFileName(repo, moduleId, version, classifier, ext) : baseName;
+            final Path target = cacheDir.resolve(dir).resolve(name);
+            final boolean changing = snapshot && name.equals(baseName);  // Non-unique snapshot
+            if (Files.exists(target) && !(changing && isCheckDue(repo, target))) {
+                return target;
+            }
+            if (download(repo, dir + "/" + name, target, changing)) {
+                return target;
+            }
+        }
+        return null;
+    }
+
+    // Unique snapshots are stored under their timestamped name so a new snapshot leads to a new file
+    private String snapshotFileName(JkRepo repo, JkModuleId moduleId, String version, String classifier,
+                                    String ext) {
+        final byte[] content = getMetadata(repo, moduleDir(moduleId) + "/" + version + "/" + METADATA_FILE);
+        if (content.length == 0) {
+            return fileName(moduleId, version, classifier, ext);
+        }
+        JkMavenMetadata.Versioning.JkSnapshot snapshot;
+        try {
+            snapshot = JkMavenMetadata.of(new ByteArrayInputStream(content)).currentSnapshot();
+        } catch (final RuntimeException e) {  // metadata without versioning
+            snapshot = null;
+        }
+        if (snapshot == null || snapshot.timestamp == null) {
+            return fileName(moduleId, version, classifier, ext);
+        }
+        final String uniqueVersion = JkUtilsString.substringBeforeLast(version, "-SNAPSHOT") + "-"
+                + snapshot.timestamp + "-" + snapshot.buildNumber;
+        return fileName(moduleId, uniqueVersion, classifier, ext);
+    }
+
+    private byte[] getMetadata(JkRepo repo, String path) {
+        final String url = url(repo, path);
+        final byte[] cached = metadata.get(url);
+        if (cached != null) {
+            return cached;
+        }
+        byte[] content = new byte[0];
+        final Path cachedFile = cacheDir.resolve(path + "-" + Integer.toHexString(url.hashCode()));
+        if (isFileSystem(repo)) {
+            final Path file = fileSystemPath(repo).resolve(path);
+            if (Files.exists(file)) {
+                content = JkUtilsPath.readAllBytes(file);
+            }
+        } else if (Files.exists(cachedFile) && !isCheckDue(repo, cachedFile)) {
+            content = JkUtilsPath.readAllBytes(cachedFile);
+        } else if (download(repo, path, cachedFile, true)) {
+            content = JkUtilsPath.readAllBytes(cachedFile);
+        }
+        metadata.put(url, content);
+        return content;
+    }
+
+    private boolean isCheckDue(JkRepo repo, Path cachedFile) {
+        if (refresh) {
+            return true;
+        }
+        try {
+            return repo.getUpdatePolicy().isExpired(Files.getLastModifiedTime(cachedFile).toMillis());
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Returns false if the file does not exist in the repository. If conditional, the target file is kept as is
+    // when it has not changed in the repository since it has been downloaded, its modification time recording
+    // the check.
+    private boolean download(JkRepo repo, String path, Path target, boolean conditional) {
+        final String url = url(repo, path);
+        try {
+            final HttpURLConnection connection = open(repo, new URL(url), conditional ? target : null);
+            if (connection == null) {
+                return false;
+            }
+            if (connection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                JkUtilsHttp.release(connection);
+                JkLog.trace("Not modified since last download " + url);
+                Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+                return true;
+            }
+            JkUtilsPath.createDirectories(target.getParent());
+            final Path tempFile = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".part");
+            try {
+                final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+                try (InputStream inputStream = new DigestInputStream(connection.getInputStream(), digest);
+                     OutputStream outputStream = Files.newOutputStream(tempFile)) {
+                    copy(inputStream, outputStream);
+                } finally {
+                    JkUtilsHttp.release(connection);
+                }
+                final String expectedSha1 = fetchChecksum(repo, url + ".sha1");
+                final String actualSha1 = JkUtilsString.toHexString(digest.digest());
+                if (expectedSha1 != null && !expectedSha1.equalsIgnoreCase(actualSha1)) {
+                    throw new IOException("Invalid SHA-1 checksum for " + url + " : expected " + expectedSha1
+                            + " but was " + actualSha1);
+                }
+                JkLog.trace("Downloaded " + url);
+                Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                if (conditional) {
+                    JkUtilsHttp.storeValidators(connection, target);
+                }
+                return true;
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Error while downloading " + url + " : " + e.getMessage(), e);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String fetchChecksum(JkRepo repo, String url) throws IOException {
+        final HttpURLConnection connection = open(repo, new URL(url), null);
+        if (connection == null) {
+            return null;
+        }
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (InputStream inputStream = connection.getInputStream()) {
+            copy(inputStream, outputStream);
+        } finally {
+            JkUtilsHttp.release(connection);
+        }
+        final String content = new String(outputStream.toByteArray(), StandardCharsets.UTF_8).trim();
+        return content.isEmpty() ? null : content.split("\\s+")[0];
+    }
+
+    // Returns null if the resource does not exist. Redirects are followed across protocols. If a downloaded file is
+    // specified, the request is conditional and the returned connection may answer 'not modified'.
+    private static HttpURLConnection open(JkRepo repo, URL url, Path downloadedFile) throws IOException {
+        URL current = url;
+        for (int i = 0; i <= MAX_REDIRECTS; i++) {
+            final HttpURLConnection connection = (HttpURLConnection) JkUtilsHttp.openConnection(current);
+            connection.setConnectTimeout(CONNECT_TIMEOUT);
+            connection.setReadTimeout(READ_TIMEOUT);
+            connection.setInstanceFollowRedirects(false);
+            if (repo.hasCredentials() && current.getHost().equals(repo.getUrl().getHost())) {
+                final String credentials = repo.getCredential().getUserName() + ":"
+                        + repo.getCredential().getPassword();
+                connection.setRequestProperty("Authorization", "Basic "
+                        + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+            }
+            if (downloadedFile != null) {
+                JkUtilsHttp.addConditionalHeaders(connection, downloadedFile);
+            }
+            final int code = connection.getResponseCode();
+            if (code == HttpURLConnection.HTTP_NOT_FOUND || code == HttpURLConnection.HTTP_GONE) {
+                JkUtilsHttp.release(connection);
+                return null;
+            }
+            if (code == HttpURLConnection.HTTP_NOT_MODIFIED && downloadedFile != null) {
+                return connection;
+            }
+            if (code >= 300 && code < 400 && connection.getHeaderField("Location") != null) {
+                current = new URL(current, connection.getHeaderField("Location"));
+                JkUtilsHttp.release(connection);
+                continue;
+            }
+            if (code != HttpURLConnection.HTTP_OK) {
+                JkUtilsHttp.release(connection);
+                throw new IOException("HTTP response code " + code + " for " + current);
+            }
+            return connection;
+        }
+        throw new IOException("Too many redirects for " + url);
+    }
+
+    private static void copy(InputStream inputStream, OutputStream outputStream) throws IOException {
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int count;
+        while ((count = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, count);
+        }
+    }
+
+    private static String moduleDir(JkModuleId moduleId) {
+        return moduleId.getGroup().replace('.', '/') + "/" + moduleId.getName();
+    }
+
+    private static String fileName(JkModuleId moduleId, String version, String classifier, String ext) {
+        return moduleId.getName() + "-" + version + (classifier == null ? "" : "-" + classifier) + "." + ext;
+    }
+
+    private static String url(JkRepo repo, String path) {
+        final String base = repo.getUrl().toString();
+        return (base.endsWith("/") ? base : base + "/") + path;
+    }
+
+    private static boolean isFileSystem(JkRepo repo) {
+        return "file".equals(repo.getUrl().getProtocol());
+    }
+
+    private static Path fileSystemPath(JkRepo repo) {
+        try {
+            return Paths.get(repo.getUrl().toURI());
+        } catch (final URISyntaxException e) {
+            return Paths.get(repo.getUrl().getPath());
+        }
+    }
+
+    private static List<String> listDirs(Path dir) {
+        if (!Files.isDirectory(dir)) {
+            return new LinkedList<>();
+        }
+        try (Stream<Path> stream = Files.list(dir)) {
+            return stream.filter(Files::isDirectory)
+                    .map(path -> path.getFileName().toString())
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
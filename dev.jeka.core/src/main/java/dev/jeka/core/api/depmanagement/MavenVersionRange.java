@@ -0,0 +1,153 @@
+package dev.jeka.core.api.depmanagement;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+
+/*
+ * Dynamic version as understood by the Maven resolver engine : Ivy like prefixes ('1.2.+', '+'),
+ * 'latest.release', 'latest.integration' and Maven or Ivy ranges ('[1.0,2.0)', '[1.0,2.0[', '(,1.0]').
+ * Versions are compared block by block, numeric blocks numerically, the way Maven roughly does.
+ */
+final class MavenVersionRange {
+
+    private static final List<String> QUALIFIERS = Arrays.asList("alpha", "a", "beta", "b", "milestone",
+            "m", "rc", "cr", "snapshot", "", "final", "ga", "release", "sp");
+
+    private final String prefix;  // for '+' versions
+
+    private final boolean includeSnapshots;
+
+    private final String lowerBound;
+
+    private final boolean lowerInclusive;
+
+    private final String upperBound;
+
+    private final boolean upperInclusive;
+
+    private MavenVersionRange(String prefix, boolean includeSnapshots, String lowerBound, boolean lowerInclusive,
+                              String upperBound, boolean upperInclusive) {
+        this.prefix = prefix;
+        this.includeSnapshots = includeSnapshots;
+        this.lowerBound = lowerBound;
+        this.lowerInclusive = lowerInclusive;
+        this.upperBound = upperBound;
+        this.upperInclusive = upperInclusive;
+    }
+
+    static MavenVersionRange of(String version) {
+        if (version.equals("+") || version.equals("latest.integration")) {
+            return new MavenVersionRange("", true, null, false, null, false);
+        }
+        if (version.equals("latest.release") || version.startsWith("latest.")) {
+            return new MavenVersionRange("", false, null, false, null, false);
+        }
+        if (version.endsWith("+")) {
+            return new MavenVersionRange(version.substring(0, version.length() - 1), false, null, false, null,
+                    false);
+        }
+        final char first = version.charAt(0);
+        final char last = version.charAt(version.length() - 1);
+        final String content = version.substring(1, version.length() - 1);
+        if (!content.contains(",")) {   // [1.0] stands for exactly 1.0
+            return new MavenVersionRange(null, false, content.trim(), true, content.trim(), true);
+        }
+        final String lower = content.substring(0, content.indexOf(',')).trim();
+        final String upper = content.substring(content.indexOf(',') + 1).trim();
+        return new MavenVersionRange(null, false, lower.isEmpty() ? null : lower, first == '[',
+                upper.isEmpty() ? null : upper, last == ']');
+    }
+
+    boolean contains(String version) {
+        if (prefix != null) {
+            return version.startsWith(prefix) && (includeSnapshots || !JkVersion.of(version).isSnapshot());
+        }
+        if (lowerBound != null) {
+            final int comparison = compare(version, lowerBound);
+            if (comparison < 0 || (comparison == 0 && !lowerInclusive)) {
+                return false;
+            }
+        }
+        if (upperBound != null) {
+            final int comparison = compare(version, upperBound);
+            return comparison < 0 || (comparison == 0 && upperInclusive);
+        }
+        return true;
+    }
+
+    static int compare(String version1, String version2) {
+        final List<String> blocks1 = blocks(version1);
+        final List<String> blocks2 = blocks(version2);
+        for (int i = 0; i < Math.max(blocks1.size(), blocks2.size()); i++) {
+            final String block1 = i < blocks1.size() ? blocks1.get(i) : "";
+            final String block2 = i < blocks2.size() ? blocks2.get(i) : "";
+            final int result = compareBlocks(block1, block2);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+
+    // Missing or qualifier blocks are lower than numeric ones, release being greater than pre-release qualifiers
+    private static int compareBlocks(String block1, String block2) {
+        final boolean numeric1 = isNumeric(block1);
+        final boolean numeric2 = isNumeric(block2);
+        if (numeric1 && numeric2) {
+            return new BigInteger(block1).compareTo(new BigInteger(block2));
+        }
+        if (numeric1) {
+            return block2.isEmpty() && isZero(block1) ? 0 : 1;
+        }
+        if (numeric2) {
+            return block1.isEmpty() && isZero(block2) ? 0 : -1;
+        }
+        final int index1 = QUALIFIERS.indexOf(block1);
+        final int index2 = QUALIFIERS.indexOf(block2);
+        if (index1 >= 0 && index2 >= 0) {
+            return Integer.compare(index1, index2);
+        }
+        if (index1 >= 0) {
+            return -1;
+        }
+        if (index2 >= 0) {
+            return 1;
+        }
+        return block1.compareTo(block2);
+    }
+
+    private static List<String> blocks(String version) {
+        final List<String> result = new LinkedList<>();
+        final StringBuilder current = new StringBuilder();
+        for (final char c : version.toLowerCase(Locale.ROOT).toCharArray()) {
+            final boolean separator = c == '.' || c == '-' || c == '_';
+            final boolean transition = current.length() > 0
+                    && Character.isDigit(c) != Character.isDigit(current.charAt(current.length() - 1));
+            if (separator || transition) {
+                if (current.length() > 0) {
+                    result.add(current.toString());
+                    current.setLength(0);
+                }
+            }
+            if (!separator) {
+                current.append(c);
+            }
+        }
+        if (current.length() > 0) {
+            result.add(current.toString());
+        }
+        return result;
+    }
+
+    private static boolean isNumeric(String block) {
+        return !block.isEmpty() && block.chars().allMatch(Character::isDigit);
+    }
+
+    private static boolean isZero(String block) {
+        return block.chars().allMatch(c -> c == '0');
+    }
+
+}
@@ -0,0 +1,249 @@
+package dev.jeka.core.api.depmanagement;
+
+import dev.jeka.core.api.file.JkBuildCache;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsString;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/*
+ * On-disk cache of module dependency trees, keyed by a hash of everything that may influence the result of a
+ * resolution : the dependencies along their versions and exclusions, the repositories and the scopes.
+ * Resolutions involving snapshot or dynamic versions, either declared or resolved transitively, are not cached as
+ * their result may change over time.
+ * An entry is ignored as soon as one of its artifact files has been deleted.
+ */
+final class ResolutionCache {
+
+    private static final String HEADER = "# Jeka resolution cache v2";
+
+    private static final String SEPARATOR = "\t";
+
+    private static final String EVICTED = "<evicted>";
+
+    private final Path dir;
+
+    private ResolutionCache(Path dir) {
+        this.dir = dir;
+    }
+
+    static ResolutionCache of(Path dir) {
+        return new ResolutionCache(dir);
+    }
+
+    /*
+     * Returns true if the result of resolving the specified dependencies is expected to never change.
+     */
+    static boolean isCacheable(JkDependencySet dependencies) {
+        for (final JkScopedDependency scopedDependency : dependencies) {
+            if (scopedDependency.getDependency() instanceof JkModuleDependency) {
+                final JkModuleDependency moduleDependency = (JkModuleDependency) scopedDependency.getDependency();
+                JkVersion version = moduleDependency.getVersion();
+                if (version.isUnspecified()) {
+                    version = dependencies.getVersionProvider().getVersionOf(moduleDependency.getModuleId());
+                }
+                if (version == null || version.isDynamic()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Returns true if the specified result is expected to never change, that is no module of the tree has a
+     * dynamic declared version nor a snapshot resolved version, even when brought transitively.
+     */
+    static boolean isCacheable(JkResolveResult resolveResult) {
+        for (final JkDependencyNode node : resolveResult.getDependencyTree().toFlattenList()) {
+            if (!node.isModuleNode()) {
+                continue;
+            }
+            final JkDependencyNode.JkModuleNodeInfo info = node.getModuleInfo();
+            final JkVersion resolvedVersion = info.getResolvedVersion();
+            if (info.getDeclaredVersion().isDynamic() || (resolvedVersion != null && resolvedVersion.isSnapshot())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static String key(String engine, JkVersionedModule module, JkDependencySet dependencies,
+                      JkResolutionParameters parameters, JkRepoSet repos, JkScope[] scopes) {
+        final JkBuildCache.JkFingerprint fingerprint = JkBuildCache.fingerprint("dependency-resolution")
+                .and(HEADER, engine)
+                .and(module == null ? "<anonymous>" : module.toString());
+        for (final JkScopedDependency scopedDependency : dependencies) {
+            final JkModuleDependency dependency = (JkModuleDependency) scopedDependency.getDependency();
+            fingerprint.and(scopedDependency.toString(), dependency.getExt(),
+                    Boolean.toString(dependency.isTransitive()));
+            dependency.getExcludes().forEach(exclude -> fingerprint.and(toString(exclude)));
+        }
+        fingerprint.and("<exclusions>");
+        dependencies.getGlobalExclusions().stream().map(ResolutionCache::toString).sorted().forEach(fingerprint::and);
+        fingerprint.and("<versions>");
+        dependencies.getVersionProvider().getModuleIds().stream()
+                .map(moduleId -> moduleId + ":" + dependencies.getVersionProvider().getVersionOf(moduleId))
+                .sorted().forEach(fingerprint::and);
+        fingerprint.and("<repos>");
+        for (final JkRepo repo : repos.getRepoList()) {
+            fingerprint.and(repo.getUrl().toString());
+            if (repo.isIvyRepo()) {
+                fingerprint.and(repo.getIvyConfig().artifactPatterns()).and(repo.getIvyConfig().ivyPatterns());
+            }
+        }
+        fingerprint.and("<scopes>", parameters.getScopeMapping().toString());
+        Arrays.stream(scopes).map(JkScope::getName).forEach(fingerprint::and);
+        return fingerprint.get();
+    }
+
+    /*
+     * Returns the cached resolve result for the specified key or <code>null</code> if no valid entry exists.
+     * Scopes mentioned in the entry are mapped to the specified known scopes, when possible.
+     */
+    JkResolveResult get(String key, Set<JkScope> knownScopes) {
+        final Path file = entryFile(key);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        final Map<String, JkScope> scopes = new HashMap<>();
+        knownScopes.forEach(scope -> scopes.put(scope.getName(), scope));
+        try {
+            final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            if (lines.isEmpty() || !HEADER.equals(lines.get(0))) {
+                return null;
+            }
+            final JkDependencyNode tree = readNode(lines.listIterator(1), 0, scopes,
+                    (module, item) -> existingFile(item));
+            return tree == null ? null : JkResolveResult.of(tree, JkResolveResult.JkErrorReport.allFine());
+        } catch (final IOException | RuntimeException e) {
+            JkLog.trace("Resolution cache entry " + file + " can not be read : " + e.getMessage());
+            return null;
+        }
+    }
+
+    /*
+     * Stores the specified resolve result. Results having errors or that may change over time are not stored.
+     */
+    void put(String key, JkResolveResult resolveResult) {
+        if (resolveResult.getErrorReport().hasErrors() || !isCacheable(resolveResult)) {
+            return;
+        }
+        final List<String> lines = new LinkedList<>();
+        lines.add(HEADER);
+        writeNode(resolveResult.getDependencyTree(), 0, lines, path -> path.toAbsolutePath().toString());
+        final Path file = entryFile(key);
+        JkUtilsPath.createDirectories(dir);
+        try {
+            final Path tempFile = Files.createTempFile(dir, key, ".tmp");
+            Files.write(tempFile, lines, StandardCharsets.UTF_8);
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path entryFile(String key) {
+        return dir.resolve(key + ".txt");
+    }
+
+    private static Path existingFile(String item) {
+        final Path file = Paths.get(item);
+        if (!Files.exists(file)) {
+            JkLog.trace("Resolution cache entry refers to missing file " + file);
+            return null;
+        }
+        return file;
+    }
+
+    // Node lines are : depth, module id, declared version, declared scopes, resolved scopes, resolved version,
+    // root flag and artifact files, as written by the specified file encoder.
+    static void writeNode(JkDependencyNode node, int depth, List<String> lines, Function<Path, String> fileEncoder) {
+        final JkDependencyNode.JkModuleNodeInfo info = node.getModuleInfo();
+        final List<String> items = new LinkedList<>();
+        items.add(Integer.toString(depth));
+        items.add(info.getModuleId().toString());
+        items.add(info.getDeclaredVersion().getValue());
+        items.add(toNames(info.getDeclaredScopes()));
+        items.add(toNames(info.getResolvedScopes()));
+        items.add(info.isEvicted() ? EVICTED : info.getResolvedVersion().getValue());
+        items.add(Boolean.toString(info.isTreeRoot()));
+        info.getFiles().forEach(path -> items.add(fileEncoder.apply(path)));
+        lines.add(String.join(SEPARATOR, items));
+        for (final JkDependencyNode child : node.getChildren()) {
+            writeNode(child, depth + 1, lines, fileEncoder);
+        }
+    }
+
+    /*
+     * Reads a node written by #writeNode. Returns <code>null</code> as soon as the specified file decoder returns
+     * <code>null</code> for one of the artifact files. The decoder is passed the module the file belongs to.
+     */
+    static JkDependencyNode readNode(ListIterator<String> lines, int depth, Map<String, JkScope> scopes,
+                                     BiFunction<JkVersionedModule, String, Path> fileDecoder) {
+        final String[] items = lines.next().split(SEPARATOR, -1);
+        if (Integer.parseInt(items[0]) != depth) {
+            throw new IllegalStateException("Unexpected depth " + items[0]);
+        }
+        final JkVersion resolvedVersion = EVICTED.equals(items[5]) ? null : JkVersion.of(items[5]);
+        final JkVersionedModule versionedModule = JkVersionedModule.of(JkModuleId.of(items[1]),
+                resolvedVersion == null ? JkVersion.of(items[2]) : resolvedVersion);
+        final List<Path> files = new LinkedList<>();
+        for (int i = 7; i < items.length; i++) {
+            final Path file = fileDecoder.apply(versionedModule, items[i]);
+            if (file == null) {
+                return null;
+            }
+            files.add(file);
+        }
+        final JkDependencyNode.JkModuleNodeInfo info = new JkDependencyNode.JkModuleNodeInfo(
+                JkModuleId.of(items[1]), JkVersion.of(items[2]), toScopes(items[3], scopes),
+                toScopes(items[4], scopes), resolvedVersion, files, Boolean.parseBoolean(items[6]));
+        final List<JkDependencyNode> children = new LinkedList<>();
+        while (lines.hasNext()) {
+            final String next = lines.next();
+            lines.previous();
+            if (Integer.parseInt(JkUtilsString.substringBeforeFirst(next, SEPARATOR)) <= depth) {
+                break;
+            }
+            final JkDependencyNode child = readNode(lines, depth + 1, scopes, fileDecoder);
+            if (child == null) {
+                return null;
+            }
+            children.add(child);
+        }
+        return JkDependencyNode.ofModuleDep(info, children);
+    }
+
+    static String toNames(Set<JkScope> scopes) {
+        return scopes.stream().map(JkScope::getName).sorted().collect(Collectors.joining(","));
+    }
+
+    private static Set<JkScope> toScopes(String names, Map<String, JkScope> knownScopes) {
+        final Set<JkScope> result = new HashSet<>();
+        if (names.isEmpty()) {
+            return result;
+        }
+        for (final String name : names.split(",")) {
+            result.add(knownScopes.computeIfAbsent(name, JkScope::of));
+        }
+        return result;
+    }
+
+    private static String toString(JkDepExclude exclude) {
+        return exclude.getModuleId() + ":" + exclude.getType() + ":" + exclude.getExt() + ":"
+                + toNames(exclude.getScopes());
+    }
+
+}
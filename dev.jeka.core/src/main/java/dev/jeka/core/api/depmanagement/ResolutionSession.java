@@ -0,0 +1,89 @@
+package dev.jeka.core.api.depmanagement;
+
+import dev.jeka.core.api.file.JkBuildCache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/*
+ * State shared by all dependency resolutions of a build. Resolver engines are pooled per repositories, so Ivy
+ * settings, module descriptors and POMs they have parsed are reused by every project resolving on the same
+ * repositories. Module resolution results that can not change over time are memoized as well, so projects declaring
+ * the same module dependencies get them resolved once. JVMs running several builds, as the daemon, clear this state
+ * between builds so snapshot and dynamic versions are checked again according to repository update policies.
+ */
+final class ResolutionSession {
+
+    private static final Map<String, JkInternalDepResolver> RESOLVERS = new ConcurrentHashMap<>();
+
+    private static final Map<String, JkResolveResult> RESULTS = new ConcurrentHashMap<>();
+
+    private ResolutionSession() {
+    }
+
+    /*
+     * Returns the resolver pooled for the specified engine and repositories, creating it with the specified factory
+     * if none exists yet.
+     */
+    static JkInternalDepResolver resolver(JkDependencyResolver.Engine engine, JkRepoSet repos,
+                                          Supplier<JkInternalDepResolver> factory) {
+        return RESOLVERS.computeIfAbsent(engine.name() + "|" + key(repos), key -> factory.get());
+    }
+
+    /*
+     * Returns the result memoized for the specified key, rooted to the specified module, or <code>null</code> if
+     * no result has been memoized for this key.
+     */
+    static JkResolveResult result(String key, JkVersionedModule module) {
+        final JkResolveResult result = RESULTS.get(key);
+        if (result == null) {
+            return null;
+        }
+        final JkDependencyNode.JkModuleNodeInfo rootInfo = module == null
+                ? JkDependencyNode.JkModuleNodeInfo.ofAnonymousRoot()
+                : JkDependencyNode.JkModuleNodeInfo.ofRoot(module);
+        return JkResolveResult.of(JkDependencyNode.ofModuleDep(rootInfo, result.getDependencyTree().getChildren()),
+                result.getErrorReport());
+    }
+
+    /*
+     * Memoizes the specified result for the specified key. Results having errors or involving snapshot versions are
+     * not memoized.
+     */
+    static void putResult(String key, JkResolveResult result) {
+        if (!result.getErrorReport().hasErrors() && ResolutionCache.isCacheable(result)) {
+            RESULTS.put(key, result);
+        }
+    }
+
+    /*
+     * Forgets pooled resolvers and memoized results.
+     */
+    static void clear() {
+        RESOLVERS.clear();
+        RESULTS.clear();
+    }
+
+    // Repositories are equal by url only while credentials, Ivy patterns and update policies matter for resolution.
+    // Passwords are hashed so they are not kept in clear in keys.
+    private static String key(JkRepoSet repos) {
+        final StringBuilder builder = new StringBuilder();
+        for (final JkRepo repo : repos.getRepoList()) {
+            builder.append(repo.getUrl()).append(' ').append(repo.getUpdatePolicy());
+            if (repo.isIvyRepo()) {
+                builder.append(' ').append(repo.getIvyConfig().artifactPatterns())
+                        .append(' ').append(repo.getIvyConfig().ivyPatterns());
+            }
+            final JkRepo.JkRepoCredential credential = repo.getCredential();
+            if (credential != null) {
+                builder.append(' ').append(credential.getRealm()).append(' ').append(credential.getUserName())
+                        .append(' ').append(JkBuildCache.fingerprint("password")
+                                .and(String.valueOf(credential.getPassword())).get());
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+}
@@ -1,28 +1,58 @@
 package dev.jeka.core.api.depmanagement.embedded.ivy;
 
+import dev.jeka.core.api.system.JkLocator;
+import dev.jeka.core.api.utils.JkUtilsHttp;
+import dev.jeka.core.api.utils.JkUtilsString;
+import org.apache.ivy.core.settings.TimeoutConstraint;
 import org.apache.ivy.util.CopyProgressListener;
 import org.apache.ivy.util.FileUtil;
 import org.apache.ivy.util.Message;
 import org.apache.ivy.util.url.BasicURLHandler;
 import org.apache.ivy.util.url.IvyAuthenticator;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 /**
  * BasicURLHandler does not handle http redirect. This class fixes this missing
- * feature.
+ * feature. <p>
+ * Unlike BasicURLHandler, connections are released without being disconnected so the JDK keeps them alive for next
+ * requests on the same host. maven-metadata.xml files are fetched with conditional requests, so they are not
+ * downloaded again when unchanged.
  */
 final class IvyFollowRedirectUrlHandler extends BasicURLHandler {
 
     private static final int BUFFER_SIZE = 64 * 1024;
 
+    private static final String METADATA_FILE = "maven-metadata.xml";
+
+    private static final String METADATA_CACHE_DIR = "http-metadata";
+
     @Override
     public void download(URL src, File dest, CopyProgressListener l) throws IOException {
+        download(src, dest, l, null);
+    }
+
+    // Ivy 2.5 downloads through this method when available
+    @Override
+    public void download(URL src, File dest, CopyProgressListener l, TimeoutConstraint timeoutConstraint)
+            throws IOException {
         // Install the IvyAuthenticator
         if ("http".equals(src.getProtocol()) || "https".equals(src.getProtocol())) {
             IvyAuthenticator.install();
@@ -31,39 +61,69 @@ final class IvyFollowRedirectUrlHandler extends BasicURLHandler {
         URLConnection srcConn = null;
         try {
             src = normalizeToURL(src);
-            srcConn = src.openConnection();
+            srcConn = JkUtilsHttp.openConnection(src);
+            setTimeouts(srcConn, timeoutConstraint);
             srcConn.setRequestProperty("User-Agent", getUserAgent());
-            srcConn.setRequestProperty("Accept-Encoding", "gzip,deflate");
+            final boolean resumable = isResumable(dest) && srcConn instanceof HttpURLConnection;
+            final long resumeFrom = resumable ? JkUtilsHttp.addResumeHeaders(srcConn, dest.toPath()) : 0;
+            if (resumeFrom == 0) {
+                srcConn.setRequestProperty("Accept-Encoding", "gzip,deflate");
+            }
+            boolean partial = false;
             if (srcConn instanceof HttpURLConnection) {
                 final HttpURLConnection httpCon = (HttpURLConnection) srcConn;
                 final boolean redirect = checkRedirect(httpCon);
                 if (redirect) {
                     final String newUrl = httpCon.getHeaderField("Location");
-                    disconnect(srcConn);
-                    download(new URL(newUrl), dest, l);
+                    JkUtilsHttp.release(srcConn);
+                    download(new URL(newUrl), dest, l, timeoutConstraint);
                     return;
                 }
-                if (!checkStatusCode(src, httpCon)) {
+                final int status = httpCon.getResponseCode();
+                if (resumeFrom > 0 && status == HttpStatus.SC_RANGE_NOT_SATISFIABLE) {
+                    Message.verbose("Can not resume download of " + src + " : restart from zero.");
+                    JkUtilsHttp.release(srcConn);
+                    deletePartialDownload(dest);
+                    download(src, dest, l, timeoutConstraint);
+                    return;
+                }
+                partial = resumeFrom > 0 && status == HttpStatus.SC_PARTIAL_CONTENT;
+                if (!partial && !checkStatusCode(src, httpCon)) {
                     throw new IOException("The HTTP response code for " + src
                             + " did not indicate a success." + " See log for more detail.");
                 }
+                if (resumeFrom > 0 && !partial) {
+                    Message.verbose(src + " has changed since its download has been interrupted : restart from zero.");
+                }
+                if (resumable && !partial) {  // Allows to resume this download if interrupted
+                    JkUtilsHttp.storeValidators(srcConn, dest.toPath());
+                }
             }
 
             // do the download
             final InputStream inStream = getDecodingInputStream(srcConn.getContentEncoding(),
                     srcConn.getInputStream());
-            FileUtil.copy(inStream, dest, l);
+            if (partial) {
+                Message.verbose("Resuming download of " + src + " from byte " + resumeFrom);
+                try (OutputStream outputStream = new FileOutputStream(dest, true)) {
+                    FileUtil.copy(inStream, outputStream, l);
+                }
+            } else {
+                FileUtil.copy(inStream, dest, l);  // Overwrites any partial content
+            }
 
             // check content length only if content was not encoded
             if (srcConn.getContentEncoding() == null) {
                 final int contentLength = srcConn.getContentLength();
-                if (contentLength != -1 && dest.length() != contentLength) {
-                    dest.delete();
+                final long expectedLength = partial ? resumeFrom + contentLength : contentLength;
+                if (contentLength != -1 && dest.length() != expectedLength) {
+                    deletePartialDownload(dest);
                     throw new IOException(
                             "Downloaded file size doesn't match expected Content Length for " + src
                                     + ". Please retry.");
                 }
             }
+            JkUtilsHttp.deleteValidators(dest.toPath());
 
             // update modification date
             final long lastModified = srcConn.getLastModified();
@@ -71,8 +131,158 @@ final class IvyFollowRedirectUrlHandler extends BasicURLHandler {
                 dest.setLastModified(lastModified);
             }
         } finally {
-            disconnect(srcConn);
+            JkUtilsHttp.release(srcConn);
+        }
+    }
+
+    // Ivy checks resources through this method, often before downloading anything
+    @Override
+    public URLInfo getURLInfo(URL url, TimeoutConstraint timeoutConstraint) {
+        if (!isHttp(url)) {
+            return super.getURLInfo(url, timeoutConstraint);
+        }
+        IvyAuthenticator.install();
+        HttpURLConnection connection = null;
+        try {
+            final URL normalizedUrl = normalizeToURL(url);
+            connection = (HttpURLConnection) JkUtilsHttp.openConnection(normalizedUrl);
+            setTimeouts(connection, timeoutConstraint);
+            connection.setRequestProperty("User-Agent", getUserAgent());
+            connection.setRequestMethod("HEAD");
+            if (checkStatusCode(normalizedUrl, connection)) {
+                return new HttpURLInfo(connection.getContentLengthLong(), connection.getLastModified(),
+                        getCharSetFromContentType(connection.getContentType()));
+            }
+        } catch (final UnknownHostException e) {
+            Message.warn("Host " + e.getMessage() + " not found. url=" + url);
+        } catch (final IOException e) {
+            Message.error("Server access error at url " + url, e);
+        } finally {
+            JkUtilsHttp.release(connection);
+        }
+        return UNAVAILABLE;
+    }
+
+    @Override
+    public InputStream openStream(URL url) throws IOException {
+        return openStream(url, null);
+    }
+
+    @Override
+    public InputStream openStream(URL url, TimeoutConstraint timeoutConstraint) throws IOException {
+        if (!isHttp(url)) {
+            return super.openStream(url, timeoutConstraint);
+        }
+        IvyAuthenticator.install();
+        final URL normalizedUrl = normalizeToURL(url);
+        final Path cachedFile = normalizedUrl.getPath().endsWith(METADATA_FILE) ? metadataCacheFile(normalizedUrl)
+                : null;
+        final HttpURLConnection connection = (HttpURLConnection) JkUtilsHttp.openConnection(normalizedUrl);
+        try {
+            setTimeouts(connection, timeoutConstraint);
+            connection.setRequestProperty("User-Agent", getUserAgent());
+            connection.setRequestProperty("Accept-Encoding", "gzip,deflate");
+            if (cachedFile != null) {
+                JkUtilsHttp.addConditionalHeaders(connection, cachedFile);
+                if (connection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                    Message.verbose("Not modified since last download " + normalizedUrl);
+                    return new ByteArrayInputStream(Files.readAllBytes(cachedFile));
+                }
+            }
+            if (!checkStatusCode(normalizedUrl, connection)) {
+                throw new IOException("The HTTP response code for " + normalizedUrl
+                        + " did not indicate a success." + " See log for more detail.");
+            }
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            try (InputStream inputStream = getDecodingInputStream(connection.getContentEncoding(),
+                    connection.getInputStream())) {
+                FileUtil.copy(inputStream, outputStream, null);
+            }
+            final byte[] content = outputStream.toByteArray();
+            if (cachedFile != null) {
+                Files.createDirectories(cachedFile.getParent());
+                final Path tempFile = Files.createTempFile(cachedFile.getParent(), cachedFile.getFileName().toString(),
+                        ".part");
+                Files.write(tempFile, content);
+                Files.move(tempFile, cachedFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                JkUtilsHttp.storeValidators(connection, cachedFile);
+            }
+            return new ByteArrayInputStream(content);
+        } finally {
+            JkUtilsHttp.release(connection);
+        }
+    }
+
+    @Override
+    public void upload(File src, URL dest, CopyProgressListener listener) throws IOException {
+        upload(src, dest, listener, null);
+    }
+
+    @Override
+    public void upload(File src, URL dest, CopyProgressListener listener, TimeoutConstraint timeoutConstraint)
+            throws IOException {
+        if (!isHttp(dest)) {
+            throw new UnsupportedOperationException("URL repository only support HTTP PUT at the moment");
+        }
+        IvyAuthenticator.install();
+        HttpURLConnection connection = null;
+        try {
+            final URL normalizedUrl = normalizeToURL(dest);
+            connection = (HttpURLConnection) JkUtilsHttp.openConnection(normalizedUrl);
+            connection.setDoOutput(true);
+            setTimeouts(connection, timeoutConstraint);
+            connection.setRequestMethod("PUT");
+            connection.setRequestProperty("User-Agent", getUserAgent());
+            connection.setRequestProperty("Content-type", "application/octet-stream");
+            connection.setRequestProperty("Content-length", Long.toString(src.length()));
+            connection.setInstanceFollowRedirects(true);
+            try (InputStream inputStream = new FileInputStream(src)) {
+                final OutputStream outputStream = connection.getOutputStream();
+                FileUtil.copy(inputStream, outputStream, listener);
+            }
+            validatePutStatusCode(normalizedUrl, connection.getResponseCode(), connection.getResponseMessage());
+        } finally {
+            JkUtilsHttp.release(connection);
+        }
+    }
+
+    private static boolean isHttp(URL url) {
+        return "http".equals(url.getProtocol()) || "https".equals(url.getProtocol());
+    }
+
+    private static void setTimeouts(URLConnection connection, TimeoutConstraint timeoutConstraint) {
+        if (timeoutConstraint != null && timeoutConstraint.getConnectionTimeout() > 0) {
+            connection.setConnectTimeout(timeoutConstraint.getConnectionTimeout());
         }
+        if (timeoutConstraint != null && timeoutConstraint.getReadTimeout() > 0) {
+            connection.setReadTimeout(timeoutConstraint.getReadTimeout());
+        }
+    }
+
+    // Metadata files are stored by url digest, as Ivy does not keep them in its own cache
+    static Path metadataCacheFile(URL url) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-1")
+                    .digest(url.toExternalForm().getBytes(StandardCharsets.UTF_8));
+            return JkLocator.getJekaRepositoryCache().resolve(METADATA_CACHE_DIR)
+                    .resolve(JkUtilsString.toHexString(digest) + "-" + METADATA_FILE);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /*
+     * Ivy resolvers download artifacts in '.part' files before moving them to the cache. Such files are left over
+     * when a download is interrupted, so we can resume from there, provided the resource has not changed since.
+     * Checksums are verified by the resolver once the download completes.
+     */
+    private static boolean isResumable(File dest) {
+        return dest.getName().endsWith(".part");
+    }
+
+    private static void deletePartialDownload(File dest) {
+        dest.delete();
+        JkUtilsHttp.deleteValidators(dest.toPath());
     }
 
     private boolean checkRedirect(HttpURLConnection con) throws IOException {
@@ -104,75 +314,22 @@ final class IvyFollowRedirectUrlHandler extends BasicURLHandler {
         return false;
     }
 
-    private void disconnect(URLConnection con) {
-        if (con instanceof HttpURLConnection) {
-            if (!"HEAD".equals(((HttpURLConnection) con).getRequestMethod())) {
-                // We must read the response body before disconnecting!
-                // Cfr.
-                // http://java.sun.com/j2se/1.5.0/docs/guide/net/http-keepalive.html
-                // [quote]Do not abandon a connection by ignoring the response
-                // body. Doing
-                // so may results in idle TCP connections.[/quote]
-                readResponseBody((HttpURLConnection) con);
-            }
-
-            ((HttpURLConnection) con).disconnect();
-        } else if (con != null) {
-            try {
-                con.getInputStream().close();
-            } catch (final IOException e) {
-                // ignored
-            }
-        }
-    }
-
-    /**
-     * Read and ignore the response body.
-     */
-    private void readResponseBody(HttpURLConnection conn) {
-        final byte[] buffer = new byte[BUFFER_SIZE];
-
-        InputStream inStream = null;
-        try {
-            inStream = conn.getInputStream();
-            while (inStream.read(buffer) > 0) {
-                // Skip content
-            }
-        } catch (final IOException e) {
-            // ignore
-        } finally {
-            if (inStream != null) {
-                try {
-                    inStream.close();
-                } catch (final IOException e) {
-                    // ignore
-                }
-            }
-        }
+    private static final class HttpURLInfo extends URLInfo {
 
-        final InputStream errStream = conn.getErrorStream();
-        if (errStream != null) {
-            try {
-                while (errStream.read(buffer) > 0) {
-                    // Skip content
-                }
-            } catch (final IOException e) {
-                // ignore
-            } finally {
-                try {
-                    errStream.close();
-                } catch (final IOException e) {
-                    // ignore
-                }
-            }
+        HttpURLInfo(long contentLength, long lastModified, String bodyCharset) {
+            super(true, contentLength, lastModified, bodyCharset);
         }
     }
 
     private static final class HttpStatus {
         static final int SC_OK = 200;
 
+        static final int SC_PARTIAL_CONTENT = 206;
+
         static final int SC_PROXY_AUTHENTICATION_REQUIRED = 407;
 
+        static final int SC_RANGE_NOT_SATISFIABLE = 416;
+
         private HttpStatus() {
         }
     }
@@ -2,6 +2,7 @@ package dev.jeka.core.api.depmanagement.embedded.ivy;
 
 import dev.jeka.core.api.depmanagement.*;
 import dev.jeka.core.api.depmanagement.JkDependencyNode.JkModuleNodeInfo;
+import dev.jeka.core.api.file.JkBuildCache;
 import dev.jeka.core.api.system.JkLocator;
 import dev.jeka.core.api.system.JkLog;
 import dev.jeka.core.api.utils.JkUtilsIterable;
@@ -9,6 +10,7 @@ import dev.jeka.core.api.utils.JkUtilsObject;
 import dev.jeka.core.api.utils.JkUtilsThrowable;
 import org.apache.ivy.Ivy;
 import org.apache.ivy.core.IvyContext;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
 import org.apache.ivy.core.cache.ResolutionCacheManager;
 import org.apache.ivy.core.module.descriptor.Configuration;
 import org.apache.ivy.core.module.descriptor.DefaultArtifact;
@@ -23,6 +25,7 @@ import org.apache.ivy.core.resolve.IvyNodeCallers.Caller;
 import org.apache.ivy.core.resolve.ResolveOptions;
 import org.apache.ivy.core.search.SearchEngine;
 import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.resolver.AbstractResolver;
 import org.apache.ivy.util.url.URLHandlerRegistry;
 
 import java.io.File;
@@ -41,8 +44,13 @@ final class IvyInternalDepResolver implements JkInternalDepResolver {
 
     private static final Random RANDOM = new Random();
 
+    private static final String DOWNLOAD_CHECKSUMS = "sha1,md5";
+
     private static final String[] IVY_24_ALL_CONF = new String[] { "*(public)" };
 
+    // Parsed module descriptors kept in memory, as instances are shared by all projects of a build
+    private static final int DESCRIPTOR_MEMORY_CACHE_SIZE = 2000;
+
     private final Ivy ivy;
 
     private IvyInternalDepResolver(Ivy ivy) {
@@ -75,6 +83,20 @@ final class IvyInternalDepResolver implements JkInternalDepResolver {
         final IvySettings ivySettings = new IvySettings();
         IvyTranslations.populateIvySettingsWithRepo(ivySettings, resolveRepos);
         ivySettings.setDefaultCache(JkLocator.getJekaRepositoryCache().toFile());
+        ivySettings.setVariable("ivy.checksums", DOWNLOAD_CHECKSUMS);  // Downloaded files are verified when possible
+        if (ivySettings.getDefaultRepositoryCacheManager() instanceof DefaultRepositoryCacheManager) {
+            ((DefaultRepositoryCacheManager) ivySettings.getDefaultRepositoryCacheManager())
+                    .setMemorySize(DESCRIPTOR_MEMORY_CACHE_SIZE);
+        }
+        for (final JkRepo repo : resolveRepos.getRepoList()) {
+            if (!"file".equals(repo.getUrl().getProtocol())) {  // File system repositories are always checked
+                final IvyUpdatePolicyCacheManager cacheManager = new IvyUpdatePolicyCacheManager(repo, ivySettings,
+                        JkLocator.getJekaRepositoryCache().toFile());
+                cacheManager.setMemorySize(DESCRIPTOR_MEMORY_CACHE_SIZE);
+                ivySettings.addRepositoryCacheManager(cacheManager);
+                ((AbstractResolver) ivySettings.getResolver(repo.toString())).setRepositoryCacheManager(cacheManager);
+            }
+        }
         return ivySettings;
     }
 
@@ -87,9 +109,10 @@ final class IvyInternalDepResolver implements JkInternalDepResolver {
         return of(ivySettings);
     }
 
+    // Synchronized as instances are shared by projects that may be built concurrently
     @SuppressWarnings("unchecked")
     @Override
-    public JkResolveResult resolve(JkVersionedModule moduleArg, JkDependencySet deps,
+    public synchronized JkResolveResult resolve(JkVersionedModule moduleArg, JkDependencySet deps,
                                    JkResolutionParameters parameters, JkScope ... resolvedScopes) {
         final JkVersionedModule module;
         if (moduleArg == null) {
@@ -108,13 +131,33 @@ final class IvyInternalDepResolver implements JkInternalDepResolver {
         resolveOptions.setLog(logLevel());
         resolveOptions.setRefresh(parameters.isRefreshed());
         resolveOptions.setCheckIfChanged(true);
+        final String resolutionKey = resolutionKey(moduleDescriptor);
+        final List<IvyUpdatePolicyCacheManager> checkedCaches = updatePolicyCaches().stream()
+                .filter(cache -> cache.prepare(resolutionKey, parameters.isRefreshed()))
+                .collect(Collectors.toList());
         resolveOptions.setOutputReport(true);
         if (resolvedScopes.length == 0) {   // if no scope, verbose ivy report turns in exception
             resolveOptions.setOutputReport(false);
         }
+        final boolean outputReport = resolveOptions.isOutputReport();
+        final boolean parallelDownload = parameters.getDownloadThreads() > 1;
+        if (parallelDownload) {  // Ivy downloads artifacts one by one, so we resolve the graph first
+            resolveOptions.setDownload(false);
+            resolveOptions.setOutputReport(false);
+        }
         final ResolveReport ivyReport;
         try {
             ivyReport = ivy.resolve(moduleDescriptor, resolveOptions);
+            if (parallelDownload) {
+                final DownloadOptions downloadOptions = new DownloadOptions();
+                downloadOptions.setLog(resolveOptions.getLog());
+                IvyParallelDownloader.of(ivy, parameters.getDownloadThreads())
+                        .downloadArtifacts(ivyReport, resolveOptions.getArtifactFilter(), downloadOptions);
+                if (outputReport) {
+                    ivy.getResolveEngine().outputReport(ivyReport, ivy.getSettings().getResolutionCacheManager(),
+                            resolveOptions);
+                }
+            }
         } catch (final Exception e) {
             throw JkUtilsThrowable.unchecked(e);
         }
@@ -124,6 +167,7 @@ final class IvyInternalDepResolver implements JkInternalDepResolver {
                     ivyReport.getDependencies()));
         } else {
             errorReport = JkResolveResult.JkErrorReport.allFine();
+            checkedCaches.forEach(cache -> cache.markChecked(resolutionKey));
         }
         final ArtifactDownloadReport[] artifactDownloadReports = ivyReport.getAllArtifactsReports();
         final IvyArtifactContainer artifactContainer = IvyArtifactContainer.of(artifactDownloadReports);
@@ -135,6 +179,19 @@ final class IvyInternalDepResolver implements JkInternalDepResolver {
         return resolveResult;
     }
 
+    private List<IvyUpdatePolicyCacheManager> updatePolicyCaches() {
+        return Arrays.stream(ivy.getSettings().getRepositoryCacheManagers())
+                .filter(IvyUpdatePolicyCacheManager.class::isInstance)
+                .map(IvyUpdatePolicyCacheManager.class::cast)
+                .collect(Collectors.toList());
+    }
+
+    // Identifies the declared dependencies regardless of the module declaring them
+    private static String resolutionKey(DefaultModuleDescriptor moduleDescriptor) {
+        return JkBuildCache.fingerprint("ivy-resolution").and(Arrays.stream(moduleDescriptor.getDependencies())
+                .map(Object::toString).sorted().collect(Collectors.toList())).get();
+    }
+
     private void deleteResolveCache(JkVersionedModule module) {
         final ResolutionCacheManager cacheManager = this.ivy.getSettings().getResolutionCacheManager();
         final ModuleRevisionId moduleRevisionId = IvyTranslations.toModuleRevisionId(module);
@@ -236,7 +293,7 @@ final class IvyInternalDepResolver implements JkInternalDepResolver {
                 }
                 final JkModuleId moduleId = JkModuleId.of(node.getId().getOrganisation(), node.getId().getName());
                 final JkVersion resolvedVersion = JkVersion.of(node.getResolvedId().getRevision());
-                final Set<JkScope> rootScopes = IvyTranslations.toJkScopes(node.getRootModuleConfigurations());
+                final Set<JkScope> rootScopes = rootScopes(node);
 
                 List<Path> artifacts;
                 if (!node.isCompletelyEvicted()) {
@@ -262,6 +319,20 @@ final class IvyInternalDepResolver implements JkInternalDepResolver {
             }
         }
 
+        // Scopes for which this node is resolved, so results of several scopes resolved at once can be sliced
+        private static Set<JkScope> rootScopes(IvyNode node) {
+            if (node.isCompletelyEvicted()) {
+                return IvyTranslations.toJkScopes(node.getRootModuleConfigurations());
+            }
+            final List<String> confs = new LinkedList<>();
+            for (final String conf : node.getRootModuleConfigurations()) {
+                if (!node.isEvicted(conf)) {
+                    confs.add(conf);
+                }
+            }
+            return IvyTranslations.toJkScopes(confs.toArray(new String[0]));
+        }
+
         private static boolean containSame(List<JkModuleNodeInfo> list, JkModuleId moduleId) {
             for (final JkModuleNodeInfo moduleNodeInfo : list) {
                 if (moduleNodeInfo.getModuleId().equals(moduleId)) {
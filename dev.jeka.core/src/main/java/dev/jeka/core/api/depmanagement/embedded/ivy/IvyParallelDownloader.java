@@ -0,0 +1,124 @@
+package dev.jeka.core.api.depmanagement.embedded.ivy;
+
+import dev.jeka.core.api.utils.JkUtilsThrowable;
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.IvyContext;
+import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.report.ArtifactDownloadReport;
+import org.apache.ivy.core.report.DownloadReport;
+import org.apache.ivy.core.report.DownloadStatus;
+import org.apache.ivy.core.report.ResolveReport;
+import org.apache.ivy.core.resolve.DownloadOptions;
+import org.apache.ivy.core.resolve.IvyNode;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
+import org.apache.ivy.util.Message;
+import org.apache.ivy.util.filter.Filter;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Downloads artifacts of an already resolved module graph using a bounded thread pool. This mimics
+ * <code>ResolveEngine#downloadArtifacts</code> which downloads artifacts one module at a time. <p>
+ * Each artifact is downloaded by its Ivy resolver, so checksums are still verified and files are still
+ * written in a '.part' file before being moved in the cache.
+ */
+final class IvyParallelDownloader {
+
+    private final Ivy ivy;
+
+    private final int threadCount;
+
+    private IvyParallelDownloader(Ivy ivy, int threadCount) {
+        this.ivy = ivy;
+        this.threadCount = threadCount;
+    }
+
+    static IvyParallelDownloader of(Ivy ivy, int threadCount) {
+        return new IvyParallelDownloader(ivy, threadCount);
+    }
+
+    /**
+     * Downloads the artifacts of the specified report dependencies and updates the report accordingly.
+     */
+    void downloadArtifacts(ResolveReport report, Filter<Artifact> artifactFilter, DownloadOptions options) {
+        final long start = System.currentTimeMillis();
+        final List<IvyNode> nodes = report.getDependencies().stream()
+                .filter(node -> !node.isCompletelyEvicted() && !node.hasProblem() && node.getModuleRevision() != null)
+                .collect(Collectors.toList());
+        final ExecutorService executorService = Executors.newFixedThreadPool(Math.max(1,
+                Math.min(threadCount, nodes.size())));
+        final Map<IvyNode, Future<DownloadReport>> futures = new LinkedHashMap<>();
+        try {
+            for (final IvyNode node : nodes) {
+                futures.put(node, executorService.submit(() -> download(node, artifactFilter, options)));
+            }
+            long totalSize = 0;
+            for (final Map.Entry<IvyNode, Future<DownloadReport>> entry : futures.entrySet()) {
+                final IvyNode node = entry.getKey();
+                final DownloadReport downloadReport = get(entry.getValue());
+                for (final ArtifactDownloadReport artifactReport : downloadReport.getArtifactsReports()) {
+                    if (artifactReport.getDownloadStatus() == DownloadStatus.SUCCESSFUL) {
+                        totalSize += artifactReport.getSize();
+                    }
+                }
+                for (final String conf : node.getRootModuleConfigurations()) {
+                    if (node.isEvicted(conf) || node.isBlacklisted(conf)) {
+                        report.getConfigurationReport(conf).addDependency(node);
+                    } else {
+                        report.getConfigurationReport(conf).addDependency(node, downloadReport);
+                    }
+                }
+            }
+            report.setDownloadTime(System.currentTimeMillis() - start);
+            report.setDownloadSize(totalSize);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    // Runs in a pooled thread : Ivy resolvers expect an Ivy context bound to the current thread
+    private DownloadReport download(IvyNode node, Filter<Artifact> artifactFilter, DownloadOptions options) {
+        IvyContext.pushNewContext().setIvy(ivy);
+        try {
+            final DependencyResolver resolver = node.getModuleRevision().getArtifactResolver();
+            final DownloadReport downloadReport = resolver.download(node.getSelectedArtifacts(artifactFilter), options);
+            for (final ArtifactDownloadReport artifactReport : downloadReport.getArtifactsReports()) {
+                if (artifactReport.getDownloadStatus() != DownloadStatus.FAILED) {
+                    continue;
+                }
+                if (artifactReport.getArtifact().getExtraAttribute("ivy:merged") != null) {
+                    Message.warn("\tmerged artifact not found: " + artifactReport.getArtifact()
+                            + ". It was required in " + artifactReport.getArtifact().getExtraAttribute("ivy:merged"));
+                } else {
+                    Message.warn("\t" + artifactReport);
+                    resolver.reportFailure(artifactReport.getArtifact());
+                }
+            }
+            return downloadReport;
+        } finally {
+            IvyContext.popContext();
+        }
+    }
+
+    private static <T> T get(Future<T> future) {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw JkUtilsThrowable.unchecked(e.getCause(), "Artifact download failed.");
+        }
+    }
+
+}
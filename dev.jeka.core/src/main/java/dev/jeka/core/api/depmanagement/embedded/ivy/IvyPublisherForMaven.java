@@ -1,6 +1,7 @@
 package dev.jeka.core.api.depmanagement.embedded.ivy;
 
 import dev.jeka.core.api.depmanagement.*;
+import dev.jeka.core.api.file.JkPathFile;
 import dev.jeka.core.api.system.JkLog;
 import dev.jeka.core.api.utils.*;
 import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
@@ -14,7 +15,6 @@ import org.apache.ivy.plugins.repository.Resource;
 import org.apache.ivy.plugins.resolver.DependencyResolver;
 import org.apache.ivy.plugins.resolver.IBiblioResolver;
 import org.apache.ivy.plugins.resolver.RepositoryResolver;
-import org.apache.ivy.util.ChecksumHelper;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -23,6 +23,9 @@ import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.UnaryOperator;
 
@@ -106,6 +109,7 @@ final class IvyPublisherForMaven {
                         + " already exists on repo.");
             }
         }
+        precomputeChecksums(mavenPublication);
         if (versionedModule.getVersion().isSnapshot() && this.uniqueSnapshot) {
             final String path = snapshotMetadataPath(versionedModule);
             JkMavenMetadata mavenMetadata = loadMavenMedatata(path);
@@ -140,6 +144,14 @@ final class IvyPublisherForMaven {
         }
     }
 
+    // Artifact checksums are computed concurrently up-front, then reused as each artifact is put in repo
+    private void precomputeChecksums(JkMavenPublication mavenPublication) {
+        final List<Path> files = new LinkedList<>(mavenPublication.getMainArtifactFiles());
+        mavenPublication.getClassifiedArtifacts().forEach(artifact -> files.add(artifact.getFile()));
+        files.removeIf(file -> !Files.isRegularFile(file));
+        JkPathFile.getChecksums(files, checksumAlgos.toArray(new String[0]));
+    }
+
     private Path makePom(ModuleDescriptor moduleDescriptor, JkMavenPublication publication) {
         final ModuleRevisionId ivyModuleRevisionId = moduleDescriptor.getModuleRevisionId();
         final String artifactName = ivyModuleRevisionId.getName();
@@ -323,10 +335,11 @@ final class IvyPublisherForMaven {
         JkLog.info("Publish file " + dest);
         try {
             repository.put(null, source.toFile(), dest, overwrite);
+            final Map<String, String> checksums = JkPathFile.of(source)
+                    .getChecksums(checksumAlgos.toArray(new String[0]));
             for (final String algo : checksumAlgos) {
                 final Path temp = Files.createTempFile("jk-checksum-", algo);
-                final String checkSum = ChecksumHelper.computeAsString(source.toFile(), algo);
-                Files.write(temp, checkSum.getBytes());
+                Files.write(temp, checksums.get(algo).getBytes());
                 final String csDest = dest + "." + algo;
                 JkLog.info("Publish file " + csDest);
                 repository.put(null, temp.toFile(), csDest, overwrite);
@@ -0,0 +1,91 @@
+package dev.jeka.core.api.depmanagement.embedded.ivy;
+
+import dev.jeka.core.api.depmanagement.JkRepo;
+import dev.jeka.core.api.file.JkBuildCache;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import org.apache.ivy.core.cache.CacheMetadataOptions;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.resolve.ResolvedModuleRevision;
+import org.apache.ivy.core.settings.IvySettings;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+/*
+ * Repository cache manager of a single remote repository, honoring its update policy. While the policy has not
+ * expired since the last check of a resolution, snapshot and dynamic revisions found in cache are returned without
+ * checking the repository, as if Ivy ran in 'use cache only' mode for this repository. Missing modules are still
+ * fetched from the repository. Last checks are recorded as the modification time of a file per repository and
+ * resolution, so they are shared across builds.
+ */
+final class IvyUpdatePolicyCacheManager extends DefaultRepositoryCacheManager {
+
+    private static final String CHECKS_DIR = "update-checks";
+
+    private final JkRepo repo;
+
+    private final Path checksDir;
+
+    private volatile boolean upToDate;
+
+    IvyUpdatePolicyCacheManager(JkRepo repo, IvySettings settings, File basedir) {
+        super("jeka-" + repo.getUrl(), settings, basedir);
+        this.repo = repo;
+        this.checksDir = basedir.toPath().resolve(CHECKS_DIR);
+        setDefaultTTL(0);  // When a check is due, dynamic revisions are resolved again
+    }
+
+    /*
+     * Prepares this cache for resolving the dependencies having the specified key. Returns <code>true</code> if
+     * the repository has to be checked.
+     */
+    boolean prepare(String resolutionKey, boolean refresh) {
+        final Path checkFile = checkFile(resolutionKey);
+        try {
+            upToDate = !refresh && Files.exists(checkFile)
+                    && !repo.getUpdatePolicy().isExpired(Files.getLastModifiedTime(checkFile).toMillis());
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return !upToDate;
+    }
+
+    /*
+     * Records that the repository has been checked for resolving the dependencies having the specified key.
+     */
+    void markChecked(String resolutionKey) {
+        final Path checkFile = checkFile(resolutionKey);
+        JkUtilsPath.createDirectories(checksDir);
+        try {
+            if (!Files.exists(checkFile)) {
+                Files.createFile(checkFile);
+            }
+            Files.setLastModifiedTime(checkFile, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public ResolvedModuleRevision findModuleInCache(DependencyDescriptor dd, ModuleRevisionId requestedRevisionId,
+                                                    CacheMetadataOptions options, String expectedResolver) {
+        if (upToDate) {
+            options.setUseCacheOnly(true);
+            options.setCheckmodified(false);
+            options.setCheckTTL(false);
+        }
+        return super.findModuleInCache(dd, requestedRevisionId, options, expectedResolver);
+    }
+
+    private Path checkFile(String resolutionKey) {
+        return checksDir.resolve(JkBuildCache.fingerprint(CHECKS_DIR).and(repo.getUrl().toString(), resolutionKey)
+                .get());
+    }
+
+}
@@ -0,0 +1,145 @@
+package dev.jeka.core.api.file;
+
+import dev.jeka.core.api.utils.JkUtilsIterable;
+import dev.jeka.core.api.utils.JkUtilsString;
+import dev.jeka.core.api.utils.JkUtilsThrowable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/*
+ * Computes file checksums reading each file once whatever the number of requested algorithms. Results are
+ * memoized by path, size and last modified time in a bounded cache, so checksums computed while packaging are
+ * reused for publishing without retaining entries for every file ever digested.
+ * Files are read in a large heap buffer rather than mapped : digests consume byte arrays, so mapped or direct
+ * buffers would be copied again for each algorithm, and mapped files can not be deleted on Windows until unmapped.
+ */
+final class FileDigests {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private static final Map<String, String> CHECKSUMS = JkUtilsIterable.lruMapOf(10_000);
+
+    private static final ThreadLocal<ByteBuffer> BUFFERS = ThreadLocal.withInitial(
+            () -> ByteBuffer.allocate(BUFFER_SIZE));
+
+    private FileDigests() {
+    }
+
+    /*
+     * Returns the checksums of the specified file keyed by the specified algorithm names, in the same order.
+     */
+    static Map<String, String> checksums(Path file, String... algorithms) {
+        final String stamp = stamp(file);
+        final Map<String, String> result = new LinkedHashMap<>();
+        final List<String> missingAlgorithms = new LinkedList<>();
+        for (final String algorithm : algorithms) {
+            final String checksum = CHECKSUMS.get(key(stamp, algorithm));
+            if (checksum == null) {
+                missingAlgorithms.add(algorithm);
+            }
+            result.put(algorithm, checksum);
+        }
+        if (!missingAlgorithms.isEmpty()) {
+            final Map<String, String> computed = compute(file, missingAlgorithms);
+            computed.forEach((algorithm, checksum) -> CHECKSUMS.put(key(stamp, algorithm), checksum));
+            result.putAll(computed);
+        }
+        return result;
+    }
+
+    /*
+     * Computes checksums of the specified files concurrently.
+     */
+    static Map<Path, Map<String, String>> checksums(Collection<Path> files, String... algorithms) {
+        final Map<Path, Map<String, String>> result = new LinkedHashMap<>();
+        if (files.size() <= 1) {
+            files.forEach(file -> result.put(file, checksums(file, algorithms)));
+            return result;
+        }
+        final int threads = Math.min(files.size(), Runtime.getRuntime().availableProcessors());
+        final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            final Map<Path, Future<Map<String, String>>> futures = new LinkedHashMap<>();
+            for (final Path file : files) {
+                futures.put(file, executorService.submit(() -> checksums(file, algorithms)));
+            }
+            for (final Map.Entry<Path, Future<Map<String, String>>> entry : futures.entrySet()) {
+                result.put(entry.getKey(), entry.getValue().get());
+            }
+            return result;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (final ExecutionException e) {
+            throw JkUtilsThrowable.unchecked(e.getCause(), "Checksum computation failed.");
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static Map<String, String> compute(Path file, List<String> algorithms) {
+        final List<MessageDigest> digests = new ArrayList<>(algorithms.size());
+        for (final String algorithm : algorithms) {
+            digests.add(messageDigest(algorithm));
+        }
+        final ByteBuffer buffer = BUFFERS.get();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer.clear();
+            while (channel.read(buffer) != -1) {
+                for (final MessageDigest digest : digests) {
+                    digest.update(buffer.array(), 0, buffer.position());
+                }
+                buffer.clear();
+            }
+        } catch (final IOException e) {
+            throw JkUtilsThrowable.unchecked(e);
+        }
+        final Map<String, String> result = new LinkedHashMap<>();
+        for (int i = 0; i < algorithms.size(); i++) {
+            result.put(algorithms.get(i), JkUtilsString.toHexString(digests.get(i).digest()));
+        }
+        return result;
+    }
+
+    // Accepts Maven checksum names as 'sha1' or 'sha256' besides standard names as 'SHA-1'
+    private static MessageDigest messageDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (final NoSuchAlgorithmException e) {
+            final String upperCase = algorithm.toUpperCase(Locale.ROOT);
+            if (upperCase.startsWith("SHA") && !upperCase.startsWith("SHA-")) {
+                try {
+                    return MessageDigest.getInstance("SHA-" + upperCase.substring(3));
+                } catch (final NoSuchAlgorithmException e2) {
+                    // Report the original algorithm
+                }
+            }
+            throw new IllegalArgumentException("Unknown digest algorithm " + algorithm, e);
+        }
+    }
+
+    private static String stamp(Path file) {
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return file.toAbsolutePath().normalize() + "|" + attributes.size() + "|"
+                    + attributes.lastModifiedTime().toMillis();
+        } catch (final IOException e) {
+            throw JkUtilsThrowable.unchecked(e);
+        }
+    }
+
+    private static String key(String stamp, String algorithm) {
+        return stamp + "|" + algorithm.toUpperCase(Locale.ROOT);
+    }
+
+}
@@ -0,0 +1,619 @@
+package dev.jeka.core.api.file;
+
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Path matcher accepting paths matching at least one include glob pattern (or any path if there is no include
+ * pattern) and none of the exclude glob patterns. Patterns follow the syntax and semantic of
+ * FileSystem#getPathMatcher("glob:...").
+ *
+ * Patterns are compiled once. Common shapes as 'foo/bar.txt', '**.java', '**' + '/*.java', '*.java' or 'foo/**'
+ * are checked using string comparisons while the remaining ones are merged in a single automaton, determinized
+ * lazily as paths get matched. Patterns that this class does not understand are delegated to the file system
+ * matcher, compiled once as well.
+ */
+final class GlobMatcher implements PathMatcher {
+
+    private static final boolean DEFAULT_FILE_SYSTEM_IGNORE_CASE = isIgnoreCase(FileSystems.getDefault());
+
+    private final String separator;
+
+    private final boolean ignoreCase;
+
+    private final PatternSet includes;
+
+    private final PatternSet excludes;
+
+    private GlobMatcher(String separator, boolean ignoreCase, PatternSet includes, PatternSet excludes) {
+        this.separator = separator;
+        this.ignoreCase = ignoreCase;
+        this.includes = includes;
+        this.excludes = excludes;
+    }
+
+    static GlobMatcher of(FileSystem fileSystem, Collection<String> includes, Collection<String> excludes) {
+        final boolean ignoreCase = fileSystem == FileSystems.getDefault() ? DEFAULT_FILE_SYSTEM_IGNORE_CASE
+                : isIgnoreCase(fileSystem);
+        return new GlobMatcher(fileSystem.getSeparator(), ignoreCase,
+                new PatternSet(fileSystem, ignoreCase, includes),
+                new PatternSet(fileSystem, ignoreCase, excludes));
+    }
+
+    /*
+     * Returns a matcher accepting paths accepted by both this matcher and the specified one, or null if these two
+     * matchers can not be merged in a single one.
+     */
+    GlobMatcher and(GlobMatcher other) {
+        if (!separator.equals(other.separator) || ignoreCase != other.ignoreCase
+                || !includes.fileSystem.equals(other.includes.fileSystem)) {
+            return null;
+        }
+        final Collection<String> mergedIncludes;
+        if (includes.patterns.isEmpty()) {
+            mergedIncludes = other.includes.patterns;
+        } else if (other.includes.patterns.isEmpty()) {
+            mergedIncludes = includes.patterns;
+        } else {
+            return null;  // Intersection of two pattern sets can not be expressed as a single pattern set
+        }
+        final List<String> mergedExcludes = new ArrayList<>(excludes.patterns);
+        mergedExcludes.addAll(other.excludes.patterns);
+        return of(includes.fileSystem, mergedIncludes, mergedExcludes);
+    }
+
+    @Override
+    public boolean matches(Path path) {
+        String string = path.toString();
+        if (!"/".equals(separator)) {
+            string = string.replace(separator, "/");
+        }
+        if (ignoreCase) {
+            string = string.toLowerCase(Locale.ROOT);
+        }
+        if (!includes.patterns.isEmpty() && !includes.matches(string, path)) {
+            return false;
+        }
+        return !excludes.matches(string, path);
+    }
+
+    private static boolean isIgnoreCase(FileSystem fileSystem) {
+        try {
+            return fileSystem.getPathMatcher("glob:a").matches(fileSystem.getPath("A"));
+        } catch (final RuntimeException e) {
+            return false;
+        }
+    }
+
+    // ------------------------------------------------ pattern set --------------------------------------
+
+    private static final class PatternSet {
+
+        private final FileSystem fileSystem;
+
+        private final List<String> patterns;
+
+        private final Set<String> literals = new HashSet<>();
+
+        // '**' followed by a literal
+        private final List<String> endings = new ArrayList<>();
+
+        // '**' + '/*' followed by a literal containing no '/'
+        private final List<String> nestedNameEndings = new ArrayList<>();
+
+        // '*' followed by a literal containing no '/'
+        private final List<String> topLevelNameEndings = new ArrayList<>();
+
+        // A literal followed by '**'
+        private final List<String> beginnings = new ArrayList<>();
+
+        private final List<PathMatcher> fallbacks = new ArrayList<>();
+
+        private final Automaton automaton;
+
+        PatternSet(FileSystem fileSystem, boolean ignoreCase, Collection<String> patterns) {
+            this.fileSystem = fileSystem;
+            this.patterns = Collections.unmodifiableList(new ArrayList<>(patterns));
+            final List<Token[]> automatonPatterns = new ArrayList<>();
+            for (final String pattern : patterns) {
+                final List<Token[]> alternatives =
+                        Parser.parse(ignoreCase ? pattern.toLowerCase(Locale.ROOT) : pattern);
+                if (alternatives == null) {
+                    fallbacks.add(fileSystem.getPathMatcher("glob:" + pattern));
+                    continue;
+                }
+                for (final Token[] tokens : alternatives) {
+                    if (!addFastPath(tokens)) {
+                        automatonPatterns.add(tokens);
+                    }
+                }
+            }
+            this.automaton = automatonPatterns.isEmpty() ? null : new Automaton(automatonPatterns);
+        }
+
+        boolean matches(String string, Path path) {
+            if (literals.contains(string)) {
+                return true;
+            }
+            for (final String ending : endings) {
+                if (string.endsWith(ending)) {
+                    return true;
+                }
+            }
+            if (!nestedNameEndings.isEmpty() || !topLevelNameEndings.isEmpty()) {
+                final int nameStart = string.lastIndexOf('/') + 1;
+                final List<String> nameEndings = nameStart == 0 ? topLevelNameEndings : nestedNameEndings;
+                for (final String ending : nameEndings) {
+                    if (string.length() - nameStart >= ending.length() && string.endsWith(ending)) {
+                        return true;
+                    }
+                }
+            }
+            for (final String beginning : beginnings) {
+                if (string.startsWith(beginning)) {
+                    return true;
+                }
+            }
+            if (automaton != null && automaton.matches(string)) {
+                return true;
+            }
+            for (final PathMatcher fallback : fallbacks) {
+                if (fallback.matches(path)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean addFastPath(Token[] tokens) {
+            final int literalStart = leadingWildcards(tokens);
+            final int literalEnd = literalEnd(tokens, literalStart);
+            if (literalEnd < tokens.length) {
+                if (literalStart == 0 && literalEnd == tokens.length - 1 && tokens[literalEnd].type == Token.DOUBLE_STAR) {
+                    beginnings.add(literal(tokens, 0, literalEnd));
+                    return true;
+                }
+                return false;
+            }
+            final String literal = literal(tokens, literalStart, literalEnd);
+            if (literalStart == 0) {
+                literals.add(literal);
+                return true;
+            }
+            if (literalStart == 1 && tokens[0].type == Token.DOUBLE_STAR) {
+                endings.add(literal);
+                return true;
+            }
+            if (literal.indexOf('/') >= 0) {
+                return false;
+            }
+            if (literalStart == 1 && tokens[0].type == Token.STAR) {
+                topLevelNameEndings.add(literal);
+                return true;
+            }
+            if (literalStart == 3 && tokens[0].type == Token.DOUBLE_STAR && tokens[1].isChar('/')
+                    && tokens[2].type == Token.STAR) {
+                nestedNameEndings.add(literal);
+                return true;
+            }
+            return false;
+        }
+
+        private static int leadingWildcards(Token[] tokens) {
+            if (tokens.length >= 3 && tokens[0].type == Token.DOUBLE_STAR && tokens[1].isChar('/')
+                    && tokens[2].type == Token.STAR) {
+                return 3;
+            }
+            if (tokens.length >= 1 && (tokens[0].type == Token.DOUBLE_STAR || tokens[0].type == Token.STAR)) {
+                return 1;
+            }
+            return 0;
+        }
+
+        private static int literalEnd(Token[] tokens, int start) {
+            int i = start;
+            while (i < tokens.length && tokens[i].type == Token.CHAR) {
+                i++;
+            }
+            return i;
+        }
+
+        private static String literal(Token[] tokens, int start, int end) {
+            final StringBuilder result = new StringBuilder();
+            for (int i = start; i < end; i++) {
+                result.append(tokens[i].c);
+            }
+            return result.toString();
+        }
+
+    }
+
+    // ------------------------------------------------ parsing --------------------------------------
+
+    private static final class Token {
+
+        static final int CHAR = 0;
+
+        static final int ANY_CHAR = 1;  // ?
+
+        static final int CLASS = 2;     // [...]
+
+        static final int STAR = 3;      // *
+
+        static final int DOUBLE_STAR = 4;  // **
+
+        final int type;
+
+        final char c;
+
+        final char[] ranges;  // pairs of inclusive bounds
+
+        final boolean negated;
+
+        private Token(int type, char c, char[] ranges, boolean negated) {
+            this.type = type;
+            this.c = c;
+            this.ranges = ranges;
+            this.negated = negated;
+        }
+
+        static Token of(int type) {
+            return new Token(type, (char) 0, null, false);
+        }
+
+        static Token ofChar(char c) {
+            return new Token(CHAR, c, null, false);
+        }
+
+        static Token ofClass(char[] ranges, boolean negated) {
+            return new Token(CLASS, (char) 0, ranges, negated);
+        }
+
+        boolean isChar(char c) {
+            return type == CHAR && this.c == c;
+        }
+
+        // Tells if this token consumes the specified char and moves to the next token
+        boolean accepts(char candidate) {
+            switch (type) {
+                case CHAR: return c == candidate;
+                case ANY_CHAR: return candidate != '/';
+                case CLASS:
+                    if (candidate == '/') {
+                        return false;
+                    }
+                    for (int i = 0; i < ranges.length; i += 2) {
+                        if (candidate >= ranges[i] && candidate <= ranges[i + 1]) {
+                            return !negated;
+                        }
+                    }
+                    return negated;
+                default: return false;
+            }
+        }
+
+        // Tells if this token consumes the specified char and stays on itself
+        boolean loops(char candidate) {
+            return type == DOUBLE_STAR || (type == STAR && candidate != '/');
+        }
+
+        boolean isRepeatable() {
+            return type == STAR || type == DOUBLE_STAR;
+        }
+
+    }
+
+    /*
+     * Parses a glob pattern into token sequences, one per alternative resulting from '{..,..}' groups. Returns
+     * null on syntax this parser does not handle, including invalid patterns : these ones are left to the file
+     * system matcher.
+     */
+    private static final class Parser {
+
+        private static final int MAX_ALTERNATIVES = 64;
+
+        static List<Token[]> parse(String pattern) {
+            try {
+                return doParse(pattern);
+            } catch (final UnhandledSyntaxException e) {
+                return null;
+            }
+        }
+
+        private static List<Token[]> doParse(String pattern) {
+            List<List<Token>> result = new ArrayList<>();
+            result.add(new ArrayList<>());
+            int i = 0;
+            while (i < pattern.length()) {
+                final char c = pattern.charAt(i);
+                if (c == '{') {
+                    final int end = pattern.indexOf('}', i);
+                    if (end < 0) {
+                        throw new UnhandledSyntaxException();
+                    }
+                    final String content = pattern.substring(i + 1, end);
+                    if (content.indexOf('{') >= 0 || content.indexOf('\\') >= 0 || content.indexOf('[') >= 0) {
+                        throw new UnhandledSyntaxException();
+                    }
+                    final List<List<Token>> group = new ArrayList<>();
+                    for (final String alternative : content.split(",", -1)) {
+                        group.add(parseSequence(alternative));
+                    }
+                    result = cross(result, group);
+                    i = end + 1;
+                } else {
+                    final int end = nextGroupStart(pattern, i);
+                    final List<Token> sequence = parseSequence(pattern.substring(i, end));
+                    for (final List<Token> alternative : result) {
+                        alternative.addAll(sequence);
+                    }
+                    i = end;
+                }
+            }
+            final List<Token[]> tokens = new ArrayList<>(result.size());
+            for (final List<Token> alternative : result) {
+                tokens.add(alternative.toArray(new Token[0]));
+            }
+            return tokens;
+        }
+
+        private static List<List<Token>> cross(List<List<Token>> heads, List<List<Token>> tails) {
+            if (heads.size() * tails.size() > MAX_ALTERNATIVES) {
+                throw new UnhandledSyntaxException();
+            }
+            final List<List<Token>> result = new ArrayList<>();
+            for (final List<Token> head : heads) {
+                for (final List<Token> tail : tails) {
+                    final List<Token> alternative = new ArrayList<>(head);
+                    alternative.addAll(tail);
+                    result.add(alternative);
+                }
+            }
+            return result;
+        }
+
+        // Index of the next '{' that is not escaped nor within a class, or the pattern length
+        private static int nextGroupStart(String pattern, int from) {
+            boolean inClass = false;
+            for (int i = from; i < pattern.length(); i++) {
+                final char c = pattern.charAt(i);
+                if (inClass) {
+                    inClass = c != ']';
+                } else if (c == '\\') {
+                    i++;
+                } else if (c == '[') {
+                    inClass = true;
+                } else if (c == '{') {
+                    return i;
+                }
+            }
+            return pattern.length();
+        }
+
+        private static List<Token> parseSequence(String pattern) {
+            final List<Token> result = new ArrayList<>();
+            int i = 0;
+            while (i < pattern.length()) {
+                final char c = pattern.charAt(i++);
+                switch (c) {
+                    case '\\':
+                        if (i == pattern.length()) {
+                            throw new UnhandledSyntaxException();
+                        }
+                        result.add(Token.ofChar(pattern.charAt(i++)));
+                        break;
+                    case '*':
+                        if (i < pattern.length() && pattern.charAt(i) == '*') {
+                            result.add(Token.of(Token.DOUBLE_STAR));
+                            i++;
+                        } else {
+                            result.add(Token.of(Token.STAR));
+                        }
+                        break;
+                    case '?':
+                        result.add(Token.of(Token.ANY_CHAR));
+                        break;
+                    case '[':
+                        i = parseClass(pattern, i, result);
+                        break;
+                    case '{':
+                    case '}':
+                        throw new UnhandledSyntaxException();  // Unbalanced or nested group
+                    default:
+                        result.add(Token.ofChar(c));
+                }
+            }
+            return result;
+        }
+
+        // Only plain chars and ranges are handled. Returns the index following the closing ']'.
+        private static int parseClass(String pattern, int start, List<Token> result) {
+            int i = start;
+            boolean negated = false;
+            if (i < pattern.length() && pattern.charAt(i) == '!') {
+                negated = true;
+                i++;
+            }
+            final StringBuilder ranges = new StringBuilder();
+            boolean first = true;
+            while (i < pattern.length()) {
+                final char c = pattern.charAt(i++);
+                if (c == ']' && !first) {
+                    if (ranges.length() == 0) {
+                        throw new UnhandledSyntaxException();
+                    }
+                    result.add(Token.ofClass(ranges.toString().toCharArray(), negated));
+                    return i;
+                }
+                if (c == ']' || c == '/' || c == '\\' || c == '[' || c == '^' || c == '&' || c == '-') {
+                    throw new UnhandledSyntaxException();
+                }
+                first = false;
+                if (i + 1 < pattern.length() && pattern.charAt(i) == '-' && pattern.charAt(i + 1) != ']') {
+                    final char to = pattern.charAt(i + 1);
+                    if (to < c || to == '/' || to == '\\' || to == '[' || to == '&' || to == '-') {
+                        throw new UnhandledSyntaxException();
+                    }
+                    ranges.append(c).append(to);
+                    i += 2;
+                } else {
+                    ranges.append(c).append(c);
+                }
+            }
+            throw new UnhandledSyntaxException();  // Missing ']'
+        }
+
+    }
+
+    // Signals, within the parser only, a pattern to leave to the file system matcher
+    private static final class UnhandledSyntaxException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        UnhandledSyntaxException() {
+            super(null, null, false, false);
+        }
+
+    }
+
+    // ------------------------------------------------ automaton --------------------------------------
+
+    /*
+     * Non deterministic automaton whose states are positions within the token sequences of all patterns. It is
+     * turned into a deterministic one lazily : each reached set of positions becomes a cached state, along its
+     * transitions.
+     */
+    private static final class Automaton {
+
+        private static final int MAX_CACHED_STATES = 4096;
+
+        private final Token[][] patterns;
+
+        private final int[] offsets;
+
+        private final int stateCount;
+
+        private final Map<BitSet, State> states = new ConcurrentHashMap<>();
+
+        private final State initial;
+
+        Automaton(List<Token[]> patterns) {
+            this.patterns = patterns.toArray(new Token[0][]);
+            this.offsets = new int[this.patterns.length];
+            int count = 0;
+            for (int i = 0; i < this.patterns.length; i++) {
+                offsets[i] = count;
+                count += this.patterns[i].length + 1;
+            }
+            this.stateCount = count;
+            final BitSet initialPositions = new BitSet(stateCount);
+            for (int i = 0; i < this.patterns.length; i++) {
+                addWithClosure(initialPositions, i, 0);
+            }
+            this.initial = state(initialPositions);
+        }
+
+        boolean matches(String string) {
+            State state = initial;
+            for (int i = 0; i < string.length(); i++) {
+                state = state.next(string.charAt(i));
+                if (state.positions.isEmpty()) {
+                    return false;
+                }
+            }
+            return state.accepting;
+        }
+
+        private State state(BitSet positions) {
+            final State cached = states.get(positions);
+            if (cached != null) {
+                return cached;
+            }
+            final State result = new State(positions, isAccepting(positions));
+            if (states.size() >= MAX_CACHED_STATES) {
+                return result;
+            }
+            final State existing = states.putIfAbsent(positions, result);
+            return existing == null ? result : existing;
+        }
+
+        private boolean isAccepting(BitSet positions) {
+            for (int i = 0; i < patterns.length; i++) {
+                if (positions.get(offsets[i] + patterns[i].length)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private BitSet step(BitSet positions, char c) {
+            final BitSet result = new BitSet(stateCount);
+            int pattern = 0;
+            for (int position = positions.nextSetBit(0); position >= 0; position = positions.nextSetBit(position + 1)) {
+                while (pattern + 1 < patterns.length && offsets[pattern + 1] <= position) {
+                    pattern++;
+                }
+                final int index = position - offsets[pattern];
+                final Token[] tokens = patterns[pattern];
+                if (index == tokens.length) {
+                    continue;
+                }
+                final Token token = tokens[index];
+                if (token.loops(c)) {
+                    addWithClosure(result, pattern, index);
+                } else if (token.accepts(c)) {
+                    addWithClosure(result, pattern, index + 1);
+                }
+            }
+            return result;
+        }
+
+        // Repeatable tokens may match nothing, so reaching them means reaching the following position as well
+        private void addWithClosure(BitSet positions, int pattern, int index) {
+            final Token[] tokens = patterns[pattern];
+            int i = index;
+            positions.set(offsets[pattern] + i);
+            while (i < tokens.length && tokens[i].isRepeatable()) {
+                i++;
+                positions.set(offsets[pattern] + i);
+            }
+        }
+
+        private final class State {
+
+            final BitSet positions;
+
+            final boolean accepting;
+
+            // Transitions are computed on demand. Concurrent computations of the same transition are harmless.
+            private final State[] asciiTransitions = new State[128];
+
+            private final Map<Character, State> otherTransitions = new ConcurrentHashMap<>();
+
+            State(BitSet positions, boolean accepting) {
+                this.positions = positions;
+                this.accepting = accepting;
+            }
+
+            State next(char c) {
+                State result = c < 128 ? asciiTransitions[c] : otherTransitions.get(c);
+                if (result == null) {
+                    result = state(step(positions, c));
+                    if (c < 128) {
+                        asciiTransitions[c] = result;
+                    } else {
+                        otherTransitions.put(c, result);
+                    }
+                }
+                return result;
+            }
+
+        }
+
+    }
+
+}
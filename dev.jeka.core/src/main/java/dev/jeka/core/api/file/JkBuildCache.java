@@ -0,0 +1,361 @@
+package dev.jeka.core.api.file;
+
+import dev.jeka.core.api.system.JkLocator;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsIterable;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsString;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A local, content-addressed cache for task outputs. A task declares its inputs through a {@link JkFingerprint}
+ * and its outputs as files or directories. When the cache already holds an entry for the inputs fingerprint,
+ * outputs are restored from the cache instead of running the task. <p>
+ * By default, the cache is located in the Jeka user home so it is shared across projects and builds. <p>
+ * Entries not restored nor stored for longer than the max age are deleted, at most once a day, when a new entry
+ * is stored.
+ */
+public final class JkBuildCache {
+
+    private static final String DEFAULT_DIR = "cache/build";
+
+    private static final Duration DEFAULT_MAX_AGE = Duration.ofDays(30);
+
+    private static final Duration PRUNE_PERIOD = Duration.ofDays(1);
+
+    private static final String PRUNE_STAMP = ".last-prune";
+
+    private final Path cacheDir;
+
+    private final Duration maxAge;
+
+    private JkBuildCache(Path cacheDir, Duration maxAge) {
+        this.cacheDir = cacheDir;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Creates a build cache storing its entries in the specified directory. Entries unused for 30 days are evicted.
+     */
+    public static JkBuildCache of(Path cacheDir) {
+        return new JkBuildCache(cacheDir.toAbsolutePath().normalize(), DEFAULT_MAX_AGE);
+    }
+
+    /**
+     * Creates a build cache storing its entries under the Jeka user home directory.
+     */
+    public static JkBuildCache ofUserHome() {
+        return of(JkLocator.getJekaUserHomeDir().resolve(DEFAULT_DIR));
+    }
+
+    /**
+     * Creates an empty fingerprint to feed with task inputs.
+     */
+    public static JkFingerprint fingerprint(String taskName) {
+        return new JkFingerprint().and(taskName);
+    }
+
+    public Path getCacheDir() {
+        return cacheDir;
+    }
+
+    public Duration getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Returns a copy of this cache evicting entries that have not been restored nor stored for longer than the
+     * specified duration.
+     */
+    public JkBuildCache withMaxAge(Duration maxAge) {
+        return new JkBuildCache(cacheDir, maxAge);
+    }
+
+    /**
+     * Restores the specified outputs from the cache entry identified by the specified fingerprint if such an entry
+     * exists, otherwise runs the specified task and stores its outputs in the cache. Outputs are stored only if the
+     * task ends successfully.
+     * @param outputs Files or directories produced by the task.
+     * @return <code>true</code> if outputs have been restored from the cache.
+     */
+    public boolean runOrRestore(JkFingerprint fingerprint, Runnable task, Path... outputs) {
+        final String key = fingerprint.get();
+        if (restore(key, outputs)) {
+            JkLog.info("Outputs restored from build cache (" + key + ").");
+            return true;
+        }
+        task.run();
+        store(key, outputs);
+        if (isPruneDue()) {
+            prune();
+        }
+        return false;
+    }
+
+    /**
+     * Restores the specified outputs from the entry identified by the specified key.
+     * @return <code>false</code> if no such entry exists.
+     */
+    public boolean restore(String key, Path... outputs) {
+        final Path entryDir = entryDir(key);
+        if (!Files.isDirectory(entryDir)) {
+            return false;
+        }
+        for (int i = 0; i < outputs.length; i++) {
+            final Path output = outputs[i];
+            final Path cached = entryDir.resolve(Integer.toString(i));
+            if (Files.isDirectory(output)) {
+                JkPathTree.of(output).deleteContent();
+            } else {
+                JkUtilsPath.deleteIfExists(output);
+            }
+            if (Files.isDirectory(cached)) {
+                JkPathTree.of(cached).copyTo(output, StandardCopyOption.REPLACE_EXISTING);
+            } else if (Files.exists(cached)) {
+                JkUtilsPath.createDirectories(output.toAbsolutePath().getParent());
+                JkUtilsPath.copy(cached, output, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        touch(entryDir);
+        return true;
+    }
+
+    /**
+     * Stores the specified outputs in an entry identified by the specified key. Missing outputs are recorded as
+     * missing and will be deleted when restoring.
+     */
+    public void store(String key, Path... outputs) {
+        final Path entryDir = entryDir(key);
+        if (Files.exists(entryDir)) {
+            return;
+        }
+        JkUtilsPath.createDirectories(entryDir.getParent());
+        final Path tempDir;
+        try {
+            tempDir = Files.createTempDirectory(entryDir.getParent(), key + "-");
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        for (int i = 0; i < outputs.length; i++) {
+            final Path output = outputs[i];
+            final Path cached = tempDir.resolve(Integer.toString(i));
+            if (Files.isDirectory(output)) {
+                JkPathTree.of(output).copyTo(cached);
+            } else if (Files.exists(output)) {
+                JkUtilsPath.copy(output, cached);
+            }
+        }
+        try {
+            Files.move(tempDir, entryDir, StandardCopyOption.ATOMIC_MOVE);
+            touch(entryDir);
+        } catch (final IOException e) {  // Entry stored concurrently by another process
+            JkLog.trace("Can not store build cache entry " + key + " : " + e.getMessage());
+            JkPathTree.of(tempDir).deleteRoot();
+        }
+    }
+
+    /**
+     * Deletes all entries of this cache.
+     */
+    public void clear() {
+        if (Files.exists(cacheDir)) {
+            JkPathTree.of(cacheDir).deleteContent();
+        }
+    }
+
+    /**
+     * Deletes entries that have not been restored nor stored for longer than the max age of this cache.
+     * @return the number of deleted entries.
+     */
+    public int prune() {
+        if (!Files.isDirectory(cacheDir)) {
+            return 0;
+        }
+        final long limit = System.currentTimeMillis() - maxAge.toMillis();
+        int count = 0;
+        for (final Path bucket : JkUtilsPath.listDirectChildren(cacheDir)) {
+            if (!Files.isDirectory(bucket)) {
+                continue;
+            }
+            for (final Path entryDir : JkUtilsPath.listDirectChildren(bucket)) {
+                if (lastModified(entryDir) < limit) {
+                    JkPathTree.of(entryDir).deleteRoot();
+                    count++;
+                }
+            }
+        }
+        final Path stamp = cacheDir.resolve(PRUNE_STAMP);
+        JkUtilsPath.createFileSafely(stamp);
+        touch(stamp);
+        if (count > 0) {
+            JkLog.trace("Evicted " + count + " entries from " + this);
+        }
+        return count;
+    }
+
+    private boolean isPruneDue() {
+        final Path stamp = cacheDir.resolve(PRUNE_STAMP);
+        return !Files.exists(stamp) || lastModified(stamp) < System.currentTimeMillis() - PRUNE_PERIOD.toMillis();
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (final IOException e) {  // Deleted concurrently
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private Path entryDir(String key) {
+        return cacheDir.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    private static void touch(Path path) {
+        try {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (final IOException e) {
+            JkLog.trace("Can not touch " + path);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Build cache " + cacheDir;
+    }
+
+    /**
+     * Hash of the inputs of a task. Files participate through their content and their path relative to the tree
+     * they belong to, so fingerprints remain stable across machines and checkout locations.
+     */
+    public static final class JkFingerprint {
+
+        private static final int MAX_FILE_HASHES = 10_000;
+
+        private static final Map<String, String> FILE_HASHES = JkUtilsIterable.lruMapOf(MAX_FILE_HASHES);
+
+        private final MessageDigest digest;
+
+        private JkFingerprint() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (final NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * Adds the specified string values to this fingerprint.
+         */
+        public JkFingerprint and(String... values) {
+            for (final String value : values) {
+                update(value == null ? "<null>" : value);
+            }
+            return this;
+        }
+
+        /**
+         * Adds the specified string values to this fingerprint.
+         */
+        public JkFingerprint and(Iterable<String> values) {
+            values.forEach(this::and);
+            return this;
+        }
+
+        /**
+         * Adds the content of the specified files. Directories are added as trees.
+         */
+        public JkFingerprint andFiles(Iterable<Path> files) {
+            for (final Path file : files) {
+                if (Files.isDirectory(file)) {
+                    and(JkPathTree.of(file));
+                } else {
+                    update(file.getFileName().toString());
+                    update(hashOf(file));
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Adds the files contained in the specified tree, along their relative path.
+         */
+        public JkFingerprint and(JkPathTree tree) {
+            if (!tree.exists()) {
+                update("<empty tree>");
+                return this;
+            }
+            final List<Path> relativeFiles = new ArrayList<>(tree.getRelativeFiles());
+            Collections.sort(relativeFiles);
+            for (final Path relativeFile : relativeFiles) {
+                update(relativeFile.toString().replace('\\', '/'));
+                update(hashOf(tree.getRoot().resolve(relativeFile.toString())));
+            }
+            return this;
+        }
+
+        /**
+         * Adds the files contained in the specified tree set.
+         */
+        public JkFingerprint and(JkPathTreeSet treeSet) {
+            treeSet.getPathTrees().forEach(this::and);
+            return this;
+        }
+
+        /**
+         * Returns the hexadecimal representation of this fingerprint.
+         */
+        public String get() {
+            try {
+                return JkUtilsString.toHexString(((MessageDigest) digest.clone()).digest());
+            } catch (final CloneNotSupportedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void update(String value) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+
+        // Content hashes are memoized according file path, size and last modification time.
+        private static String hashOf(Path file) {
+            if (!Files.exists(file)) {
+                return "<missing>";
+            }
+            final BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            final String stampKey = file.toAbsolutePath() + "|" + attributes.size() + "|"
+                    + attributes.lastModifiedTime().toMillis();
+            final String cachedHash = FILE_HASHES.get(stampKey);
+            if (cachedHash != null) {
+                return cachedHash;
+            }
+            final String hash = JkPathFile.of(file).getChecksum("SHA-256");
+            FILE_HASHES.put(stampKey, hash);
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return get();
+        }
+    }
+
+}
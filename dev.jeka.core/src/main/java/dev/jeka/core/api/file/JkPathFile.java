@@ -12,7 +12,7 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.file.*;
-import java.security.MessageDigest;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -132,19 +132,25 @@ public final class JkPathFile {
      * @param algorithm Hashing algorithm as MD5, SHA-2, ...
      */
     public String getChecksum(String algorithm) {
-        try (final InputStream is = Files.newInputStream(path)) {
-            final MessageDigest md = MessageDigest.getInstance(algorithm);
-            md.reset();
-            final byte[] buf = new byte[2048];
-            int len;
-            while ((len = is.read(buf)) != -1) {
-                md.update(buf, 0, len);
-            }
-            final byte[] bytes = md.digest();
-            return JkUtilsString.toHexString(bytes);
-        } catch (final Exception e) {
-            throw JkUtilsThrowable.unchecked(e);
-        }
+        return getChecksums(algorithm).get(algorithm);
+    }
+
+    /**
+     * Returns the checksums of this file for the specified algorithms, keyed by algorithm. The file is read once
+     * whatever the number of algorithms, and checksums are memoized as long as the file size and last modified
+     * time do not change.
+     * @param algorithms Hashing algorithms as MD5, SHA-1 or sha256, ...
+     */
+    public Map<String, String> getChecksums(String... algorithms) {
+        return FileDigests.checksums(path, algorithms);
+    }
+
+    /**
+     * Returns the checksums of the specified files for the specified algorithms, as {@link #getChecksums(String...)}
+     * does, but processing files concurrently.
+     */
+    public static Map<Path, Map<String, String>> getChecksums(Collection<Path> files, String... algorithms) {
+        return FileDigests.checksums(files, algorithms);
     }
 
     /**
@@ -159,10 +165,11 @@ public final class JkPathFile {
      * Produces a files, in the same directory, that contains the checksum og this file.
      */
     public JkPathFile checksum(String ... algorithms) {
+        final Map<String, String> checksums = getChecksums(algorithms);
         for (String algorithm : algorithms) {
             final String fileName = this.path.getFileName().toString() + "." + algorithm.toLowerCase();
             JkPathFile.of(path.resolveSibling(fileName)).deleteIfExist().write(
-                    this.getChecksum(algorithm).getBytes(Charset.forName("ASCII")));
+                    checksums.get(algorithm).getBytes(Charset.forName("ASCII")));
         }
         return this;
     }
@@ -1,8 +1,11 @@
 package dev.jeka.core.api.file;
 
+import dev.jeka.core.api.utils.JkUtilsIterable;
+
 import java.nio.file.*;
 import java.util.Arrays;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.List;
 import java.util.function.Predicate;
 
 /**
@@ -16,6 +19,9 @@ public final class JkPathMatcher implements PathMatcher {
      * Creates an instance from a {@link PathMatcher} instance.
      */
     public static JkPathMatcher of(PathMatcher matcher) {
+        if (matcher instanceof JkPathMatcher) {
+            return (JkPathMatcher) matcher;
+        }
         return new JkPathMatcher(matcher, "?");
     }
 
@@ -23,7 +29,7 @@ public final class JkPathMatcher implements PathMatcher {
      * A matcher accepting all entries.
      */
     public static JkPathMatcher of() {
-        return new JkPathMatcher(path -> true, "all");
+        return new JkPathMatcher(ACCEPT_ALL, "all");
     }
 
     /**
@@ -65,22 +71,32 @@ public final class JkPathMatcher implements PathMatcher {
      *                 If <code>false</code> matcher will accept files matching none of the specified pattern.
      */
     public static JkPathMatcher of(boolean positive, FileSystem fileSystem, Iterable<String> globPatterns) {
-        Iterator<String> it = globPatterns.iterator();
-        if (!it.hasNext()) {
+        final List<String> patterns = JkUtilsIterable.listOf(globPatterns);
+        if (patterns.isEmpty()) {
             return JkPathMatcher.of();
         }
-        String pattern = it.next();
-        PathMatcher result = path -> positive == globMatcher(fileSystem, pattern).matches(path);
-        while (it.hasNext()) {
-            String itPattern = it.next();
-            if (positive) {
-                result = new OrMatcher(result, globMatcher(fileSystem, itPattern));
-            } else {
-                result = new AndMatcher(result, path -> !globMatcher(fileSystem, itPattern).matches(path));
-            }
-        }
+        final List<String> none = Collections.emptyList();
+        final GlobMatcher matcher = positive ? GlobMatcher.of(fileSystem, patterns, none)
+                : GlobMatcher.of(fileSystem, none, patterns);
         String name = positive ? "in" : "out";
-        return new JkPathMatcher(result, name + ":" + globPatterns);
+        return new JkPathMatcher(matcher, name + ":" + patterns);
+    }
+
+    /**
+     * A matcher accepting paths matching at least one of the specified include glob patterns and none of the
+     * specified exclude ones. If no include pattern is specified, any path not matching an exclude pattern is
+     * accepted. Patterns are compiled once for all into a single matcher, so prefer this method over combining
+     * matchers when a path tree is filtered on several patterns.
+     */
+    public static JkPathMatcher of(FileSystem fileSystem, Iterable<String> includeGlobPatterns,
+                                   Iterable<String> excludeGlobPatterns) {
+        final List<String> includes = JkUtilsIterable.listOf(includeGlobPatterns);
+        final List<String> excludes = JkUtilsIterable.listOf(excludeGlobPatterns);
+        if (includes.isEmpty() && excludes.isEmpty()) {
+            return JkPathMatcher.of();
+        }
+        return new JkPathMatcher(GlobMatcher.of(fileSystem, includes, excludes),
+                "in:" + includes + " & out:" + excludes);
     }
 
     // ---------------------------- fields and constructors
@@ -116,6 +132,16 @@ public final class JkPathMatcher implements PathMatcher {
     // ---------------------------- adders ---------------------------------------
 
     public JkPathMatcher and(PathMatcher other) {
+        if (this.matcher == ACCEPT_ALL) {
+            return of(other);
+        }
+        if (this.matcher instanceof GlobMatcher && other instanceof JkPathMatcher
+                && ((JkPathMatcher) other).matcher instanceof GlobMatcher) {
+            final GlobMatcher merged = ((GlobMatcher) this.matcher).and((GlobMatcher) ((JkPathMatcher) other).matcher);
+            if (merged != null) {
+                return new JkPathMatcher(merged, this.label + " & " + other.toString());
+            }
+        }
         return new JkPathMatcher(new AndMatcher(this.matcher, other),
                 this.label + " & " + other.toString());
     }
@@ -135,9 +161,7 @@ public final class JkPathMatcher implements PathMatcher {
 
     // --------------------------------------------- matcher
 
-    private static PathMatcher globMatcher(FileSystem fileSystem, String pattern) {
-        return fileSystem.getPathMatcher("glob:" + pattern);
-    }
+    private static final PathMatcher ACCEPT_ALL = path -> true;
 
     private static class AndMatcher implements PathMatcher {
 
@@ -307,22 +307,14 @@ public final class JkPathTree implements Closeable {
      * already exists, the content of this tree is appended to the existing archive, overriding existing entries within the archive.
      */
     public JkPathTree zipTo(Path destination) {
-        if (destination.getParent() != null) {
-            JkUtilsPath.createDirectories(destination.getParent());
-        }
-        final Path zipRootEntry = JkUtilsPath.zipRoot(destination);
-        try (Stream<Path> stream = this.stream()) {
-            stream.filter(excludeRootFilter()).forEach(path -> {
-                Path zipEntry = zipRootEntry.resolve(getRoot().relativize(path).toString());
-                if (!Files.exists(zipEntry) || !Files.isDirectory(zipEntry)) {
-                    JkUtilsPath.createDirectories(zipEntry.getParent());
-                    JkUtilsPath.copy(path, zipEntry, StandardCopyOption.REPLACE_EXISTING);
-                }
-            });
-            zipRootEntry.getFileSystem().close();
-        } catch (IOException e) {
-           throw new UncheckedIOException(e);
-        }
+        return zipTo(destination, JkZipper.of());
+    }
+
+    /**
+     * Same as {@link #zipTo(Path)} but specifying the zipper to use, for example to not compress entries.
+     */
+    public JkPathTree zipTo(Path destination, JkZipper zipper) {
+        zipper.zip(JkPathTreeSet.of(this), destination);
         return this;
     }
 
@@ -186,10 +186,18 @@ public final class JkPathTreeSet {
     // ----------------------- write out ---------------------------------------------
 
     /**
-     * Zips the content of all trees involved in this set.
+     * Zips the content of all trees involved in this set. Entries of a tree override the same entries coming from
+     * the trees preceding it.
      */
     public JkPathTreeSet zipTo(Path dir) {
-        this.pathTrees.forEach(tree -> tree.zipTo(dir));
+        return zipTo(dir, JkZipper.of());
+    }
+
+    /**
+     * Same as {@link #zipTo(Path)} but specifying the zipper to use, for example to not compress entries.
+     */
+    public JkPathTreeSet zipTo(Path dir, JkZipper zipper) {
+        zipper.zip(this, dir);
         return this;
     }
 
@@ -0,0 +1,804 @@
+package dev.jeka.core.api.file;
+
+import dev.jeka.core.api.utils.JkUtilsAssert;
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsThrowable;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+import java.util.zip.*;
+
+/**
+ * Writes zip archives from {@link JkPathTree}s. Entries are compressed concurrently then written sequentially,
+ * in a deterministic order : <code>META-INF/MANIFEST.MF</code> first, then other entries sorted by name. By default,
+ * every entry gets the same timestamp so that zipping the same content twice produces the same archive.
+ * <p>
+ * Instances are immutable.
+ */
+public final class JkZipper {
+
+    /**
+     * Compression level storing entries without compressing them. Archives are bigger but faster to produce,
+     * which may suit development builds.
+     */
+    public static final int STORE_ONLY = Deflater.NO_COMPRESSION;
+
+    /**
+     * Entries listing service providers or handlers, whose content has to be merged rather than overridden when
+     * several jars are merged in a single one.
+     */
+    public static final JkPathMatcher MERGED_ENTRIES = JkPathMatcher.of(true, "META-INF/services/**",
+            "META-INF/spring.handlers", "META-INF/spring.schemas", "META-INF/spring.tooling");
+
+    // 1980-02-01 00:00:00, as DOS time. Earlier dates are not representable in every time zone.
+    private static final long REPRODUCIBLE_DOS_TIME = (2 << 21) | (1 << 16);
+
+    // Entries bigger than this are compressed in temporary files rather than in memory
+    private static final long MAX_IN_MEMORY_SIZE = 16 * 1024 * 1024;
+
+    private final int compressionLevel;
+
+    private final boolean reproducibleTimestamps;
+
+    private final int threads;
+
+    private final PathMatcher mergedEntries;
+
+    private final Charset archiveCharset;
+
+    private JkZipper(int compressionLevel, boolean reproducibleTimestamps, int threads, PathMatcher mergedEntries,
+                     Charset archiveCharset) {
+        this.compressionLevel = compressionLevel;
+        this.reproducibleTimestamps = reproducibleTimestamps;
+        this.threads = threads;
+        this.mergedEntries = mergedEntries;
+        this.archiveCharset = archiveCharset;
+    }
+
+    /**
+     * Creates a zipper compressing entries with the default deflate level, using as many threads as available
+     * processors and writing reproducible timestamps.
+     */
+    public static JkZipper of() {
+        return new JkZipper(Deflater.DEFAULT_COMPRESSION, true, Runtime.getRuntime().availableProcessors(),
+                MERGED_ENTRIES, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns a copy of this zipper compressing entries with the specified deflate level, from 0 to 9 or -1 for the
+     * default level. Level {@link #STORE_ONLY} stores entries without compressing them.
+     */
+    public JkZipper withCompressionLevel(int compressionLevel) {
+        JkUtilsAssert.isTrue(compressionLevel >= -1 && compressionLevel <= 9,
+                "Compression level must be between -1 and 9, was " + compressionLevel);
+        return new JkZipper(compressionLevel, reproducibleTimestamps, threads, mergedEntries, archiveCharset);
+    }
+
+    /**
+     * Returns a copy of this zipper writing a fixed timestamp for every entry if <code>true</code>, or the last
+     * modification time of the zipped files otherwise.
+     */
+    public JkZipper withReproducibleTimestamps(boolean reproducibleTimestamps) {
+        return new JkZipper(compressionLevel, reproducibleTimestamps, threads, mergedEntries, archiveCharset);
+    }
+
+    /**
+     * Returns a copy of this zipper compressing entries with the specified number of threads.
+     */
+    public JkZipper withThreads(int threads) {
+        JkUtilsAssert.isTrue(threads > 0, "Thread count must be positive, was " + threads);
+        return new JkZipper(compressionLevel, reproducibleTimestamps, threads, mergedEntries, archiveCharset);
+    }
+
+    /**
+     * Returns a copy of this zipper concatenating the content of entries matching the specified matcher when
+     * several sources provide them, instead of keeping only one. By default, {@link #MERGED_ENTRIES} are merged.
+     */
+    public JkZipper withMergedEntries(PathMatcher mergedEntries) {
+        JkUtilsAssert.notNull(mergedEntries, "Merged entries matcher can not be null.");
+        return new JkZipper(compressionLevel, reproducibleTimestamps, threads, mergedEntries, archiveCharset);
+    }
+
+    /**
+     * Returns a copy of this zipper decoding names of archive entries lacking the UTF-8 flag with the specified
+     * charset, as {@link ZipFile#ZipFile(java.io.File, Charset)} does. Default is UTF-8. Entry names are always
+     * written in UTF-8.
+     */
+    public JkZipper withArchiveCharset(Charset archiveCharset) {
+        JkUtilsAssert.notNull(archiveCharset, "Archive charset can not be null.");
+        return new JkZipper(compressionLevel, reproducibleTimestamps, threads, mergedEntries, archiveCharset);
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public boolean isReproducibleTimestamps() {
+        return reproducibleTimestamps;
+    }
+
+    /**
+     * Zips the content of the specified trees to the specified destination file. Entries of a tree override
+     * the same entries coming from the trees preceding it. If the specified destination file already exists, its
+     * entries are kept unless trees override them.
+     */
+    public void zip(JkPathTreeSet treeSet, Path destination) {
+        zip(treeSet, Collections.emptyList(), JkPathMatcher.of(), destination);
+    }
+
+    /**
+     * Zips the content of the specified trees along the entries of the specified archives to the specified
+     * destination file. Archive entries are copied as they are stored, without being decompressed then compressed
+     * again.
+     * <p>
+     * When several sources provide the same entry, trees take precedence over archives and an archive takes
+     * precedence over the ones following it, as on a classpath. Entries accepted by {@link #withMergedEntries(PathMatcher)}
+     * are the exception : their content is the concatenation of the content provided by each source.
+     * @param archiveEntryFilter Only archive entries whose relative path matches this filter are zipped.
+     */
+    public void zip(JkPathTreeSet treeSet, Iterable<Path> archives, PathMatcher archiveEntryFilter,
+                    Path destination) {
+        final Path target = destination.toAbsolutePath();
+        if (target.getParent() != null) {
+            JkUtilsPath.createDirectories(target.getParent());
+        }
+        final Entries entries = new Entries(mergedEntries);
+        final List<Closeable> resources = new LinkedList<>();
+        final Path tempFile = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            for (final JkPathTree tree : treeSet.getPathTrees()) {
+                if (tree.exists()) {
+                    final Stream<Path> stream = tree.stream();
+                    resources.add(stream::close);
+                    addTreeEntries(entries, tree.getRoot(), stream);
+                }
+            }
+            entries.overrideEntries = false;
+            for (final Path archive : archives) {
+                final ZipArchive zipArchive = ZipArchive.open(archive, archiveCharset);
+                resources.add(zipArchive);
+                addArchiveEntries(entries, zipArchive, archiveEntryFilter, true);
+            }
+            if (Files.isRegularFile(target) && Files.size(target) > 0) {
+                final ZipArchive existingArchive = ZipArchive.open(target, archiveCharset);
+                resources.add(existingArchive);
+                addArchiveEntries(entries, existingArchive, JkPathMatcher.of(), false);
+            }
+            try (OutputStream outputStream = Files.newOutputStream(tempFile)) {
+                write(entries.map, outputStream);
+            }
+            closeAll(resources);
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            closeAll(resources);
+            JkUtilsPath.deleteIfExists(tempFile);
+        }
+    }
+
+    private static void closeAll(List<Closeable> resources) {
+        resources.forEach(JkUtilsIO::closeQuietly);
+        resources.clear();
+    }
+
+    private static void addTreeEntries(Entries entries, Path root, Stream<Path> stream) {
+        final String separator = root.getFileSystem().getSeparator();
+        stream.filter(path -> !path.equals(root)).forEach(path -> {
+            String name = root.relativize(path).toString();
+            if (!"/".equals(separator)) {
+                name = name.replace(separator, "/");
+            }
+            if (Files.isDirectory(path)) {
+                entries.addDirectory(name + "/");
+            } else {
+                entries.add(name, new PathSource(path));
+            }
+        });
+    }
+
+    private static void addArchiveEntries(Entries entries, ZipArchive archive, PathMatcher filter,
+                                          boolean mergeable) {
+        for (final ZipArchive.Entry entry : archive.getEntries()) {
+            if (!accepts(filter, entry.name)) {
+                continue;
+            }
+            if (entry.isDirectory()) {
+                entries.addDirectory(entry.name);
+            } else {
+                entries.add(entry.name, new ArchiveEntrySource(archive, entry, mergeable));
+            }
+        }
+    }
+
+    private static boolean accepts(PathMatcher filter, String entryName) {
+        final String name = entryName.endsWith("/") ? entryName.substring(0, entryName.length() - 1) : entryName;
+        try {
+            return filter.matches(Paths.get(name));
+        } catch (final InvalidPathException e) {
+            return true;  // Name not representable on this file system, can not be filtered out
+        }
+    }
+
+    // Jar readers expect the manifest to come first
+    private static int compareEntryNames(String name1, String name2) {
+        final int result = Integer.compare(rank(name1), rank(name2));
+        return result != 0 ? result : name1.compareTo(name2);
+    }
+
+    private static int rank(String name) {
+        if (name.equalsIgnoreCase("META-INF/")) {
+            return 0;
+        }
+        return name.equalsIgnoreCase("META-INF/MANIFEST.MF") ? 1 : 2;
+    }
+
+    private void write(SortedMap<String, Source> entries, OutputStream outputStream) throws IOException {
+        final List<Map.Entry<String, Source>> entryList = new ArrayList<>(entries.entrySet());
+        final ExecutorService executorService = threads > 1 && entryList.size() > 1 ?
+                Executors.newFixedThreadPool(Math.min(threads, entryList.size())) : null;
+        final ZipStreamWriter writer = new ZipStreamWriter(outputStream);
+        final Deque<Future<CompressedEntry>> window = new ArrayDeque<>();
+        final int windowSize = threads * 4;  // Bounds memory used by compressed entries waiting to be written
+        int next = 0;
+        try {
+            for (int i = 0; i < entryList.size(); i++) {
+                while (executorService != null && next < entryList.size() && window.size() < windowSize) {
+                    final Map.Entry<String, Source> entry = entryList.get(next++);
+                    window.add(executorService.submit(() -> compress(entry.getKey(), entry.getValue())));
+                }
+                final CompressedEntry compressedEntry;
+                if (executorService == null) {
+                    final Map.Entry<String, Source> entry = entryList.get(i);
+                    compressedEntry = compress(entry.getKey(), entry.getValue());
+                } else {
+                    compressedEntry = await(window.poll());
+                }
+                try {
+                    writer.write(compressedEntry);
+                } finally {
+                    compressedEntry.dispose();
+                }
+            }
+            writer.finish();
+        } finally {
+            if (executorService != null) {
+                executorService.shutdownNow();
+                for (final Future<CompressedEntry> future : window) {  // Remaining ones on failure
+                    if (future.isDone() && !future.isCancelled()) {
+                        try {
+                            future.get().dispose();
+                        } catch (final InterruptedException | ExecutionException e) {
+                            // Already failed
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static CompressedEntry await(Future<CompressedEntry> future) throws IOException {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw JkUtilsThrowable.unchecked(cause, "Error while compressing zip entry");
+        }
+    }
+
+    private CompressedEntry compress(String name, Source source) throws IOException {
+        final long dosTime = reproducibleTimestamps ? REPRODUCIBLE_DOS_TIME : source.dosTime();
+        if (source.isDirectory()) {
+            return new CompressedEntry(name, ZipEntry.STORED, dosTime, 0, 0, 0, new byte[0], null);
+        }
+        if (source instanceof ArchiveEntrySource && ((ArchiveEntrySource) source).entry.isRawCopyable()) {
+            final ArchiveEntrySource archiveEntrySource = (ArchiveEntrySource) source;
+            final ZipArchive.Entry entry = archiveEntrySource.entry;
+            return new CompressedEntry(name, entry.method, dosTime, entry.crc, entry.size, entry.compressedSize,
+                    out -> archiveEntrySource.archive.copyRawData(entry, out));
+        }
+        final boolean stored = compressionLevel == STORE_ONLY;
+        final long expectedSize = source.size();
+        final Path spillFile = expectedSize > MAX_IN_MEMORY_SIZE ? Files.createTempFile("jeka-zip-", ".tmp") : null;
+        final ByteArrayOutputStream bytes = spillFile == null ?
+                new ByteArrayOutputStream(expectedSize > 0 ? (int) expectedSize : 1024) : null;
+        final CRC32 crc = new CRC32();
+        final Deflater deflater = stored ? null : new Deflater(compressionLevel, true);
+        long size = 0;
+        try (InputStream inputStream = source.open();
+             OutputStream target = spillFile == null ? bytes : Files.newOutputStream(spillFile);
+             OutputStream compressor = stored ? new FilterOutputStream(target) {
+                 @Override
+                 public void write(byte[] b, int off, int len) throws IOException {
+                     out.write(b, off, len);
+                 }
+             } : new DeflaterOutputStream(target, deflater, 64 * 1024)) {
+            final byte[] buffer = new byte[64 * 1024];
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                crc.update(buffer, 0, count);
+                compressor.write(buffer, 0, count);
+                size += count;
+            }
+        } catch (final IOException | RuntimeException e) {
+            if (spillFile != null) {
+                JkUtilsPath.deleteIfExists(spillFile);
+            }
+            throw e;
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+        final long compressedSize = spillFile == null ? bytes.size() : Files.size(spillFile);
+        return new CompressedEntry(name, stored ? ZipEntry.STORED : ZipEntry.DEFLATED, dosTime, crc.getValue(),
+                size, compressedSize, spillFile == null ? bytes.toByteArray() : null, spillFile);
+    }
+
+    private static long toDosTime(long millis) {
+        final LocalDateTime dateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        if (dateTime.getYear() < 1980) {
+            return REPRODUCIBLE_DOS_TIME;
+        }
+        return (long) (dateTime.getYear() - 1980) << 25 | dateTime.getMonthValue() << 21
+                | dateTime.getDayOfMonth() << 16 | dateTime.getHour() << 11 | dateTime.getMinute() << 5
+                | dateTime.getSecond() >> 1;
+    }
+
+    // ------------------------------------- sources ---------------------------------------------------
+
+    /*
+     * Entries to zip, keyed by name. Sources are added by decreasing precedence, except trees that override each
+     * others.
+     */
+    private static final class Entries {
+
+        final SortedMap<String, Source> map = new TreeMap<>(JkZipper::compareEntryNames);
+
+        final PathMatcher mergedEntries;
+
+        boolean overrideEntries = true;
+
+        Entries(PathMatcher mergedEntries) {
+            this.mergedEntries = mergedEntries;
+        }
+
+        void addDirectory(String name) {
+            map.putIfAbsent(name, DirectorySource.INSTANCE);
+            addParents(name);
+        }
+
+        void add(String name, Source source) {
+            final Source existing = map.get(name);
+            if (existing == null) {
+                map.put(name, source);
+            } else if (existing.isMergeable() && source.isMergeable() && accepts(mergedEntries, name)) {
+                map.put(name, MergedSource.of(existing, source));
+            } else if (overrideEntries) {
+                map.put(name, source);
+            }
+            addParents(name);
+        }
+
+        private void addParents(String name) {
+            for (int i = name.indexOf('/'); i >= 0 && i < name.length() - 1; i = name.indexOf('/', i + 1)) {
+                map.putIfAbsent(name.substring(0, i + 1), DirectorySource.INSTANCE);
+            }
+        }
+
+    }
+
+    private interface Source {
+
+        boolean isDirectory();
+
+        InputStream open() throws IOException;
+
+        long size();
+
+        long dosTime() throws IOException;
+
+        // Tells if the content of this source can be merged with the content of others for a same entry
+        default boolean isMergeable() {
+            return !isDirectory();
+        }
+
+    }
+
+    private static final class DirectorySource implements Source {
+
+        static final DirectorySource INSTANCE = new DirectorySource();
+
+        @Override
+        public boolean isDirectory() {
+            return true;
+        }
+
+        @Override
+        public InputStream open() {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+
+        @Override
+        public long size() {
+            return 0;
+        }
+
+        @Override
+        public long dosTime() {
+            return toDosTime(System.currentTimeMillis());
+        }
+    }
+
+    private static final class PathSource implements Source {
+
+        private final Path path;
+
+        PathSource(Path path) {
+            this.path = path;
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return false;
+        }
+
+        @Override
+        public InputStream open() throws IOException {
+            return Files.newInputStream(path);
+        }
+
+        @Override
+        public long size() {
+            try {
+                return Files.size(path);
+            } catch (final IOException e) {
+                return -1;
+            }
+        }
+
+        @Override
+        public long dosTime() throws IOException {
+            return toDosTime(Files.getLastModifiedTime(path).toMillis());
+        }
+    }
+
+    private static final class ArchiveEntrySource implements Source {
+
+        private final ZipArchive archive;
+
+        private final ZipArchive.Entry entry;
+
+        private final boolean mergeable;
+
+        ArchiveEntrySource(ZipArchive archive, ZipArchive.Entry entry, boolean mergeable) {
+            this.archive = archive;
+            this.entry = entry;
+            this.mergeable = mergeable;
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return entry.isDirectory();
+        }
+
+        @Override
+        public InputStream open() throws IOException {
+            return archive.open(entry);
+        }
+
+        @Override
+        public long size() {
+            return entry.size;
+        }
+
+        @Override
+        public long dosTime() {
+            return entry.dosTime;
+        }
+
+        @Override
+        public boolean isMergeable() {
+            return mergeable;
+        }
+    }
+
+    private static final class MergedSource implements Source {
+
+        private final List<Source> sources;
+
+        private MergedSource(List<Source> sources) {
+            this.sources = sources;
+        }
+
+        static MergedSource of(Source first, Source second) {
+            final List<Source> sources = new ArrayList<>();
+            if (first instanceof MergedSource) {
+                sources.addAll(((MergedSource) first).sources);
+            } else {
+                sources.add(first);
+            }
+            sources.add(second);
+            return new MergedSource(sources);
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return false;
+        }
+
+        // Lines already provided by a previous source are skipped
+        @Override
+        public InputStream open() throws IOException {
+            final StringBuilder result = new StringBuilder();
+            final Set<String> lines = new HashSet<>();
+            for (final Source source : sources) {
+                final byte[] bytes;
+                try (InputStream inputStream = source.open()) {
+                    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                    JkUtilsIO.copy(inputStream, outputStream);
+                    bytes = outputStream.toByteArray();
+                }
+                for (final String line : new String(bytes, StandardCharsets.UTF_8).split("\\r?\\n")) {
+                    if (line.trim().isEmpty() || lines.add(line.trim())) {
+                        result.append(line).append('\n');
+                    }
+                }
+            }
+            return new ByteArrayInputStream(result.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public long size() {
+            return -1;
+        }
+
+        @Override
+        public long dosTime() throws IOException {
+            return sources.get(0).dosTime();
+        }
+    }
+
+    // ------------------------------------- writing ---------------------------------------------------
+
+    private static final class CompressedEntry {
+
+        final String name;
+
+        final int method;
+
+        final long dosTime;
+
+        final long crc;
+
+        final long size;
+
+        final long compressedSize;
+
+        final byte[] data;  // null if data is in file or copied from another archive
+
+        final Path file;
+
+        final DataWriter dataWriter;
+
+        CompressedEntry(String name, int method, long dosTime, long crc, long size, long compressedSize,
+                        byte[] data, Path file) {
+            this(name, method, dosTime, crc, size, compressedSize, data, file, null);
+        }
+
+        CompressedEntry(String name, int method, long dosTime, long crc, long size, long compressedSize,
+                        DataWriter dataWriter) {
+            this(name, method, dosTime, crc, size, compressedSize, null, null, dataWriter);
+        }
+
+        private CompressedEntry(String name, int method, long dosTime, long crc, long size, long compressedSize,
+                        byte[] data, Path file, DataWriter dataWriter) {
+            this.name = name;
+            this.method = method;
+            this.dosTime = dosTime;
+            this.crc = crc;
+            this.size = size;
+            this.compressedSize = compressedSize;
+            this.data = data;
+            this.file = file;
+            this.dataWriter = dataWriter;
+        }
+
+        void writeData(OutputStream outputStream) throws IOException {
+            if (data != null) {
+                outputStream.write(data);
+            } else if (file != null) {
+                Files.copy(file, outputStream);
+            } else {
+                dataWriter.write(outputStream);
+            }
+        }
+
+        void dispose() {
+            if (file != null) {
+                JkUtilsPath.deleteIfExists(file);
+            }
+        }
+
+    }
+
+    @FunctionalInterface
+    private interface DataWriter {
+
+        void write(OutputStream outputStream) throws IOException;
+
+    }
+
+    /*
+     * Writes entries whose data is already compressed, then the central directory. Sizes and CRCs are known before
+     * writing each entry so no data descriptor is needed. Zip64 records are written only when limits of the
+     * original format are exceeded.
+     */
+    private static final class ZipStreamWriter {
+
+        private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+        private static final int UTF8_FLAG = 0x0800;
+
+        private final CountingOutputStream out;
+
+        private final ByteArrayOutputStream centralDirectory = new ByteArrayOutputStream();
+
+        private int entryCount;
+
+        ZipStreamWriter(OutputStream outputStream) {
+            this.out = new CountingOutputStream(new BufferedOutputStream(outputStream, 64 * 1024));
+        }
+
+        void write(CompressedEntry entry) throws IOException {
+            final long offset = out.count;
+            final byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+            final boolean zip64Sizes = entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC;
+            final boolean zip64Offset = offset >= ZIP64_MAGIC;
+            final int version = zip64Sizes || zip64Offset ? 45 : 20;
+
+            // Local file header
+            writeInt(out, 0x04034b50);
+            writeShort(out, version);
+            writeShort(out, UTF8_FLAG);
+            writeShort(out, entry.method);
+            writeInt(out, entry.dosTime);
+            writeInt(out, entry.crc);
+            writeInt(out, zip64Sizes ? ZIP64_MAGIC : entry.compressedSize);
+            writeInt(out, zip64Sizes ? ZIP64_MAGIC : entry.size);
+            writeShort(out, name.length);
+            writeShort(out, zip64Sizes ? 20 : 0);
+            out.write(name);
+            if (zip64Sizes) {
+                writeShort(out, 0x0001);
+                writeShort(out, 16);
+                writeLong(out, entry.size);
+                writeLong(out, entry.compressedSize);
+            }
+            entry.writeData(out);
+
+            // Central directory header
+            final int extraLength = (zip64Sizes ? 16 : 0) + (zip64Offset ? 8 : 0);
+            final ByteArrayOutputStream central = centralDirectory;
+            writeInt(central, 0x02014b50);
+            writeShort(central, version);
+            writeShort(central, version);
+            writeShort(central, UTF8_FLAG);
+            writeShort(central, entry.method);
+            writeInt(central, entry.dosTime);
+            writeInt(central, entry.crc);
+            writeInt(central, zip64Sizes ? ZIP64_MAGIC : entry.compressedSize);
+            writeInt(central, zip64Sizes ? ZIP64_MAGIC : entry.size);
+            writeShort(central, name.length);
+            writeShort(central, extraLength == 0 ? 0 : extraLength + 4);
+            writeShort(central, 0);  // comment length
+            writeShort(central, 0);  // disk number
+            writeShort(central, 0);  // internal attributes
+            writeInt(central, 0);    // external attributes
+            writeInt(central, zip64Offset ? ZIP64_MAGIC : offset);
+            central.write(name);
+            if (extraLength > 0) {
+                writeShort(central, 0x0001);
+                writeShort(central, extraLength);
+                if (zip64Sizes) {
+                    writeLong(central, entry.size);
+                    writeLong(central, entry.compressedSize);
+                }
+                if (zip64Offset) {
+                    writeLong(central, offset);
+                }
+            }
+            entryCount++;
+        }
+
+        void finish() throws IOException {
+            final long centralOffset = out.count;
+            centralDirectory.writeTo(out);
+            final long centralSize = centralDirectory.size();
+            final boolean zip64 = entryCount >= 0xFFFF || centralOffset >= ZIP64_MAGIC || centralSize >= ZIP64_MAGIC;
+            if (zip64) {
+                final long zip64EndOffset = out.count;
+                writeInt(out, 0x06064b50);
+                writeLong(out, 44);
+                writeShort(out, 45);
+                writeShort(out, 45);
+                writeInt(out, 0);
+                writeInt(out, 0);
+                writeLong(out, entryCount);
+                writeLong(out, entryCount);
+                writeLong(out, centralSize);
+                writeLong(out, centralOffset);
+                writeInt(out, 0x07064b50);  // Zip64 end of central directory locator
+                writeInt(out, 0);
+                writeLong(out, zip64EndOffset);
+                writeInt(out, 1);
+            }
+            writeInt(out, 0x06054b50);
+            writeShort(out, 0);
+            writeShort(out, 0);
+            writeShort(out, zip64 ? 0xFFFF : entryCount);
+            writeShort(out, zip64 ? 0xFFFF : entryCount);
+            writeInt(out, zip64 ? ZIP64_MAGIC : centralSize);
+            writeInt(out, zip64 ? ZIP64_MAGIC : centralOffset);
+            writeShort(out, 0);
+            out.flush();
+        }
+
+        private static void writeShort(OutputStream out, int value) throws IOException {
+            out.write(value & 0xFF);
+            out.write((value >>> 8) & 0xFF);
+        }
+
+        private static void writeInt(OutputStream out, long value) throws IOException {
+            writeShort(out, (int) (value & 0xFFFF));
+            writeShort(out, (int) ((value >>> 16) & 0xFFFF));
+        }
+
+        private static void writeLong(OutputStream out, long value) throws IOException {
+            writeInt(out, value & 0xFFFFFFFFL);
+            writeInt(out, value >>> 32);
+        }
+
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+    }
+
+}
@@ -0,0 +1,275 @@
+package dev.jeka.core.api.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/*
+ * Zip archive whose central directory is read directly, so that compressed data of its entries can be copied to
+ * another archive without being inflated then deflated again. Reads are positional so entries can be copied
+ * concurrently.
+ */
+final class ZipArchive implements Closeable {
+
+    private static final int END_SIGNATURE = 0x06054b50;
+
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+    private static final int CENTRAL_SIGNATURE = 0x02014b50;
+
+    private static final int LOCAL_SIGNATURE = 0x04034b50;
+
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    // General purpose flag stating that the entry name is encoded in UTF-8
+    private static final int UTF8_FLAG = 0x0800;
+
+    private final Path file;
+
+    private final Charset charset;
+
+    private final FileChannel channel;
+
+    private final List<Entry> entries;
+
+    // Offset of the archive start within the file, not 0 when some data precedes the archive (as in executable jars)
+    private final long base;
+
+    private ZipFile zipFile;
+
+    private ZipArchive(Path file, Charset charset, FileChannel channel, List<Entry> entries, long base) {
+        this.file = file;
+        this.charset = charset;
+        this.channel = channel;
+        this.entries = entries;
+        this.base = base;
+    }
+
+    /*
+     * Opens the specified archive. As for ZipFile, names of entries lacking the UTF-8 flag are decoded with the
+     * specified charset.
+     */
+    static ZipArchive open(Path file, Charset charset) throws IOException {
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return read(file, charset, channel);
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static ZipArchive read(Path file, Charset charset, FileChannel channel) throws IOException {
+        final long fileSize = channel.size();
+        final int tailSize = (int) Math.min(fileSize, 0xFFFF + 22);
+        final ByteBuffer tail = read(channel, fileSize - tailSize, tailSize);
+        int end = -1;
+        for (int i = tailSize - 22; i >= 0; i--) {
+            if (tail.getInt(i) == END_SIGNATURE) {
+                end = i;
+                break;
+            }
+        }
+        if (end < 0) {
+            throw new ZipException("No end of central directory found in " + file);
+        }
+        final long endOffset = fileSize - tailSize + end;
+        long count = tail.getShort(end + 10) & 0xFFFF;
+        long centralSize = tail.getInt(end + 12) & ZIP64_MAGIC;
+        long centralOffset = tail.getInt(end + 16) & ZIP64_MAGIC;
+        long centralEnd = endOffset;
+        if ((count == 0xFFFF || centralSize == ZIP64_MAGIC || centralOffset == ZIP64_MAGIC) && end >= 20
+                && tail.getInt(end - 20) == ZIP64_LOCATOR_SIGNATURE) {
+            final long zip64EndOffset = tail.getLong(end - 20 + 8);
+            final ByteBuffer zip64End = read(channel, zip64EndOffset, 56);
+            if (zip64End.getInt(0) != ZIP64_END_SIGNATURE) {
+                throw new ZipException("Invalid zip64 end of central directory in " + file);
+            }
+            count = zip64End.getLong(32);
+            centralSize = zip64End.getLong(40);
+            centralOffset = zip64End.getLong(48);
+            centralEnd = zip64EndOffset;
+        }
+        final long base = centralEnd - centralSize - centralOffset;
+        if (base < 0 || centralSize > Integer.MAX_VALUE) {
+            throw new ZipException("Invalid central directory in " + file);
+        }
+        final ByteBuffer central = read(channel, base + centralOffset, (int) centralSize);
+        final List<Entry> entries = new ArrayList<>((int) Math.min(count, 100_000));
+        int position = 0;
+        while (position + 46 <= centralSize) {
+            if (central.getInt(position) != CENTRAL_SIGNATURE) {
+                throw new ZipException("Invalid central directory entry in " + file);
+            }
+            final int nameLength = central.getShort(position + 28) & 0xFFFF;
+            final int extraLength = central.getShort(position + 30) & 0xFFFF;
+            final int commentLength = central.getShort(position + 32) & 0xFFFF;
+            final byte[] nameBytes = new byte[nameLength];
+            central.position(position + 46);
+            central.get(nameBytes);
+            final int flags = central.getShort(position + 8) & 0xFFFF;
+            final Charset nameCharset = (flags & UTF8_FLAG) != 0 ? StandardCharsets.UTF_8 : charset;
+            final Entry entry = new Entry(new String(nameBytes, nameCharset),
+                    flags,
+                    central.getShort(position + 10) & 0xFFFF,
+                    central.getInt(position + 12) & ZIP64_MAGIC,
+                    central.getInt(position + 16) & ZIP64_MAGIC,
+                    central.getInt(position + 20) & ZIP64_MAGIC,
+                    central.getInt(position + 24) & ZIP64_MAGIC,
+                    central.getInt(position + 42) & ZIP64_MAGIC);
+            readZip64Extra(central, position + 46 + nameLength, extraLength, entry);
+            entries.add(entry);
+            position += 46 + nameLength + extraLength + commentLength;
+        }
+        return new ZipArchive(file, charset, channel, Collections.unmodifiableList(entries), base);
+    }
+
+    private static void readZip64Extra(ByteBuffer central, int start, int length, Entry entry) {
+        int position = start;
+        while (position + 4 <= start + length) {
+            final int id = central.getShort(position) & 0xFFFF;
+            final int size = central.getShort(position + 2) & 0xFFFF;
+            if (id == 0x0001) {
+                int field = position + 4;
+                if (entry.size == ZIP64_MAGIC) {
+                    entry.size = central.getLong(field);
+                    field += 8;
+                }
+                if (entry.compressedSize == ZIP64_MAGIC) {
+                    entry.compressedSize = central.getLong(field);
+                    field += 8;
+                }
+                if (entry.localHeaderOffset == ZIP64_MAGIC) {
+                    entry.localHeaderOffset = central.getLong(field);
+                }
+                return;
+            }
+            position += 4 + size;
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int size) throws IOException {
+        final ByteBuffer result = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        while (result.hasRemaining()) {
+            if (channel.read(result, position + result.position()) < 0) {
+                throw new ZipException("Unexpected end of zip archive");
+            }
+        }
+        result.flip();
+        return result;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    List<Entry> getEntries() {
+        return entries;
+    }
+
+    /*
+     * Copies the data of the specified entry, as stored in the archive.
+     */
+    void copyRawData(Entry entry, OutputStream outputStream) throws IOException {
+        final long headerOffset = base + entry.localHeaderOffset;
+        final ByteBuffer header = read(channel, headerOffset, 30);
+        if (header.getInt(0) != LOCAL_SIGNATURE) {
+            throw new ZipException("Invalid local header for entry " + entry.name + " in " + file);
+        }
+        final long dataOffset = headerOffset + 30 + (header.getShort(26) & 0xFFFF) + (header.getShort(28) & 0xFFFF);
+        final WritableByteChannel target = Channels.newChannel(outputStream);
+        long copied = 0;
+        while (copied < entry.compressedSize) {
+            final long count = channel.transferTo(dataOffset + copied, entry.compressedSize - copied, target);
+            if (count <= 0) {
+                throw new ZipException("Unexpected end of data for entry " + entry.name + " in " + file);
+            }
+            copied += count;
+        }
+    }
+
+    /*
+     * Returns the uncompressed content of the specified entry.
+     */
+    synchronized InputStream open(Entry entry) throws IOException {
+        if (zipFile == null) {
+            zipFile = new ZipFile(file.toFile(), charset);
+        }
+        final ZipEntry zipEntry = zipFile.getEntry(entry.name);
+        if (zipEntry == null) {
+            throw new ZipException("Entry " + entry.name + " not found in " + file);
+        }
+        return zipFile.getInputStream(zipEntry);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            if (zipFile != null) {
+                zipFile.close();
+            }
+        }
+    }
+
+    static final class Entry {
+
+        final String name;
+
+        final int flags;
+
+        final int method;
+
+        final long dosTime;
+
+        final long crc;
+
+        long compressedSize;
+
+        long size;
+
+        long localHeaderOffset;
+
+        Entry(String name, int flags, int method, long dosTime, long crc, long compressedSize, long size,
+              long localHeaderOffset) {
+            this.name = name;
+            this.flags = flags;
+            this.method = method;
+            this.dosTime = dosTime;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        boolean isDirectory() {
+            return name.endsWith("/");
+        }
+
+        // Encrypted entries or entries compressed with other methods than deflate can not be copied as is
+        boolean isRawCopyable() {
+            return (flags & 1) == 0 && (method == ZipEntry.STORED || method == ZipEntry.DEFLATED);
+        }
+
+    }
+
+}
@@ -0,0 +1,440 @@
+package dev.jeka.core.api.java;
+
+import dev.jeka.core.api.file.JkPathFile;
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsString;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/*
+ * Computes which sources need to be recompiled according an index persisted beside the output dir. The index
+ * records for each source file its hash, the class files it produces and the classes these ones refer to, so
+ * that changed sources and their dependents only are recompiled. It also records the ABI of the classpath entries
+ * (see JkClasspathAbi), so a rebuilt dependency triggers only the recompilation of sources referring to classes
+ * whose ABI has changed.
+ */
+final class IncrementalCompilation {
+
+    private static final String INDEX_FILE_SUFFIX = ".jkindex";
+
+    private final JkJavaCompileSpec compileSpec;
+
+    private final Path outputDir;
+
+    private final Path indexFile;
+
+    private final String optionFingerprint;
+
+    private final Map<Path, SourceState> currentSources = new LinkedHashMap<>();
+
+    private final Map<String, JkClasspathAbi.Entry> currentClasspath = new LinkedHashMap<>();
+
+    private Index index;
+
+    private Set<Path> sourcesToCompile;
+
+    private IncrementalCompilation(JkJavaCompileSpec compileSpec, List<Path> sourceFiles) {
+        this.compileSpec = compileSpec;
+        this.outputDir = compileSpec.getOutputDir();
+        this.indexFile = indexFile(outputDir);
+        this.optionFingerprint = optionFingerprint(compileSpec);
+        this.index = Index.load(indexFile);
+        for (final Path sourceFile : sourceFiles) {
+            final Path path = sourceFile.toAbsolutePath().normalize();
+            currentSources.put(path, SourceState.of(path, index == null ? null : index.sources.get(path.toString())));
+        }
+        for (final Path entry : classpathEntries(compileSpec)) {
+            final String key = entry.toString();
+            currentClasspath.put(key, JkClasspathAbi.entry(entry, index == null ? null : index.classpath.get(key)));
+        }
+    }
+
+    static IncrementalCompilation of(JkJavaCompileSpec compileSpec, List<Path> sourceFiles) {
+        return new IncrementalCompilation(compileSpec, sourceFiles);
+    }
+
+    /**
+     * Returns the file where is stored the index for the specified output dir. This file lies beside the output
+     * dir, so it does not end in archives made from the output dir.
+     */
+    static Path indexFile(Path outputDir) {
+        final Path dir = outputDir.toAbsolutePath().normalize();
+        return dir.resolveSibling(dir.getFileName().toString() + INDEX_FILE_SUFFIX);
+    }
+
+    /**
+     * Deletes class files made stale by source changes and returns the compile spec to be actually passed
+     * to the compiler, or <code>null</code> if classes are up-to-date.
+     */
+    JkJavaCompileSpec prepare() {
+        if (index == null || !optionFingerprint.equals(index.optionFingerprint)) {
+            JkLog.info(index == null ? "No incremental compilation index found : compile all sources."
+                    : "Compile options or classpath have changed : compile all sources.");
+            return prepareFullCompilation();
+        }
+        final Set<String> changedSources = new LinkedHashSet<>();
+        for (final Map.Entry<Path, SourceState> entry : currentSources.entrySet()) {
+            final SourceEntry previous = index.sources.get(entry.getKey().toString());
+            if (previous == null || !previous.hash.equals(entry.getValue().hash) || !hasClassFiles(previous)) {
+                changedSources.add(entry.getKey().toString());
+            }
+        }
+        final Set<String> removedSources = new HashSet<>(index.sources.keySet());
+        removedSources.removeAll(currentSources.keySet().stream().map(Path::toString).collect(Collectors.toSet()));
+        final Set<String> abiChangedClasses = abiChangedClasses();
+        if (abiChangedClasses == null) {
+            return prepareFullCompilation();
+        }
+        if (changedSources.isEmpty() && removedSources.isEmpty() && abiChangedClasses.isEmpty()) {
+            JkLog.info("All " + currentSources.size() + " source files are up-to-date : skip compilation.");
+            if (!currentClasspath.equals(index.classpath)) {
+                save();  // Saves new classpath stamps to not compute again an unchanged ABI
+            }
+            return null;
+        }
+        final List<String> modifiedSources = new ArrayList<>(changedSources);
+        modifiedSources.addAll(removedSources);
+        for (final String source : modifiedSources) {
+            final SourceEntry entry = index.sources.get(source);
+            if (entry != null && entry.hasConstants) {
+                JkLog.info("Source " + source + " declares constants that may be inlined elsewhere : " +
+                        "compile all sources.");
+                return prepareFullCompilation();
+            }
+        }
+        final Set<String> sourcesUsingChangedAbi = new LinkedHashSet<>();
+        for (final Map.Entry<String, SourceEntry> entry : index.sources.entrySet()) {
+            if (!removedSources.contains(entry.getKey())
+                    && !Collections.disjoint(entry.getValue().references, abiChangedClasses)) {
+                sourcesUsingChangedAbi.add(entry.getKey());
+            }
+        }
+        if (!abiChangedClasses.isEmpty()) {
+            JkLog.info("ABI of " + abiChangedClasses.size() + " classpath classes has changed : "
+                    + sourcesUsingChangedAbi.size() + " source files refer to them.");
+        }
+        final Set<String> sourcesToRecompile = new LinkedHashSet<>(changedSources);
+        sourcesToRecompile.addAll(sourcesUsingChangedAbi);
+        final Set<String> dirtySources = dependentClosure(sourcesToRecompile, removedSources);
+        for (final String source : removedSources) {
+            deleteClassFiles(index.sources.remove(source));
+        }
+        sourcesToCompile = new LinkedHashSet<>();
+        for (final String source : dirtySources) {
+            deleteClassFiles(index.sources.remove(source));
+            sourcesToCompile.add(Paths.get(source));
+        }
+        JkLog.info(changedSources.size() + " changed and " + removedSources.size()
+                + " removed source files since last compilation : recompile " + sourcesToCompile.size() + " of "
+                + currentSources.size() + " source files.");
+        if (sourcesToCompile.isEmpty()) {
+            save();
+            return null;
+        }
+        return JkJavaCompileSpec.of()
+                .addOptions(compileSpec.getOptions())
+                .setClasspath(compileSpec.getClasspath().andPrepending(outputDir))
+                .addSources(sourcesToCompile);
+    }
+
+    /**
+     * Records the result of a successful compilation in the index.
+     */
+    void commit() {
+        final Set<String> knownClassFiles = new HashSet<>();
+        index.sources.values().forEach(entry -> knownClassFiles.addAll(entry.classFiles));
+        final Map<String, List<Path>> compiledSourcesByName = sourcesToCompile.stream()
+                .collect(Collectors.groupingBy(path -> path.getFileName().toString()));
+        final List<Path> producedClassFiles = JkPathTree.of(outputDir).andMatching(true, "*.class", "**/*.class")
+                .getRelativeFiles();
+        for (final Path relativeClassFile : producedClassFiles) {
+            final String key = relativeClassFile.toString();
+            if (knownClassFiles.contains(key)) {
+                continue;
+            }
+            final JkClassFile classFile = JkClassFile.of(outputDir.resolve(relativeClassFile));
+            final Path source = sourceOf(classFile, compiledSourcesByName);
+            if (source == null) {
+                continue;
+            }
+            final SourceEntry entry = index.sources.computeIfAbsent(source.toString(),
+                    path -> currentSources.get(source).toEntry());
+            entry.classFiles.add(key);
+            entry.classNames.add(classFile.getClassName());
+            entry.references.addAll(classFile.getReferencedClassNames());
+            entry.hasConstants = entry.hasConstants || classFile.hasConstants();
+        }
+        for (final Path source : sourcesToCompile) {  // sources producing no class (e.g. package-info.java)
+            index.sources.computeIfAbsent(source.toString(), path -> currentSources.get(source).toEntry());
+        }
+        save();
+    }
+
+    /**
+     * Invalidates the index so the next compilation will be a full one.
+     */
+    void invalidate() {
+        JkUtilsPath.deleteIfExists(indexFile);
+    }
+
+    private JkJavaCompileSpec prepareFullCompilation() {
+        if (index != null) {
+            index.sources.values().forEach(this::deleteClassFiles);
+        }
+        index = new Index(optionFingerprint);
+        index.classpath.putAll(currentClasspath);
+        sourcesToCompile = new LinkedHashSet<>(currentSources.keySet());
+        return compileSpec;
+    }
+
+    /*
+     * Returns the classpath classes whose ABI has changed since the last compilation, along with their subtypes, or
+     * <code>null</code> if the change requires a full compilation.
+     */
+    private Set<String> abiChangedClasses() {
+        for (final Map.Entry<String, JkClasspathAbi.Entry> entry : currentClasspath.entrySet()) {
+            final JkClasspathAbi.Entry previous = index.classpath.get(entry.getKey());
+            if (previous == null || !previous.resourceHash.equals(entry.getValue().resourceHash)) {
+                JkLog.info("Resources or annotation processors of classpath entry " + entry.getKey()
+                        + " have changed : compile all sources.");
+                return null;
+            }
+        }
+        final Map<String, JkClasspathAbi.ClassAbi> previousClasses = effectiveClasses(index.classpath);
+        final Map<String, JkClasspathAbi.ClassAbi> currentClasses = effectiveClasses(currentClasspath);
+        final Set<String> changedClasses = new HashSet<>();
+        final Map<String, Set<String>> subtypes = new HashMap<>();
+        for (final Map<String, JkClasspathAbi.ClassAbi> classes : Arrays.asList(previousClasses, currentClasses)) {
+            final Map<String, JkClasspathAbi.ClassAbi> others = classes == previousClasses ? currentClasses
+                    : previousClasses;
+            for (final Map.Entry<String, JkClasspathAbi.ClassAbi> entry : classes.entrySet()) {
+                final JkClasspathAbi.ClassAbi other = others.get(entry.getKey());
+                if (other == null || !other.hash.equals(entry.getValue().hash)) {
+                    if (entry.getValue().hasConstants) {
+                        JkLog.info("Classpath class " + entry.getKey() + " declares constants that may be inlined : "
+                                + "compile all sources.");
+                        return null;
+                    }
+                    changedClasses.add(entry.getKey());
+                }
+                for (final String superType : entry.getValue().superTypes) {
+                    subtypes.computeIfAbsent(superType, key -> new HashSet<>()).add(entry.getKey());
+                }
+            }
+        }
+
+        // Members inherited from a changed class are referred to through its subtypes
+        final Deque<String> classesToVisit = new LinkedList<>(changedClasses);
+        while (!classesToVisit.isEmpty()) {
+            for (final String subtype : subtypes.getOrDefault(classesToVisit.poll(), Collections.emptySet())) {
+                if (changedClasses.add(subtype)) {
+                    classesToVisit.add(subtype);
+                }
+            }
+        }
+        return changedClasses;
+    }
+
+    // A class present in several classpath entries is loaded from the first one
+    private static Map<String, JkClasspathAbi.ClassAbi> effectiveClasses(
+            Map<String, JkClasspathAbi.Entry> classpath) {
+        final Map<String, JkClasspathAbi.ClassAbi> result = new HashMap<>();
+        classpath.values().forEach(entry -> entry.classes.forEach(result::putIfAbsent));
+        return result;
+    }
+
+    private Set<String> dependentClosure(Set<String> changedSources, Set<String> removedSources) {
+        final Map<String, Set<String>> sourcesReferencingClass = new HashMap<>();
+        for (final Map.Entry<String, SourceEntry> entry : index.sources.entrySet()) {
+            for (final String reference : entry.getValue().references) {
+                sourcesReferencingClass.computeIfAbsent(reference, key -> new HashSet<>()).add(entry.getKey());
+            }
+        }
+        final Set<String> result = new LinkedHashSet<>(changedSources);
+        final Deque<String> sourcesToVisit = new LinkedList<>(changedSources);
+        sourcesToVisit.addAll(removedSources);
+        while (!sourcesToVisit.isEmpty()) {
+            final SourceEntry entry = index.sources.get(sourcesToVisit.poll());
+            if (entry == null) {
+                continue;
+            }
+            for (final String className : entry.classNames) {
+                for (final String dependent : sourcesReferencingClass.getOrDefault(className,
+                        Collections.emptySet())) {
+                    if (!removedSources.contains(dependent) && result.add(dependent)) {
+                        sourcesToVisit.add(dependent);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private Path sourceOf(JkClassFile classFile, Map<String, List<Path>> compiledSourcesByName) {
+        if (classFile.getSourceFileName() == null) {
+            return null;
+        }
+        final List<Path> candidates = compiledSourcesByName.get(classFile.getSourceFileName());
+        if (candidates == null) {
+            return null;
+        }
+        final String packagePath = classFile.getPackageName().replace('.', '/');
+        final String suffix = packagePath.isEmpty() ? classFile.getSourceFileName()
+                : packagePath + "/" + classFile.getSourceFileName();
+        for (final Path candidate : candidates) {
+            if (candidate.toString().replace('\\', '/').endsWith(suffix)) {
+                return candidate;
+            }
+        }
+        return candidates.size() == 1 ? candidates.get(0) : null;
+    }
+
+    private void deleteClassFiles(SourceEntry entry) {
+        if (entry == null) {
+            return;
+        }
+        entry.classFiles.forEach(classFile -> JkUtilsPath.deleteIfExists(outputDir.resolve(classFile)));
+    }
+
+    // Class files may have been deleted or replaced by a partial restore of the output dir
+    private boolean hasClassFiles(SourceEntry entry) {
+        return entry.classFiles.stream().allMatch(classFile -> Files.exists(outputDir.resolve(classFile)));
+    }
+
+    private void save() {
+        index.classpath.clear();
+        index.classpath.putAll(currentClasspath);
+        JkUtilsPath.createDirectories(indexFile.getParent());
+        JkUtilsIO.serialize(index, indexFile);
+    }
+
+    /*
+     * Fingerprint of compile options and classpath locations. Classpath content is tracked through its ABI.
+     */
+    private static String optionFingerprint(JkJavaCompileSpec compileSpec) {
+        final StringBuilder builder = new StringBuilder();
+        builder.append(JkUtilsString.join(compileSpec.getOptions(), " ")).append('\n');
+        for (final Path entry : classpathEntries(compileSpec)) {
+            builder.append(entry).append('\n');
+        }
+        return hash(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Output dir, if present in the classpath, is not an input
+    private static List<Path> classpathEntries(JkJavaCompileSpec compileSpec) {
+        final Path outputDir = compileSpec.getOutputDir().toAbsolutePath().normalize();
+        final List<Path> result = new LinkedList<>();
+        for (final Path entry : compileSpec.getClasspath()) {
+            final Path path = entry.toAbsolutePath().normalize();
+            if (!path.equals(outputDir)) {
+                result.add(path);
+            }
+        }
+        return result;
+    }
+
+    private static String stamp(Path file) {
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return attributes.size() + "-" + attributes.lastModifiedTime().toMillis();
+        } catch (final IOException e) {
+            return "-";
+        }
+    }
+
+    private static String hash(byte[] bytes) {
+        try {
+            return JkUtilsString.toHexString(MessageDigest.getInstance("MD5").digest(bytes));
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class SourceState {
+
+        private final String stamp;
+
+        private final String hash;
+
+        private SourceState(String stamp, String hash) {
+            this.stamp = stamp;
+            this.hash = hash;
+        }
+
+        // Content is hashed only if size or last modified time differs from the previous compilation
+        static SourceState of(Path source, SourceEntry previous) {
+            final String stamp = stamp(source);
+            if (previous != null && previous.stamp.equals(stamp)) {
+                return new SourceState(stamp, previous.hash);
+            }
+            return new SourceState(stamp, JkPathFile.of(source).getChecksum("MD5"));
+        }
+
+        SourceEntry toEntry() {
+            return new SourceEntry(stamp, hash);
+        }
+    }
+
+    private static final class Index implements Serializable {
+
+        private static final long serialVersionUID = 2L;
+
+        private final String optionFingerprint;
+
+        private final Map<String, SourceEntry> sources = new HashMap<>();
+
+        private final Map<String, JkClasspathAbi.Entry> classpath = new LinkedHashMap<>();
+
+        Index(String optionFingerprint) {
+            this.optionFingerprint = optionFingerprint;
+        }
+
+        static Index load(Path indexFile) {
+            if (!Files.exists(indexFile)) {
+                return null;
+            }
+            try {
+                return (Index) JkUtilsIO.deserialize(indexFile);
+            } catch (final RuntimeException e) {
+                JkLog.trace("Can not read incremental compilation index " + indexFile + " : " + e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    private static final class SourceEntry implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String stamp;
+
+        private final String hash;
+
+        private final Set<String> classFiles = new HashSet<>();
+
+        private final Set<String> classNames = new HashSet<>();
+
+        private final Set<String> references = new HashSet<>();
+
+        private boolean hasConstants;
+
+        SourceEntry(String stamp, String hash) {
+            this.stamp = stamp;
+            this.hash = hash;
+        }
+    }
+
+}
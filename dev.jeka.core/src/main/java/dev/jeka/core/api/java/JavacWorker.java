@@ -0,0 +1,81 @@
+package dev.jeka.core.api.java;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Long-lived compiler process, launched by {@link JavacWorkerPool}. It reads compilation requests (javac arguments)
+ * from its standard input and writes back the exit status and the diagnostics of each compilation on its standard
+ * output, so the JVM startup and JIT warmup are paid only once for many compilations.
+ */
+class JavacWorker {
+
+    static final int READY = 0x4A4B4A43;
+
+    public static void main(String[] args) throws IOException {
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(System.out));
+        System.setOut(System.err);  // Standard output is reserved for responses
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            System.err.println("No system java compiler available in " + System.getProperty("java.home"));
+            System.exit(1);
+        }
+        out.writeInt(READY);
+        out.flush();
+        while (true) {
+            final String[] request;
+            try {
+                request = readRequest(in);
+            } catch (final EOFException e) {
+                return;  // Launching process has gone
+            }
+            final ByteArrayOutputStream diagnostics = new ByteArrayOutputStream();
+            int status;
+            try {
+                status = compiler.run(null, diagnostics, diagnostics, request);
+            } catch (final RuntimeException e) {
+                e.printStackTrace(new PrintStream(diagnostics, true));
+                status = -1;
+            }
+            out.writeInt(status);
+            writeBytes(out, diagnostics.toByteArray());
+            out.flush();
+        }
+    }
+
+    static void writeRequest(DataOutputStream out, Iterable<String> args) throws IOException {
+        int count = 0;
+        for (final String ignored : args) {
+            count++;
+        }
+        out.writeInt(count);
+        for (final String arg : args) {
+            writeBytes(out, arg.getBytes(StandardCharsets.UTF_8));
+        }
+        out.flush();
+    }
+
+    static byte[] readBytes(DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static String[] readRequest(DataInputStream in) throws IOException {
+        final String[] result = new String[in.readInt()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = new String(readBytes(in), StandardCharsets.UTF_8);
+        }
+        return result;
+    }
+
+    // Arguments as classpaths may exceed the 64k limit of DataOutput#writeUTF
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+}
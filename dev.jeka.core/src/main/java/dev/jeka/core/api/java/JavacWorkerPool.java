@@ -0,0 +1,177 @@
+package dev.jeka.core.api.java;
+
+import dev.jeka.core.api.system.JkLocator;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.system.JkProcess;
+import dev.jeka.core.api.utils.JkUtilsSystem;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/*
+ * Pool of warm compiler JVMs (see JavacWorker), kept alive for the whole build. Workers are keyed by the JDK
+ * whose javac is invoked by the fork process, plus the JVM options (-J parameters) and working dir of this
+ * process. A worker serves a single compilation at a time : concurrent compilations get their own worker.
+ */
+final class JavacWorkerPool {
+
+    private static final Map<String, Deque<Worker>> IDLE_WORKERS = new HashMap<>();
+
+    private static final Set<Worker> ALL_WORKERS = new HashSet<>();
+
+    private static final Set<String> UNSUPPORTED_KEYS = new HashSet<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(JavacWorkerPool::shutdown, "jeka-javac-worker-shutdown"));
+    }
+
+    private JavacWorkerPool() {
+    }
+
+    /*
+     * Compiles using a warm worker standing for the javac command of the specified fork process. Returns the
+     * javac exit status, or <code>null</code> if no worker can stand for this process (command is not the javac of
+     * a JDK or the JDK can not run the worker), in which case the caller should launch the fork process itself.
+     */
+    static Integer compile(JkProcess fork, List<String> javacArgs) {
+        final Path javaExecutable = javaExecutable(fork.getCommand());
+        if (javaExecutable == null) {
+            return null;
+        }
+        final List<String> jvmOptions = new LinkedList<>();
+        final List<String> args = new LinkedList<>();
+        for (final String param : fork.getParams()) {
+            if (param.startsWith("-J")) {
+                jvmOptions.add(param.substring(2));
+            } else {
+                args.add(param);
+            }
+        }
+        args.addAll(javacArgs);
+        final Path workingDir = fork.getWorkingDir() == null ? null : fork.getWorkingDir().toAbsolutePath().normalize();
+        final String key = javaExecutable + " " + jvmOptions + " " + workingDir;
+        final Worker worker = acquire(key, javaExecutable, jvmOptions, workingDir);
+        if (worker == null) {
+            return null;
+        }
+        try {
+            final int status = worker.compile(args);
+            release(key, worker);
+            return status;
+        } catch (final IOException e) {
+            JkLog.warn("Compiler worker " + key + " has failed (" + e.getMessage() + "). Compile with a new process.");
+            discard(worker);
+            return null;
+        }
+    }
+
+    private static Path javaExecutable(String javacCommand) {
+        final Path javac = Paths.get(javacCommand);
+        final String fileName = javac.getFileName().toString();
+        if (javac.getParent() == null || !(fileName.equals("javac") || fileName.equals("javac.exe"))) {
+            return null;
+        }
+        final Path java = javac.resolveSibling(JkUtilsSystem.IS_WINDOWS ? "java.exe" : "java");
+        return Files.isRegularFile(java) ? java.toAbsolutePath().normalize() : null;
+    }
+
+    private static Worker acquire(String key, Path javaExecutable, List<String> jvmOptions, Path workingDir) {
+        synchronized (JavacWorkerPool.class) {
+            if (UNSUPPORTED_KEYS.contains(key)) {
+                return null;
+            }
+            final Worker idleWorker = IDLE_WORKERS.getOrDefault(key, new LinkedList<>()).poll();
+            if (idleWorker != null) {
+                return idleWorker;
+            }
+        }
+        final Worker worker = Worker.start(javaExecutable, jvmOptions, workingDir);
+        synchronized (JavacWorkerPool.class) {
+            if (worker == null) {
+                JkLog.trace("No compiler worker can be started for " + key);
+                UNSUPPORTED_KEYS.add(key);
+                return null;
+            }
+            JkLog.trace("Compiler worker started for " + key);
+            ALL_WORKERS.add(worker);
+            return worker;
+        }
+    }
+
+    private static synchronized void release(String key, Worker worker) {
+        IDLE_WORKERS.computeIfAbsent(key, k -> new LinkedList<>()).add(worker);
+    }
+
+    private static synchronized void discard(Worker worker) {
+        ALL_WORKERS.remove(worker);
+        worker.process.destroy();
+    }
+
+    private static synchronized void shutdown() {
+        ALL_WORKERS.forEach(worker -> worker.process.destroy());
+        ALL_WORKERS.clear();
+        IDLE_WORKERS.clear();
+    }
+
+    private static final class Worker {
+
+        private final Process process;
+
+        private final DataOutputStream out;
+
+        private final DataInputStream in;
+
+        private Worker(Process process) {
+            this.process = process;
+            this.out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            this.in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+        }
+
+        // Returns null if the JVM does not start or can not run the worker (as JDK older than the Jeka classes)
+        static Worker start(Path javaExecutable, List<String> jvmOptions, Path workingDir) {
+            final List<String> command = new LinkedList<>();
+            command.add(javaExecutable.toString());
+            command.addAll(jvmOptions);
+            command.add("-cp");
+            command.add(JkLocator.getJekaJarPath().toString());
+            command.add(JavacWorker.class.getName());
+            final ProcessBuilder processBuilder = new ProcessBuilder(command)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT);
+            if (workingDir != null) {
+                processBuilder.directory(workingDir.toFile());
+            }
+            final Worker worker;
+            try {
+                worker = new Worker(processBuilder.start());
+            } catch (final IOException e) {
+                return null;
+            }
+            try {
+                if (worker.in.readInt() == JavacWorker.READY) {
+                    return worker;
+                }
+            } catch (final IOException e) {
+                // Process has terminated before being ready
+            }
+            worker.process.destroy();
+            return null;
+        }
+
+        int compile(List<String> args) throws IOException {
+            JavacWorker.writeRequest(out, args);
+            final int status = in.readInt();
+            final byte[] diagnostics = JavacWorker.readBytes(in);
+            if (diagnostics.length > 0) {
+                final OutputStream outputStream = JkLog.getOutputStream();
+                outputStream.write(diagnostics);
+                outputStream.flush();
+            }
+            return status;
+        }
+
+    }
+
+}
@@ -0,0 +1,565 @@
+package dev.jeka.core.api.java;
+
+import dev.jeka.core.api.utils.JkUtilsPath;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Modifier;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Light description of a compiled class obtained by reading its class file directly, without loading it in any
+ * class loader. It provides the names of referenced classes, declared fields and methods along their annotations,
+ * which is enough to compute dependencies between classes or to select classes without triggering class
+ * initialisation.
+ */
+public final class JkClassFile {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private final String className;
+
+    private final String superClassName;
+
+    private final List<String> interfaceNames;
+
+    private final int accessFlags;
+
+    private final String sourceFileName;
+
+    private final String signature;
+
+    private final Set<String> referencedClassNames;
+
+    private final Set<String> annotationNames;
+
+    private final List<JkMember> fields;
+
+    private final List<JkMember> methods;
+
+    private JkClassFile(String className, String superClassName, List<String> interfaceNames, int accessFlags,
+                        String sourceFileName, String signature, Set<String> referencedClassNames,
+                        Set<String> annotationNames, List<JkMember> fields, List<JkMember> methods) {
+        this.className = className;
+        this.superClassName = superClassName;
+        this.interfaceNames = interfaceNames;
+        this.accessFlags = accessFlags;
+        this.sourceFileName = sourceFileName;
+        this.signature = signature;
+        this.referencedClassNames = referencedClassNames;
+        this.annotationNames = annotationNames;
+        this.fields = fields;
+        this.methods = methods;
+    }
+
+    /**
+     * Reads the specified class file.
+     */
+    public static JkClassFile of(Path classFile) {
+        return of(JkUtilsPath.readAllBytes(classFile));
+    }
+
+    /**
+     * Reads the specified class file content.
+     * @throws IllegalArgumentException if the specified content is not a valid class file.
+     */
+    public static JkClassFile of(byte[] bytes) {
+        try {
+            return new Reader(bytes).read();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the binary name of this class (e.g. <code>java.util.Map$Entry</code>).
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * Returns the package name of this class or an empty string if this class belongs to the default package.
+     */
+    public String getPackageName() {
+        final int index = className.lastIndexOf('.');
+        return index < 0 ? "" : className.substring(0, index);
+    }
+
+    /**
+     * Returns the binary name of the super class or <code>null</code> if this class is <code>java.lang.Object</code>.
+     */
+    public String getSuperClassName() {
+        return superClassName;
+    }
+
+    public List<String> getInterfaceNames() {
+        return interfaceNames;
+    }
+
+    public int getAccessFlags() {
+        return accessFlags;
+    }
+
+    public boolean isInterface() {
+        return Modifier.isInterface(accessFlags);
+    }
+
+    public boolean isAbstract() {
+        return Modifier.isAbstract(accessFlags);
+    }
+
+    public boolean isPublic() {
+        return Modifier.isPublic(accessFlags);
+    }
+
+    /**
+     * Returns the source file name (without directory) this class has been compiled from or <code>null</code> if
+     * the class has been compiled without debug information.
+     */
+    public String getSourceFileName() {
+        return sourceFileName;
+    }
+
+    /**
+     * Returns the generic signature of this class or <code>null</code> if this class declares neither type parameters
+     * nor parameterized super types.
+     */
+    public String getSignature() {
+        return signature;
+    }
+
+    /**
+     * Returns the binary names of all classes this class refers to, either in its code, in its signatures or in its
+     * annotations. This class is not included.
+     */
+    public Set<String> getReferencedClassNames() {
+        return referencedClassNames;
+    }
+
+    /**
+     * Returns the binary names of the annotations present on this class.
+     */
+    public Set<String> getAnnotationNames() {
+        return annotationNames;
+    }
+
+    public List<JkMember> getFields() {
+        return fields;
+    }
+
+    public List<JkMember> getMethods() {
+        return methods;
+    }
+
+    /**
+     * Returns <code>true</code> if this class declares at least one non-private field having a compile-time constant
+     * value. Such values are inlined by the compiler in client classes, so these clients do not refer to this class
+     * anymore.
+     */
+    public boolean hasConstants() {
+        return fields.stream().anyMatch(field -> field.getConstantValue() != null && !field.isPrivate());
+    }
+
+    /**
+     * Returns <code>true</code> if this class or one of its methods is annotated with the specified annotation.
+     */
+    public boolean isAnnotatedWith(String annotationClassName) {
+        return annotationNames.contains(annotationClassName)
+                || methods.stream().anyMatch(method -> method.getAnnotationNames().contains(annotationClassName));
+    }
+
+    @Override
+    public String toString() {
+        return className;
+    }
+
+    /**
+     * Field or method declared in a class file.
+     */
+    public static final class JkMember {
+
+        private final int accessFlags;
+
+        private final String name;
+
+        private final String descriptor;
+
+        private final Object constantValue;
+
+        private final String signature;
+
+        private final List<String> exceptions;
+
+        private final Set<String> annotationNames;
+
+        private JkMember(int accessFlags, String name, String descriptor, Object constantValue, String signature,
+                         List<String> exceptions, Set<String> annotationNames) {
+            this.accessFlags = accessFlags;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.constantValue = constantValue;
+            this.signature = signature;
+            this.exceptions = exceptions;
+            this.annotationNames = annotationNames;
+        }
+
+        public int getAccessFlags() {
+            return accessFlags;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the JVM descriptor of this member (e.g. <code>(Ljava/lang/String;)V</code>).
+         */
+        public String getDescriptor() {
+            return descriptor;
+        }
+
+        /**
+         * Returns the compile-time constant value of this field or <code>null</code> if this member is not
+         * a constant field.
+         */
+        public Object getConstantValue() {
+            return constantValue;
+        }
+
+        /**
+         * Returns the generic signature of this member or <code>null</code> if its type does not involve generics.
+         */
+        public String getSignature() {
+            return signature;
+        }
+
+        /**
+         * Returns the binary names of the checked exceptions declared by this method.
+         */
+        public List<String> getExceptions() {
+            return exceptions;
+        }
+
+        public Set<String> getAnnotationNames() {
+            return annotationNames;
+        }
+
+        public boolean isPublic() {
+            return Modifier.isPublic(accessFlags);
+        }
+
+        public boolean isPrivate() {
+            return Modifier.isPrivate(accessFlags);
+        }
+
+        public boolean isStatic() {
+            return Modifier.isStatic(accessFlags);
+        }
+
+        @Override
+        public String toString() {
+            return name + descriptor;
+        }
+    }
+
+    private static final class Reader {
+
+        private final DataInputStream in;
+
+        private Object[] constants;
+
+        private int[] tags;
+
+        private final Set<String> references = new HashSet<>();
+
+        Reader(byte[] bytes) {
+            this.in = new DataInputStream(new ByteArrayInputStream(bytes));
+        }
+
+        JkClassFile read() throws IOException {
+            if (in.readInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a class file.");
+            }
+            in.readUnsignedShort();  // minor version
+            in.readUnsignedShort();  // major version
+            readConstantPool();
+            final int access = in.readUnsignedShort();
+            final String className = classAt(in.readUnsignedShort());
+            final int superIndex = in.readUnsignedShort();
+            final String superClassName = superIndex == 0 ? null : classAt(superIndex);
+            final int interfaceCount = in.readUnsignedShort();
+            final List<String> interfaces = new ArrayList<>(interfaceCount);
+            for (int i = 0; i < interfaceCount; i++) {
+                interfaces.add(classAt(in.readUnsignedShort()));
+            }
+            final List<JkMember> fields = readMembers();
+            final List<JkMember> methods = readMembers();
+            final Set<String> annotations = new LinkedHashSet<>();
+            String sourceFile = null;
+            String signature = null;
+            final int attributeCount = in.readUnsignedShort();
+            for (int i = 0; i < attributeCount; i++) {
+                final String attributeName = utf8At(in.readUnsignedShort());
+                final int length = in.readInt();
+                if ("SourceFile".equals(attributeName)) {
+                    sourceFile = utf8At(in.readUnsignedShort());
+                } else if ("Signature".equals(attributeName)) {
+                    signature = utf8At(in.readUnsignedShort());
+                    addDescriptorReferences(signature);
+                } else if (isAnnotationAttribute(attributeName)) {
+                    annotations.addAll(readAnnotations());
+                } else {
+                    skip(length);
+                }
+            }
+            references.remove(className);
+            return new JkClassFile(className, superClassName, Collections.unmodifiableList(interfaces), access,
+                    sourceFile, signature, Collections.unmodifiableSet(references), Collections.unmodifiableSet(annotations),
+                    Collections.unmodifiableList(fields), Collections.unmodifiableList(methods));
+        }
+
+        private void readConstantPool() throws IOException {
+            final int count = in.readUnsignedShort();
+            constants = new Object[count];
+            tags = new int[count];
+            final List<Integer> descriptorIndexes = new LinkedList<>();
+            for (int i = 1; i < count; i++) {
+                final int tag = in.readUnsignedByte();
+                tags[i] = tag;
+                switch (tag) {
+                    case 1:  // Utf8
+                        constants[i] = in.readUTF();
+                        break;
+                    case 3:  // Integer
+                        constants[i] = in.readInt();
+                        break;
+                    case 4:  // Float
+                        constants[i] = in.readFloat();
+                        break;
+                    case 5:  // Long
+                        constants[i] = in.readLong();
+                        i++;
+                        break;
+                    case 6:  // Double
+                        constants[i] = in.readDouble();
+                        i++;
+                        break;
+                    case 7:  // Class
+                    case 8:  // String
+                    case 19: // Module
+                    case 20: // Package
+                        constants[i] = in.readUnsignedShort();
+                        break;
+                    case 16: // MethodType
+                        descriptorIndexes.add(in.readUnsignedShort());
+                        break;
+                    case 12: // NameAndType
+                        in.readUnsignedShort();
+                        descriptorIndexes.add(in.readUnsignedShort());
+                        break;
+                    case 9:  // Fieldref
+                    case 10: // Methodref
+                    case 11: // InterfaceMethodref
+                    case 17: // Dynamic
+                    case 18: // InvokeDynamic
+                        in.readInt();
+                        break;
+                    case 15: // MethodHandle
+                        in.readUnsignedByte();
+                        in.readUnsignedShort();
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown constant pool tag " + tag + " at index " + i);
+                }
+            }
+            for (int i = 1; i < count; i++) {
+                if (tags[i] == 7) {
+                    final String name = utf8At((Integer) constants[i]);
+                    if (name.startsWith("[")) {
+                        addDescriptorReferences(name);
+                    } else {
+                        references.add(toBinaryName(name));
+                    }
+                }
+            }
+            for (final int index : descriptorIndexes) {
+                addDescriptorReferences(utf8At(index));
+            }
+        }
+
+        private List<JkMember> readMembers() throws IOException {
+            final int count = in.readUnsignedShort();
+            final List<JkMember> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                final int access = in.readUnsignedShort();
+                final String name = utf8At(in.readUnsignedShort());
+                final String descriptor = utf8At(in.readUnsignedShort());
+                addDescriptorReferences(descriptor);
+                Object constantValue = null;
+                String signature = null;
+                List<String> exceptions = Collections.emptyList();
+                final Set<String> annotations = new LinkedHashSet<>();
+                final int attributeCount = in.readUnsignedShort();
+                for (int j = 0; j < attributeCount; j++) {
+                    final String attributeName = utf8At(in.readUnsignedShort());
+                    final int length = in.readInt();
+                    if ("ConstantValue".equals(attributeName)) {
+                        constantValue = constantValueAt(in.readUnsignedShort());
+                    } else if ("Exceptions".equals(attributeName)) {
+                        final int exceptionCount = in.readUnsignedShort();
+                        exceptions = new ArrayList<>(exceptionCount);
+                        for (int k = 0; k < exceptionCount; k++) {
+                            exceptions.add(classAt(in.readUnsignedShort()));
+                        }
+                    } else if ("Signature".equals(attributeName)) {
+                        signature = utf8At(in.readUnsignedShort());
+                        addDescriptorReferences(signature);
+                    } else if (isAnnotationAttribute(attributeName)) {
+                        annotations.addAll(readAnnotations());
+                    } else {
+                        skip(length);
+                    }
+                }
+                result.add(new JkMember(access, name, descriptor, constantValue, signature,
+                        Collections.unmodifiableList(exceptions), Collections.unmodifiableSet(annotations)));
+            }
+            return result;
+        }
+
+        private List<String> readAnnotations() throws IOException {
+            final int count = in.readUnsignedShort();
+            final List<String> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                result.add(readAnnotation());
+            }
+            return result;
+        }
+
+        private String readAnnotation() throws IOException {
+            final String descriptor = utf8At(in.readUnsignedShort());
+            addDescriptorReferences(descriptor);
+            final int pairCount = in.readUnsignedShort();
+            for (int i = 0; i < pairCount; i++) {
+                in.readUnsignedShort();
+                skipElementValue();
+            }
+            return toBinaryName(descriptor.substring(1, descriptor.length() - 1));
+        }
+
+        private void skipElementValue() throws IOException {
+            final char tag = (char) in.readUnsignedByte();
+            switch (tag) {
+                case 'e':
+                    addDescriptorReferences(utf8At(in.readUnsignedShort()));
+                    in.readUnsignedShort();
+                    break;
+                case 'c':
+                    addDescriptorReferences(utf8At(in.readUnsignedShort()));
+                    break;
+                case '@':
+                    readAnnotation();
+                    break;
+                case '[':
+                    final int count = in.readUnsignedShort();
+                    for (int i = 0; i < count; i++) {
+                        skipElementValue();
+                    }
+                    break;
+                default:
+                    in.readUnsignedShort();
+            }
+        }
+
+        private static boolean isAnnotationAttribute(String attributeName) {
+            return "RuntimeVisibleAnnotations".equals(attributeName)
+                    || "RuntimeInvisibleAnnotations".equals(attributeName);
+        }
+
+        /*
+         * Extracts class names from field/method descriptors and generic signatures.
+         */
+        private void addDescriptorReferences(String descriptor) {
+            final int length = descriptor.length();
+            int i = 0;
+            while (i < length) {
+                final char c = descriptor.charAt(i);
+                if (isFormalTypeParameter(descriptor, i)) {
+                    i = descriptor.indexOf(':', i) + 1;
+                } else if (c == 'L') {
+                    int end = i + 1;
+                    while (end < length && ";<.".indexOf(descriptor.charAt(end)) < 0) {
+                        end++;
+                    }
+                    references.add(toBinaryName(descriptor.substring(i + 1, end)));
+                    while (end < length && descriptor.charAt(end) == '.') { // inner class of a generic type
+                        end++;
+                        while (end < length && ";<.".indexOf(descriptor.charAt(end)) < 0) {
+                            end++;
+                        }
+                    }
+                    i = end + 1;
+                } else if (c == 'T') {
+                    final int end = descriptor.indexOf(';', i);
+                    if (end < 0) {
+                        return;
+                    }
+                    i = end + 1;
+                } else {
+                    i++;
+                }
+            }
+        }
+
+        private static boolean isFormalTypeParameter(String signature, int index) {
+            if (index == 0 || (signature.charAt(index - 1) != '<' && signature.charAt(index - 1) != ';')) {
+                return false;
+            }
+            final int colon = signature.indexOf(':', index);
+            if (colon <= index) {
+                return false;
+            }
+            for (int i = index; i < colon; i++) {
+                if (!Character.isJavaIdentifierPart(signature.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void skip(int length) throws IOException {
+            int remaining = length;
+            while (remaining > 0) {
+                final int skipped = in.skipBytes(remaining);
+                if (skipped <= 0) {
+                    throw new IllegalArgumentException("Truncated class file.");
+                }
+                remaining -= skipped;
+            }
+        }
+
+        private String utf8At(int index) {
+            return (String) constants[index];
+        }
+
+        private String classAt(int index) {
+            return toBinaryName(utf8At((Integer) constants[index]));
+        }
+
+        private Object constantValueAt(int index) {
+            if (tags[index] == 8) {
+                return utf8At((Integer) constants[index]);
+            }
+            return constants[index];
+        }
+
+        private static String toBinaryName(String internalName) {
+            return internalName.replace('/', '.');
+        }
+
+    }
+
+}
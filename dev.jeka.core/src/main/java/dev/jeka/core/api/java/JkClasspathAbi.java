@@ -0,0 +1,282 @@
+package dev.jeka.core.api.java;
+
+import dev.jeka.core.api.file.JkPathFile;
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsIterable;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsString;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Application binary interface (ABI) of classpath entries, meaning what classes compiled against them can
+ * depend on : signatures of classes and of their non-private fields and methods, generic signatures, constant values
+ * and annotations. Method bodies and private members are left out, so a class dir or jar rebuilt with only
+ * implementation changes keeps the same ABI and its consumers do not need to be recompiled. <p>
+ * Non-class files are part of the ABI by their content as annotation processors may read them. Entries declaring
+ * annotation processors are part of the ABI by their whole content, as any change in processor implementation
+ * may change the generated code.
+ * ABI of an entry is computed again only if the entry has been modified since last computation.
+ */
+public final class JkClasspathAbi {
+
+    private static final int SYNTHETIC = 0x1000;
+
+    // Flags not affecting how a method can be used : synchronized, native and strictfp
+    private static final int METHOD_IMPLEMENTATION_FLAGS = 0x0020 | 0x0100 | 0x0800;
+
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final String PROCESSOR_SERVICE = "META-INF/services/javax.annotation.processing.Processor";
+
+    private static final Map<Path, Entry> CACHE = JkUtilsIterable.lruMapOf(1000);
+
+    private JkClasspathAbi() {
+    }
+
+    /**
+     * Returns a hash of the ABI of the specified classpath entries. Entry locations are not taken in account
+     * but their file names and order are.
+     */
+    public static String hash(Iterable<Path> classpath) {
+        final StringBuilder builder = new StringBuilder();
+        for (final Path path : classpath) {
+            builder.append(path.getFileName()).append(':').append(entry(path, null).hash).append('\n');
+        }
+        return hash(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /*
+     * Returns the ABI of the specified classpath entry. The specified previous entry, if any, is returned
+     * as is if the classpath entry has not been modified since it has been computed.
+     */
+    static Entry entry(Path path, Entry previous) {
+        final Path key = path.toAbsolutePath().normalize();
+        final String stamp = stamp(key);
+        if (previous != null && previous.stamp.equals(stamp)) {
+            return previous;
+        }
+        final Entry cached = CACHE.get(key);
+        if (cached != null && cached.stamp.equals(stamp)) {
+            return cached;
+        }
+        final Entry result = compute(key, stamp);
+        CACHE.put(key, result);
+        return result;
+    }
+
+    private static Entry compute(Path path, String stamp) {
+        final Map<String, ClassAbi> classes = new TreeMap<>();
+        final StringBuilder resources = new StringBuilder();
+        if (Files.isDirectory(path)) {
+            final List<Path> relativeFiles = new ArrayList<>(JkPathTree.of(path).getRelativeFiles());
+            Collections.sort(relativeFiles);
+            final boolean processor = Files.exists(path.resolve(PROCESSOR_SERVICE));
+            for (final Path relativeFile : relativeFiles) {
+                final String name = relativeFile.toString().replace('\\', '/');
+                final Path file = path.resolve(relativeFile);
+                if (isClass(name) && !processor) {
+                    addClass(classes, name, JkUtilsPath.readAllBytes(file));
+                } else {
+                    resources.append(name).append(':').append(JkPathFile.of(file).getChecksum("MD5")).append('\n');
+                }
+            }
+        } else if (Files.isRegularFile(path)) {
+            try (ZipFile zipFile = new ZipFile(path.toFile())) {
+                final List<ZipEntry> entries = new ArrayList<>(Collections.list(zipFile.entries()));
+                entries.sort(Comparator.comparing(ZipEntry::getName));
+                final boolean processor = zipFile.getEntry(PROCESSOR_SERVICE) != null;
+                for (final ZipEntry zipEntry : entries) {
+                    if (zipEntry.isDirectory()) {
+                        continue;
+                    }
+                    if (isClass(zipEntry.getName()) && !processor) {
+                        addClass(classes, zipEntry.getName(), read(zipFile, zipEntry));
+                    } else {
+                        resources.append(zipEntry.getName()).append(':').append(zipEntry.getCrc()).append('\n');
+                    }
+                }
+            } catch (final IOException e) {
+                JkLog.trace("Can not read " + path + " as a zip file : " + e.getMessage());
+                return new Entry(stamp, classes, stamp);
+            }
+        }
+        return new Entry(stamp, classes, hash(resources.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // Versioned classes of multi-release jars and module descriptors are handled as plain resources
+    private static boolean isClass(String name) {
+        return name.endsWith(".class") && !name.startsWith("META-INF/") && !name.endsWith("module-info.class");
+    }
+
+    private static void addClass(Map<String, ClassAbi> classes, String fileName, byte[] bytes) {
+        final JkClassFile classFile;
+        try {
+            classFile = JkClassFile.of(bytes);
+        } catch (final RuntimeException e) {
+            JkLog.trace("Can not read class file " + fileName + " : " + e.getMessage());
+            final String className = fileName.substring(0, fileName.length() - ".class".length()).replace('/', '.');
+            classes.put(className, new ClassAbi(hash(bytes), true, Collections.emptyList()));
+            return;
+        }
+        if (!isAnonymousOrLocal(classFile.getClassName())) {
+            classes.put(classFile.getClassName(), ClassAbi.of(classFile));
+        }
+    }
+
+    // Such classes can not be referred to from other compilation units
+    private static boolean isAnonymousOrLocal(String className) {
+        final int index = className.lastIndexOf('$');
+        return index >= 0 && index < className.length() - 1 && Character.isDigit(className.charAt(index + 1));
+    }
+
+    private static byte[] read(ZipFile zipFile, ZipEntry zipEntry) {
+        try (InputStream inputStream = zipFile.getInputStream(zipEntry)) {
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            JkUtilsIO.copy(inputStream, outputStream);
+            return outputStream.toByteArray();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String stamp(Path path) {
+        if (!Files.exists(path)) {
+            return "-";
+        }
+        if (!Files.isDirectory(path)) {
+            return fileStamp(path);
+        }
+        final StringBuilder builder = new StringBuilder();
+        JkPathTree.of(path).getRelativeFiles().stream()
+                .sorted()
+                .forEach(relativePath -> builder.append(relativePath).append(fileStamp(path.resolve(relativePath)))
+                        .append(';'));
+        return hash(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String fileStamp(Path file) {
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return attributes.size() + "-" + attributes.lastModifiedTime().toMillis();
+        } catch (final IOException e) {
+            return "-";
+        }
+    }
+
+    private static String hash(byte[] bytes) {
+        try {
+            return JkUtilsString.toHexString(MessageDigest.getInstance("MD5").digest(bytes));
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /*
+     * ABI of a class dir or a jar.
+     */
+    static final class Entry implements Serializable {
+
+        private static final long serialVersionUID = 2L;
+
+        private final String stamp;
+
+        // Keyed by class binary names
+        final Map<String, ClassAbi> classes;
+
+        final String resourceHash;
+
+        final String hash;
+
+        private Entry(String stamp, Map<String, ClassAbi> classes, String resourceHash) {
+            this.stamp = stamp;
+            this.classes = classes;
+            this.resourceHash = resourceHash;
+            final StringBuilder builder = new StringBuilder(resourceHash).append('\n');
+            classes.forEach((name, classAbi) -> builder.append(name).append(':').append(classAbi.hash).append('\n'));
+            this.hash = JkClasspathAbi.hash(builder.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    static final class ClassAbi implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final String hash;
+
+        // Constant values are inlined in client classes, which then do not refer to this class anymore
+        final boolean hasConstants;
+
+        final List<String> superTypes;
+
+        private ClassAbi(String hash, boolean hasConstants, List<String> superTypes) {
+            this.hash = hash;
+            this.hasConstants = hasConstants;
+            this.superTypes = superTypes;
+        }
+
+        static ClassAbi of(JkClassFile classFile) {
+            final List<String> superTypes = new ArrayList<>(classFile.getInterfaceNames());
+            if (classFile.getSuperClassName() != null) {
+                superTypes.add(classFile.getSuperClassName());
+            }
+            final List<String> members = new ArrayList<>();
+            for (final JkClassFile.JkMember field : classFile.getFields()) {
+                if (isVisible(field)) {
+                    members.add("field " + field.getAccessFlags() + " " + field.getName() + " "
+                            + field.getDescriptor() + " " + field.getSignature() + " "
+                            + constantValue(field.getConstantValue()) + " " + sorted(field.getAnnotationNames()));
+                }
+            }
+            for (final JkClassFile.JkMember method : classFile.getMethods()) {
+                if (isVisible(method)) {
+                    members.add("method " + (method.getAccessFlags() & ~METHOD_IMPLEMENTATION_FLAGS) + " "
+                            + method.getName() + method.getDescriptor() + " " + method.getSignature() + " "
+                            + method.getExceptions() + " " + sorted(method.getAnnotationNames()));
+                }
+            }
+            Collections.sort(members);
+            final StringBuilder builder = new StringBuilder()
+                    .append(classFile.getAccessFlags() & ~ACC_SUPER).append(' ')
+                    .append(classFile.getClassName()).append(' ')
+                    .append(classFile.getSuperClassName()).append(' ')
+                    .append(classFile.getInterfaceNames()).append(' ')
+                    .append(classFile.getSignature()).append(' ')
+                    .append(sorted(classFile.getAnnotationNames())).append('\n');
+            members.forEach(member -> builder.append(member).append('\n'));
+            return new ClassAbi(hash(builder.toString().getBytes(StandardCharsets.UTF_8)), classFile.hasConstants(),
+                    Collections.unmodifiableList(superTypes));
+        }
+
+        private static boolean isVisible(JkClassFile.JkMember member) {
+            return !Modifier.isPrivate(member.getAccessFlags()) && (member.getAccessFlags() & SYNTHETIC) == 0;
+        }
+
+        private static String constantValue(Object value) {
+            return value == null ? "" : value.getClass().getSimpleName() + "=" + value;
+        }
+
+        private static List<String> sorted(Set<String> names) {
+            final List<String> result = new ArrayList<>(names);
+            Collections.sort(result);
+            return result;
+        }
+    }
+
+}
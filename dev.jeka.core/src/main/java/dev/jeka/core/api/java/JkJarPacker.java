@@ -2,6 +2,7 @@ package dev.jeka.core.api.java;
 
 import dev.jeka.core.api.file.JkPathMatcher;
 import dev.jeka.core.api.file.JkPathTreeSet;
+import dev.jeka.core.api.file.JkZipper;
 import dev.jeka.core.api.utils.JkUtilsAssert;
 
 import java.nio.file.Path;
@@ -16,7 +17,8 @@ public final class JkJarPacker {
      * Filter to exclude signature files from fat jar (aka uber jar).
      */
     public static final JkPathMatcher EXCLUDE_SIGNATURE_MATCHER =
-            JkPathMatcher.of(false, "meta-inf/*.rsa", "meta-inf/*.dsa", "meta-inf/*.sf");
+            JkPathMatcher.of(false, "meta-inf/*.rsa", "meta-inf/*.dsa", "meta-inf/*.sf",
+                    "META-INF/*.RSA", "META-INF/*.DSA", "META-INF/*.SF");
 
     private final JkPathTreeSet classtrees;
 
@@ -24,15 +26,18 @@ public final class JkJarPacker {
 
     private final JkPathTreeSet extraFiles;
 
-    private JkJarPacker(JkPathTreeSet classTrees, JkManifest manifest, JkPathTreeSet extraFiles) {
+    private final JkZipper zipper;
+
+    private JkJarPacker(JkPathTreeSet classTrees, JkManifest manifest, JkPathTreeSet extraFiles, JkZipper zipper) {
         this.classtrees = classTrees;
         this.manifest = manifest;
         this.extraFiles = extraFiles;
+        this.zipper = zipper;
     }
 
     public static JkJarPacker of(JkPathTreeSet classTrees) {
         JkUtilsAssert.isTrue(!classTrees.getPathTrees().isEmpty(), "Nothing to create jar from : " + classTrees);
-        return new JkJarPacker(classTrees, null, null);
+        return new JkJarPacker(classTrees, null, null, JkZipper.of());
     }
 
     public static JkJarPacker of(Path classDir) {
@@ -40,11 +45,19 @@ public final class JkJarPacker {
     }
 
     public JkJarPacker withManifest(JkManifest manifest) {
-        return new JkJarPacker(this.classtrees, manifest, this.extraFiles);
+        return new JkJarPacker(this.classtrees, manifest, this.extraFiles, this.zipper);
     }
 
     public JkJarPacker withExtraFiles(JkPathTreeSet extraFiles) {
-        return new JkJarPacker(this.classtrees, this.manifest, extraFiles);
+        return new JkJarPacker(this.classtrees, this.manifest, extraFiles, this.zipper);
+    }
+
+    /**
+     * Returns a copy of this packer writing jars with the specified zipper, for example to not compress entries.
+     */
+    public JkJarPacker withZipper(JkZipper zipper) {
+        JkUtilsAssert.notNull(zipper, "Zipper can not be null.");
+        return new JkJarPacker(this.classtrees, this.manifest, this.extraFiles, zipper);
     }
 
     /**
@@ -56,25 +69,29 @@ public final class JkJarPacker {
             manifest.writeToStandardLocation(classtrees.getPathTrees().get(0).getRoot());
         }
         JkPathTreeSet treeSet = extraFiles == null ? JkPathTreeSet.ofEmpty() : extraFiles;
-        classtrees.and(treeSet).zipTo(resultFile);
+        classtrees.and(treeSet).zipTo(resultFile, zipper);
     }
 
     /**
      * Creates a fat jar file according specified parameters. Fat jar file including the content of other jars.
      * The result jar does not contains other jars as zip entry but content of the other jars is merged with the content
-     * of original jar.
+     * of original jar. Entries of other jars are copied without being decompressed and compressed again.
+     * <p>
+     * When several sources provide the same entry, the original jar content takes precedence over other jars, and
+     * a jar takes precedence over the ones following it, as on a classpath. Service provider files are merged
+     * (see {@link JkZipper#MERGED_ENTRIES}).
      * @param resultFile Result file
      * @param otherJars content of other jar to merge with the original jar
      * @param filter Only files matching this filter will be included in the resulting fat jar, either it comes from
-     *               dependencies or not.
+     *               dependencies or not. For other jars, it is evaluated against entry paths relative to the jar root.
      */
     public void makeFatJar(Path resultFile, Iterable<Path> otherJars, PathMatcher filter) {
         if (manifest != null && !manifest.isEmpty()) {
             manifest.writeToStandardLocation(classtrees.getPathTrees().get(0).getRoot());
         }
-        JkPathTreeSet.ofEmpty().andZips(otherJars).and(classtrees).andMatcher(EXCLUDE_SIGNATURE_MATCHER)
-                .andMatcher(filter)
-                .zipTo(resultFile);  // main jar files must take precedence over files coming form dependencies
+        JkPathTreeSet treeSet = extraFiles == null ? classtrees : classtrees.and(extraFiles);
+        zipper.zip(treeSet.andMatcher(EXCLUDE_SIGNATURE_MATCHER).andMatcher(filter), otherJars,
+                EXCLUDE_SIGNATURE_MATCHER.and(filter), resultFile);
     }
 
 
@@ -6,6 +6,7 @@ import dev.jeka.core.api.utils.JkUtilsIterable;
 import dev.jeka.core.api.utils.JkUtilsPath;
 import dev.jeka.core.api.utils.JkUtilsString;
 
+import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -185,6 +186,23 @@ public final class JkJavaCompileSpec {
         return this.setOption(CLASSPATH_OPTS, classpath);
     }
 
+    /**
+     * Returns the classpath specified for this compilation. Returns an empty classpath if none has been specified.
+     */
+    public JkClasspath getClasspath() {
+        final String value = getNextValue(CLASSPATH_OPTS);
+        if (value == null) {
+            return JkClasspath.of();
+        }
+        final List<Path> entries = new LinkedList<>();
+        for (final String entry : value.split(File.pathSeparator)) {
+            if (!entry.isEmpty()) {
+                entries.add(Paths.get(entry));
+            }
+        }
+        return JkClasspath.of(entries);
+    }
+
 
     // ------------------ generic options -------------------------
 
@@ -31,24 +31,31 @@ public final class JkJavaCompiler {
 
     private final Map<JkJavaVersion, Path> compilerBinRepo;
 
+    private final boolean incremental;
+
+    private final boolean forkWorkers;
+
     private JkJavaCompiler(boolean failOnError,
-            JkProcess fork, JavaCompiler compiler, Map<JkJavaVersion, Path> compilerBinRepo) {
+            JkProcess fork, JavaCompiler compiler, Map<JkJavaVersion, Path> compilerBinRepo, boolean incremental,
+            boolean forkWorkers) {
         super();
         this.failOnError = failOnError;
         this.fork = fork;
         this.compiler = compiler;
         this.compilerBinRepo = compilerBinRepo;
+        this.incremental = incremental;
+        this.forkWorkers = forkWorkers;
     }
 
     /**
      * Creates a {@link JkJavaCompiler} producing its output in the given directory.
      */
     public static JkJavaCompiler ofJdk() {
-        return new JkJavaCompiler(true, null, null, new HashMap<>());
+        return new JkJavaCompiler(true, null, null, new HashMap<>(), false, true);
     }
 
     public static JkJavaCompiler of(JavaCompiler compiler) {
-        return new JkJavaCompiler(true, null, compiler, new HashMap<>());
+        return new JkJavaCompiler(true, null, compiler, new HashMap<>(), false, true);
     }
 
     /**
@@ -57,7 +64,7 @@ public final class JkJavaCompiler {
      * a compilation error will throw a {@link IllegalStateException}.
      */
     public JkJavaCompiler withFailOnError(boolean fail) {
-        return new JkJavaCompiler(fail, fork, compiler, compilerBinRepo);
+        return new JkJavaCompiler(fail, fork, compiler, compilerBinRepo, incremental, forkWorkers);
     }
 
     /**
@@ -81,7 +88,7 @@ public final class JkJavaCompiler {
     }
 
     public JkJavaCompiler withForking(JkProcess compileProcess) {
-        return new JkJavaCompiler(failOnError, compileProcess , compiler, compilerBinRepo);
+        return new JkJavaCompiler(failOnError, compileProcess , compiler, compilerBinRepo, incremental, forkWorkers);
     }
 
     /**
@@ -100,7 +107,7 @@ public final class JkJavaCompiler {
      * previous fork options that may have been set.
      */
     public JkJavaCompiler withCompiler(JavaCompiler compiler) {
-        return new JkJavaCompiler(failOnError, null, compiler, compilerBinRepo);
+        return new JkJavaCompiler(failOnError, null, compiler, compilerBinRepo, incremental, forkWorkers);
     }
 
     /**
@@ -111,7 +118,38 @@ public final class JkJavaCompiler {
     public JkJavaCompiler withJavacBin(JkJavaVersion version, Path javacBin) {
         final HashMap<JkJavaVersion, Path> map = new HashMap<>(this.compilerBinRepo);
         map.put(version, javacBin);
-        return new JkJavaCompiler(failOnError, fork, compiler, map);
+        return new JkJavaCompiler(failOnError, fork, compiler, map, incremental, forkWorkers);
+    }
+
+    /**
+     * Creates a copy of this {@link JkJavaCompiler} but with the specified incremental parameter. If
+     * <code>true</code>, an index of sources and produced classes is maintained beside the output dir
+     * (see {@link #getIncrementalIndexFile(Path)}), so only sources changed since the last compilation, plus the
+     * ones depending on them, are recompiled. Class files belonging to removed or recompiled sources are deleted.
+     */
+    public JkJavaCompiler withIncremental(boolean incremental) {
+        return new JkJavaCompiler(failOnError, fork, compiler, compilerBinRepo, incremental, forkWorkers);
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Creates a copy of this {@link JkJavaCompiler} but specifying if forked compilations run on warm worker JVMs.
+     * If <code>true</code> (default), a forking javac process is replaced by a long-lived JVM of the same JDK which
+     * serves successive compilations, so JVM startup and JIT warmup are paid once per build instead of once per
+     * compilation. Forking processes that are not the javac of a JDK are always launched as is.
+     */
+    public JkJavaCompiler withForkWorkers(boolean forkWorkers) {
+        return new JkJavaCompiler(failOnError, fork, compiler, compilerBinRepo, incremental, forkWorkers);
+    }
+
+    /**
+     * Returns the file storing the incremental compilation index for the specified output dir.
+     */
+    public static Path getIncrementalIndexFile(Path outputDir) {
+        return IncrementalCompilation.indexFile(outputDir);
     }
 
     /**
@@ -151,12 +189,19 @@ public final class JkJavaCompiler {
             JkLog.endTask("");
             return true;
         }
+        final IncrementalCompilation incrementalCompilation = incremental ?
+                IncrementalCompilation.of(compileSpec, toPaths(compileSpec.getSourceFiles())) : null;
+        final JkJavaCompileSpec effectiveSpec = incremental ? incrementalCompilation.prepare() : compileSpec;
+        if (effectiveSpec == null) {
+            JkLog.endTask("Done in " + JkUtilsTime.durationInMillis(start) + " milliseconds.");
+            return true;
+        }
         final boolean result;
         if (this.fork == null) {
-            List<File> files = toFiles(compileSpec.getSourceFiles());
+            List<File> files = toFiles(effectiveSpec.getSourceFiles());
             final Iterable<? extends JavaFileObject> javaFileObjects = fileManager.getJavaFileObjectsFromFiles(files);
             final CompilationTask task = compiler.getTask(new PrintWriter(JkLog.getOutputStream()),
-                    null, new JkDiagnosticListener(), options, null, javaFileObjects);
+                    null, new JkDiagnosticListener(), effectiveSpec.getOptions(), null, javaFileObjects);
             if (files.size() > 0) {
                 JkLog.info("" + files.size() + " files to compile with " + compiler.getClass().getSimpleName());
 
@@ -168,7 +213,14 @@ public final class JkJavaCompiler {
             }
         } else {
             JkLog.info("Use a forking process to perform compilation : " + fork.getCommand());
-            result = runOnFork(compileSpec);
+            result = runOnFork(effectiveSpec);
+        }
+        if (incremental) {
+            if (result) {
+                incrementalCompilation.commit();
+            } else {
+                incrementalCompilation.invalidate();
+            }
         }
         JkLog.endTask("Done in " + JkUtilsTime.durationInMillis(start) + " milliseconds.");
         if (!result) {
@@ -181,12 +233,16 @@ public final class JkJavaCompiler {
     }
 
     private List<File> toFiles(Collection<Path> paths) {
-        List<File> result = new LinkedList<>();
+        return JkUtilsPath.toFiles(toPaths(paths));
+    }
+
+    private static List<Path> toPaths(Collection<Path> paths) {
+        List<Path> result = new LinkedList<>();
         for (Path path : paths) {
             if (Files.isDirectory(path)) {
-                JkPathTree.of(path).andMatching(true, "**/*.java").stream().forEach(pat -> result.add(pat.toFile()));
+                JkPathTree.of(path).andMatching(true, "**/*.java").stream().forEach(result::add);
             } else {
-                result.add(path.toFile());
+                result.add(path);
             }
         }
         return result;
@@ -201,8 +257,16 @@ public final class JkJavaCompiler {
                 sourcePaths.add(file.toAbsolutePath().toString());
             }
         }
-        final JkProcess jkProcess = this.fork.andParams(compileSpec.getOptions()).andParams(sourcePaths);
         JkLog.info("" + sourcePaths.size() + " files to compile.");
+        if (forkWorkers) {
+            final List<String> args = new LinkedList<>(compileSpec.getOptions());
+            args.addAll(sourcePaths);
+            final Integer workerResult = JavacWorkerPool.compile(this.fork, args);
+            if (workerResult != null) {
+                return workerResult == 0;
+            }
+        }
+        final JkProcess jkProcess = this.fork.andParams(compileSpec.getOptions()).andParams(sourcePaths);
         final int result = jkProcess.runSync();
         return (result == 0);
     }
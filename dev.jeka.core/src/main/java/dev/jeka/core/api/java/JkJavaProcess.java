@@ -260,20 +260,29 @@ public final class JkJavaProcess {
                 options.add(classpath.toString());
             }
         }
+        options.addAll(getJvmOptions());
+        return new OptionAndEnv(options, env);
+    }
+
+    /**
+     * Returns the options passed to the JVM, except the classpath : agents, system properties and java options.
+     */
+    public List<String> getJvmOptions() {
+        final List<String> result = new LinkedList<>();
         for (final AgentLibAndOption agentLibAndOption : agents) {
             final StringBuilder builder = new StringBuilder("-javaagent:")
                     .append(agentLibAndOption.lib);
             if (!JkUtilsString.isBlank(agentLibAndOption.options)) {
                 builder.append("=").append(agentLibAndOption.options);
             }
-            options.add(builder.toString());
+            result.add(builder.toString());
         }
         for (final String key : this.sytemProperties.keySet()) {
             final String value = this.sytemProperties.get(key);
-            options.add("-D" + key + "=" + value);
+            result.add("-D" + key + "=" + value);
         }
-        options.addAll(this.options);
-        return new OptionAndEnv(options, env);
+        result.addAll(this.options);
+        return result;
     }
 
     private static final class OptionAndEnv {
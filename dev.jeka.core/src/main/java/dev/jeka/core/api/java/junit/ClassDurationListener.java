@@ -0,0 +1,87 @@
+package dev.jeka.core.api.java.junit;
+
+import org.junit.runner.Description;
+import org.junit.runner.notification.RunListener;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Sums up test durations per test class, so forked test runs can be balanced on next executions. It also tells
+ * which test classes have run all their tests, as a run stopped early (fail fast) leaves some classes partially
+ * or not run at all.
+ */
+class ClassDurationListener extends RunListener {
+
+    private final Map<Description, Long> startTimes = new HashMap<>();
+
+    private final Map<String, Long> durations = new HashMap<>();
+
+    // Test -> name of the test class, as passed to the runner, it belongs to
+    private final Map<Description, String> testClassNames = new HashMap<>();
+
+    // Test class name -> count of its tests not finished yet
+    private final Map<String, Integer> remainingTestCounts = new HashMap<>();
+
+    @Override
+    public void testRunStarted(Description description) {
+        for (final Description classDescription : description.getChildren()) {
+            final String className = classDescription.getClassName();
+            remainingTestCounts.putIfAbsent(className, 0);
+            registerTests(classDescription, className);
+        }
+    }
+
+    @Override
+    public void testStarted(Description description) {
+        startTimes.put(description, System.nanoTime());
+    }
+
+    @Override
+    public void testFinished(Description description) {
+        final Long start = startTimes.remove(description);
+        if (start != null && description.getClassName() != null) {
+            durations.merge(description.getClassName(), (System.nanoTime() - start) / 1000000, Long::sum);
+        }
+        done(description);
+    }
+
+    @Override
+    public void testIgnored(Description description) {
+        done(description);
+    }
+
+    Map<String, Long> getDurations() {
+        return durations;
+    }
+
+    Set<String> getCompletedClassNames() {
+        final Set<String> result = new HashSet<>();
+        remainingTestCounts.forEach((className, count) -> {
+            if (count == 0) {
+                result.add(className);
+            }
+        });
+        return result;
+    }
+
+    private void registerTests(Description description, String className) {
+        if (description.isTest()) {
+            testClassNames.put(description, className);
+            remainingTestCounts.merge(className, 1, Integer::sum);
+        }
+        for (final Description child : description.getChildren()) {
+            registerTests(child, className);
+        }
+    }
+
+    private void done(Description description) {
+        final String className = testClassNames.remove(description);
+        if (className != null) {
+            remainingTestCounts.computeIfPresent(className, (name, count) -> count - 1);
+        }
+    }
+
+}
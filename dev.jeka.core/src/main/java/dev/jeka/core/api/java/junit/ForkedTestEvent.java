@@ -0,0 +1,62 @@
+package dev.jeka.core.api.java.junit;
+
+import dev.jeka.core.api.system.JkLog;
+
+import java.io.Serializable;
+
+/*
+ * Event pushed by a forked test JVM to the JVM that launched it, as soon as it happens.
+ */
+final class ForkedTestEvent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    enum Kind {
+        LOG, TEST_STARTED, TEST_FINISHED, TEST_FAILURE, RESULT
+    }
+
+    final Kind kind;
+
+    final String className;
+
+    final String testName;
+
+    final JkLog.JkLogEvent logEvent;
+
+    final JkTestSuiteResult.JkTestCaseFailure failure;
+
+    // Overall result, without test case results as these ones have already been sent as events
+    final JkTestSuiteResult result;
+
+    private ForkedTestEvent(Kind kind, String className, String testName, JkLog.JkLogEvent logEvent,
+                            JkTestSuiteResult.JkTestCaseFailure failure, JkTestSuiteResult result) {
+        this.kind = kind;
+        this.className = className;
+        this.testName = testName;
+        this.logEvent = logEvent;
+        this.failure = failure;
+        this.result = result;
+    }
+
+    static ForkedTestEvent ofLog(JkLog.JkLogEvent logEvent) {
+        return new ForkedTestEvent(Kind.LOG, null, null, logEvent, null, null);
+    }
+
+    static ForkedTestEvent ofTestStarted(String className, String testName) {
+        return new ForkedTestEvent(Kind.TEST_STARTED, className, testName, null, null, null);
+    }
+
+    static ForkedTestEvent ofTestFinished(String className, String testName) {
+        return new ForkedTestEvent(Kind.TEST_FINISHED, className, testName, null, null, null);
+    }
+
+    static ForkedTestEvent ofFailure(JkTestSuiteResult.JkTestCaseFailure failure) {
+        return new ForkedTestEvent(Kind.TEST_FAILURE, failure.getClassName(), failure.getTestName(), null, failure,
+                null);
+    }
+
+    static ForkedTestEvent ofResult(JkTestSuiteResult result) {
+        return new ForkedTestEvent(Kind.RESULT, null, null, null, null, result);
+    }
+
+}
@@ -0,0 +1,184 @@
+package dev.jeka.core.api.java.junit;
+
+import dev.jeka.core.api.system.JkException;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsIO;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/*
+ * Receives events pushed by a forked test JVM as they happen : log events are forwarded to the current log
+ * consumer while failures are gathered to build the final result. Only failures are retained, so memory stays
+ * bounded whatever the suite size.
+ */
+final class ForkedTestReceiver implements Closeable {
+
+    private final ServerSocket serverSocket;
+
+    private final Group group;
+
+    private final boolean failFast;
+
+    private final List<JkTestSuiteResult.JkTestCaseFailure> failures = new LinkedList<>();
+
+    private final Thread thread;
+
+    private volatile OutputStream toFork;
+
+    private volatile JkTestSuiteResult result;
+
+    private volatile Exception receiveException;
+
+    private ForkedTestReceiver(ServerSocket serverSocket, Group group, boolean failFast) {
+        this.serverSocket = serverSocket;
+        this.group = group;
+        this.failFast = failFast;
+        this.thread = new Thread(this::receive, "jeka-forked-test-receiver");
+        this.thread.setDaemon(true);
+    }
+
+    /*
+     * Opens a socket on loopback interface and starts to wait for the forked JVM to connect.
+     */
+    static ForkedTestReceiver start(Group group, boolean failFast) {
+        try {
+            final ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+            final ForkedTestReceiver receiver = new ForkedTestReceiver(serverSocket, group, failFast);
+            receiver.thread.start();
+            return receiver;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /*
+     * Returns the result sent by the forked JVM. To be invoked once the forked JVM has terminated.
+     */
+    JkTestSuiteResult getResult() {
+        close();
+        try {
+            thread.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JkException("Interrupted while waiting for test results.");
+        }
+        if (result == null) {
+            throw new JkException("Forked test JVM terminated without sending test results"
+                    + (receiveException == null ? "." : " : " + receiveException.getMessage()));
+        }
+        return result.withTestCaseResults(failures);
+    }
+
+    @Override
+    public void close() {
+        JkUtilsIO.closeQuietly(serverSocket);  // Unblocks accept if the forked JVM has never connected
+    }
+
+    private void receive() {
+        try (Socket socket = serverSocket.accept()) {
+            serverSocket.close();
+            toFork = socket.getOutputStream();
+            group.add(this);
+            final ObjectInputStream inputStream = new ObjectInputStream(
+                    new BufferedInputStream(socket.getInputStream())) {
+
+                @Override
+                protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+                    try {
+                        return Class.forName(desc.getName(), false, ForkedTestReceiver.class.getClassLoader());
+                    } catch (final ClassNotFoundException e) {
+                        return super.resolveClass(desc);
+                    }
+                }
+            };
+            while (result == null) {
+                handle((ForkedTestEvent) inputStream.readObject());
+            }
+        } catch (final IOException | ClassNotFoundException e) {
+            if (!serverSocket.isClosed() || toFork != null) {
+                receiveException = e;
+            }
+        } finally {
+            group.remove(this);
+        }
+    }
+
+    private void handle(ForkedTestEvent event) {
+        switch (event.kind) {
+            case LOG:
+                final Consumer<JkLog.JkLogEvent> logConsumer = JkLog.getLogConsumer();
+                if (logConsumer != null) {
+                    logConsumer.accept(event.logEvent);
+                }
+                break;
+            case TEST_STARTED:
+                JkLog.trace("Test " + event.className + "." + event.testName + " started.");
+                break;
+            case TEST_FINISHED:
+                JkLog.trace("Test " + event.className + "." + event.testName + " finished.");
+                break;
+            case TEST_FAILURE:
+                failures.add(event.failure);
+                if (failFast) {
+                    group.stop();
+                }
+                break;
+            case RESULT:
+                result = event.result;
+                break;
+        }
+    }
+
+    private synchronized void requestStop() {
+        final OutputStream outputStream = toFork;
+        if (outputStream == null) {
+            return;
+        }
+        try {
+            outputStream.write(JUnit4TestExecutor.STOP_REQUEST);
+            outputStream.flush();
+        } catch (final IOException e) {
+            // Forked JVM has already terminated
+        }
+    }
+
+    /*
+     * Forked JVMs running the same test suite, so that all of them can be stopped on the first failure.
+     */
+    static final class Group {
+
+        private final Set<ForkedTestReceiver> receivers = ConcurrentHashMap.newKeySet();
+
+        private volatile boolean stopped;
+
+        private void add(ForkedTestReceiver receiver) {
+            receivers.add(receiver);
+            if (stopped) {
+                receiver.requestStop();
+            }
+        }
+
+        private void remove(ForkedTestReceiver receiver) {
+            receivers.remove(receiver);
+        }
+
+        void stop() {
+            stopped = true;
+            receivers.forEach(ForkedTestReceiver::requestStop);
+        }
+
+    }
+
+}
@@ -5,13 +5,19 @@ import dev.jeka.core.api.java.junit.JkUnit.JunitReportDetail;
 import dev.jeka.core.api.system.JkException;
 import dev.jeka.core.api.system.JkLog;
 import dev.jeka.core.api.utils.JkUtilsIO;
-import dev.jeka.core.api.utils.JkUtilsPath;
 import dev.jeka.core.api.utils.JkUtilsTime;
-import org.junit.runner.JUnitCore;
+import org.junit.runner.Description;
+import org.junit.runner.Request;
 import org.junit.runner.Result;
+import org.junit.runner.Runner;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runner.notification.StoppedByUserException;
 
-import java.io.File;
-import java.io.PrintStream;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -20,54 +26,83 @@ import java.util.List;
 import java.util.Properties;
 
 /**
- * Class to run test in a separate process.
+ * Class to run test in a separate process. Test events and log events are pushed as they happen to the launching
+ * process, through a socket connected on the port passed as first argument.
  */
 class JUnit4TestExecutor {
 
     static final String NO_REPORT_FILE = "NoReportFile";
 
-    public static void main(String[] args) {
-        if (args.length == 0) {
+    static final int STOP_REQUEST = 1;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 7) {
             throw new IllegalArgumentException(
-                    "There should be at least 2 args. "
-                            + "First is the file containing serialized result and others are the classes to test.");
+                    "There should be at least 7 args. "
+                            + "First is the port to send events to, last ones are the classes to test.");
         }
-        final Path resultFile = Paths.get(args[0]);
+        final int port = Integer.parseInt(args[0]);
         final boolean printEachTestInConsole = Boolean.parseBoolean(args[1]);
         final JunitReportDetail reportDetail = JunitReportDetail.valueOf(args[2]);
         final Path reportDir = NO_REPORT_FILE.equals(args[3]) ? null : Paths.get(args[3]);
-        final String logHandlerSerPath = args[4];
-        if (!logHandlerSerPath.isEmpty()) {
-            Path serFile = Paths.get(logHandlerSerPath);
-            JkLog.EventLogHandler eventLogHandler = (JkLog.EventLogHandler) JkUtilsIO.deserialize(serFile);
-            JkUtilsPath.deleteFile(serFile);
-            JkLog.register(eventLogHandler);
-        }
+        final JkLog.Verbosity verbosity = JkLog.Verbosity.valueOf(args[4]);
+        final boolean forwardLogs = Boolean.parseBoolean(args[5]);
+        final boolean failFast = Boolean.parseBoolean(args[6]);
         final File reportDirFile = reportDir == null ? null : reportDir.toFile();
-        final Class<?>[] classes = toClassArray(Arrays.copyOfRange(args, 5, args.length));
-        final JkTestSuiteResult result = launchInProcess(classes, printEachTestInConsole,
-                reportDetail, reportDirFile, false);
-        JkUtilsIO.serialize(result, resultFile);
+        final Class<?>[] classes = toClassArray(Arrays.copyOfRange(args, 7, args.length));
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            final EventSender eventSender = new EventSender(socket.getOutputStream());
+            JkLog.setVerbosity(verbosity);
+            if (forwardLogs) {
+                JkLog.register(new ForwardingLogHandler(eventSender, System.out, System.err));
+            }
+            final RunNotifier notifier = new RunNotifier();
+            listenStopRequests(socket.getInputStream(), notifier);
+            final JkTestSuiteResult result = runTests(classes, printEachTestInConsole,
+                    reportDetail, reportDirFile, false, failFast, notifier, new EventSendingListener(eventSender));
+            eventSender.send(ForkedTestEvent.ofResult(result.withTestCaseResults(new ArrayList<>())));
+        }
     }
 
     // This method is also called by Junit4TestLaunch using reflection cross classloader.
     private static JkTestSuiteResult launchInProcess(Class<?>[] classes,
             boolean printEachTestOnConsole, JunitReportDetail reportDetail, File reportDir,
-            boolean restoreSystemOut) {
-        final JUnitCore jUnitCore = new JUnitCore();
+            boolean restoreSystemOut, boolean failFast) {
+        return runTests(classes, printEachTestOnConsole, reportDetail, reportDir, restoreSystemOut, failFast,
+                new RunNotifier(), null);
+    }
+
+    private static JkTestSuiteResult runTests(Class<?>[] classes,
+            boolean printEachTestOnConsole, JunitReportDetail reportDetail, File reportDir,
+            boolean restoreSystemOut, boolean failFast, RunNotifier notifier, RunListener eventListener) {
+        final Result result = new Result();
+        notifier.addFirstListener(result.createListener());
+        final ClassDurationListener classDurationListener = new ClassDurationListener();
+        notifier.addListener(classDurationListener);
+        if (eventListener != null) {
+            notifier.addListener(eventListener);
+        }
+        if (failFast) {
+            notifier.addListener(new RunListener() {
+                @Override
+                public void testFailure(Failure failure) {
+                    notifier.pleaseStop();
+                }
+            });
+        }
         if (reportDetail.equals(JunitReportDetail.FULL)) {
             if (reportDir == null) {
                 throw new JkException("No report dir has been specified to output test report.");
             }
-            jUnitCore.addListener(new JUnitReportListener(reportDir.toPath()));
+            notifier.addListener(new JUnitReportListener(reportDir.toPath()));
         }
         final PrintStream out = System.out;
         final PrintStream err = System.err;
         final JkLog.Verbosity previousVerbosity = JkLog.verbosity();
         if (printEachTestOnConsole) {
-            jUnitCore.addListener(new PrintConsoleTestListener());
+            notifier.addListener(new PrintConsoleTestListener());
         } else {
-            jUnitCore.addListener(new ProgressTestListener(JkLog.getOutputStream()));
+            notifier.addListener(new ProgressTestListener(JkLog.getOutputStream()));
             JkLog.setVerbosity(JkLog.Verbosity.MUTE);
             System.setErr(JkUtilsIO.nopPrintStream());
             System.setOut(JkUtilsIO.nopPrintStream());
@@ -75,9 +110,15 @@ class JUnit4TestExecutor {
 
         final Properties properties = (Properties) System.getProperties().clone();
         final long start = System.nanoTime();
-        final Result result;
         try {
-            result = jUnitCore.run(classes);
+            final Runner runner = Request.classes(classes).getRunner();
+            notifier.fireTestRunStarted(runner.getDescription());
+            try {
+                runner.run(notifier);
+            } catch (final StoppedByUserException e) {
+                // Fail fast : remaining tests are not run
+            }
+            notifier.fireTestRunFinished(result);
         } finally {
             if (restoreSystemOut) {
                 JkLog.setVerbosity(previousVerbosity);
@@ -86,7 +127,22 @@ class JUnit4TestExecutor {
             }
         }
         final long durationInMillis = JkUtilsTime.durationInMillis(start);
-        return JkTestSuiteResult.fromJunit4Result(properties, "all", result, durationInMillis);
+        return JkTestSuiteResult.fromJunit4Result(properties, "all", result, durationInMillis,
+                classDurationListener.getDurations(), classDurationListener.getCompletedClassNames());
+    }
+
+    private static void listenStopRequests(InputStream inputStream, RunNotifier notifier) {
+        final Thread thread = new Thread(() -> {
+            try {
+                if (inputStream.read() == STOP_REQUEST) {
+                    notifier.pleaseStop();
+                }
+            } catch (final IOException e) {
+                // Socket closed : nothing more to listen
+            }
+        }, "jeka-test-stop-listener");
+        thread.setDaemon(true);
+        thread.start();
     }
 
     private static Class<?>[] toClassArray(String[] classNames) {
@@ -102,4 +158,81 @@ class JUnit4TestExecutor {
         return classes.toArray(new Class[0]);
     }
 
+    private static final class EventSender {
+
+        private final ObjectOutputStream objectOutputStream;
+
+        EventSender(OutputStream outputStream) throws IOException {
+            this.objectOutputStream = new ObjectOutputStream(new BufferedOutputStream(outputStream));
+            this.objectOutputStream.flush();  // The launching process waits for the stream header
+        }
+
+        synchronized void send(ForkedTestEvent event) {
+            try {
+                objectOutputStream.writeObject(event);
+                objectOutputStream.reset();  // Do not retain references to events already sent
+                objectOutputStream.flush();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+    }
+
+    private static final class EventSendingListener extends RunListener {
+
+        private final EventSender eventSender;
+
+        EventSendingListener(EventSender eventSender) {
+            this.eventSender = eventSender;
+        }
+
+        @Override
+        public void testStarted(Description description) {
+            eventSender.send(ForkedTestEvent.ofTestStarted(description.getClassName(), description.getMethodName()));
+        }
+
+        @Override
+        public void testFinished(Description description) {
+            eventSender.send(ForkedTestEvent.ofTestFinished(description.getClassName(), description.getMethodName()));
+        }
+
+        @Override
+        public void testFailure(Failure failure) {
+            eventSender.send(ForkedTestEvent.ofFailure(JkTestSuiteResult.fromJunit4Failure(failure)));
+        }
+
+    }
+
+    private static final class ForwardingLogHandler implements JkLog.EventLogHandler {
+
+        private final EventSender eventSender;
+
+        private final OutputStream out;
+
+        private final OutputStream err;
+
+        ForwardingLogHandler(EventSender eventSender, OutputStream out, OutputStream err) {
+            this.eventSender = eventSender;
+            this.out = out;
+            this.err = err;
+        }
+
+        @Override
+        public void accept(JkLog.JkLogEvent event) {
+            eventSender.send(ForkedTestEvent.ofLog(event));
+        }
+
+        @Override
+        public OutputStream getOutStream() {
+            return out;
+        }
+
+        @Override
+        public OutputStream getErrorStream() {
+            return err;
+        }
+
+    }
+
 }
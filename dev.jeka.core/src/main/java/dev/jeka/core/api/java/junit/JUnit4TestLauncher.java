@@ -4,31 +4,41 @@ import dev.jeka.core.api.java.JkClasspath;
 import dev.jeka.core.api.java.JkJavaProcess;
 import dev.jeka.core.api.java.JkUrlClassLoader;
 import dev.jeka.core.api.java.junit.JkUnit.JunitReportDetail;
+import dev.jeka.core.api.system.JkException;
 import dev.jeka.core.api.system.JkLocator;
 import dev.jeka.core.api.system.JkLog;
-import dev.jeka.core.api.utils.JkUtilsIO;
 import dev.jeka.core.api.utils.JkUtilsIterable;
-import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsTime;
 
 import java.io.File;
-import java.io.Serializable;
 import java.nio.file.Path;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 class JUnit4TestLauncher {
 
     @SuppressWarnings("rawtypes")
     public static JkTestSuiteResult launchInFork(JkJavaProcess javaProcess,
                                                  boolean printEachTestOnConsole, JunitReportDetail reportDetail,
-                                                 Iterable<Class> classes, File reportDir) {
+                                                 Iterable<Class> classes, File reportDir, boolean failFast) {
+        return launchInFork(javaProcess, printEachTestOnConsole, reportDetail, classes, reportDir, failFast,
+                new ForkedTestReceiver.Group());
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static JkTestSuiteResult launchInFork(JkJavaProcess javaProcess,
+                                                  boolean printEachTestOnConsole, JunitReportDetail reportDetail,
+                                                  Iterable<Class> classes, File reportDir, boolean failFast,
+                                                  ForkedTestReceiver.Group group) {
+        final ForkedTestReceiver receiver = ForkedTestReceiver.start(group, failFast);
         final List<String> args = new LinkedList<>();
-        final Path file = JkUtilsPath.createTempFile("testResult-", ".ser");
-        if (file.toAbsolutePath().toString().contains(" ")) {
-            args.add("\"" + file.toAbsolutePath() + "\"");
-        } else {
-            args.add(file.toAbsolutePath().toString());
-        }
+        args.add(Integer.toString(receiver.getPort()));
         args.add(Boolean.toString(printEachTestOnConsole));
         args.add(reportDetail.name());
         String reportFileArg = reportDir == null ? JUnit4TestExecutor.NO_REPORT_FILE : reportDir.getAbsolutePath();
@@ -37,20 +47,9 @@ class JUnit4TestLauncher {
         } else {
             args.add(reportFileArg);
         }
-
-        // Serialize log handler
-        if (JkLog.getLogConsumer() != null && (JkLog.getLogConsumer() instanceof Serializable)) {
-            Path path = JkUtilsPath.createTempFile("jk-logHandler", ".ser");
-            JkUtilsIO.serialize(JkLog.getLogConsumer(), path);
-            String pathString = path.normalize().toAbsolutePath().toString();
-            if (pathString.contains(" ")) {
-                args.add("\"" + pathString+ "\"");
-            } else {
-                args.add(pathString);
-            }
-        } else {
-            args.add("\"\"");
-        }
+        args.add(JkLog.verbosity().name());
+        args.add(Boolean.toString(JkLog.getLogConsumer() != null));
+        args.add(Boolean.toString(failFast));
 
         // Classes to test
         for (final Class<?> clazz : classes) {
@@ -58,16 +57,70 @@ class JUnit4TestLauncher {
         }
         final JkJavaProcess process;
         process = javaProcess.andClasspath(JkClasspath.of(JkLocator.getJekaJarPath()));
-        process.runClassSync(JUnit4TestExecutor.class.getName(), args.toArray(new String[0]));
-        return (JkTestSuiteResult) JkUtilsIO.deserialize(file);
+        try {
+            process.runClassSync(JUnit4TestExecutor.class.getName(), args.toArray(new String[0]));
+        } finally {
+            receiver.close();
+        }
+        return receiver.getResult();
+    }
+
+    /**
+     * Runs the specified classes in <code>forkCount</code> JVMs launched concurrently, then merges their results.
+     * Classes are distributed according their durations recorded in the specified file, which is updated with the
+     * durations measured by this run.
+     */
+    @SuppressWarnings("rawtypes")
+    public static JkTestSuiteResult launchInForks(JkJavaProcess javaProcess, int forkCount, Path durationFile,
+                                                  boolean printEachTestOnConsole, JunitReportDetail reportDetail,
+                                                  Collection<Class> classes, File reportDir, boolean failFast) {
+        final long start = System.nanoTime();
+        final Map<String, Long> durations = TestShards.loadDurations(durationFile);
+        final List<List<Class>> shards = TestShards.partition(classes, forkCount, durations);
+        JkLog.info("Distribute " + classes.size() + " test classes over " + shards.size() + " JVMs.");
+        final ExecutorService executorService = Executors.newFixedThreadPool(shards.size());
+        final List<JkTestSuiteResult> results = new LinkedList<>();
+        final ForkedTestReceiver.Group group = new ForkedTestReceiver.Group();
+        try {
+            final List<Future<JkTestSuiteResult>> futures = new LinkedList<>();
+            for (final List<Class> shard : shards) {
+                futures.add(executorService.submit(() -> launchInFork(javaProcess, printEachTestOnConsole,
+                        reportDetail, shard, reportDir, failFast, group)));
+            }
+            for (final Future<JkTestSuiteResult> future : futures) {
+                results.add(await(future));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        final JkTestSuiteResult result = JkTestSuiteResult.merge(results, JkUtilsTime.durationInMillis(start));
+        TestShards.saveDurations(durationFile, result.classDurations());
+        return result;
     }
 
+    private static JkTestSuiteResult await(Future<JkTestSuiteResult> future) {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JkException("Interrupted while running tests.");
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
 
     /**
      * @param classes Non-empty <code>Iterable</code>.
      */
     public static JkTestSuiteResult launchInProcess(Iterable<Class> classes, boolean logRunningTest,
-                                                    JunitReportDetail reportDetail, File reportDir) {
+                                                    JunitReportDetail reportDetail, File reportDir,
+                                                    boolean failFast) {
         final JkUrlClassLoader testClassloader = JkUrlClassLoader.ofLoaderOf(classes.iterator().next());
         final Class[] classArray = JkUtilsIterable.arrayOf(classes, Class.class);
         final JkUrlClassLoader launchtestClassLoader = JkUrlClassLoader.of(JkLocator.getJekaJarPath(),
@@ -76,7 +129,7 @@ class JUnit4TestLauncher {
             JkLog.trace("Launching test using class loader : " + testClassloader);
         }
         return launchtestClassLoader.toJkClassLoader().invokeStaticMethod(true, JUnit4TestExecutor.class.getName(),
-                "launchInProcess", classArray, logRunningTest, reportDetail, reportDir, true);
+                "launchInProcess", classArray, logRunningTest, reportDetail, reportDir, true, failFast);
     }
 
 }
@@ -20,6 +20,8 @@ public class JkTestSuiteResult implements Serializable {
     private final int ignoreCount;
     private final long durationInMilis;
     private final Properties systemProperties;
+    private final Map<String, Long> classDurations;
+    private final Set<String> completedClassNames;
 
     /**
      * Constructs a test suite execution result according specified information.
@@ -27,12 +29,21 @@ public class JkTestSuiteResult implements Serializable {
     JkTestSuiteResult(Properties properties, String suiteName, int totaltestCount,
             int ignoreCount, Iterable<? extends JkTestCaseResult> testCaseResult,
             long durationInMillis) {
+        this(properties, suiteName, totaltestCount, ignoreCount, testCaseResult, durationInMillis,
+                Collections.emptyMap(), Collections.emptySet());
+    }
+
+    private JkTestSuiteResult(Properties properties, String suiteName, int totaltestCount,
+            int ignoreCount, Iterable<? extends JkTestCaseResult> testCaseResult,
+            long durationInMillis, Map<String, Long> classDurations, Set<String> completedClassNames) {
         this.systemProperties = properties;
         this.suiteName = suiteName;
         this.runCount = totaltestCount;
         this.ignoreCount = ignoreCount;
         this.testCaseResults = JkUtilsIterable.listOf(testCaseResult);
         this.durationInMilis = durationInMillis;
+        this.classDurations = new HashMap<>(classDurations);
+        this.completedClassNames = new HashSet<>(completedClassNames);
     }
 
     @SuppressWarnings("unchecked")
@@ -41,10 +52,63 @@ public class JkTestSuiteResult implements Serializable {
                 0);
     }
 
+    /**
+     * Returns a result gathering the specified ones, as when test classes are run in several JVMs.
+     * @param results Non-empty list.
+     */
+    static JkTestSuiteResult merge(List<JkTestSuiteResult> results, long durationInMillis) {
+        final JkTestSuiteResult first = results.get(0);
+        final List<JkTestCaseResult> testCaseResults = new LinkedList<>();
+        final Map<String, Long> classDurations = new HashMap<>();
+        final Set<String> completedClassNames = new HashSet<>();
+        int runCount = 0;
+        int ignoreCount = 0;
+        for (final JkTestSuiteResult result : results) {
+            testCaseResults.addAll(result.testCaseResults);
+            classDurations.putAll(result.classDurations);
+            completedClassNames.addAll(result.completedClassNames);
+            runCount += result.runCount;
+            ignoreCount += result.ignoreCount;
+        }
+        return new JkTestSuiteResult(first.systemProperties, first.suiteName, runCount, ignoreCount,
+                testCaseResults, durationInMillis, classDurations, completedClassNames);
+    }
+
+    /**
+     * Returns a copy of this result but with the specified test case results.
+     */
+    JkTestSuiteResult withTestCaseResults(Iterable<? extends JkTestCaseResult> testCaseResults) {
+        return new JkTestSuiteResult(systemProperties, suiteName, runCount, ignoreCount, testCaseResults,
+                durationInMilis, classDurations, completedClassNames);
+    }
+
+    /**
+     * Returns a copy of this result but with the specified names of test classes having run all their tests.
+     */
+    JkTestSuiteResult withCompletedClassNames(Set<String> completedClassNames) {
+        return new JkTestSuiteResult(systemProperties, suiteName, runCount, ignoreCount, testCaseResults,
+                durationInMilis, classDurations, completedClassNames);
+    }
+
     List<? extends JkTestCaseResult> testCaseResults() {
         return testCaseResults;
     }
 
+    /**
+     * Returns the execution duration in milliseconds of each test class, when known.
+     */
+    Map<String, Long> classDurations() {
+        return classDurations;
+    }
+
+    /**
+     * Returns the names of the test classes having run all their tests. Classes not run, or partially run, due to
+     * a run stopped early are not part of it.
+     */
+    Set<String> completedClassNames() {
+        return completedClassNames;
+    }
+
     List<JkTestCaseFailure> failures() {
         final List<JkTestCaseFailure> result = new LinkedList<>();
         for (final JkTestCaseResult caseResult : this.testCaseResults) {
@@ -346,7 +410,7 @@ public class JkTestSuiteResult implements Serializable {
     }
 
     static JkTestSuiteResult fromJunit4Result(Properties properties, String suiteName,
-            Object result, long durationInMillis) {
+            Object result, long durationInMillis, Map<String, Long> classDurations, Set<String> completedClassNames) {
         final Integer runCount = JkUtilsReflect.invoke(result, "getRunCount");
         final Integer ignoreCount = JkUtilsReflect.invoke(result, "getIgnoreCount");
         final List<Object> junitFailures = JkUtilsReflect.invoke(result, "getFailures");
@@ -356,11 +420,11 @@ public class JkTestSuiteResult implements Serializable {
             failures.add(fromJunit4Failure(junitFailure));
         }
         return new JkTestSuiteResult(properties, suiteName, runCount, ignoreCount, failures,
-                durationInMillis);
+                durationInMillis, classDurations, completedClassNames);
 
     }
 
-    private static JkTestCaseFailure fromJunit4Failure(Object junit4failure) {
+    static JkTestCaseFailure fromJunit4Failure(Object junit4failure) {
         final Object junit4Description = JkUtilsReflect.invoke(junit4failure, "getDescription");
         final String testClassName = JkUtilsReflect.invoke(junit4Description, "getClassName");
         final String testMethodName = JkUtilsReflect.invoke(junit4Description, "getMethodName");
@@ -8,19 +8,17 @@ import dev.jeka.core.api.java.JkJavaProcess;
 import dev.jeka.core.api.java.JkUrlClassLoader;
 import dev.jeka.core.api.system.JkException;
 import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsAssert;
 import dev.jeka.core.api.utils.JkUtilsIO;
 import dev.jeka.core.api.utils.JkUtilsIterable;
 import dev.jeka.core.api.utils.JkUtilsReflect;
 import dev.jeka.core.api.utils.JkUtilsString;
 
 import java.io.File;
-import java.lang.annotation.Annotation;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
 import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Convenient class to run Junit tests.
@@ -48,14 +46,12 @@ public final class JkUnit {
 
     private static final String JUNIT3_RUNNER_CLASS_NAME = "junit.textui.TestRunner";
 
-    private static final String JUNIT4_TEST_ANNOTATION_CLASS_NAME = "org.junit.Test";
-
-    private static final String JUNIT3_TEST_CASE_CLASS_NAME = "junit.framework.TestCase";
-
     private static final String JUNIT3_TEST_SUITE_CLASS_NAME = "junit.framework.TestSuite";
 
     private static final String JUNIT3_TEST_RESULT_CLASS_NAME = "junit.framework.TestResult";
 
+    private static final String DURATION_FILE_SUFFIX = ".durations";
+
     private final JunitReportDetail reportDetail;
 
     private final Path reportDir;
@@ -68,15 +64,25 @@ public final class JkUnit {
 
     private final boolean printOutputOnConsole;
 
+    private final int forkCount;
+
+    private final Path impactIndexFile;
+
+    private final boolean failFast;
+
     private JkUnit(JunitReportDetail reportDetail, Path reportDir,
             JkJavaProcess fork, List<Runnable> runnables,
-            boolean crashOnFailed, boolean printOutputOnConsole) {
+            boolean crashOnFailed, boolean printOutputOnConsole, int forkCount, Path impactIndexFile,
+            boolean failFast) {
         this.reportDetail = reportDetail;
         this.reportDir = reportDir;
         this.forkedProcess = fork;
         this.postActions = Collections.unmodifiableList(runnables);
         this.breakOnFailure = crashOnFailed;
         this.printOutputOnConsole = printOutputOnConsole;
+        this.forkCount = forkCount;
+        this.impactIndexFile = impactIndexFile;
+        this.failFast = failFast;
     }
 
     @SuppressWarnings("unchecked")
@@ -84,7 +90,7 @@ public final class JkUnit {
             JkJavaProcess fork, boolean crashOnFailed,
             boolean printOutputOnConsole) {
         this(reportDetail, reportDir, fork, Collections.EMPTY_LIST,
-                crashOnFailed, printOutputOnConsole);
+                crashOnFailed, printOutputOnConsole, 1, null, false);
     }
 
     /**
@@ -99,24 +105,34 @@ public final class JkUnit {
      * Returns a copy of this launcher but with the specified report detail.
      */
     public JkUnit withReport(JunitReportDetail reportDetail) {
-        return new JkUnit(reportDetail, reportDir, this.forkedProcess,
-                this.breakOnFailure, this.printOutputOnConsole);
+        return new JkUnit(reportDetail, reportDir, this.forkedProcess, postActions,
+                this.breakOnFailure, this.printOutputOnConsole, forkCount, impactIndexFile, failFast);
     }
 
     /**
      * Returns a copy of this launcher but with the specified report directory output.
      */
     public JkUnit withReportDir(Path reportDir) {
-        return new JkUnit(reportDetail, reportDir, this.forkedProcess,
-                this.breakOnFailure, this.printOutputOnConsole);
+        return new JkUnit(reportDetail, reportDir, this.forkedProcess, postActions,
+                this.breakOnFailure, this.printOutputOnConsole, forkCount, impactIndexFile, failFast);
     }
 
     /**
      * Returns a copy of this launcher but that fail fast on the first failure.
      */
     public JkUnit withBreakOnFailure(boolean crashOnFailure) {
-        return new JkUnit(reportDetail, reportDir, this.forkedProcess,
-                crashOnFailure, this.printOutputOnConsole);
+        return new JkUnit(reportDetail, reportDir, this.forkedProcess, postActions,
+                crashOnFailure, this.printOutputOnConsole, forkCount, impactIndexFile, failFast);
+    }
+
+    /**
+     * Returns a copy of this launcher but that stops executing tests as soon as one fails. In forking mode, forked
+     * JVMs report each failure as it happens, so all of them are stopped early. Failures are then reported as
+     * specified by {@link #withBreakOnFailure(boolean)}.
+     */
+    public JkUnit withFailFast(boolean failFast) {
+        return new JkUnit(reportDetail, reportDir, this.forkedProcess, postActions,
+                breakOnFailure, this.printOutputOnConsole, forkCount, impactIndexFile, failFast);
     }
 
     /**
@@ -126,7 +142,7 @@ public final class JkUnit {
         final List<Runnable> list = new LinkedList<>(this.postActions);
         list.add(runnable);
         return new JkUnit(reportDetail, reportDir, forkedProcess, list,
-                this.breakOnFailure, this.printOutputOnConsole);
+                this.breakOnFailure, this.printOutputOnConsole, forkCount, impactIndexFile, failFast);
     }
 
     /**
@@ -136,7 +152,8 @@ public final class JkUnit {
      * classpath.
      */
     public JkUnit withForking(JkJavaProcess process) {
-        return new JkUnit(reportDetail, reportDir, process, this.breakOnFailure, this.printOutputOnConsole);
+        return new JkUnit(reportDetail, reportDir, process, postActions, this.breakOnFailure,
+                this.printOutputOnConsole, forkCount, impactIndexFile, failFast);
     }
 
     /**
@@ -149,8 +166,8 @@ public final class JkUnit {
             return withForking(process);
         }
         if (!fork && isForked()) {
-            return new JkUnit(reportDetail, reportDir, null,
-                    this.breakOnFailure, this.printOutputOnConsole);
+            return new JkUnit(reportDetail, reportDir, null, postActions,
+                    this.breakOnFailure, this.printOutputOnConsole, forkCount, impactIndexFile, failFast);
         }
         return this;
     }
@@ -182,7 +199,41 @@ public final class JkUnit {
      * Returns an enhanced copy of this launcher but specifying if the output should be displayed on console.
      */
     public JkUnit withOutputOnConsole(boolean outputOnConsole) {
-        return new JkUnit(reportDetail, reportDir, forkedProcess, breakOnFailure, outputOnConsole);
+        return new JkUnit(reportDetail, reportDir, forkedProcess, postActions, breakOnFailure, outputOnConsole,
+                forkCount, impactIndexFile, failFast);
+    }
+
+    /**
+     * Returns a copy of this launcher but distributing test classes over the specified number of JVMs running
+     * concurrently, then merging their results into a single one. Classes are balanced between JVMs according the
+     * durations recorded at previous runs, in a file lying beside the report dir. This has effect only in forking
+     * mode. 0 stands for the number of available processors.
+     */
+    public JkUnit withForkCount(int forkCount) {
+        JkUtilsAssert.isTrue(forkCount >= 0, "Fork count can not be negative.");
+        return new JkUnit(reportDetail, reportDir, forkedProcess, postActions, breakOnFailure, printOutputOnConsole,
+                forkCount, impactIndexFile, failFast);
+    }
+
+    /**
+     * Returns a copy of this launcher but running only the test classes impacted by changes since their last
+     * successful run. The specified file records, for each test class that did not fail, a fingerprint of its
+     * bytecode and of the classes it transitively refers to within the classpath directories. Jars and resources of
+     * the classpath are part of every fingerprint, so changing them leads to run all tests.
+     * Test classes depending on others through reflection only may be wrongly skipped.
+     * @param impactIndexFile The file storing the fingerprints, <code>null</code> to run all tests.
+     */
+    public JkUnit withTestImpactIndex(Path impactIndexFile) {
+        return new JkUnit(reportDetail, reportDir, forkedProcess, postActions, breakOnFailure, printOutputOnConsole,
+                forkCount, impactIndexFile, failFast);
+    }
+
+    /**
+     * Returns the file recording fingerprints of successful test classes, or <code>null</code> if test impact
+     * analysis is off.
+     */
+    public Path getTestImpactIndex() {
+        return impactIndexFile;
     }
 
     /**
@@ -192,6 +243,25 @@ public final class JkUnit {
         return this.forkedProcess != null;
     }
 
+    /**
+     * Returns the number of JVMs tests are distributed over in forking mode.
+     */
+    public int getForkCount() {
+        return forkCount == 0 ? Runtime.getRuntime().availableProcessors() : forkCount;
+    }
+
+    /**
+     * Returns the file where test class durations are recorded for balancing forked JVMs, or <code>null</code>
+     * if no report dir is set.
+     */
+    public Path getDurationFile() {
+        if (reportDir == null) {
+            return null;
+        }
+        final Path dir = reportDir.toAbsolutePath().normalize();
+        return dir.resolveSibling(dir.getFileName().toString() + DURATION_FILE_SUFFIX);
+    }
+
     /**
      * Returns the report detail level for this launcher.
      */
@@ -221,28 +291,73 @@ public final class JkUnit {
         if (reportDir == null && reportDetail != JunitReportDetail.NONE) {
             throw new IllegalStateException("Report directory has not been set on JkUnit instance.");
         }
-        final Collection<Class> classes = getClassesToTest(testSpec);
+        final TestImpactAnalysis impactAnalysis = impactIndexFile == null ? null
+                : TestImpactAnalysis.of(impactIndexFile, testSpec, impactSettings());
+        final boolean impacted = impactAnalysis == null || !impactAnalysis.impactedClassNames().isEmpty();
+        final JkJavaTestClasses selectedTestSpec = impactAnalysis == null || !impacted ? testSpec
+                : impactAnalysis.select(testSpec);
+        final Collection<Class> classes = impacted ? getClassesToTest(selectedTestSpec) : Collections.emptyList();
         final String name = getSuiteName(classes);
-
-        if (!classes.iterator().hasNext()) {
-            JkLog.warn("No test class found on " + testSpec.getClassesToTest());
-            return JkTestSuiteResult.ofEmpty((Properties) System.getProperties().clone(), name);
+        JkLog.startTask("Executing JUnit tests");
+        final JkTestSuiteResult result;
+        if (!impacted) {
+            JkLog.info("No test class is impacted by changes since the last successful run.");
+            result = JkTestSuiteResult.ofEmpty((Properties) System.getProperties().clone(), name);
+        } else if (classes.isEmpty()) {
+            JkLog.warn("No test class found on " + selectedTestSpec.getClassesToTest());
+            result = JkTestSuiteResult.ofEmpty((Properties) System.getProperties().clone(), name);
+        } else {
+            result = launch(testSpec, classes, name);
+        }
+        if (impactAnalysis != null && impacted) {
+            impactAnalysis.record(result, classNames(classes));
+        }
+        if (result.getFailureCount() > 0) {
+            if (breakOnFailure) {
+                JkLog.error(String.join("\n",
+                        result.toStrings(JkLog.Verbosity.VERBOSE == JkLog.verbosity())));
+                throw new JkException("Test failed : " + result.toString());
+            } else {
+                JkLog.warn(String.join("\n",
+                        result.toStrings(JkLog.Verbosity.VERBOSE == JkLog.verbosity())));
+            }
+        } else {
+            JkLog.info(String.join("/n",
+                    result.toStrings(JkLog.Verbosity.VERBOSE == JkLog.verbosity())));
+        }
+        if (JkLog.Verbosity.VERBOSE != JkLog.verbosity() && result.getFailureCount() > 0) {
+            JkLog.info("Launch Jeka in verbose mode to display failure stack traces andAccept console.");
+        }
+        if (reportDetail.equals(JunitReportDetail.BASIC)) {
+            TestReportBuilder.of(result).writeToFileSystem(reportDir);
         }
+        for (final Runnable runnable : this.postActions) {
+            runnable.run();
+        }
+        JkLog.endTask();
+        return result;
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private JkTestSuiteResult launch(JkJavaTestClasses testSpec, Collection<Class> classes, String name) {
         final long start = System.nanoTime();
         final JkClassLoader classLoader = JkClassLoader.ofLoaderOf(classes.iterator().next());
-        final AtomicReference<JkTestSuiteResult> result = new AtomicReference<>();
-        Runnable task = () -> {
+        try {
             if (classLoader.isDefined(JUNIT4_RUNNER_CLASS_NAME)) {
                 File report = reportDir == null ? null : reportDir.toFile();
                 if (this.forkedProcess != null) {
                     JkLog.info("Test are executed in withForking mode");
                     JkClasspath classpath = testSpec.getClasspath();
-                    result.set(JUnit4TestLauncher.launchInFork(forkedProcess.withClasspath(classpath),
-                            printOutputOnConsole, reportDetail, classes, report));
-                } else {
-                    result.set(JUnit4TestLauncher.launchInProcess(classes, printOutputOnConsole,
-                            reportDetail, report));
+                    if (getForkCount() > 1 && classes.size() > 1) {
+                        return JUnit4TestLauncher.launchInForks(forkedProcess.withClasspath(classpath),
+                                getForkCount(), getDurationFile(), printOutputOnConsole, reportDetail, classes,
+                                report, failFast);
+                    }
+                    return JUnit4TestLauncher.launchInFork(forkedProcess.withClasspath(classpath),
+                            printOutputOnConsole, reportDetail, classes, report, failFast);
                 }
+                return JUnit4TestLauncher.launchInProcess(classes, printOutputOnConsole, reportDetail, report,
+                        failFast);
             } else if (classLoader.isDefined(JUNIT3_RUNNER_CLASS_NAME)) {
                 final Object suite = createJunit3TestSuite(classLoader, classes);
                 final Class testResultClass = classLoader.load(JUNIT3_TEST_RESULT_CLASS_NAME);
@@ -253,41 +368,36 @@ public final class JkUnit {
                 JkUtilsReflect.invoke(suite, runMethod, testResult);
                 final long end = System.nanoTime();
                 final long duration = (end - start) / 1000000;
-                result.set(fromJunit3Result(properties, name, testResult, duration));
+                return fromJunit3Result(properties, name, testResult, duration)
+                        .withCompletedClassNames(classNames(classes));
             } else {
-                JkUtilsIO.closeifClosable(classLoader.get());
                 throw new JkException("No Junit found on test classpath.");
             }
+        } finally {
+            JkUtilsIO.closeifClosable(classLoader.get());
+        }
+    }
 
-            if (result.get().getFailureCount() > 0) {
-                if (breakOnFailure) {
-                    JkLog.error(String.join("\n",
-                            result.get().toStrings(JkLog.Verbosity.VERBOSE == JkLog.verbosity())));
-                    JkUtilsIO.closeifClosable(classLoader.get());
-                    throw new JkException("Test failed : " + result.toString());
-                } else {
-                    JkLog.warn(String.join("\n",
-                            result.get().toStrings(JkLog.Verbosity.VERBOSE == JkLog.verbosity())));
-                }
-            } else {
-                JkLog.info(String.join("/n",
-                        result.get().toStrings(JkLog.Verbosity.VERBOSE == JkLog.verbosity())));
-            }
-            if (JkLog.Verbosity.VERBOSE != JkLog.verbosity() && result.get().getFailureCount() > 0) {
-                JkLog.info("Launch Jeka in verbose mode to display failure stack traces andAccept console.");
-            }
-            if (reportDetail.equals(JunitReportDetail.BASIC)) {
-                TestReportBuilder.of(result.get()).writeToFileSystem(reportDir);
-            }
-            for (final Runnable runnable : this.postActions) {
-                runnable.run();
-            }
-        };
-        JkLog.startTask("Executing JUnit tests");
-        task.run();
-        JkLog.endTask();
-        JkUtilsIO.closeifClosable(classLoader.get());
-        return result.get();
+    @SuppressWarnings("rawtypes")
+    private static Set<String> classNames(Collection<Class> classes) {
+        final Set<String> result = new HashSet<>();
+        for (final Class clazz : classes) {
+            result.add(clazz.getName());
+        }
+        return result;
+    }
+
+    // Settings having effect on test outcomes : changing them makes every test class impacted
+    private List<String> impactSettings() {
+        final List<String> result = new LinkedList<>();
+        result.add(System.getProperty("java.version"));
+        if (forkedProcess == null) {
+            result.add("in-process");
+        } else {
+            result.add("forked");
+            result.addAll(forkedProcess.getJvmOptions());
+        }
+        return result;
     }
 
     public JkTestSuiteResult run(JkClasspath classpath, JkPathTreeSet classesToTest) {
@@ -303,64 +413,33 @@ public final class JkUnit {
         final JkClasspath classpath = testSpec.getClasspath().andPrepending(testSpec.getClassesToTest().getRootDirsOrZipFiles());
         final JkUrlClassLoader classLoader = JkUrlClassLoader.of(classpath, ClassLoader.getSystemClassLoader().getParent());
         classLoader.loadAllServices();
-        final Collection<Class> result = getJunitTestClassesInClassLoader(classLoader, testSpec.getClassesToTest());
+        final Collection<Class> result = getJunitTestClassesInClassLoader(classLoader, classpath,
+                testSpec.getClassesToTest());
         if (result.isEmpty()) {
             JkUtilsIO.closeifClosable(classLoader.get());
         }
         return result;
     }
 
+    /*
+     * Test classes are selected by reading class files, so only classes actually tested are loaded.
+     */
     @SuppressWarnings("rawtypes")
     private static Collection<Class> getJunitTestClassesInClassLoader(JkUrlClassLoader classloader,
+                                                                      JkClasspath classpath,
                                                                       JkPathTreeSet jkPathTreeSet) {
-        final Iterable<Class<?>> classes = classloader.loadClassesIn(jkPathTreeSet);
+        final JkClassLoader jkClassLoader = classloader.toJkClassLoader();
+        final boolean junit4 = jkClassLoader.isDefined(JUNIT4_RUNNER_CLASS_NAME);
+        if (!junit4 && !jkClassLoader.isDefined(JUNIT3_RUNNER_CLASS_NAME)) {
+            return Collections.emptyList();
+        }
         final List<Class> testClasses = new LinkedList<>();
-        if (classloader.toJkClassLoader().isDefined(JUNIT4_RUNNER_CLASS_NAME)) {
-            final Class<Annotation> testAnnotation = classloader
-                    .toJkClassLoader().load(JUNIT4_TEST_ANNOTATION_CLASS_NAME);
-            final Class<?> testCaseClass = classloader.toJkClassLoader().load(JUNIT3_TEST_CASE_CLASS_NAME);
-            for (final Class clazz : classes) {
-                if (isJunit3Test(clazz, testCaseClass) || isJunit4Test(clazz, testAnnotation)) {
-                    testClasses.add(clazz);
-                }
-            }
-        } else if (classloader.toJkClassLoader().isDefined(JUNIT3_RUNNER_CLASS_NAME)) {
-            final Class<?> testCaseClass = classloader.toJkClassLoader().load(JUNIT3_TEST_CASE_CLASS_NAME);
-            for (final Class clazz : classes) {
-                if (isJunit3Test(clazz, testCaseClass)) {
-                    testClasses.add(clazz);
-                }
-            }
+        for (final String className : TestClassScanner.findTestClassNames(jkPathTreeSet, classpath, junit4)) {
+            testClasses.add(jkClassLoader.load(className));
         }
         return testClasses;
     }
 
-    private static boolean isJunit3Test(Class<?> candidtateClazz, Class<?> testCaseClass) {
-        if (Modifier.isAbstract(candidtateClazz.getModifiers())) {
-            return false;
-        }
-        return testCaseClass.isAssignableFrom(candidtateClazz);
-    }
-
-    private static boolean isJunit4Test(Class<?> candidateClass, Class<Annotation> testAnnotation) {
-        if (Modifier.isAbstract(candidateClass.getModifiers())) {
-            return false;
-        }
-        return hasConcreteTestMethods(candidateClass, testAnnotation);
-    }
-
-    private static boolean hasConcreteTestMethods(Class<?> candidateClass,
-            Class<Annotation> testAnnotation) {
-        for (final Method method : candidateClass.getMethods()) {
-            final int modifiers = method.getModifiers();
-            if (!Modifier.isAbstract(modifiers) && Modifier.isPublic(modifiers)
-                    && method.getAnnotation(testAnnotation) != null) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     @SuppressWarnings("rawtypes")
     private static Object createJunit3TestSuite(JkClassLoader classLoader,
                                                 Iterable<Class> testClasses) {
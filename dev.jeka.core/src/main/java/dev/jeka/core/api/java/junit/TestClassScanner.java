@@ -0,0 +1,162 @@
+package dev.jeka.core.api.java.junit;
+
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.file.JkPathTreeSet;
+import dev.jeka.core.api.java.JkClassFile;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsPath;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/*
+ * Finds JUnit test classes by reading class files, so classes that are not tests are never loaded. Super classes are
+ * looked up in the class dirs and jars of the classpath, to detect inherited test methods and JUnit 3 test cases.
+ */
+final class TestClassScanner implements Closeable {
+
+    private static final String JUNIT4_TEST_ANNOTATION_CLASS_NAME = "org.junit.Test";
+
+    private static final String JUNIT3_TEST_CASE_CLASS_NAME = "junit.framework.TestCase";
+
+    private final List<Path> classpath;
+
+    private final Map<String, Optional<JkClassFile>> classFiles = new HashMap<>();
+
+    private final Map<Path, ZipFile> zipFiles = new HashMap<>();
+
+    private TestClassScanner(List<Path> classpath) {
+        this.classpath = classpath;
+    }
+
+    /*
+     * Returns the names of the test classes found in the specified tree set, in the order they are found.
+     * @param classpath Classpath used to find super classes of test classes.
+     * @param junit4 If <code>false</code>, only JUnit 3 test cases are selected.
+     */
+    static List<String> findTestClassNames(JkPathTreeSet classesToTest, Iterable<Path> classpath, boolean junit4) {
+        final List<Path> entries = new LinkedList<>();
+        classpath.forEach(entries::add);
+        try (TestClassScanner scanner = new TestClassScanner(entries)) {
+            final List<String> result = new LinkedList<>();
+            for (final JkPathTree tree : classesToTest.getPathTrees()) {
+                if (!tree.exists()) {
+                    continue;
+                }
+                for (final Path relativePath : tree.getRelativeFiles()) {
+                    final String path = relativePath.toString().replace('\\', '/');
+                    if (!path.endsWith(".class")) {
+                        continue;
+                    }
+                    final JkClassFile classFile = read(tree.getRoot().resolve(path));
+                    if (classFile != null && scanner.isTest(classFile, junit4)) {
+                        result.add(classFile.getClassName());
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    private boolean isTest(JkClassFile classFile, boolean junit4) {
+        if (Modifier.isAbstract(classFile.getAccessFlags())) {  // Interfaces are abstract as well
+            return false;
+        }
+        JkClassFile current = classFile;
+        while (current != null) {
+            if (JUNIT3_TEST_CASE_CLASS_NAME.equals(current.getSuperClassName())) {
+                return true;
+            }
+            if (junit4 && hasConcreteTestMethods(current)) {
+                return true;
+            }
+            current = superClassFile(current);
+        }
+        return false;
+    }
+
+    private static boolean hasConcreteTestMethods(JkClassFile classFile) {
+        for (final JkClassFile.JkMember method : classFile.getMethods()) {
+            final int modifiers = method.getAccessFlags();
+            if (!Modifier.isAbstract(modifiers) && Modifier.isPublic(modifiers)
+                    && method.getAnnotationNames().contains(JUNIT4_TEST_ANNOTATION_CLASS_NAME)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private JkClassFile superClassFile(JkClassFile classFile) {
+        final String superClassName = classFile.getSuperClassName();
+        if (superClassName == null || superClassName.startsWith("java.")) {
+            return null;
+        }
+        return classFiles.computeIfAbsent(superClassName, name -> Optional.ofNullable(find(name))).orElse(null);
+    }
+
+    private JkClassFile find(String className) {
+        final String path = className.replace('.', '/') + ".class";
+        for (final Path entry : classpath) {
+            if (Files.isDirectory(entry)) {
+                final Path file = entry.resolve(path);
+                if (Files.exists(file)) {
+                    return read(file);
+                }
+            } else if (Files.isRegularFile(entry)) {
+                final ZipFile zipFile = zipFile(entry);
+                final ZipEntry zipEntry = zipFile == null ? null : zipFile.getEntry(path);
+                if (zipEntry != null) {
+                    try (InputStream inputStream = zipFile.getInputStream(zipEntry)) {
+                        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                        JkUtilsIO.copy(inputStream, outputStream);
+                        return read(outputStream.toByteArray(), entry + "!" + path);
+                    } catch (final IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }
+        }
+        JkLog.trace("Class " + className + " not found on test classpath.");
+        return null;
+    }
+
+    private ZipFile zipFile(Path file) {
+        return zipFiles.computeIfAbsent(file, path -> {
+            try {
+                return new ZipFile(path.toFile());
+            } catch (final IOException e) {
+                JkLog.trace("Can not read " + path + " : " + e.getMessage());
+                return null;
+            }
+        });
+    }
+
+    private static JkClassFile read(Path file) {
+        return read(JkUtilsPath.readAllBytes(file), file.toString());
+    }
+
+    private static JkClassFile read(byte[] bytes, String location) {
+        try {
+            return JkClassFile.of(bytes);
+        } catch (final RuntimeException e) {
+            JkLog.trace("Can not read class file " + location + " : " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void close() {
+        zipFiles.values().stream().filter(Objects::nonNull).forEach(zipFile -> JkUtilsIO.closeQuietly(zipFile));
+    }
+
+}
@@ -0,0 +1,234 @@
+package dev.jeka.core.api.java.junit;
+
+import dev.jeka.core.api.file.JkBuildCache;
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.java.JkClassFile;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsString;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/*
+ * Selects the test classes impacted by changes since their last successful run. Each test class is fingerprinted
+ * along the classes it transitively refers to, as found in the bytecode of the test classes and of the classpath
+ * directories. Resources of these directories, jars of the classpath and settings of the test JVM take part in the
+ * fingerprint of every test class, as their use can not be traced statically.
+ */
+final class TestImpactAnalysis {
+
+    private final Path indexFile;
+
+    private final Index previousIndex;
+
+    // Test class name -> fingerprint of the class and its dependencies
+    private final Map<String, String> fingerprints;
+
+    private TestImpactAnalysis(Path indexFile, Index previousIndex, Map<String, String> fingerprints) {
+        this.indexFile = indexFile;
+        this.previousIndex = previousIndex;
+        this.fingerprints = fingerprints;
+    }
+
+    /*
+     * @param settings Settings of the JVM running tests (java version, JVM options, system properties).
+     */
+    static TestImpactAnalysis of(Path indexFile, JkJavaTestClasses testClasses, List<String> settings) {
+        final Map<String, ClassNode> nodes = new HashMap<>();
+        final List<String> sharedStamps = new LinkedList<>(settings);
+        final List<JkPathTree> classTrees = new LinkedList<>();
+        for (final Path root : testClasses.getClassesToTest().getRootDirsOrZipFiles()) {
+            classTrees.add(Files.isDirectory(root) ? JkPathTree.of(root) : JkPathTree.ofZip(root));
+        }
+        for (final Path entry : testClasses.getClasspath()) {
+            if (Files.isDirectory(entry)) {
+                classTrees.add(JkPathTree.of(entry));
+            } else {
+                sharedStamps.add(entry.toAbsolutePath().normalize() + "=" + stamp(entry));
+            }
+        }
+        for (final JkPathTree tree : classTrees) {
+            if (tree.exists()) {
+                readTree(tree, nodes, sharedStamps);
+            }
+        }
+        final Map<String, String> fingerprints = new HashMap<>();
+        for (final Path relativePath : testClasses.getClassesToTest().getRelativeFiles()) {
+            final String className = className(relativePath);
+            if (className != null && nodes.containsKey(className)) {
+                fingerprints.put(className, fingerprint(className, nodes, sharedStamps));
+            }
+        }
+        return new TestImpactAnalysis(indexFile, Index.load(indexFile), fingerprints);
+    }
+
+    /*
+     * Returns the specified test classes restricted to the ones impacted by changes.
+     */
+    JkJavaTestClasses select(JkJavaTestClasses testClasses) {
+        final Set<String> impacted = impactedClassNames();
+        JkLog.info(impacted.size() + " test classes out of " + fingerprints.size()
+                + " are impacted by changes since their last successful run.");
+        return testClasses.withClassesToTest(testClasses.getClassesToTest().andMatcher(path -> {
+            final String className = className(path);
+            return className == null || impacted.contains(className);
+        }));
+    }
+
+    Set<String> impactedClassNames() {
+        final Set<String> result = new HashSet<>();
+        fingerprints.forEach((className, fingerprint) -> {
+            if (!fingerprint.equals(previousIndex.fingerprints.get(className))) {
+                result.add(className);
+            }
+        });
+        return result;
+    }
+
+    /*
+     * Records the fingerprints of the test classes that did not fail, so they are skipped next times until
+     * something they depend on changes. Launched test classes that have not run all their tests, as when the run
+     * stopped at the first failure, are not recorded.
+     * @param launchedClassNames Names of the test classes passed to the test runner.
+     */
+    void record(JkTestSuiteResult result, Set<String> launchedClassNames) {
+        final Set<String> failedClassNames = new HashSet<>();
+        for (final JkTestSuiteResult.JkTestCaseFailure failure : result.failures()) {
+            final String className = String.valueOf(failure.getClassName());
+            failedClassNames.add(className);
+            failedClassNames.add(className.contains("$") ? className.substring(0, className.indexOf('$')) : className);
+        }
+        final Index index = new Index();
+        index.fingerprints.putAll(previousIndex.fingerprints);
+        fingerprints.forEach((className, fingerprint) -> {
+            if (failedClassNames.contains(className)) {
+                index.fingerprints.remove(className);
+            } else if (launchedClassNames.contains(className)
+                    && !result.completedClassNames().contains(className)) {
+                JkLog.trace("Test class " + className + " has not completed, it remains impacted.");
+            } else {
+                index.fingerprints.put(className, fingerprint);
+            }
+        });
+        index.save(indexFile);
+    }
+
+    private static void readTree(JkPathTree tree, Map<String, ClassNode> nodes, List<String> sharedStamps) {
+        final List<Path> relativeFiles = new ArrayList<>(tree.getRelativeFiles());
+        Collections.sort(relativeFiles);
+        for (final Path relativeFile : relativeFiles) {
+            final Path file = tree.getRoot().resolve(relativeFile.toString());
+            final String className = className(relativeFile);
+            if (className != null && nodes.containsKey(className)) {  // First on classpath wins
+                continue;
+            }
+            final byte[] bytes = JkUtilsPath.readAllBytes(file);
+            if (className == null) {
+                sharedStamps.add(relativeFile.toString().replace('\\', '/') + "=" + md5(bytes));
+            } else {
+                Set<String> referencedClassNames;
+                try {
+                    referencedClassNames = JkClassFile.of(bytes).getReferencedClassNames();
+                } catch (final RuntimeException e) {
+                    JkLog.trace("Can not read class file " + file + " : " + e.getMessage());
+                    referencedClassNames = Collections.emptySet();
+                }
+                nodes.put(className, new ClassNode(md5(bytes), referencedClassNames));
+            }
+        }
+    }
+
+    private static String fingerprint(String className, Map<String, ClassNode> nodes, List<String> sharedStamps) {
+        final SortedMap<String, String> closure = new TreeMap<>();
+        final Deque<String> stack = new ArrayDeque<>();
+        stack.push(className);
+        while (!stack.isEmpty()) {
+            final String current = stack.pop();
+            final ClassNode node = nodes.get(current);
+            if (node == null || closure.containsKey(current)) {
+                continue;
+            }
+            closure.put(current, node.hash);
+            node.referencedClassNames.forEach(stack::push);
+            final int dollarIndex = current.lastIndexOf('$');  // Nested classes depend on their enclosing class
+            if (dollarIndex > 0) {
+                stack.push(current.substring(0, dollarIndex));
+            }
+        }
+        final JkBuildCache.JkFingerprint fingerprint = JkBuildCache.fingerprint("test-impact").and(sharedStamps);
+        closure.forEach((name, hash) -> fingerprint.and(name, hash));
+        return fingerprint.get();
+    }
+
+    private static String className(Path relativePath) {
+        final String path = relativePath.toString().replace('\\', '/');
+        if (!path.endsWith(".class")) {
+            return null;
+        }
+        return path.substring(0, path.length() - ".class".length()).replace('/', '.');
+    }
+
+    private static String stamp(Path file) {
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return attributes.size() + "-" + attributes.lastModifiedTime().toMillis();
+        } catch (final IOException e) {
+            return "-";
+        }
+    }
+
+    private static String md5(byte[] bytes) {
+        try {
+            return JkUtilsString.toHexString(MessageDigest.getInstance("MD5").digest(bytes));
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class ClassNode {
+
+        final String hash;
+
+        final Set<String> referencedClassNames;
+
+        ClassNode(String hash, Set<String> referencedClassNames) {
+            this.hash = hash;
+            this.referencedClassNames = referencedClassNames;
+        }
+
+    }
+
+    private static final class Index implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Map<String, String> fingerprints = new HashMap<>();
+
+        static Index load(Path indexFile) {
+            if (!Files.exists(indexFile)) {
+                return new Index();
+            }
+            try {
+                return (Index) JkUtilsIO.deserialize(indexFile);
+            } catch (final RuntimeException e) {
+                JkLog.trace("Can not read test impact index " + indexFile + " : " + e.getMessage());
+                return new Index();
+            }
+        }
+
+        void save(Path indexFile) {
+            JkUtilsPath.createDirectories(indexFile.toAbsolutePath().getParent());
+            JkUtilsIO.serialize(this, indexFile);
+        }
+
+    }
+
+}
@@ -0,0 +1,94 @@
+package dev.jeka.core.api.java.junit;
+
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsPath;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/*
+ * Splits test classes into shards of similar durations, relying on the durations recorded at previous runs.
+ */
+final class TestShards {
+
+    private TestShards() {
+    }
+
+    /*
+     * Distributes the specified classes over at most <code>shardCount</code> shards. Longest classes are assigned
+     * first, each one to the least loaded shard. Classes without known duration are weighted as the average known
+     * one. Returned shards are never empty.
+     */
+    @SuppressWarnings("rawtypes")
+    static List<List<Class>> partition(Collection<Class> classes, int shardCount, Map<String, Long> durations) {
+        final long defaultDuration = Math.max(1, (long) durations.values().stream()
+                .mapToLong(Long::longValue).average().orElse(1));
+        final List<Class> sortedClasses = new ArrayList<>(classes);
+        final Comparator<Class> comparator = Comparator.comparingLong(
+                clazz -> durations.getOrDefault(clazz.getName(), defaultDuration));
+        sortedClasses.sort(comparator.reversed().thenComparing(Class::getName));
+        final int count = Math.max(1, Math.min(shardCount, sortedClasses.size()));
+        final List<List<Class>> shards = new ArrayList<>(count);
+        final long[] loads = new long[count];
+        for (int i = 0; i < count; i++) {
+            shards.add(new LinkedList<>());
+        }
+        for (final Class clazz : sortedClasses) {
+            int lightest = 0;
+            for (int i = 1; i < count; i++) {
+                if (loads[i] < loads[lightest]) {
+                    lightest = i;
+                }
+            }
+            shards.get(lightest).add(clazz);
+            loads[lightest] += Math.max(1, durations.getOrDefault(clazz.getName(), defaultDuration));
+        }
+        return shards;
+    }
+
+    /*
+     * Returns the durations of test classes stored in the specified file, or an empty map if the file does not
+     * exist or can not be read.
+     */
+    static Map<String, Long> loadDurations(Path file) {
+        final Map<String, Long> result = new HashMap<>();
+        if (file == null || !Files.exists(file)) {
+            return result;
+        }
+        final Properties properties = new Properties();
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            properties.load(inputStream);
+            for (final String className : properties.stringPropertyNames()) {
+                result.put(className, Long.parseLong(properties.getProperty(className)));
+            }
+        } catch (final IOException | NumberFormatException e) {
+            JkLog.trace("Can not read test durations " + file + " : " + e.getMessage());
+            result.clear();
+        }
+        return result;
+    }
+
+    /*
+     * Records the specified durations in the specified file, keeping durations of classes not run this time.
+     */
+    static void saveDurations(Path file, Map<String, Long> durations) {
+        if (file == null || durations.isEmpty()) {
+            return;
+        }
+        final Map<String, Long> merged = new TreeMap<>(loadDurations(file));
+        merged.putAll(durations);
+        final Properties properties = new Properties();
+        merged.forEach((className, duration) -> properties.setProperty(className, Long.toString(duration)));
+        JkUtilsPath.createDirectories(file.toAbsolutePath().getParent());
+        try (OutputStream outputStream = Files.newOutputStream(file)) {
+            properties.store(outputStream, "Test class durations in milliseconds");
+        } catch (final IOException e) {
+            JkLog.warn("Can not write test durations " + file + " : " + e.getMessage());
+        }
+    }
+
+}
@@ -38,11 +38,14 @@ public class JkJavaProjectCompileTasks {
                 .generateTo(maker.getOutLayout().getClassDir(), charset));
         compileRunner = JkRunnables.of(() -> {
             final JkJavaCompileSpec compileSpec = compileSourceSpec();
-            compiler.compile(compileSpec);
+            maker.runCached(() -> JkJavaProjectMaker.compileFingerprint("compile", compileSpec,
+                    maker.project.getSourceLayout().getSources().and(maker.getOutLayout().getGeneratedSourceDir())),
+                    () -> compiler.compile(compileSpec), maker.getOutLayout().getClassDir(),
+                    JkJavaCompiler.getIncrementalIndexFile(maker.getOutLayout().getClassDir()));
         });
     }
 
-    void reset() {
+    synchronized void reset() {
         done = false;
     }
 
@@ -66,9 +69,10 @@ public class JkJavaProjectCompileTasks {
     }
 
     /**
-     * As #run but perform only if not already done.
+     * As #run but perform only if not already done. Concurrent invocations wait for the
+     * running one to complete.
      */
-    public void runIfNecessary() {
+    public synchronized void runIfNecessary() {
         if (done) {
             JkLog.trace("Compilation task already done. Won't perfom again.");
         } else {
@@ -115,6 +119,15 @@ public class JkJavaProjectCompileTasks {
         return this;
     }
 
+    /**
+     * Sets if compilation should recompile only sources changed since the last compilation (and the ones
+     * depending on them). See {@link JkJavaCompiler#withIncremental(boolean)}.
+     */
+    public JkJavaProjectCompileTasks setIncremental(boolean incremental) {
+        this.compiler = this.compiler.withIncremental(incremental);
+        return this;
+    }
+
     private JkJavaCompileSpec compileSourceSpec() {
         JkJavaCompileSpec result = maker.project.getCompileSpec().copy();
         final JkPathSequence classpath = maker.fetchDependenciesFor(JkJavaDepScopes.SCOPES_FOR_COMPILATION);
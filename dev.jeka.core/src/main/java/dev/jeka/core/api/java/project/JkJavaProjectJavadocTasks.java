@@ -1,6 +1,8 @@
 package dev.jeka.core.api.java.project;
 
 import dev.jeka.core.api.depmanagement.JkJavaDepScopes;
+import dev.jeka.core.api.file.JkBuildCache;
+import dev.jeka.core.api.file.JkPathSequence;
 import dev.jeka.core.api.java.JkJavadocMaker;
 import dev.jeka.core.api.system.JkLog;
 import dev.jeka.core.api.utils.JkUtilsIterable;
@@ -26,12 +28,21 @@ public class JkJavaProjectJavadocTasks {
      */
     public void run() {
         final JkJavaProject project = maker.project;
-        JkJavadocMaker.of(project.getSourceLayout().getSources(), maker.getOutLayout().getJavadocDir())
-        .withClasspath(maker.fetchDependenciesFor(JkJavaDepScopes.SCOPES_FOR_COMPILATION))
-        .andOptions(javadocOptions).process();
+        final JkPathSequence classpath = maker.fetchDependenciesFor(JkJavaDepScopes.SCOPES_FOR_COMPILATION);
+        maker.runCached(() -> JkBuildCache.fingerprint("javadoc")
+                        .and(javadocOptions)
+                        .and(project.getSourceLayout().getSources())
+                        .andFiles(classpath),
+                () -> JkJavadocMaker.of(project.getSourceLayout().getSources(), maker.getOutLayout().getJavadocDir())
+                        .withClasspath(classpath)
+                        .andOptions(javadocOptions).process(),
+                maker.getOutLayout().getJavadocDir());
     }
 
-    public void runIfNecessary() {
+    /**
+     * As #run but perform only if not already done. Concurrent invocations wait for the running one to complete.
+     */
+    public synchronized void runIfNecessary() {
         if (done && !Files.exists(maker.getOutLayout().getJavadocDir())) {
             JkLog.info("Javadoc already generated. Won't perfom again");
         } else {
@@ -53,7 +64,7 @@ public class JkJavaProjectJavadocTasks {
         return this.setJavadocOptions(JkUtilsIterable.listOf(options));
     }
 
-    void reset() {
+    synchronized void reset() {
         done = false;
     }
 
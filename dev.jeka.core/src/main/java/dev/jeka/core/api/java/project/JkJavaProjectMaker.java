@@ -1,17 +1,29 @@
 package dev.jeka.core.api.java.project;
 
 import dev.jeka.core.api.depmanagement.*;
+import dev.jeka.core.api.file.JkBuildCache;
 import dev.jeka.core.api.file.JkFileSystemLocalizable;
 import dev.jeka.core.api.file.JkPathSequence;
 import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.file.JkPathTreeSet;
 import dev.jeka.core.api.function.JkRunnables;
+import dev.jeka.core.api.java.JkClasspathAbi;
+import dev.jeka.core.api.java.JkJavaCompileSpec;
+import dev.jeka.core.api.java.JkManifest;
 import dev.jeka.core.api.system.JkException;
 import dev.jeka.core.api.system.JkLog;
 import dev.jeka.core.tool.JkConstants;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
 
 /**
  * Mainly an artifact producer for a Java project. It embeds also methods for publishing produced artifacts. <p>
@@ -43,6 +55,16 @@ public final class JkJavaProjectMaker implements JkArtifactProducer, JkFileSyste
 
     private boolean failOnDependencyResolutionError = true;
 
+    private boolean singlePassResolution = true;
+
+    private JkResolveResult allScopesResolveResult;
+
+    private JkBuildCache buildCache;
+
+    private boolean parallelArtifacts;
+
+    private final Map<JkArtifactId, ArtifactProduction> artifactsInProgress = new ConcurrentHashMap<>();
+
     private final JkJavaProjectCompileTasks tasksForCompilation;
 
     private final JkJavaProjectTestTasks tasksForTesting;
@@ -125,16 +147,146 @@ public final class JkJavaProjectMaker implements JkArtifactProducer, JkFileSyste
         return this;
     }
 
+    /**
+     * Produces the specified artifact. If the artifact is currently being produced by another thread, this method
+     * waits for this production to complete instead of producing it a second time.
+     */
     @Override
     public void makeArtifact(JkArtifactId artifactId) {
-        if (artifactRunnables.containsKey(artifactId)) {
+        makeArtifacts(Collections.singletonList(artifactId));
+    }
+
+    /**
+     * Produces the specified artifacts. If parallel artifact production is on, artifacts are produced concurrently :
+     * tasks they have in common (as compilation or tests) are executed once, while independent tasks (as creating
+     * sources jar or javadoc) do not wait for each other.
+     */
+    @Override
+    public void makeArtifacts(Iterable<JkArtifactId> artifactIds) {
+        produce(register(artifactIds, false));
+    }
+
+    @Override
+    public void makeMissingArtifacts(Iterable<JkArtifactId> artifactIds) {
+        produce(register(artifactIds, true));
+    }
+
+    /*
+     * Registers the productions of the specified artifacts this thread is in charge of. Checking that an artifact
+     * is missing and registering its production is atomic, so an artifact is never produced twice concurrently.
+     * Artifacts being produced by other threads are waited for.
+     */
+    private Map<JkArtifactId, ArtifactProduction> register(Iterable<JkArtifactId> artifactIds, boolean onlyMissing) {
+        final Map<JkArtifactId, ArtifactProduction> result = new LinkedHashMap<>();
+        final List<ArtifactProduction> concurrentProductions = new LinkedList<>();
+        for (final JkArtifactId artifactId : artifactIds) {
+            if (!artifactRunnables.containsKey(artifactId)) {
+                abort(result);
+                throw new IllegalArgumentException("No artifact " + artifactId + " is defined on project "
+                        + this.project);
+            }
+            final ArtifactProduction production = new ArtifactProduction();
+            final ArtifactProduction registered = artifactsInProgress.computeIfAbsent(artifactId,
+                    id -> onlyMissing && Files.exists(getArtifactPath(id)) ? null : production);
+            if (registered == production) {
+                result.put(artifactId, production);
+            } else if (registered == null) {
+                JkLog.info("Artifact " + getArtifactPath(artifactId) + " already exist ... won't process.");
+            } else if (registered.thread == Thread.currentThread()) {
+                abort(result);
+                throw new JkException("Artifact " + artifactId + " of project " + this.project + " is requested "
+                        + "while being produced : check for cycles between artifacts.");
+            } else {
+                JkLog.info("Artifact " + artifactId + " is being produced concurrently. Wait for it.");
+                concurrentProductions.add(registered);
+            }
+        }
+        try {
+            concurrentProductions.forEach(production -> await(production.future));
+        } catch (RuntimeException | Error e) {
+            abort(result);
+            throw e;
+        }
+        return result;
+    }
+
+    private void produce(Map<JkArtifactId, ArtifactProduction> productions) {
+        try {
+            if (!parallelArtifacts || productions.size() < 2) {
+                productions.forEach(this::produce);
+                return;
+            }
+            final int threadCount = Math.min(productions.size(), Runtime.getRuntime().availableProcessors());
+            final ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+            try {
+                final List<Future<?>> futures = new LinkedList<>();
+                productions.forEach((artifactId, production) ->
+                        futures.add(executorService.submit(() -> produce(artifactId, production))));
+                for (final Future<?> future : futures) {
+                    await(future);
+                }
+            } finally {
+                executorService.shutdownNow();
+            }
+        } finally {
+            abort(productions);
+        }
+    }
+
+    private void produce(JkArtifactId artifactId, ArtifactProduction production) {
+        production.thread = Thread.currentThread();
+        try {
             Path resultFile =  project.getBaseDir().relativize(tasksForPackaging.getArtifactFile(artifactId));
             JkLog.startTask("Producing artifact file " + resultFile);
             this.artifactRunnables.get(artifactId).run();
             JkLog.endTask();
             this.getTasksForPackaging().checksum(resultFile);
-        } else {
-            throw new IllegalArgumentException("No artifact " + artifactId + " is defined on project " + this.project);
+            production.future.complete(null);
+        } catch (RuntimeException | Error e) {
+            production.future.completeExceptionally(e);
+            throw e;
+        } finally {
+            artifactsInProgress.remove(artifactId, production);
+        }
+    }
+
+    // Releases registered productions that did not run, so threads waiting for them do not wait forever
+    private void abort(Map<JkArtifactId, ArtifactProduction> productions) {
+        productions.forEach((artifactId, production) -> {
+            if (production.future.completeExceptionally(new JkException("Production of artifact " + artifactId
+                    + " has been aborted."))) {
+                artifactsInProgress.remove(artifactId, production);
+            }
+        });
+    }
+
+    /**
+     * If <code>true</code>, artifacts are produced concurrently when several are requested at once.
+     * Default is <code>false</code>.
+     */
+    public JkJavaProjectMaker setParallelArtifacts(boolean parallelArtifacts) {
+        this.parallelArtifacts = parallelArtifacts;
+        return this;
+    }
+
+    public boolean isParallelArtifacts() {
+        return parallelArtifacts;
+    }
+
+    private static void await(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JkException("Interrupted while producing artifacts.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
         }
     }
 
@@ -193,22 +345,54 @@ public final class JkJavaProjectMaker implements JkArtifactProducer, JkFileSyste
 
     /**
      * Returns lib paths standing for the resolution of this project dependencies for the specified dependency scopes.
+     * In single pass resolution mode, dependencies are resolved once for all project scopes and the result is sliced
+     * per requested scopes.
      */
-    public JkPathSequence fetchDependenciesFor(JkScope... scopes) {
+    public synchronized JkPathSequence fetchDependenciesFor(JkScope... scopes) {
         final Set<JkScope> scopeSet = new HashSet<>(Arrays.asList(scopes));
-        return dependencyCache.computeIfAbsent(scopeSet,
-                scopes1 -> {
-                    JkResolveResult resolveResult =
-                            getDependencyResolver().resolve(getScopeDefaultedDependencies(), scopes);
-                    JkResolveResult.JkErrorReport report = resolveResult.getErrorReport();
-                    if (report.hasErrors()) {
-                        if (failOnDependencyResolutionError) {
-                            throw new JkException(report.toString());
-                        }
-                        JkLog.warn(report.toString());
-                    }
-                    return resolveResult.getFiles();
-                });
+        return dependencyCache.computeIfAbsent(scopeSet, scopes1 -> {
+            final JkDependencySet dependencies = getScopeDefaultedDependencies();
+            final Set<JkScope> allScopes = allScopes(dependencies);
+            final JkResolveResult resolveResult;
+            if (singlePassResolution && !scopeSet.isEmpty() && allScopes.containsAll(scopeSet)) {
+                if (allScopesResolveResult == null) {
+                    allScopesResolveResult = getDependencyResolver().resolve(dependencies, allScopes);
+                }
+                resolveResult = allScopesResolveResult.withScopesOnly(scopes);
+            } else {
+                resolveResult = getDependencyResolver().resolve(dependencies, scopes);
+            }
+            final JkResolveResult.JkErrorReport report = resolveResult.getErrorReport();
+            if (report.hasErrors()) {
+                if (failOnDependencyResolutionError) {
+                    throw new JkException(report.toString());
+                }
+                JkLog.warn(report.toString());
+            }
+            return resolveResult.getFiles();
+        });
+    }
+
+    // Standard Java scopes plus custom ones dependencies are declared with
+    private static Set<JkScope> allScopes(JkDependencySet dependencies) {
+        final Set<JkScope> result = new LinkedHashSet<>(Arrays.asList(JkJavaDepScopes.COMPILE,
+                JkJavaDepScopes.PROVIDED, JkJavaDepScopes.RUNTIME, JkJavaDepScopes.TEST));
+        result.addAll(dependencies.getInvolvedScopes());
+        return result;
+    }
+
+    /**
+     * If <code>true</code>, dependencies are resolved in a single pass for compile, provided, runtime and test
+     * scopes, then lib paths for each scope are derived from the resolved dependency tree. Otherwise, a resolution
+     * occurs for each distinct set of scopes dependencies are fetched for. Default is <code>true</code>.
+     */
+    public JkJavaProjectMaker setSinglePassResolution(boolean singlePassResolution) {
+        this.singlePassResolution = singlePassResolution;
+        return this;
+    }
+
+    public boolean isSinglePassResolution() {
+        return singlePassResolution;
     }
 
     /**
@@ -249,21 +433,81 @@ public final class JkJavaProjectMaker implements JkArtifactProducer, JkFileSyste
     @Override
     public JkPathSequence fetchRuntimeDependencies(JkArtifactId artifactFileId) {
         if (artifactFileId.equals(getMainArtifactId())) {
-            return this.getDependencyResolver().resolve(
-                    this.project.getDependencies().withDefaultScopes(JkJavaDepScopes.COMPILE_AND_RUNTIME), JkJavaDepScopes.RUNTIME).getFiles();
+            return fetchDependenciesFor(JkJavaDepScopes.RUNTIME);
         } else if (artifactFileId.isClassifier("test") && artifactFileId.isExtension("jar")) {
-            return this.getDependencyResolver().resolve(
-                    this.project.getDependencies().withDefaultScopes(JkJavaDepScopes.COMPILE_AND_RUNTIME), JkJavaDepScopes.SCOPES_FOR_TEST).getFiles();
+            return fetchDependenciesFor(JkJavaDepScopes.SCOPES_FOR_TEST);
         } else {
             return JkPathSequence.of();
         }
     }
 
-    JkJavaProjectMaker cleanDependencyCache() {
+    synchronized JkJavaProjectMaker cleanDependencyCache() {
         dependencyCache.clear();
+        allScopesResolveResult = null;
+        return this;
+    }
+
+    // Build cache -----------------------------------------------
+
+    /**
+     * Returns the build cache used to restore compilation, test and packaging outputs, or <code>null</code> if
+     * no build cache is used.
+     */
+    public JkBuildCache getBuildCache() {
+        return buildCache;
+    }
+
+    /**
+     * Sets the build cache to be used to restore outputs of compilation, test and packaging tasks whose inputs are
+     * unchanged. Set <code>null</code> to not use any cache, which is the default.
+     */
+    public JkJavaProjectMaker setBuildCache(JkBuildCache buildCache) {
+        this.buildCache = buildCache;
         return this;
     }
 
+    /*
+     * Runs the specified task or restores its outputs from the build cache if any.
+     */
+    void runCached(Supplier<JkBuildCache.JkFingerprint> fingerprint, Runnable task, Path... outputs) {
+        if (buildCache == null) {
+            task.run();
+        } else {
+            buildCache.runOrRestore(fingerprint.get(), task, outputs);
+        }
+    }
+
+    /*
+     * Fingerprint of a compilation, excluding absolute output dir and classpath locations so that it does
+     * not depend on project location. Classpath is taken in account through its ABI only, so rebuilding a
+     * dependency without changing its ABI does not invalidate the compilation. Annotation processors are taken in
+     * account by their whole content.
+     */
+    static JkBuildCache.JkFingerprint compileFingerprint(String taskName, JkJavaCompileSpec compileSpec,
+                                                         JkPathTreeSet sources) {
+        final JkBuildCache.JkFingerprint result = JkBuildCache.fingerprint(taskName)
+                .and(System.getProperty("java.version"));
+        for (final Iterator<String> it = compileSpec.getOptions().iterator(); it.hasNext(); ) {
+            final String option = it.next();
+            if (("-d".equals(option) || "-cp".equals(option)) && it.hasNext()) {
+                it.next();
+            } else {
+                result.and(option);
+            }
+        }
+        return result.and(JkClasspathAbi.hash(compileSpec.getClasspath())).and(sources);
+    }
+
+    static String manifestContent(JkManifest manifest) {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            manifest.getManifest().write(outputStream);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
     // Clean -----------------------------------------------
 
     /**
@@ -344,5 +588,14 @@ public final class JkJavaProjectMaker implements JkArtifactProducer, JkFileSyste
         return this.project.toString();
     }
 
+    private static final class ArtifactProduction {
+
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        // Thread producing the artifact, initially the one registering the production
+        volatile Thread thread = Thread.currentThread();
+
+    }
+
 
 }
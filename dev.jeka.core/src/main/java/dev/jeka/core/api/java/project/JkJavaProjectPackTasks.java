@@ -2,11 +2,15 @@ package dev.jeka.core.api.java.project;
 
 import dev.jeka.core.api.depmanagement.JkArtifactId;
 import dev.jeka.core.api.depmanagement.JkVersionedModule;
+import dev.jeka.core.api.file.JkBuildCache;
 import dev.jeka.core.api.file.JkPathFile;
 import dev.jeka.core.api.file.JkPathMatcher;
 import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.file.JkPathTreeSet;
+import dev.jeka.core.api.file.JkZipper;
 import dev.jeka.core.api.java.JkClasspath;
 import dev.jeka.core.api.java.JkJarPacker;
+import dev.jeka.core.api.java.JkManifest;
 import dev.jeka.core.api.system.JkLog;
 import dev.jeka.core.api.utils.JkUtilsAssert;
 
@@ -28,6 +32,8 @@ public class JkJavaProjectPackTasks {
 
     private PathMatcher fatJarFilter = JkPathMatcher.of(); // take all
 
+    private JkZipper zipper = JkZipper.of();
+
     JkJavaProjectPackTasks(
             JkJavaProjectMaker maker) {
         this.maker = maker;
@@ -68,10 +74,14 @@ public class JkJavaProjectPackTasks {
         maker.getTasksForCompilation().runIfNecessary();
         maker.getTasksForTesting().runIfNecessary();
         JkJavaProject project = maker.project;
-        JkJarPacker.of(maker.getOutLayout().getClassDir())
-                .withManifest(project.getManifest())
-                .withExtraFiles(project.getExtraFilesToIncludeInJar())
-                .makeJar(target);
+        maker.runCached(() -> jarFingerprint("jar", maker.getOutLayout().getClassDir())
+                        .and(project.getExtraFilesToIncludeInJar()),
+                () -> JkJarPacker.of(maker.getOutLayout().getClassDir())
+                        .withManifest(project.getManifest())
+                        .withExtraFiles(project.getExtraFilesToIncludeInJar())
+                        .withZipper(zipper)
+                        .makeJar(target),
+                target);
     }
 
 
@@ -82,11 +92,15 @@ public class JkJavaProjectPackTasks {
         JkJarPacker.of( maker.getOutLayout().getClassDir())
                 .withManifest(maker.project.getManifest())
                 .withExtraFiles(maker.project.getExtraFilesToIncludeInJar())
+                .withZipper(zipper)
                 .makeFatJar(target, classpath, this.fatJarFilter);
     }
 
     public void createSourceJar(Path target) {
-        maker.project.getSourceLayout().getSources().and(maker.getOutLayout().getGeneratedSourceDir()).zipTo(target);
+        JkPathTreeSet sources = maker.project.getSourceLayout().getSources()
+                .and(maker.getOutLayout().getGeneratedSourceDir());
+        maker.runCached(() -> JkBuildCache.fingerprint("sources-jar").and(zipperSettings()).and(sources),
+                () -> sources.zipTo(target, zipper), target);
     }
 
     void createJavadocJar(Path target) {
@@ -96,19 +110,37 @@ public class JkJavaProjectPackTasks {
             throw new IllegalStateException("No javadoc has not been generated in " + javadocDir.toAbsolutePath()
                     + ". Can't create a javadoc jar until javadoc files has been generated.");
         }
-        JkPathTree.of(javadocDir).zipTo(target);
+        maker.runCached(() -> JkBuildCache.fingerprint("javadoc-jar").and(zipperSettings())
+                        .and(JkPathTree.of(javadocDir)),
+                () -> JkPathTree.of(javadocDir).zipTo(target, zipper), target);
     }
 
     public void createTestJar(Path target) {
         maker.getTasksForCompilation().runIfNecessary();
         maker.getTasksForTesting().runIfNecessary();
-        JkJarPacker.of(maker.getOutLayout().getTestClassDir())
-                .withManifest(maker.project.getManifest())
-                .makeJar(target);
+        maker.runCached(() -> jarFingerprint("test-jar", maker.getOutLayout().getTestClassDir()),
+                () -> JkJarPacker.of(maker.getOutLayout().getTestClassDir())
+                        .withManifest(maker.project.getManifest())
+                        .withZipper(zipper)
+                        .makeJar(target),
+                target);
+    }
+
+    private JkBuildCache.JkFingerprint jarFingerprint(String taskName, Path classDir) {
+        return JkBuildCache.fingerprint(taskName)
+                .and(zipperSettings())
+                .and(JkPathTree.of(classDir).andMatching(false, JkManifest.PATH))
+                .and(JkJavaProjectMaker.manifestContent(maker.project.getManifest()));
+    }
+
+    // Settings changing the bytes of produced archives
+    private String zipperSettings() {
+        return "compressionLevel=" + zipper.getCompressionLevel()
+                + ",reproducibleTimestamps=" + zipper.isReproducibleTimestamps();
     }
 
     void createTestSourceJar(Path target) {
-        maker.project.getSourceLayout().getTests().zipTo(target);
+        maker.project.getSourceLayout().getTests().zipTo(target, zipper);
     }
 
     /**
@@ -140,18 +172,33 @@ public class JkJavaProjectPackTasks {
         return this;
     }
 
+    /**
+     * Defines the zipper used to write jar files. By default, entries are compressed with the default level and get
+     * reproducible timestamps.
+     */
+    public JkJavaProjectPackTasks setZipper(JkZipper zipper) {
+        JkUtilsAssert.notNull(zipper, "Zipper can not be null.");
+        this.zipper = zipper;
+        return this;
+    }
+
+    public JkZipper getZipper() {
+        return zipper;
+    }
+
     /**
      * Creates a checksum file of each specified digest algorithm for the specified file.
      * Checksum files will be created in same folder as their respecting artifact files with the same name suffixed
      * by '.' and the name of the checksumm algorithm. <br/>.
      */
     void checksum(Path fileToChecksum) {
-        for (String algo : checksumAlgorithms) {
-            JkLog.startTask("Creating checksum " + algo + " for file " + fileToChecksum);
-            JkPathFile.of(fileToChecksum).checksum(algo);
-            JkLog.endTask();
+        if (checksumAlgorithms.length == 0) {
+            return;
         }
-
+        JkLog.startTask("Creating checksums " + String.join(", ", checksumAlgorithms) + " for file "
+                + fileToChecksum);
+        JkPathFile.of(fileToChecksum).checksum(checksumAlgorithms);
+        JkLog.endTask();
     }
 
 }
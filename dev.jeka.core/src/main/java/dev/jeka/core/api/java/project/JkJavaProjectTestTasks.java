@@ -1,20 +1,25 @@
 package dev.jeka.core.api.java.project;
 
 import dev.jeka.core.api.depmanagement.JkJavaDepScopes;
+import dev.jeka.core.api.file.JkBuildCache;
 import dev.jeka.core.api.file.JkPathMatcher;
 import dev.jeka.core.api.file.JkPathSequence;
+import dev.jeka.core.api.file.JkPathTree;
 import dev.jeka.core.api.file.JkPathTreeSet;
 import dev.jeka.core.api.file.JkResourceProcessor;
 import dev.jeka.core.api.function.JkRunnables;
 import dev.jeka.core.api.java.JkClasspath;
 import dev.jeka.core.api.java.JkJavaCompileSpec;
 import dev.jeka.core.api.java.JkJavaCompiler;
+import dev.jeka.core.api.java.JkJavaProcess;
 import dev.jeka.core.api.java.junit.JkJavaTestClasses;
 import dev.jeka.core.api.java.junit.JkUnit;
 import dev.jeka.core.api.system.JkLog;
 
 import java.nio.charset.Charset;
 import java.nio.file.Path;
+import java.util.Collections;
+import java.util.stream.Collectors;
 
 public class JkJavaProjectTestTasks {
 
@@ -42,7 +47,7 @@ public class JkJavaProjectTestTasks {
 
     private JkUnit runner;
 
-    public final JkRunnables testExecutor = JkRunnables.of(() -> runner.run(getTestClasses()));
+    public final JkRunnables testExecutor;
 
     private JkJavaCompiler compiler = JkJavaCompiler.ofJdk();
 
@@ -59,8 +64,13 @@ public class JkJavaProjectTestTasks {
                 .generateTo(maker.getOutLayout().getTestClassDir(), charset));
         compileRunner = JkRunnables.of(() -> {
             final JkJavaCompileSpec testCompileSpec = getTestCompileSpec();
-            compiler.compile(testCompileSpec);
+            maker.runCached(() -> JkJavaProjectMaker.compileFingerprint("test-compile", testCompileSpec,
+                    maker.project.getSourceLayout().getTests()),
+                    () -> compiler.compile(testCompileSpec), maker.getOutLayout().getTestClassDir(),
+                    JkJavaCompiler.getIncrementalIndexFile(maker.getOutLayout().getTestClassDir()));
         });
+        testExecutor = JkRunnables.of(() -> maker.runCached(this::testFingerprint,
+                () -> runner.run(getTestClasses()), maker.getOutLayout().getTestReportDir()));
         runner = getDefaultTester();
     }
 
@@ -94,6 +104,15 @@ public class JkJavaProjectTestTasks {
         return this;
     }
 
+    /**
+     * Sets if test compilation should recompile only test sources changed since the last compilation (and the ones
+     * depending on them). See {@link JkJavaCompiler#withIncremental(boolean)}.
+     */
+    public JkJavaProjectTestTasks setIncremental(boolean incremental) {
+        this.compiler = this.compiler.withIncremental(incremental);
+        return this;
+    }
+
 
     public JkUnit getRunner() {
         return runner;
@@ -114,6 +133,17 @@ public class JkJavaProjectTestTasks {
                 JkPathTreeSet.of(maker.getOutLayout().getTestClassDir()).andMatcher(testClassMatcher));
     }
 
+    /**
+     * Sets if only test classes impacted by changes since their last successful run should be executed. See
+     * {@link JkUnit#withTestImpactIndex(Path)}. The index is stored beside the test class dir.
+     */
+    public JkJavaProjectTestTasks setTestImpactAnalysis(boolean testImpactAnalysis) {
+        final Path dir = maker.getOutLayout().getTestClassDir().toAbsolutePath().normalize();
+        this.runner = runner.withTestImpactIndex(testImpactAnalysis
+                ? dir.resolveSibling(dir.getFileName().toString() + ".jkimpact") : null);
+        return this;
+    }
+
     public JkJavaProjectTestTasks setForkRun(boolean fork) {
         this.runner = runner.withForking(fork);
         return this;
@@ -148,6 +178,19 @@ public class JkJavaProjectTestTasks {
                 .and(maker.fetchDependenciesFor(JkJavaDepScopes.SCOPES_FOR_TEST));
     }
 
+    private JkBuildCache.JkFingerprint testFingerprint() {
+        final JkJavaProcess forkedProcess = runner.getForkedProcess();
+        return JkBuildCache.fingerprint("test")
+                .and(System.getProperty("java.version"))
+                .and(forkedProcess == null ? "in-process" : "forked", Integer.toString(runner.getForkCount()))
+                .and(forkedProcess == null ? Collections.emptyList() : forkedProcess.getJvmOptions())
+                .and(JkPathTree.of(maker.getOutLayout().getTestClassDir()))
+                .and(JkPathTree.of(maker.getOutLayout().getClassDir()))
+                .andFiles(maker.fetchDependenciesFor(JkJavaDepScopes.SCOPES_FOR_TEST))
+                .and(getTestClasses().getClassesToTest().getRelativeFiles().stream().map(Path::toString)
+                        .sorted().collect(Collectors.toList()));
+    }
+
     public boolean isTestSkipped() {
         return skipTests;
     }
@@ -185,9 +228,10 @@ public class JkJavaProjectTestTasks {
     }
 
     /**
-     * As #run but perfom only if not already done.
+     * As #run but perfom only if not already done. Concurrent invocations wait for the
+     * running one to complete.
      */
-    public void runIfNecessary() {
+    public synchronized void runIfNecessary() {
         if (done) {
             JkLog.trace("Test task already done. Won't perfom again.");
         } else if (skipTests) {
@@ -198,7 +242,7 @@ public class JkJavaProjectTestTasks {
         }
     }
 
-    void reset() {
+    synchronized void reset() {
         done = false;
     }
 
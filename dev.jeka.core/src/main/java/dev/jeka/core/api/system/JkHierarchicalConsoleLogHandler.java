@@ -5,9 +5,10 @@ import java.nio.charset.Charset;
 
 public final class JkHierarchicalConsoleLogHandler implements JkLog.EventLogHandler, Serializable {
 
-    private static final PrintStream FORMER_OUT = System.out;
+    // Streams in place when the last handler has been registered
+    private static volatile PrintStream formerOut = System.out;
 
-    private static final PrintStream FORMER_ERR = System.err;
+    private static volatile PrintStream formerErr = System.err;
 
     private static final Charset UTF8 = Charset.forName("UTF-8");
 
@@ -28,13 +29,15 @@ public final class JkHierarchicalConsoleLogHandler implements JkLog.EventLogHand
     private transient MarginStream err = new MarginStream(System.err);
 
     {
+        formerOut = System.out;
+        formerErr = System.err;
         System.setOut(new PrintStream(out));
         System.setErr(new PrintStream(err));
     }
 
     public static void restore() {
-        System.setOut(FORMER_OUT);
-        System.setErr(FORMER_ERR);
+        System.setOut(formerOut);
+        System.setErr(formerErr);
     }
 
     private void readObject(ObjectInputStream objectInputStream) {
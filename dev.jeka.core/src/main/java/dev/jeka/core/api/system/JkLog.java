@@ -168,6 +168,17 @@ public final class JkLog implements Serializable {
         endTask("Done in %d milliseconds.");
     }
 
+    /**
+     * Forgets the tasks started but not ended, as it happens when a task fails. The nesting level, shared by all
+     * threads and class loaders, is reset to 0 while only start times recorded by the current thread are
+     * discarded. This is intended for hosts running several builds one after another in the same JVM, so a build
+     * does not inherit the nesting of the previous one; it must not be invoked while other threads run tasks.
+     */
+    public static void resetTasks() {
+        currentNestedTaskLevel.set(0);
+        START_TIMES.remove();
+    }
+
     public static boolean isVerbose() {
         return verbosity == Verbosity.VERBOSE;
     }
@@ -337,6 +337,13 @@ public final class JkProcess implements Runnable {
         return this.command;
     }
 
+    /**
+     * Returns the parameters passed to the command launched by this process.
+     */
+    public List<String> getParams() {
+        return Collections.unmodifiableList(parameters);
+    }
+
     @Override
     public String toString() {
         return this.command + " " + JkUtilsString.join(parameters, " ");
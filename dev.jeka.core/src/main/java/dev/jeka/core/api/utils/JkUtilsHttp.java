@@ -0,0 +1,181 @@
+package dev.jeka.core.api.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Utility class for dealing with HTTP connections. <p>
+ * The JDK keeps connections alive and reuses them for next requests to the same host, provided that responses are
+ * fully read and connections are not explicitly disconnected. Methods of this class help to do so, and to issue
+ * conditional requests so unchanged resources are not downloaded again.
+ */
+public final class JkUtilsHttp {
+
+    private static final String MAX_CONNECTIONS_PROPERTY = "http.maxConnections";
+
+    private static final String ETAG = "ETag";
+
+    private static final String LAST_MODIFIED = "Last-Modified";
+
+    private static final String VALIDATORS_SUFFIX = ".validators";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Idle connections kept alive per host, enough for parallel downloads
+    private static final int MAX_KEEP_ALIVE_CONNECTIONS = 16;
+
+    // The JDK reads this property once, when the first HTTP connection is opened
+    static {
+        if (System.getProperty(MAX_CONNECTIONS_PROPERTY) == null) {
+            System.setProperty(MAX_CONNECTIONS_PROPERTY, Integer.toString(MAX_KEEP_ALIVE_CONNECTIONS));
+        }
+    }
+
+    private JkUtilsHttp() {
+    }
+
+    /**
+     * Opens a connection to the specified url. Opening connections through this method ensures that the JDK keeps
+     * up to 16 idle connections alive per host, unless the <code>http.maxConnections</code> system property is
+     * specified.
+     */
+    public static URLConnection openConnection(URL url) throws IOException {
+        return url.openConnection();
+    }
+
+    /**
+     * Reads remaining content of the specified HTTP connection response, then closes its streams without
+     * disconnecting, so the underlying connection returns to the keep-alive pool. Other connections are just closed.
+     * Does nothing if the specified connection is <code>null</code>.
+     */
+    public static void release(URLConnection connection) {
+        if (connection == null) {
+            return;
+        }
+        if (!(connection instanceof HttpURLConnection)) {
+            try {
+                connection.getInputStream().close();
+            } catch (final IOException e) {
+                // ignore
+            }
+            return;
+        }
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream inputStream = connection.getInputStream()) {
+            while (inputStream.read(buffer) != -1) {
+                // Skip content
+            }
+        } catch (final IOException e) {
+            // Error responses have no input stream
+        }
+        try (InputStream errorStream = ((HttpURLConnection) connection).getErrorStream()) {
+            if (errorStream != null) {
+                while (errorStream.read(buffer) != -1) {
+                    // Skip content
+                }
+            }
+        } catch (final IOException e) {
+            // ignore
+        }
+    }
+
+    /**
+     * Makes the specified connection conditional : if the specified file has been downloaded along validators
+     * stored by {@link #storeValidators(URLConnection, Path)}, the server will answer
+     * {@link HttpURLConnection#HTTP_NOT_MODIFIED} rather than sending the same content again.
+     * Must be called before the connection is established.
+     */
+    public static void addConditionalHeaders(URLConnection connection, Path downloadedFile) {
+        final Path validatorsFile = validatorsFile(downloadedFile);
+        if (!Files.exists(downloadedFile) || !Files.exists(validatorsFile)) {
+            return;
+        }
+        for (final String line : JkUtilsPath.readAllLines(validatorsFile)) {
+            final String name = JkUtilsString.substringBeforeFirst(line, ":");
+            final String value = JkUtilsString.substringAfterFirst(line, ":").trim();
+            if (ETAG.equals(name)) {
+                connection.setRequestProperty("If-None-Match", value);
+            } else if (LAST_MODIFIED.equals(name)) {
+                connection.setRequestProperty("If-Modified-Since", value);
+            }
+        }
+    }
+
+    /**
+     * Makes the specified connection resume the download of the specified partially downloaded file, provided
+     * validators of the response it comes from have been stored by {@link #storeValidators(URLConnection, Path)}.
+     * The request carries an 'If-Range' header, so the server answers with the whole content and a
+     * {@link HttpURLConnection#HTTP_OK} status, instead of {@link HttpURLConnection#HTTP_PARTIAL}, if the resource
+     * has changed since. Must be called before the connection is established.
+     * @return The number of bytes to resume from, or 0 if the download can not be resumed.
+     */
+    public static long addResumeHeaders(URLConnection connection, Path partialFile) {
+        final Path validatorsFile = validatorsFile(partialFile);
+        if (!Files.isRegularFile(partialFile) || !Files.exists(validatorsFile)) {
+            return 0;
+        }
+        String validator = null;
+        for (final String line : JkUtilsPath.readAllLines(validatorsFile)) {
+            final String name = JkUtilsString.substringBeforeFirst(line, ":");
+            final String value = JkUtilsString.substringAfterFirst(line, ":").trim();
+            if (ETAG.equals(name) && !value.startsWith("W/")) {  // Weak ETags can not be used for ranges
+                validator = value;
+                break;
+            } else if (LAST_MODIFIED.equals(name)) {
+                validator = value;
+            }
+        }
+        final long length = partialFile.toFile().length();
+        if (validator == null || length == 0) {
+            return 0;
+        }
+        connection.setRequestProperty("Range", "bytes=" + length + "-");
+        connection.setRequestProperty("If-Range", validator);
+        connection.setRequestProperty("Accept-Encoding", "identity");
+        return length;
+    }
+
+    /**
+     * Deletes validators stored aside the specified downloaded file, if any.
+     */
+    public static void deleteValidators(Path downloadedFile) {
+        JkUtilsPath.deleteIfExists(validatorsFile(downloadedFile));
+    }
+
+    /**
+     * Stores validators (ETag and Last-Modified headers) of the specified connection response aside the specified
+     * downloaded file, so next downloads of the same resource can be conditional.
+     */
+    public static void storeValidators(URLConnection connection, Path downloadedFile) {
+        final List<String> lines = new LinkedList<>();
+        if (connection.getHeaderField(ETAG) != null) {
+            lines.add(ETAG + ": " + connection.getHeaderField(ETAG));
+        }
+        if (connection.getHeaderField(LAST_MODIFIED) != null) {
+            lines.add(LAST_MODIFIED + ": " + connection.getHeaderField(LAST_MODIFIED));
+        }
+        final Path validatorsFile = validatorsFile(downloadedFile);
+        try {
+            if (lines.isEmpty()) {
+                Files.deleteIfExists(validatorsFile);
+            } else {
+                Files.write(validatorsFile, lines, StandardCharsets.UTF_8);
+            }
+        } catch (final IOException e) {
+            throw JkUtilsThrowable.unchecked(e);
+        }
+    }
+
+    private static Path validatorsFile(Path downloadedFile) {
+        return downloadedFile.resolveSibling(downloadedFile.getFileName() + VALIDATORS_SUFFIX);
+    }
+
+}
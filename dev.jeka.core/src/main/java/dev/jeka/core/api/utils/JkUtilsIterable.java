@@ -159,6 +159,20 @@ public final class JkUtilsIterable {
         return result;
     }
 
+    /**
+     * Creates a thread-safe map holding at most the specified number of entries. When full, the least recently
+     * accessed entry is evicted to make room for a new one.
+     */
+    public static <K, V> Map<K, V> lruMapOf(int maxSize) {
+        return Collections.synchronizedMap(new LinkedHashMap<K, V>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
     private static <T> List<Iterable<T>> removeEmptyIt(Iterable<Iterable<T>> iterables) {
         final List<Iterable<T>> result = new LinkedList<>();
         for (final Iterable<T> iterable : iterables) {
@@ -0,0 +1,308 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.depmanagement.JkDependencyResolver;
+import dev.jeka.core.api.file.JkBuildCache;
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.system.JkHierarchicalConsoleLogHandler;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsSystem;
+
+import java.io.*;
+import java.net.*;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Long-lived JVM running Jeka builds on behalf of DaemonClient, so JIT-compiled code, the in-process java compiler,
+ * in-memory caches and def class loaders survive from one build to the next.
+ *
+ * Builds are run one at a time, in the order clients connect. Each project keeps its def class loader as long as
+ * the def sources and boot libs of the projects it involves are unchanged. System properties, standard streams,
+ * log verbosity and log task nesting are restored after each build, and dependency resolvers and results shared by
+ * the projects of a build are forgotten. The daemon exits after being idle for 3 hours.
+ *
+ * Protocol : the client sends its token, a command, its working dir and its arguments. The daemon answers with
+ * OUT/ERR frames (type byte, length, bytes) carrying the build output, then an EXIT frame carrying the exit code.
+ */
+final class Daemon {
+
+    static final String INFO_FILE_NAME = "daemon.properties";
+
+    static final String LOG_FILE_NAME = "daemon.log";
+
+    static final String PORT = "port";
+
+    static final String TOKEN = "token";
+
+    static final String RUN = "run";
+
+    static final String STOP = "stop";
+
+    static final byte OUT = 1;
+
+    static final byte ERR = 2;
+
+    static final byte EXIT = 3;
+
+    private static final long IDLE_TIMEOUT_MS = TimeUnit.HOURS.toMillis(3);
+
+    private final Path dir;
+
+    private final String token = UUID.randomUUID().toString();
+
+    private final Map<Path, ProjectClassLoader> classLoaders = new HashMap<>();
+
+    private Daemon(Path dir) {
+        this.dir = dir;
+    }
+
+    public static void main(String[] args) throws IOException {
+        JkUtilsSystem.disableUnsafeWarning();
+        JkHierarchicalConsoleLogHandler.setMaxLength(-1);  // Initialises log handler class while streams are the daemon ones
+        new Daemon(Paths.get(args[0])).serve();
+        System.exit(0);
+    }
+
+    /**
+     * Returns the port and token of the daemon attached to the specified directory, <code>null</code> if no daemon
+     * has been started there.
+     */
+    static Properties readInfo(Path dir) throws IOException {
+        final Path file = dir.resolve(INFO_FILE_NAME);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        final Properties properties = new Properties();
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            properties.load(inputStream);
+        } catch (final NoSuchFileException e) {
+            return null;
+        }
+        return properties.containsKey(PORT) && properties.containsKey(TOKEN) ? properties : null;
+    }
+
+    private void serve() throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            serverSocket.setSoTimeout((int) IDLE_TIMEOUT_MS);
+            writeInfo(serverSocket.getLocalPort());
+            System.out.println("Jeka daemon listening on port " + serverSocket.getLocalPort());
+            boolean running = true;
+            while (running) {
+                final Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (final SocketTimeoutException e) {
+                    System.out.println("Jeka daemon idle for too long, stopping.");
+                    break;
+                }
+                try (Socket client = socket) {
+                    running = handle(client);
+                } catch (final IOException | RuntimeException e) {
+                    e.printStackTrace(System.out);
+                }
+            }
+        } finally {
+            final Properties info = readInfo(dir);
+            if (info != null && token.equals(info.getProperty(TOKEN))) {
+                Files.deleteIfExists(dir.resolve(INFO_FILE_NAME));
+            }
+        }
+    }
+
+    // Returns false if the daemon has to stop
+    private boolean handle(Socket socket) throws IOException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        if (!token.equals(in.readUTF())) {
+            System.out.println("Connection with invalid token from " + socket.getRemoteSocketAddress() + " rejected.");
+            return true;
+        }
+        final String command = in.readUTF();
+        final Path workingDir = Paths.get(in.readUTF());
+        final String[] args = new String[in.readInt()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = in.readUTF();
+        }
+        if (STOP.equals(command)) {
+            System.out.println("Stop requested.");
+            writeFrame(out, ("Jeka daemon stopped." + System.lineSeparator()).getBytes(), OUT);
+            writeExit(out, 0);
+            return false;
+        }
+        System.out.println("Run " + String.join(" ", args) + " on " + workingDir);
+        writeExit(out, runBuild(workingDir, args, out));
+        return true;
+    }
+
+    private int runBuild(Path workingDir, String[] args, DataOutputStream out) {
+        final Thread thread = Thread.currentThread();
+        final ClassLoader formerClassLoader = thread.getContextClassLoader();
+        final Properties formerSystemProperties = (Properties) System.getProperties().clone();
+        final PrintStream formerOut = System.out;
+        final PrintStream formerErr = System.err;
+        final PrintStream clientOut = new PrintStream(new FrameOutputStream(out, OUT), true);
+        final PrintStream clientErr = new PrintStream(new FrameOutputStream(out, ERR), true);
+        final ProjectClassLoader projectClassLoader = classLoaderFor(workingDir, args);
+        System.setOut(clientOut);
+        System.setErr(clientErr);
+        thread.setContextClassLoader(projectClassLoader.classLoader);
+        JkLog.setVerbosity(JkLog.Verbosity.NORMAL);
+        try {
+            return Main.run(workingDir, args);
+        } catch (final Error e) {
+            e.printStackTrace(clientErr);
+            return 1;
+        } finally {
+            clientOut.flush();
+            clientErr.flush();
+            System.setOut(formerOut);
+            System.setErr(formerErr);
+            System.setProperties(formerSystemProperties);
+            thread.setContextClassLoader(formerClassLoader);
+            JkLog.resetTasks();
+            JkDependencyResolver.resetSession();
+            projectClassLoader.recordInvolvedProjects();
+        }
+    }
+
+    private ProjectClassLoader classLoaderFor(Path workingDir, String[] args) {
+        final Path projectDir = workingDir.toAbsolutePath().normalize();
+        final List<String> extraDependencies = new LinkedList<>();
+        for (final String arg : args) {
+            if (arg.startsWith("@")) {
+                extraDependencies.add(arg);
+            }
+        }
+        final ProjectClassLoader current = classLoaders.get(projectDir);
+        if (current != null && current.isUpToDate(extraDependencies)) {
+            return current;
+        }
+        if (current != null) {
+            System.out.println("Def sources of " + projectDir + " have changed, discarding its class loader.");
+            JkUtilsIO.closeQuietly(current.classLoader);
+        }
+        final ProjectClassLoader result = new ProjectClassLoader(projectDir, extraDependencies);
+        classLoaders.put(projectDir, result);
+        return result;
+    }
+
+    private void writeInfo(int port) throws IOException {
+        Files.createDirectories(dir);
+        final Properties properties = new Properties();
+        properties.setProperty(PORT, Integer.toString(port));
+        properties.setProperty(TOKEN, token);
+        final Path tempFile = dir.resolve(INFO_FILE_NAME + ".tmp");
+        try (OutputStream outputStream = Files.newOutputStream(tempFile)) {
+            properties.store(outputStream, "Jeka daemon");
+        }
+        Files.move(tempFile, dir.resolve(INFO_FILE_NAME), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void writeExit(DataOutputStream out, int code) throws IOException {
+        synchronized (out) {
+            out.writeByte(EXIT);
+            out.writeInt(code);
+            out.flush();
+        }
+    }
+
+    private static void writeFrame(DataOutputStream out, byte[] bytes, byte type) throws IOException {
+        synchronized (out) {
+            out.writeByte(type);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            out.flush();
+        }
+    }
+
+    /*
+     * Class loader where def classes of a project and of its imported projects get loaded, along the fingerprint
+     * of the sources they come from.
+     */
+    private static final class ProjectClassLoader {
+
+        private final URLClassLoader classLoader;
+
+        private final List<String> extraDependencies;
+
+        private final Set<Path> projectDirs = new LinkedHashSet<>();
+
+        private String fingerprint;
+
+        ProjectClassLoader(Path projectDir, List<String> extraDependencies) {
+            this.classLoader = new URLClassLoader(new URL[0], Daemon.class.getClassLoader());
+            this.extraDependencies = extraDependencies;
+            this.projectDirs.add(projectDir);
+            this.fingerprint = fingerprint();
+        }
+
+        boolean isUpToDate(List<String> extraDependencies) {
+            return this.extraDependencies.equals(extraDependencies) && this.fingerprint.equals(fingerprint());
+        }
+
+        // Def classes of imported projects are known only once the build has added them to the class loader
+        void recordInvolvedProjects() {
+            boolean added = false;
+            for (final URL url : classLoader.getURLs()) {
+                final Path path;
+                try {
+                    path = Paths.get(url.toURI());
+                } catch (final URISyntaxException | IllegalArgumentException e) {
+                    continue;
+                }
+                if (path.endsWith(JkConstants.DEF_BIN_DIR)) {
+                    added |= projectDirs.add(path.getParent().getParent().getParent().normalize());
+                }
+            }
+            if (added) {
+                this.fingerprint = fingerprint();
+            }
+        }
+
+        private String fingerprint() {
+            final JkBuildCache.JkFingerprint result = JkBuildCache.fingerprint("daemon-class-loader");
+            for (final Path projectDir : projectDirs) {
+                result.and(projectDir.toString())
+                        .and(JkPathTree.of(projectDir.resolve(JkConstants.DEF_DIR)))
+                        .and(JkPathTree.of(projectDir.resolve(JkConstants.BOOT_DIR)));
+            }
+            return result.get();
+        }
+
+    }
+
+    private static final class FrameOutputStream extends OutputStream {
+
+        private final DataOutputStream out;
+
+        private final byte type;
+
+        FrameOutputStream(DataOutputStream out, byte type) {
+            this.out = out;
+            this.type = type;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            synchronized (out) {
+                out.writeByte(type);
+                out.writeInt(length);
+                out.write(bytes, offset, length);
+                out.flush();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,185 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.system.JkLocator;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/*
+ * Command line side of the Jeka daemon. It forwards the command line to a daemon started with the same JDK and
+ * classpath, starting one if none is running, then prints the build output as it is streamed back.
+ * Only JDK classes are involved here so that the client JVM starts as fast as possible.
+ */
+final class DaemonClient {
+
+    static final String USE_DAEMON_OPTION = "-UseDaemon";
+
+    static final String USE_DAEMON_SHORT_OPTION = "-UD";
+
+    static final String STOP_DAEMON_OPTION = "-StopDaemon";
+
+    private static final long START_TIMEOUT_MS = 30_000;
+
+    private DaemonClient() {
+    }
+
+    static boolean isRequested(String[] args) {
+        for (final String arg : args) {
+            if (isDaemonOption(arg) || arg.equals(STOP_DAEMON_OPTION)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Runs the specified command line on the daemon and returns its exit code.
+     */
+    static int run(String[] args) {
+        return run(args, Paths.get(""));
+    }
+
+    /**
+     * Same as {@link #run(String[])} but the build runs in the specified working dir.
+     */
+    static int run(String[] args, Path workingDir) {
+        final List<String> buildArgs = new LinkedList<>();
+        boolean stop = false;
+        for (final String arg : args) {
+            if (arg.equals(STOP_DAEMON_OPTION)) {
+                stop = true;
+            } else if (!isDaemonOption(arg)) {
+                buildArgs.add(arg);
+            }
+        }
+        final Path daemonDir = daemonDir();
+        try {
+            Properties info = Daemon.readInfo(daemonDir);
+            Socket socket = info == null ? null : tryConnect(info);
+            if (stop) {
+                if (socket == null) {
+                    System.out.println("No Jeka daemon running.");
+                    return 0;
+                }
+                return send(socket, info, Daemon.STOP, workingDir, Collections.emptyList());
+            }
+            if (socket == null) {
+                info = start(daemonDir, info);
+                socket = connect(info);
+            }
+            return send(socket, info, Daemon.RUN, workingDir, buildArgs);
+        } catch (final IOException e) {
+            System.err.println("Communication with Jeka daemon failed : " + e.getMessage());
+            System.err.println("Daemon log is " + daemonDir.resolve(Daemon.LOG_FILE_NAME));
+            return 1;
+        }
+    }
+
+    /*
+     * A daemon is dedicated to a JDK and a classpath. The classpath may include project specific boot libs.
+     */
+    static Path daemonDir() {
+        final String key = System.getProperty("java.home") + File.pathSeparator
+                + System.getProperty("java.class.path");
+        final byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        final CRC32 crc = new CRC32();  // Cheaper to initialise than MessageDigest
+        crc.update(bytes, 0, bytes.length);
+        final String hash = Long.toHexString(crc.getValue()) + Integer.toHexString(key.hashCode());
+        return JkLocator.getJekaUserHomeDir().resolve("daemon").resolve(hash);
+    }
+
+    private static boolean isDaemonOption(String arg) {
+        return arg.equals(USE_DAEMON_OPTION) || arg.equals(USE_DAEMON_SHORT_OPTION)
+                || arg.equals(USE_DAEMON_OPTION + "=true") || arg.equals(USE_DAEMON_SHORT_OPTION + "=true");
+    }
+
+    private static Properties start(Path daemonDir, Properties staleInfo) throws IOException {
+        Files.createDirectories(daemonDir);
+        final List<String> command = new LinkedList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        for (final String jvmArg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (!jvmArg.startsWith("-agentlib") && !jvmArg.startsWith("-javaagent")
+                    && !jvmArg.startsWith("-Xrunjdwp") && !jvmArg.startsWith("-Xdebug")) {
+                command.add(jvmArg);
+            }
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Daemon.class.getName());
+        command.add(daemonDir.toString());
+        final File log = daemonDir.resolve(Daemon.LOG_FILE_NAME).toFile();
+        final Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(log))
+                .start();
+        process.getOutputStream().close();
+        final String staleToken = staleInfo == null ? null : staleInfo.getProperty(Daemon.TOKEN);
+        final long deadline = System.currentTimeMillis() + START_TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            final Properties info = Daemon.readInfo(daemonDir);
+            if (info != null && !info.getProperty(Daemon.TOKEN).equals(staleToken)) {
+                return info;
+            }
+            if (!process.isAlive()) {
+                throw new IOException("Daemon process exited with code " + process.exitValue());
+            }
+            try {
+                Thread.sleep(20);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+        throw new IOException("Daemon did not start within " + START_TIMEOUT_MS + " ms");
+    }
+
+    private static int send(Socket connectedSocket, Properties info, String command, Path workingDir,
+                            List<String> args) throws IOException {
+        try (Socket socket = connectedSocket) {
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeUTF(info.getProperty(Daemon.TOKEN));
+            out.writeUTF(command);
+            out.writeUTF(workingDir.toAbsolutePath().toString());
+            out.writeInt(args.size());
+            for (final String arg : args) {
+                out.writeUTF(arg);
+            }
+            out.flush();
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            while (true) {
+                final byte type = in.readByte();
+                if (type == Daemon.EXIT) {
+                    System.out.flush();
+                    System.err.flush();
+                    return in.readInt();
+                }
+                final byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                final PrintStream stream = type == Daemon.ERR ? System.err : System.out;
+                stream.write(bytes);
+                stream.flush();
+            }
+        }
+    }
+
+    private static Socket tryConnect(Properties info) {
+        try {
+            return connect(info);
+        } catch (final IOException e) {
+            return null;
+        }
+    }
+
+    private static Socket connect(Properties info) throws IOException {
+        return new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(info.getProperty(Daemon.PORT)));
+    }
+
+}
@@ -0,0 +1,183 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.depmanagement.*;
+import dev.jeka.core.api.file.JkBuildCache;
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.utils.JkUtilsPath;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedList;
+import java.util.List;
+
+/*
+ * Remembers, for a given project, the fingerprint of the last successful def compilation along the def classpath
+ * resolved for it. The state is stored in [project dir]/jeka/.work so that runs launched from the command line can
+ * reuse def classes and skip dependency resolution as long as def sources, @JkImport dependencies, repositories,
+ * boot libs and compile options are unchanged.
+ */
+final class DefCompileCache {
+
+    static final String FILE_NAME = "def-compile-cache.txt";
+
+    private static final String HEADER = "# Jeka def compilation cache v1";
+
+    private static final String NONE = "-";
+
+    private final Path file;
+
+    private String dependencyFingerprint = NONE;
+
+    private String classesFingerprint = NONE;
+
+    private List<Path> classpath = new LinkedList<>();
+
+    private DefCompileCache(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Loads the cache stored in the specified work directory. An absent or unreadable cache is considered empty.
+     */
+    static DefCompileCache of(Path workDir) {
+        final DefCompileCache result = new DefCompileCache(workDir.resolve(FILE_NAME));
+        if (!Files.exists(result.file)) {
+            return result;
+        }
+        final List<String> lines = JkUtilsPath.readAllLines(result.file);
+        if (lines.size() < 3 || !HEADER.equals(lines.get(0))) {
+            return result;
+        }
+        result.dependencyFingerprint = lines.get(1);
+        result.classesFingerprint = lines.get(2);
+        for (final String line : lines.subList(3, lines.size())) {
+            result.classpath.add(Paths.get(line));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the fingerprint of everything the def classpath resolution depends on : dependencies and repositories.
+     * Files participate through their path, size and last modification time so computing it stays cheap.
+     * Returns <code>null</code> if the resolution is not expected to be stable (dynamic versions).
+     */
+    static String dependencyFingerprint(JkDependencySet dependencies, JkRepoSet repos) {
+        final JkBuildCache.JkFingerprint fingerprint = JkBuildCache.fingerprint("def-classpath");
+        for (final JkScopedDependency scopedDependency : dependencies) {
+            final JkDependency dependency = scopedDependency.getDependency();
+            if (dependency instanceof JkModuleDependency) {
+                final JkModuleDependency moduleDependency = (JkModuleDependency) dependency;
+                if (moduleDependency.getVersion().isDynamic()) {
+                    return null;
+                }
+                fingerprint.and(scopedDependency.toString());
+            } else if (dependency instanceof JkFileDependency) {
+                for (final Path path : ((JkFileDependency) dependency).getFiles()) {
+                    fingerprint.and(stamp(path));
+                }
+            } else {
+                fingerprint.and(scopedDependency.toString());
+            }
+        }
+        for (final JkRepo repo : repos.getRepoList()) {
+            fingerprint.and(repo.toString());
+        }
+        return fingerprint.get();
+    }
+
+    /**
+     * Returns the fingerprint of everything the def classes compilation depends on. Resolved classpath files
+     * participate through their path, size and last modification time, so a jar changed under an unchanged
+     * dependency declaration (snapshot, re-downloaded or locally installed module) triggers a recompilation.
+     */
+    static String classesFingerprint(String dependencyFingerprint, List<Path> classpath, JkPathTree defSources,
+                                     List<String> compileOptions, List<String> importedFingerprints) {
+        final JkBuildCache.JkFingerprint fingerprint = JkBuildCache.fingerprint("def-classes")
+                .and(System.getProperty("java.version"))
+                .and(dependencyFingerprint);
+        for (final Path path : classpath) {
+            fingerprint.and(stamp(path));
+        }
+        return fingerprint
+                .and(defSources)
+                .and(compileOptions)
+                .and(importedFingerprints)
+                .get();
+    }
+
+    /**
+     * Returns the def classpath resolved for the specified dependency fingerprint or <code>null</code> if it is
+     * not known or if some of its files have disappeared.
+     */
+    List<Path> getClasspath(String dependencyFingerprint) {
+        if (dependencyFingerprint == null || !dependencyFingerprint.equals(this.dependencyFingerprint)) {
+            return null;
+        }
+        for (final Path path : classpath) {
+            if (!Files.exists(path)) {
+                return null;
+            }
+        }
+        return classpath;
+    }
+
+    /**
+     * Returns <code>true</code> if the specified class dir content has been compiled with the specified fingerprint.
+     */
+    boolean isUpToDate(String classesFingerprint, Path classDir) {
+        return classesFingerprint.equals(this.classesFingerprint) && Files.isDirectory(classDir)
+                && JkPathTree.of(classDir).count(1, false) > 0;
+    }
+
+    /**
+     * Forgets the last compilation, so a failing or interrupted compilation is never taken as up-to-date.
+     */
+    void invalidate() {
+        JkUtilsPath.deleteIfExists(file);
+        this.classesFingerprint = NONE;
+    }
+
+    /**
+     * Records a successful compilation.
+     * @param dependencyFingerprint <code>null</code> if the classpath must not be reused.
+     */
+    void store(String dependencyFingerprint, List<Path> classpath, String classesFingerprint) {
+        final StringBuilder content = new StringBuilder(HEADER).append("\n");
+        content.append(dependencyFingerprint == null ? NONE : dependencyFingerprint).append("\n");
+        content.append(classesFingerprint).append("\n");
+        if (dependencyFingerprint != null) {
+            classpath.forEach(path -> content.append(path.toAbsolutePath()).append("\n"));
+        }
+        JkUtilsPath.createDirectories(file.getParent());
+        final Path tempFile = file.resolveSibling(FILE_NAME + ".tmp");
+        JkUtilsPath.write(tempFile, content.toString().getBytes(StandardCharsets.UTF_8));
+        try {
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.dependencyFingerprint = dependencyFingerprint == null ? NONE : dependencyFingerprint;
+        this.classesFingerprint = classesFingerprint;
+        this.classpath = new LinkedList<>(classpath);
+    }
+
+    // Directories (IDE output dirs in dev mode) are only identified by their path
+    private static String stamp(Path path) {
+        if (!Files.isRegularFile(path)) {
+            return path.toAbsolutePath().toString();
+        }
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return path.toAbsolutePath() + "|" + attributes.size() + "|" + attributes.lastModifiedTime().toMillis();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
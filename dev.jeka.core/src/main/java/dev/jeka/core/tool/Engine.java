@@ -14,6 +14,7 @@ import dev.jeka.core.api.system.JkLog;
 import dev.jeka.core.api.utils.*;
 
 import java.lang.reflect.Method;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
@@ -31,7 +32,11 @@ import java.util.*;
  */
 final class Engine {
 
-    private final JkPathMatcher RUN_SOURCE_MATCHER = JkPathMatcher.of(true,"**.java").and(false, "**/_*", "_*");
+    // Ivy instances share the same cache so resolutions of concurrently compiled projects must not overlap
+    private static final Object RESOLVE_LOCK = new Object();
+
+    private static final JkPathMatcher RUN_SOURCE_MATCHER = JkPathMatcher.of(FileSystems.getDefault(),
+            JkUtilsIterable.listOf("**.java"), JkUtilsIterable.listOf("**/_*", "_*"));
 
     private final Path projectBaseDir;
 
@@ -43,6 +48,14 @@ final class Engine {
 
     private List<String> compileOptions = new LinkedList<>();
 
+    private List<Engine> importedEngines = Collections.emptyList();
+
+    // Runtime classpath of def classes, available once compiled
+    private LinkedHashSet<Path> defPath = new LinkedHashSet<>();
+
+    // Fingerprint of the def classes, available once compiled. Projects importing this one are recompiled when it changes.
+    private String defFingerprint = "";
+
     private final CommandResolver resolver;
 
     /**
@@ -120,32 +133,81 @@ final class Engine {
         this.compileOptions = parser.compileOptions();
     }
 
-    // Compiles and returns the runtime classpath
+    // Compiles def classes of this project and of the imported ones, then returns the runtime classpath.
+    // Imported projects are compiled before the ones importing them, independent projects being compiled concurrently.
     private JkPathSequence compile() {
-        final LinkedHashSet<Path> entries = new LinkedHashSet<>();
-        compile(new HashSet<>(), entries);
-        return JkPathSequence.of(entries).withoutDuplicates();
+        final Map<Path, Engine> engines = new HashMap<>();
+        engines.put(this.projectBaseDir, this);
+        final ProjectGraph<Engine> projectGraph = ProjectGraph.of(this, engine -> engine.projectBaseDir,
+                engine -> engine.importedEngines(engines));
+        projectGraph.run(Engine::compileProject, Environment.standardOptions.projectThreads);
+        return JkPathSequence.of(this.defPath).withoutDuplicates();
     }
 
-    private void compile(Set<Path>  yetCompiledProjects, LinkedHashSet<Path>  path) {
-        if (!this.resolver.hasDefSource() || yetCompiledProjects.contains(this.projectBaseDir)) {
-            return;
+    private List<Engine> importedEngines(Map<Path, Engine> engines) {
+        if (!this.resolver.hasDefSource()) {
+            return Collections.emptyList();
         }
-        yetCompiledProjects.add(this.projectBaseDir);
         preCompile(); // This enrich dependencies
+        if (!this.rootOfImportedRuns.isEmpty()) {
+            JkLog.info("Compile command classes of dependent projects : "
+                    + toRelativePaths(this.projectBaseDir, this.rootOfImportedRuns));
+        }
+        final List<Engine> result = new LinkedList<>();
+        for (final Path file : this.rootOfImportedRuns) {
+            result.add(engines.computeIfAbsent(file.toAbsolutePath().normalize(), Engine::new));
+        }
+        this.importedEngines = result;
+        return result;
+    }
+
+    // Imported projects are expected to be already compiled
+    private void compileProject() {
+        if (!this.resolver.hasDefSource()) {
+            return;
+        }
         final String msg = "Compiling def classes for project " + this.projectBaseDir.getFileName().toString();
         final long start = System.nanoTime();
         JkLog.startTask(msg);
-        final JkDependencyResolver runDependencyResolver = getRunDependencyResolver();
-        final JkResolveResult resolveResult = runDependencyResolver.resolve(this.computeRunDependencies());
-        if (resolveResult.getErrorReport().hasErrors()) {
-            JkLog.warn(resolveResult.getErrorReport().toString());
+        final boolean force = Environment.standardOptions.forceCompile;
+        final DefCompileCache cache = DefCompileCache.of(this.projectBaseDir.resolve(JkConstants.WORK_PATH));
+        final JkDependencySet dependencies = this.computeRunDependencies();
+        String dependencyFingerprint = DefCompileCache.dependencyFingerprint(dependencies, this.runRepos);
+        List<Path> resolvedPath = force ? null : cache.getClasspath(dependencyFingerprint);
+        if (resolvedPath != null) {
+            JkLog.trace("Def classpath taken from " + DefCompileCache.FILE_NAME);
+        } else {
+            final JkDependencyResolver runDependencyResolver = getRunDependencyResolver();
+            final JkResolveResult resolveResult;
+            synchronized (RESOLVE_LOCK) {
+                resolveResult = runDependencyResolver.resolve(dependencies);
+            }
+            if (resolveResult.getErrorReport().hasErrors()) {
+                JkLog.warn(resolveResult.getErrorReport().toString());
+                dependencyFingerprint = null;  // Don't let a partial classpath be reused
+            }
+            resolvedPath = resolveResult.getFiles().getEntries();
+        }
+        final LinkedHashSet<Path> path = new LinkedHashSet<>(resolvedPath);
+        final List<String> importedFingerprints = new LinkedList<>();
+        for (final Engine importedEngine : this.importedEngines) {
+            path.addAll(importedEngine.defPath);
+            importedFingerprints.add(importedEngine.defFingerprint);
         }
-        final JkPathSequence runPath = resolveResult.getFiles();
-        path.addAll(runPath.getEntries());
-        path.addAll(compileDependentProjects(yetCompiledProjects, path).getEntries());
-        compileDef(JkPathSequence.of(path));
+        final String classesFingerprint = DefCompileCache.classesFingerprint(
+                JkUtilsObject.firstNonNull(dependencyFingerprint, "<unstable>"), resolvedPath,
+                JkPathTree.of(resolver.runSourceDir),
+                this.compileOptions, importedFingerprints);
+        if (!force && cache.isUpToDate(classesFingerprint, this.resolver.runClassDir)) {
+            JkLog.info("Def classes are up to date.");
+        } else {
+            cache.invalidate();
+            compileDef(JkPathSequence.of(path));
+        }
+        cache.store(dependencyFingerprint, resolvedPath, classesFingerprint);
         path.add(this.resolver.runClassDir);
+        this.defPath = path;
+        this.defFingerprint = classesFingerprint;
         JkLog.endTask("Done in " + JkUtilsTime.durationInMillis(start) + " milliseconds.");
     }
 
@@ -187,20 +249,6 @@ final class Engine {
         return JkPathSequence.of(extraLibs).withoutDuplicates();
     }
 
-    private JkPathSequence compileDependentProjects(Set<Path> yetCompiledProjects, LinkedHashSet<Path>  pathEntries) {
-        JkPathSequence pathSequence = JkPathSequence.of();
-        if (!this.rootOfImportedRuns.isEmpty()) {
-            JkLog.info("Compile command classes of dependent projects : "
-                    + toRelativePaths(this.projectBaseDir, this.rootOfImportedRuns));
-        }
-        for (final Path file : this.rootOfImportedRuns) {
-            final Engine engine = new Engine(file.toAbsolutePath().normalize());
-            engine.compile(yetCompiledProjects, pathEntries);
-            pathSequence = pathSequence.and(file);
-        }
-        return pathSequence;
-    }
-
     private void compileDef(JkPathSequence runPath) {
         final JkJavaCompileSpec compileSpec = defCompileSpec().setClasspath(runPath).addOptions(this.compileOptions);
         JkPathTree.of(compileSpec.getOutputDir()).deleteContent();
@@ -215,14 +263,15 @@ final class Engine {
         JkPathTree.of(this.resolver.runSourceDir).andMatching(false, "**/*.java")
         .copyTo(this.resolver.runClassDir,
                 StandardCopyOption.REPLACE_EXISTING);
+        JkPluginIndex.write(this.resolver.runClassDir);
     }
 
     private void launch(JkCommands jkCommands, CommandLine commandLine) {
         if (!commandLine.getSubProjectMethods().isEmpty()) {
-            for (final JkCommands importedRun : jkCommands.getImportedCommands().getAll()) {
-                runProject(importedRun, commandLine.getSubProjectMethods());
-            }
-            runProject(jkCommands, commandLine.getSubProjectMethods());
+            final ProjectGraph<JkCommands> projectGraph = ProjectGraph.of(jkCommands, JkCommands::getBaseDir,
+                    commands -> commands.getImportedCommands().getDirects());
+            projectGraph.run(commands -> runProject(commands, commandLine.getSubProjectMethods()),
+                    Environment.standardOptions.projectThreads);
         }
         runProject(jkCommands, commandLine.getMasterMethods());
     }
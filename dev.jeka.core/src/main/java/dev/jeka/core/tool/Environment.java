@@ -97,18 +97,25 @@ class Environment {
 
         String commandClass;
 
+        int projectThreads;
+
+        boolean forceCompile;
+
         StandardOptions (Map<String, String> map) {
             this.logVerbose = valueOf(Boolean.class, map, false, "LogVerbose", "LV");
             this.logQuiteVerbose = valueOf(Boolean.class, map, false, "LogQuiteVerbose", "LQV");
             this.logHeaders = valueOf(Boolean.class, map, false,"LogHeaders", "LH");
             this.logMaxLength = valueOf(Integer.class, map, -1,"LogMaxLength", "LML");
             this.commandClass = valueOf(String.class, map, null, "CommandClass", "CC");
+            this.projectThreads = valueOf(Integer.class, map, 1, "ProjectThreads", "PT");
+            this.forceCompile = valueOf(Boolean.class, map, false, "ForceCompile", "FC");
         }
 
         @Override
         public String toString() {
             return "CommandClass=" + JkUtilsObject.toString(commandClass) + ", LogVerbose=" + logVerbose
-                    + ", LogHeaders=" + logHeaders + ", LogMaxLength=" + logMaxLength;
+                    + ", LogHeaders=" + logHeaders + ", LogMaxLength=" + logMaxLength
+                    + ", ProjectThreads=" + projectThreads + ", ForceCompile=" + forceCompile;
         }
 
         private static <T> T valueOf(Class<T> type, Map<String, String> map, T defaultValue, String ... names) {
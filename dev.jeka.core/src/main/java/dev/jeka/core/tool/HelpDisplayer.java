@@ -49,6 +49,10 @@ final class HelpDisplayer {
         sb.append("  -LogHeaders (shorthand -LH) : if true, meta-information about the run creation itself and method execution will be logged.\n");
         sb.append("  -LogMaxLength (shorthand -LML) : Console will do a carriage return automatically after N characters are outputted in a single line (ex : -LML=120).\n");
         sb.append("  -CommandClass (shorthand -CC) : Force to use the specified class as the command class to invoke. It can be the short name of the class (without package prefix).\n");
+        sb.append("  -ProjectThreads (shorthand -PT) : Max number of imported projects to compile or to run '*' suffixed methods on concurrently (ex : -PT=4 to process up to 4 of them at a time). Default to 1.\n");
+        sb.append("  -ForceCompile (shorthand -FC) : if true, def classes are recompiled and their dependencies resolved again even if nothing has changed since the last run.\n");
+        sb.append("  -UseDaemon (shorthand -UD) : if true, the build runs in a long-lived daemon JVM, started on first use, that keeps compiled def classes and caches warm between invocations.\n");
+        sb.append("  -StopDaemon : stops the daemon started by -UseDaemon.\n");
         return sb.toString();
     }
 
@@ -0,0 +1,238 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.file.JkBuildCache;
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.java.JkClasspath;
+import dev.jeka.core.api.system.JkLocator;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsPath;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Index of the plugin classes contained in a jar or a class directory. The index is a text file located at
+ * {@value #LOCATION} listing, one per line, the names of classes having a name starting with 'JkPlugin', once
+ * stripped from its package. Lines starting with '#' are comments.
+ * <p>
+ * Jeka writes this index when it compiles def classes and when the java plugin compiles a project, so plugin
+ * discovery does not need to scan indexed classpath entries. An index written by Jeka in a class directory is
+ * ignored as soon as a class file of this directory is newer than it. An index provided by the user (as a
+ * resource) is never overwritten nor deleted. Entries lacking an index are listed once and the result is cached
+ * in the Jeka user home, keyed by the entry path, size and modification time.
+ */
+public final class JkPluginIndex {
+
+    /**
+     * Location of the index within a jar or a class directory.
+     */
+    public static final String LOCATION = "META-INF/jeka-plugins";
+
+    private static final String CACHE_DIR = "cache/plugin-index";
+
+    private static final String PREFIX = JkPlugin.class.getSimpleName();
+
+    private static final String GENERATED_HEADER = "# Generated by Jeka";
+
+    // Candidates of jar files, keyed by path, size and modification time
+    private static final Map<String, List<String>> JAR_CANDIDATES = new ConcurrentHashMap<>();
+
+    private JkPluginIndex() {
+    }
+
+    /**
+     * Writes the index of the plugin classes contained in the specified class directory. If the directory does
+     * not contain any plugin class, a previously written index is deleted instead. An index which has not been
+     * written by Jeka is left untouched.
+     * @return <code>true</code> if an index has been written.
+     */
+    public static boolean write(Path classDir) {
+        final Path indexFile = classDir.resolve(LOCATION);
+        if (Files.exists(indexFile) && !isGenerated(indexFile)) {
+            JkLog.trace("Keep plugin index " + indexFile + " as it has not been generated by Jeka.");
+            return false;
+        }
+        JkUtilsPath.deleteIfExists(indexFile);
+        if (!Files.isDirectory(classDir)) {
+            return false;
+        }
+        final List<String> classNames = listDirectory(classDir);
+        if (classNames.isEmpty()) {
+            return false;
+        }
+        JkUtilsPath.createDirectories(indexFile.getParent());
+        final String content = GENERATED_HEADER + "\n" + String.join("\n", classNames);
+        JkUtilsPath.write(indexFile, content.getBytes(StandardCharsets.UTF_8));
+        return true;
+    }
+
+    /*
+     * Returns the names of the classes that may be plugins in the classpath of the specified class loader, or
+     * null if this classpath can not be determined.
+     */
+    static Set<String> candidateClassNames(ClassLoader classLoader) {
+        final Set<Path> entries = classpath(classLoader);
+        if (entries.isEmpty()) {
+            return null;
+        }
+        final Set<String> result = new TreeSet<>();
+        for (final Path entry : entries) {
+            if (Files.isDirectory(entry)) {
+                final Path indexFile = entry.resolve(LOCATION);
+                result.addAll(isUsable(indexFile, entry) ? readIndex(indexFile) : listDirectory(entry));
+            } else if (Files.isRegularFile(entry)) {
+                result.addAll(listJar(entry));
+            }
+        }
+        return result;
+    }
+
+    // As the former classpath scanner did, nested class names include their enclosing class name
+    static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    private static Set<Path> classpath(ClassLoader classLoader) {
+        final Set<Path> result = new LinkedHashSet<>();
+        for (ClassLoader current = classLoader; current != null; current = current.getParent()) {
+            if (current instanceof URLClassLoader) {
+                for (final URL url : ((URLClassLoader) current).getURLs()) {
+                    if ("file".equals(url.getProtocol())) {
+                        try {
+                            result.add(Paths.get(url.toURI()).toAbsolutePath().normalize());
+                        } catch (final URISyntaxException | IllegalArgumentException e) {
+                            JkLog.trace("Can't get file of classpath entry " + url);
+                        }
+                    }
+                }
+            }
+        }
+        for (final Path path : JkClasspath.ofCurrentRuntime()) {
+            result.add(path.toAbsolutePath().normalize());
+        }
+        return result;
+    }
+
+    // Classes may have been compiled since the index has been generated, without re-generating it
+    private static boolean isUsable(Path indexFile, Path classDir) {
+        if (!Files.exists(indexFile)) {
+            return false;
+        }
+        if (!isGenerated(indexFile)) {
+            return true;
+        }
+        final long indexTime = lastModified(indexFile);
+        try (Stream<Path> paths = Files.walk(classDir)) {
+            return paths.noneMatch(path -> path.toString().endsWith(".class")
+                    && lastModified(path) > indexTime);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean isGenerated(Path indexFile) {
+        final List<String> lines = JkUtilsPath.readAllLines(indexFile);
+        return !lines.isEmpty() && lines.get(0).trim().equals(GENERATED_HEADER);
+    }
+
+    private static List<String> listDirectory(Path dir) {
+        return JkPathTree.of(dir).andMatching(true, "**/" + PREFIX + "*.class", PREFIX + "*.class")
+                .getRelativeFiles().stream()
+                .map(path -> toClassName(path.toString().replace('\\', '/')))
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    private static List<String> listJar(Path jar) {
+        final String stamp;
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(jar, BasicFileAttributes.class);
+            stamp = jar + "|" + attributes.size() + "|" + attributes.lastModifiedTime().toMillis();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return JAR_CANDIDATES.computeIfAbsent(stamp, key -> {
+            final Path cacheFile = JkLocator.getJekaUserHomeDir().resolve(CACHE_DIR)
+                    .resolve(JkBuildCache.fingerprint("plugin-index").and(key).get() + ".txt");
+            if (Files.exists(cacheFile)) {
+                return readIndex(cacheFile);
+            }
+            final List<String> result = listJarEntries(jar);
+            final Path tempFile = cacheFile.resolveSibling(cacheFile.getFileName() + "." + UUID.randomUUID());
+            JkUtilsPath.createDirectories(cacheFile.getParent());
+            JkUtilsPath.write(tempFile, String.join("\n", result).getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+            } catch (final IOException e) {
+                JkUtilsPath.deleteIfExists(tempFile);
+            }
+            return result;
+        });
+    }
+
+    // Listing zip entry names does not involve reading or parsing classes
+    private static List<String> listJarEntries(Path jar) {
+        final List<String> result = new LinkedList<>();
+        try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+            final ZipEntry indexEntry = zipFile.getEntry(LOCATION);
+            if (indexEntry != null) {
+                try (InputStream inputStream = zipFile.getInputStream(indexEntry)) {
+                    return readLines(JkUtilsIO.readAsString(inputStream));
+                }
+            }
+            final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                final String name = entries.nextElement().getName();
+                if (name.endsWith(".class") && simpleName(toClassName(name)).startsWith(PREFIX)) {
+                    result.add(toClassName(name));
+                }
+            }
+        } catch (final IOException e) {
+            JkLog.trace("Can't read " + jar + " : " + e.getMessage());
+            return Collections.emptyList();
+        }
+        return result;
+    }
+
+    private static List<String> readIndex(Path file) {
+        try {
+            return readLines(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<String> readLines(String content) {
+        return Stream.of(content.split("\n"))
+                .map(String::trim)
+                .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                .collect(Collectors.toList());
+    }
+
+    private static String toClassName(String classFilePath) {
+        return classFilePath.substring(0, classFilePath.length() - ".class".length()).replace('/', '.');
+    }
+
+}
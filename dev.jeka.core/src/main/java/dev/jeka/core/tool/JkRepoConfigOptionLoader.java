@@ -68,7 +68,9 @@ public class JkRepoConfigOptionLoader {
      * will be turned to <code>repo.[repoName].url</code>,
      * <code>repo.[repoName].username</code> and
      * <code>repo.[repoName].password</code> options for creating according
-     * repository.
+     * repository. Option <code>repo.[repoName].updatePolicy</code> may mention
+     * an update policy as <code>always</code>, <code>daily</code>, <code>never</code>
+     * or <code>interval:X</code>.
      */
     public static JkRepo repoFromOptions(String repoName) {
         final String optionName = "repo." + repoName + "." + "url";
@@ -78,14 +80,19 @@ public class JkRepoConfigOptionLoader {
         }
         final String username = JkOptions.get("repo." + repoName + ".username");
         final String password = JkOptions.get("repo." + repoName + ".password");
-        return JkRepo.of(url.trim()).withOptionalCredentials(username, password);
+        final JkRepo repo = JkRepo.of(url.trim()).withOptionalCredentials(username, password);
+        final String updatePolicy = JkOptions.get("repo." + repoName + ".updatePolicy");
+        if (JkUtilsString.isBlank(updatePolicy)) {
+            return repo;
+        }
+        return repo.withUpdatePolicy(JkRepo.JkUpdatePolicy.of(updatePolicy));
     }
 
     public static Map<String, String> allRepositoryOptions() {
         Map<String, String> options = new HashMap<>();
         JkOptions.getAll().forEach((key, value) -> {
             if (key.startsWith(".repo") && JkUtilsString.endsWithAny(key, ".url", ".username", ".password",
-                    ".downloadName", ".publishName", ".runName")) {
+                    ".updatePolicy", ".downloadName", ".publishName", ".runName")) {
                 options.put(key, value);
             }
         });
@@ -27,6 +27,9 @@ public final class Main {
      * Entry point for Jeka application when launched from command-line
      */
     public static void main(String[] args) {
+        if (DaemonClient.isRequested(args)) {
+            System.exit(DaemonClient.run(args));
+        }
         if (!(Thread.currentThread().getContextClassLoader() instanceof URLClassLoader)) {
             final URLClassLoader urlClassLoader = new URLClassLoader(new URL[] {},
                     Thread.currentThread().getContextClassLoader());
@@ -35,8 +38,18 @@ public final class Main {
             JkClassLoader.of(urlClassLoader).invokeStaticMethod(false, "dev.jeka.core.tool.Main", "main" , argArray);
             return;
         }
-        final long start = System.nanoTime();
         JkUtilsSystem.disableUnsafeWarning();
+        if (run(Paths.get("").toAbsolutePath(), args) != 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs Jeka on the specified project directory and returns the process exit code. The context class loader
+     * is expected to be a {@link URLClassLoader}.
+     */
+    static int run(Path workingDir, String[] args) {
+        final long start = System.nanoTime();
         try {
             Environment.initialize(args);
             JkLog.registerHierarchicalConsoleHandler();
@@ -47,12 +60,12 @@ public final class Main {
                 displayIntro();
             }
             JkInit.displayInfo();
-            final Path workingDir = Paths.get("").toAbsolutePath();
             final Engine engine = new Engine(workingDir);
             engine.execute(Environment.commandLine, Environment.standardOptions.commandClass, verbosity);
             if (Environment.standardOptions.logHeaders) {
                 displayOutro(start);
             }
+            return 0;
         } catch (final RuntimeException e) {
             JkHierarchicalConsoleLogHandler.restore();
             if (e instanceof JkException) {
@@ -70,7 +83,7 @@ public final class Main {
             } else {
                 System.err.println("Failed !");
             }
-            System.exit(1);
+            return 1;
         }
     }
 
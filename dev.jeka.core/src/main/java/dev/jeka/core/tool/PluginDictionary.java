@@ -9,6 +9,7 @@ import dev.jeka.core.api.utils.JkUtilsString;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -77,8 +78,8 @@ final class PluginDictionary {
 
     private static <T> Set<PluginDescription> loadAllPlugins() {
         final String nameSuffix = JkPlugin.class.getSimpleName();
-        Set<PluginDescription> result = toPluginDescriptions(JkInternalClasspathScanner.INSTANCE
-                .loadClassesHavingSimpleNameMatching(name -> name.startsWith(nameSuffix)));
+        Set<PluginDescription> result = toPluginDescriptions(loadClassesHavingSimpleNameMatching(
+                name -> name.startsWith(nameSuffix)));
         for(PluginDescription pluginDescription : result) {
             SHORTNAME_CACHE.put(pluginDescription.shortName, pluginDescription);
         }
@@ -91,7 +92,7 @@ final class PluginDictionary {
             return result;
         }
         final String simpleName = simpleClassName(shortName);
-        Set<Class<?>> classes = JkInternalClasspathScanner.INSTANCE.loadClassesHavingSimpleName(simpleName );
+        Set<Class<?>> classes = loadClassesHavingSimpleNameMatching(name -> name.equals(simpleName));
         final Set<PluginDescription> set = toPluginDescriptions(classes);
         if (set.size() > 1) {
             throw new JkException("Several plugin have the same short name : '" + shortName
@@ -106,6 +107,25 @@ final class PluginDictionary {
         return result;
     }
 
+    // Relies on plugin indexes, scanning the whole classpath only if it can not be determined
+    private static Set<Class<?>> loadClassesHavingSimpleNameMatching(Predicate<String> predicate) {
+        final JkClassLoader classLoader = JkClassLoader.ofCurrent();
+        final Set<String> candidates = JkPluginIndex.candidateClassNames(classLoader.get());
+        if (candidates == null) {
+            return JkInternalClasspathScanner.INSTANCE.loadClassesHavingSimpleNameMatching(predicate);
+        }
+        final Set<Class<?>> result = new HashSet<>();
+        for (final String className : candidates) {
+            if (predicate.test(JkPluginIndex.simpleName(className))) {
+                final Class<?> clazz = classLoader.loadIfExist(className);
+                if (clazz != null) {
+                    result.add(clazz);
+                }
+            }
+        }
+        return result;
+    }
+
     private static PluginDescription loadPluginsHavingLongName(String longName) {
         final Class<? extends JkPlugin> pluginClass = JkClassLoader.ofCurrent().loadIfExist(longName);
         if (pluginClass == null) {
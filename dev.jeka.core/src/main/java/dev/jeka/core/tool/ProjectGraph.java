@@ -0,0 +1,111 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.system.JkLog;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Directed acyclic graph of projects linked by {@link JkImportProject} declarations. Projects are identified by
+ * their base directory. <p>
+ * The graph runs a task on each project, a project being processed only once all the projects it imports
+ * have been processed. Independent projects are processed concurrently.
+ *
+ * @param <T> Type of the object representing a project (an engine, a command class instance, ...)
+ */
+final class ProjectGraph<T> {
+
+    // Projects sorted in topological order : imported projects come before the ones importing them.
+    private final Map<Path, T> projects = new LinkedHashMap<>();
+
+    private final Map<Path, List<Path>> dependencies = new HashMap<>();
+
+    private ProjectGraph() {
+    }
+
+    /**
+     * Computes the graph of projects reachable from the specified root project.
+     * @param baseDir Function returning the base dir of a project.
+     * @param directImports Function returning the projects directly imported by a project.
+     */
+    static <T> ProjectGraph<T> of(T root, Function<T, Path> baseDir, Function<T, List<T>> directImports) {
+        final ProjectGraph<T> result = new ProjectGraph<>();
+        result.visit(root, baseDir, directImports, new HashSet<>());
+        return result;
+    }
+
+    private void visit(T project, Function<T, Path> baseDir, Function<T, List<T>> directImports,
+                       Set<Path> inProgress) {
+        final Path dir = baseDir.apply(project);
+        inProgress.add(dir);
+        final List<Path> deps = new LinkedList<>();
+        for (final T imported : directImports.apply(project)) {
+            final Path importedDir = baseDir.apply(imported);
+            if (inProgress.contains(importedDir)) {
+                JkLog.warn("Cyclic import detected between " + dir + " and " + importedDir + ". Import ignored.");
+                continue;
+            }
+            if (!projects.containsKey(importedDir)) {
+                visit(imported, baseDir, directImports, inProgress);
+            }
+            if (!deps.contains(importedDir)) {
+                deps.add(importedDir);
+            }
+        }
+        inProgress.remove(dir);
+        dependencies.put(dir, deps);
+        projects.put(dir, project);
+    }
+
+    /**
+     * Returns all projects of this graph, imported projects coming before the ones importing them.
+     * The root project comes last.
+     */
+    List<T> getProjects() {
+        return new ArrayList<>(projects.values());
+    }
+
+    /**
+     * Runs the specified task on every project of this graph. A project task starts only when the tasks of
+     * all its imported projects have succeeded. When a task fails, tasks of projects depending on the failed
+     * one are not run, while independent ones are run to completion, then the failure is rethrown.
+     * @param threadCount The maximum number of tasks running concurrently. If 1 or less, tasks are run in the
+     *                    current thread, following topological order.
+     */
+    void run(Consumer<T> task, int threadCount) {
+        if (threadCount <= 1 || projects.size() <= 1) {
+            projects.values().forEach(task);
+            return;
+        }
+        final ExecutorService executorService = Executors.newFixedThreadPool(Math.min(threadCount, projects.size()));
+        final Map<Path, CompletableFuture<Void>> futures = new HashMap<>();
+        try {
+            for (final Map.Entry<Path, T> entry : projects.entrySet()) {
+                final CompletableFuture<?>[] importedFutures = dependencies.get(entry.getKey()).stream()
+                        .map(futures::get).toArray(CompletableFuture[]::new);
+                final T project = entry.getValue();
+                futures.put(entry.getKey(), CompletableFuture.allOf(importedFutures)
+                        .thenRunAsync(() -> task.accept(project), executorService));
+            }
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).join();
+        } catch (final CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+}
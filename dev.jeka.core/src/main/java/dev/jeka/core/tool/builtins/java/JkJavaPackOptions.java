@@ -27,6 +27,15 @@ public class JkJavaPackOptions {
     @JkDoc("If true, test-sources jar is added in the list of artifact to produce/publish.")
     public boolean testSources;
 
+    /** When true, artifacts are produced concurrently.*/
+    @JkDoc("If true, artifacts are produced concurrently (e.g. sources and javadoc jars are created while tests run).")
+    public boolean parallel;
+
+    /** Deflate level of produced archives. */
+    @JkDoc("Deflate level (0-9) of produced archives, -1 meaning default level. 0 stores entries without compressing " +
+            "them, which is faster for development builds.")
+    public int compressionLevel = -1;
+
     /**
      * Returns the checksums algorithms to checksum artifact files.
      */
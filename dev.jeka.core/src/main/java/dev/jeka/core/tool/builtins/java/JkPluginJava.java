@@ -2,6 +2,7 @@ package dev.jeka.core.tool.builtins.java;
 
 import dev.jeka.core.api.crypto.gpg.JkGpg;
 import dev.jeka.core.api.depmanagement.*;
+import dev.jeka.core.api.file.JkBuildCache;
 import dev.jeka.core.api.file.JkPathTree;
 import dev.jeka.core.api.java.JkJavaCompiler;
 import dev.jeka.core.api.java.JkJavaProcess;
@@ -51,6 +52,13 @@ public class JkPluginJava extends JkPlugin {
     @JkDoc("Extra arguments to be passed to the compiler (e.g. -Xlint:unchecked).")
     public String compilerExtraArgs;
 
+    @JkDoc("If true, only sources changed since last compilation, plus the ones depending on them, are recompiled.")
+    public boolean incrementalCompile;
+
+    @JkDoc("If true, compilation, test and packaging outputs are stored in a build cache located in Jeka user home " +
+            "and restored from it when task inputs are unchanged.")
+    public boolean buildCache;
+
     // ----------------------------------------------------------------------------------
 
     private final JkPluginRepo repoPlugin;
@@ -102,9 +110,21 @@ public class JkPluginJava extends JkPlugin {
         if (pack.testSources) {
             maker.addTestSourceArtifact();
         }
+        maker.setParallelArtifacts(pack.parallel);
+        maker.getTasksForPackaging().setZipper(maker.getTasksForPackaging().getZipper()
+                .withCompressionLevel(pack.compressionLevel));
+        maker.getTasksForCompilation().getPostActions().chain(() ->
+                JkPluginIndex.write(maker.getOutLayout().getClassDir()));
         if (maker.getTasksForCompilation().getCompiler().isDefault()) {  // If no compiler specified, try to set the best fitted
             maker.getTasksForCompilation().setCompiler(compiler());
         }
+        if (buildCache) {
+            maker.setBuildCache(JkBuildCache.ofUserHome());
+        }
+        if (incrementalCompile) {
+            maker.getTasksForCompilation().setIncremental(true);
+            maker.getTasksForTesting().setIncremental(true);
+        }
         if (maker.getTasksForPublishing().getPublishRepos() == null
                 || maker.getTasksForPublishing().getPublishRepos().getRepoList().isEmpty()) {
             maker.getTasksForPublishing().addPublishRepo(repoPlugin.publishRepository());
@@ -121,7 +141,7 @@ public class JkPluginJava extends JkPlugin {
         JkUnit tester = maker.getTasksForTesting().getRunner();
         if (tests.fork) {
             final JkJavaProcess javaProcess = JkJavaProcess.of().andCommandLine(this.tests.jvmOptions);
-            tester = tester.withForking(javaProcess);
+            tester = tester.withForking(javaProcess).withForkCount(tests.forkCount);
         }
         if (tests.runIT) {
             maker.getTasksForTesting().setTestClassMatcher(maker.getTasksForTesting().getTestClassMatcher()
@@ -129,7 +149,9 @@ public class JkPluginJava extends JkPlugin {
         }
         tester = tester.withOutputOnConsole(tests.output);
         tester = tester.withReport(tests.report);
+        tester = tester.withFailFast(tests.failFast);
         maker.getTasksForTesting().setRunner(tester);
+        maker.getTasksForTesting().setTestImpactAnalysis(tests.impactedOnly);
         maker.getTasksForTesting().setSkipTests(tests.skip);
         if (this.compilerExtraArgs != null) {
             project.getCompileSpec().addOptions(JkUtilsString.translateCommandline(this.compilerExtraArgs));
@@ -231,9 +253,12 @@ public class JkPluginJava extends JkPlugin {
         project.getMaker().getTasksForPublishing().publishLocal();
     }
 
-    @JkDoc("Fetches project dependencies in cache.")
+    @JkDoc("Fetches project dependencies in cache, checking snapshot and dynamic versions against repositories "
+            + "whatever their update policy.")
     public void refreshDeps() {
-        project.getMaker().getDependencyResolver().resolve(project.getMaker().getScopeDefaultedDependencies());
+        final JkDependencyResolver resolver = project.getMaker().getDependencyResolver();
+        resolver.withParams(resolver.getParams().isRefreshed(true))
+                .resolve(project.getMaker().getScopeDefaultedDependencies());
     }
 
     public static class JkPublishOptions {
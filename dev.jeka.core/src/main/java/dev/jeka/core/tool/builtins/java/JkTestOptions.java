@@ -20,6 +20,10 @@ public final class JkTestOptions {
     @JkDoc("Argument passed to the JVM if tests are withForking. E.g. -Xms2G -Xmx2G.")
     public String jvmOptions;
 
+    /** Number of JVMs test classes are distributed over if tests are forked. 0 means one per available processor. */
+    @JkDoc("Number of JVMs test classes are distributed over if tests are forked. 0 means one per available processor.")
+    public int forkCount;
+
     /** Detail level for the test report */
     @JkDoc({ "Detail level of generated report.",
         "BASIC mentions the total duration along details on failed tests.",
@@ -31,6 +35,14 @@ public final class JkTestOptions {
     @JkDoc("If true, tests System.out and System.err will be displayed on console.")
     public boolean output;
 
+    /** Turn it on to stop executing tests as soon as one fails. */
+    @JkDoc("If true, test execution stops at the first failure.")
+    public boolean failFast;
+
+    /** Turn it on to run only test classes depending on classes changed since their last successful run. */
+    @JkDoc("If true, only test classes depending on classes changed since their last successful run are executed.")
+    public boolean impactedOnly;
+
     @JkDoc("If true, Jeka runs also test classes suffixed with 'IT'. By default Jeka runs only test classes " +
             " suffixed with 'Test'.")
     public boolean runIT;
@@ -0,0 +1,136 @@
+package dev.jeka.core.api.depmanagement;
+
+import dev.jeka.core.api.depmanagement.JkDependencyNode.JkModuleNodeInfo;
+import dev.jeka.core.api.system.JkException;
+import dev.jeka.core.api.utils.JkUtilsIterable;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import static dev.jeka.core.api.depmanagement.JkJavaDepScopes.COMPILE;
+import static dev.jeka.core.api.depmanagement.JkJavaDepScopes.RUNTIME;
+import static org.junit.Assert.*;
+
+public class DependencyLockTest {
+
+    @Test
+    public void putThenGetReturnsSameTreeWhileFingerprintMatches() throws IOException {
+        final Path userHome = Files.createTempDirectory("jeka-lock-home");
+        final Path guavaJar = Files.write(userHome.resolve("guava-21.0.jar"), "guava".getBytes(StandardCharsets.UTF_8));
+        final Path lockFile = Files.createTempDirectory("jeka-lock").resolve("dependencies.lock");
+        final DependencyLock lock = DependencyLock.of(lockFile, userHome);
+        final JkResolveResult resolveResult = JkResolveResult.of(tree(guavaJar),
+                JkResolveResult.JkErrorReport.allFine());
+        final JkScope[] scopes = new JkScope[] {COMPILE};
+        lock.put("fingerprint1", scopes, resolveResult);
+        assertTrue(new String(Files.readAllBytes(lockFile), StandardCharsets.UTF_8).contains(":~/guava-21.0.jar"));
+
+        final JkResolveResult lockedResult = lock.get("fingerprint1", scopes, JkUtilsIterable.setOf(COMPILE, RUNTIME),
+                fetcher(null));
+        assertNotNull(lockedResult);
+        assertEquals(resolveResult.getDependencyTree().toStringTree(),
+                lockedResult.getDependencyTree().toStringTree());
+        assertEquals(resolveResult.getFiles(), lockedResult.getFiles());
+        assertNull(lock.get("fingerprint1", new JkScope[] {RUNTIME}, Collections.emptySet(), fetcher(null)));
+        assertNull(lock.get("fingerprint2", scopes, Collections.emptySet(), fetcher(null)));
+
+        // Another fingerprint replaces all sections
+        lock.put("fingerprint2", new JkScope[] {RUNTIME}, resolveResult);
+        assertNull(lock.get("fingerprint1", scopes, Collections.emptySet(), fetcher(null)));
+        assertNotNull(lock.get("fingerprint2", new JkScope[] {RUNTIME}, Collections.emptySet(), fetcher(null)));
+    }
+
+    @Test(expected = JkException.class)
+    public void getFailsOnChecksumMismatch() throws IOException {
+        final Path userHome = Files.createTempDirectory("jeka-lock-home");
+        final Path guavaJar = Files.write(userHome.resolve("guava-21.0.jar"), "guava".getBytes(StandardCharsets.UTF_8));
+        final DependencyLock lock = DependencyLock.of(userHome.resolve("dependencies.lock"), userHome);
+        lock.put("fingerprint", new JkScope[0], JkResolveResult.of(tree(guavaJar),
+                JkResolveResult.JkErrorReport.allFine()));
+        Files.write(guavaJar, "tampered".getBytes(StandardCharsets.UTF_8));
+        lock.get("fingerprint", new JkScope[0], Collections.emptySet(), fetcher(null));
+    }
+
+    @Test
+    public void missingFileIsFetchedAgainWithoutChangingLock() throws IOException {
+        final Path userHome = Files.createTempDirectory("jeka-lock-home");
+        final Path guavaJar = Files.write(userHome.resolve("guava-21.0.jar"), "guava".getBytes(StandardCharsets.UTF_8));
+        final Path lockFile = userHome.resolve("dependencies.lock");
+        final DependencyLock lock = DependencyLock.of(lockFile, userHome);
+        lock.put("fingerprint", new JkScope[0], JkResolveResult.of(tree(guavaJar),
+                JkResolveResult.JkErrorReport.allFine()));
+        final byte[] lockContent = Files.readAllBytes(lockFile);
+        Files.delete(guavaJar);
+        final List<JkModuleDependency> fetched = new LinkedList<>();
+        final JkResolveResult lockedResult = lock.get("fingerprint", new JkScope[0], Collections.emptySet(),
+                fetcher(dependency -> {
+                    fetched.add(dependency);
+                    return Files.write(guavaJar, "guava".getBytes(StandardCharsets.UTF_8));
+                }));
+        assertEquals("com.google.guava:guava:21.0", fetched.get(0).toString());
+        assertNull(fetched.get(0).getClassifier());
+        assertEquals("jar", fetched.get(0).getExt());
+        assertEquals(Collections.singletonList(guavaJar), lockedResult.getFiles().getEntries());
+        assertArrayEquals(lockContent, Files.readAllBytes(lockFile));
+    }
+
+    @Test
+    public void missingFileThatCanNotBeFetchedFailsWithoutChangingLock() throws IOException {
+        final Path userHome = Files.createTempDirectory("jeka-lock-home");
+        final Path guavaJar = Files.write(userHome.resolve("guava-21.0.jar"), "guava".getBytes(StandardCharsets.UTF_8));
+        final Path lockFile = userHome.resolve("dependencies.lock");
+        final DependencyLock lock = DependencyLock.of(lockFile, userHome);
+        lock.put("fingerprint", new JkScope[0], JkResolveResult.of(tree(guavaJar),
+                JkResolveResult.JkErrorReport.allFine()));
+        final byte[] lockContent = Files.readAllBytes(lockFile);
+        Files.delete(guavaJar);
+        try {
+            lock.get("fingerprint", new JkScope[0], Collections.emptySet(), fetcher(null));
+            fail("Missing locked file should not be ignored");
+        } catch (JkException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Delete the lock file"));
+        }
+        assertArrayEquals(lockContent, Files.readAllBytes(lockFile));
+    }
+
+    @Test
+    public void artifactDependencyIsDeducedFromFileName() {
+        final JkVersionedModule module = JkVersionedModule.of("com.google.guava:guava:21.0");
+        final JkModuleDependency sources = DependencyLock.artifactDependency(module, "guava-21.0-sources.jar");
+        assertEquals("sources", sources.getClassifier());
+        assertEquals("jar", sources.getExt());
+        assertNull(DependencyLock.artifactDependency(module, "guava-21.0.zip").getClassifier());
+    }
+
+    private static JkDependencyNode tree(Path guavaJar) {
+        final JkDependencyNode guava = JkDependencyNode.ofModuleDep(JkModuleNodeInfo.of(
+                JkModuleId.of("com.google.guava:guava"), JkVersion.of("21.+"),
+                JkUtilsIterable.setOf(COMPILE), JkUtilsIterable.setOf(COMPILE, RUNTIME), JkVersion.of("21.0"),
+                Collections.singletonList(guavaJar)), new LinkedList<>());
+        return JkDependencyNode.ofModuleDep(JkModuleNodeInfo.ofRoot(JkVersionedModule.of("my:module:1.0")),
+                JkUtilsIterable.listOf(guava));
+    }
+
+    // Fetcher returning files produced by the specified function, or nothing if function is null
+    private static JkInternalDepResolver fetcher(IOFunction fetch) {
+        return (JkInternalDepResolver) Proxy.newProxyInstance(DependencyLockTest.class.getClassLoader(),
+                new Class[] {JkInternalDepResolver.class}, (proxy, method, args) -> {
+                    if (!"get".equals(method.getName())) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    return fetch == null ? null : fetch.apply((JkModuleDependency) args[0]).toFile();
+                });
+    }
+
+    private interface IOFunction {
+        Path apply(JkModuleDependency dependency) throws IOException;
+    }
+
+}
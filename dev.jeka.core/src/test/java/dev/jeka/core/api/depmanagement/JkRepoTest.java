@@ -0,0 +1,40 @@
+package dev.jeka.core.api.depmanagement;
+
+import dev.jeka.core.api.depmanagement.JkRepo.JkUpdatePolicy;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+import static org.junit.Assert.*;
+
+public class JkRepoTest {
+
+    @Test
+    public void updatePolicyExpiresAccordingItsKind() {
+        final ZoneId zoneId = ZoneId.systemDefault();
+        final long morning = LocalDate.of(2020, 3, 10).atTime(9, 0).atZone(zoneId).toInstant().toEpochMilli();
+        final long evening = LocalDate.of(2020, 3, 10).atTime(21, 0).atZone(zoneId).toInstant().toEpochMilli();
+        final long nextMorning = LocalDate.of(2020, 3, 11).atTime(1, 0).atZone(zoneId).toInstant().toEpochMilli();
+
+        assertTrue(JkUpdatePolicy.ALWAYS.isExpired(morning, morning));
+        assertFalse(JkUpdatePolicy.NEVER.isExpired(0, nextMorning));
+        assertFalse(JkUpdatePolicy.DAILY.isExpired(morning, evening));
+        assertTrue(JkUpdatePolicy.DAILY.isExpired(evening, nextMorning));
+        assertFalse(JkUpdatePolicy.ofInterval(5 * 60).isExpired(evening, nextMorning));
+        assertTrue(JkUpdatePolicy.ofInterval(4 * 60).isExpired(evening, nextMorning));
+    }
+
+    @Test
+    public void updatePolicyIsParsedFromItsRepresentation() {
+        assertSame(JkUpdatePolicy.ALWAYS, JkUpdatePolicy.of("always"));
+        assertSame(JkUpdatePolicy.DAILY, JkUpdatePolicy.of(" Daily"));
+        assertSame(JkUpdatePolicy.NEVER, JkUpdatePolicy.of("never"));
+        assertEquals(JkUpdatePolicy.ofInterval(30), JkUpdatePolicy.of("interval:30"));
+        assertEquals("interval:30", JkUpdatePolicy.ofInterval(30).toString());
+        assertEquals(JkUpdatePolicy.DAILY, JkRepo.of("http://repo").getUpdatePolicy());
+        assertEquals(JkUpdatePolicy.NEVER, JkRepo.of("http://repo").withUpdatePolicy(JkUpdatePolicy.NEVER)
+                .getUpdatePolicy());
+    }
+
+}
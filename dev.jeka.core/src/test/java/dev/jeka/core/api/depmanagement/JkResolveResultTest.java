@@ -0,0 +1,86 @@
+package dev.jeka.core.api.depmanagement;
+
+import dev.jeka.core.api.depmanagement.JkDependencyNode.JkModuleNodeInfo;
+import dev.jeka.core.api.utils.JkUtilsIterable;
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static dev.jeka.core.api.depmanagement.JkJavaDepScopes.*;
+import static org.junit.Assert.*;
+
+public class JkResolveResultTest {
+
+    @Test
+    public void withScopesOnlyRetainsNodesOfSpecifiedScopes() {
+        final JkDependencyNode hamcrest = moduleNode("org.hamcrest:hamcrest-core", "hamcrest.jar",
+                JkUtilsIterable.setOf(TEST));
+        final JkDependencyNode junit = JkDependencyNode.ofModuleDep(JkModuleNodeInfo.of(JkModuleId.of("junit:junit"),
+                JkVersion.of("4.12"), JkUtilsIterable.setOf(TEST), JkUtilsIterable.setOf(TEST), JkVersion.of("4.12"),
+                Collections.singletonList(Paths.get("junit.jar"))), JkUtilsIterable.listOf(hamcrest));
+        final JkDependencyNode guava = moduleNode("com.google.guava:guava", "guava.jar",
+                JkUtilsIterable.setOf(COMPILE, RUNTIME, TEST));
+        final JkDependencyNode servlet = moduleNode("javax.servlet:servlet-api", "servlet.jar",
+                JkUtilsIterable.setOf(PROVIDED, TEST));
+        final JkDependencyNode localLib = JkDependencyNode.ofFileDep(JkFileSystemDependency.of(
+                Collections.singletonList(Paths.get("local.jar"))), JkUtilsIterable.setOf(COMPILE));
+        final JkDependencyNode tree = JkDependencyNode.ofModuleDep(
+                JkModuleNodeInfo.ofRoot(JkVersionedModule.of("my:module:1.0")),
+                JkUtilsIterable.listOf(guava, servlet, junit, localLib));
+        final JkResolveResult resolveResult = JkResolveResult.of(tree, JkResolveResult.JkErrorReport.allFine());
+
+        assertEquals(JkUtilsIterable.listOf("guava.jar", "servlet.jar", "local.jar"),
+                fileNames(resolveResult.withScopesOnly(SCOPES_FOR_COMPILATION)));
+        assertEquals(JkUtilsIterable.listOf("guava.jar", "local.jar"),
+                fileNames(resolveResult.withScopesOnly(RUNTIME)));
+        assertEquals(JkUtilsIterable.listOf("guava.jar", "servlet.jar", "junit.jar", "hamcrest.jar", "local.jar"),
+                fileNames(resolveResult.withScopesOnly(SCOPES_FOR_TEST)));
+        assertEquals(resolveResult.getFiles(), resolveResult.withScopesOnly(COMPILE, PROVIDED, RUNTIME, TEST)
+                .getFiles());
+    }
+
+    @Test
+    public void withScopesOnlyRetainsProblemsOfSpecifiedScopes() {
+        final JkDependencyNode guava = moduleNode("com.google.guava:guava", "guava.jar",
+                JkUtilsIterable.setOf(COMPILE, RUNTIME));
+        final JkDependencyNode junit = moduleNode("junit:junit", "junit.jar", JkUtilsIterable.setOf(TEST));
+        final JkDependencyNode tree = JkDependencyNode.ofModuleDep(
+                JkModuleNodeInfo.ofRoot(JkVersionedModule.of("my:module:1.0")), JkUtilsIterable.listOf(guava, junit));
+        final JkModuleDepProblem junitProblem = JkModuleDepProblem.of(JkModuleId.of("junit:junit"), "1.0",
+                "Checksum mismatch");
+        final JkModuleDepProblem missingProblem = JkModuleDepProblem.of(JkModuleId.of("foo:missing"), "1.0",
+                "Not found");
+        final JkResolveResult resolveResult = JkResolveResult.of(tree,
+                JkResolveResult.JkErrorReport.failure(JkUtilsIterable.listOf(junitProblem, missingProblem)));
+
+        assertEquals(JkUtilsIterable.listOf(missingProblem),
+                resolveResult.withScopesOnly(RUNTIME).getErrorReport().getModuleProblems());
+        assertEquals(JkUtilsIterable.listOf(junitProblem, missingProblem),
+                resolveResult.withScopesOnly(TEST).getErrorReport().getModuleProblems());
+
+        final JkResolveResult testFailure = JkResolveResult.of(tree,
+                JkResolveResult.JkErrorReport.failure(JkUtilsIterable.listOf(junitProblem)));
+        assertFalse(testFailure.withScopesOnly(RUNTIME).getErrorReport().hasErrors());
+        assertTrue(testFailure.withScopesOnly(TEST).getErrorReport().hasErrors());
+    }
+
+    private static JkDependencyNode moduleNode(String moduleId, String fileName, Set<JkScope> scopes) {
+        return JkDependencyNode.ofModuleDep(JkModuleNodeInfo.of(JkModuleId.of(moduleId), JkVersion.of("1.0"),
+                scopes, scopes, JkVersion.of("1.0"), Collections.singletonList(Paths.get(fileName))),
+                new LinkedList<>());
+    }
+
+    private static List<String> fileNames(JkResolveResult resolveResult) {
+        return resolveResult.getFiles().getEntries().stream()
+                .map(Path::getFileName)
+                .map(Path::toString)
+                .collect(Collectors.toList());
+    }
+
+}
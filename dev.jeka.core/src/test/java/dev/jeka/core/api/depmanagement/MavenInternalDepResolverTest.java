@@ -0,0 +1,320 @@
+package dev.jeka.core.api.depmanagement;
+
+import com.sun.net.httpserver.HttpServer;
+import dev.jeka.core.api.utils.JkUtilsString;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static dev.jeka.core.api.depmanagement.JkJavaDepScopes.*;
+import static org.junit.Assert.*;
+
+public class MavenInternalDepResolverTest {
+
+    private static final String GROUP = "dev.jeka.test.maven";
+
+    private Path repoDir;
+
+    private Path cacheDir;
+
+    @Before
+    public void createRepo() throws IOException {
+        repoDir = Files.createTempDirectory("jeka-maven-repo");
+        cacheDir = Files.createTempDirectory("jeka-maven-cache");
+
+        // 'parent' manages versions and declares a test dependency inherited by its children
+        publish("parent", "1.0", "<packaging>pom</packaging>"
+                + "<properties><commons.version>2.0</commons.version></properties>"
+                + "<dependencyManagement><dependencies>"
+                + dep("commons", "${commons.version}", null)
+                + "<dependency><groupId>" + GROUP + "</groupId><artifactId>bom</artifactId><version>1.0</version>"
+                + "<type>pom</type><scope>import</scope></dependency>"
+                + "</dependencies></dependencyManagement>"
+                + "<dependencies>" + dep("junit", "4.0", "test") + "</dependencies>", false);
+        publish("bom", "1.0", "<packaging>pom</packaging><dependencyManagement><dependencies>"
+                + dep("logging", "3.0", null) + "</dependencies></dependencyManagement>", false);
+
+        // 'app' -> 'lib' -> 'commons' (managed to 2.0), 'logging' (managed by the imported BOM), 'legacy' (excluded)
+        publish("app", "1.0", parent() + "<dependencies>"
+                + "<dependency><groupId>" + GROUP + "</groupId><artifactId>lib</artifactId>"
+                + "<version>${project.version}</version><exclusions><exclusion><groupId>" + GROUP
+                + "</groupId><artifactId>legacy</artifactId></exclusion></exclusions></dependency>"
+                + dep("driver", "1.0", "runtime")
+                + dep("commons", "1.0", null) + "</dependencies>", true);
+        publish("lib", "1.0", parent() + "<dependencies>" + dep("commons", null, null)
+                + dep("logging", null, null) + dep("legacy", "1.0", null)
+                + dep("optional-lib", "1.0", null).replace("</dependency>", "<optional>true</optional></dependency>")
+                + "</dependencies>", true);
+        publish("commons", "1.0", "", true);
+        publish("commons", "2.0", "", true);
+        publish("commons", "2.1", "", true);
+        publish("logging", "3.0", "", true);
+        publish("legacy", "1.0", "", true);
+        publish("driver", "1.0", "", true);
+        publish("junit", "4.0", "", true);
+        publish("optional-lib", "1.0", "", true);
+    }
+
+    @Test
+    public void pomGraphIsResolvedAsMavenDoes() {
+        final JkResolveResult result = resolver().resolve(null,
+                JkDependencySet.of().and(GROUP + ":app:1.0", COMPILE),
+                JkResolutionParameters.of(), COMPILE);
+        result.assertNoError();
+        assertEquals(moduleNames("app", "commons", "lib", "logging"), moduleNames(result));
+        assertEquals("1.0", result.getVersionOf(JkModuleId.of(GROUP, "commons")).getValue());  // nearest wins
+        assertEquals("3.0", result.getVersionOf(JkModuleId.of(GROUP, "logging")).getValue());
+        assertEquals(4, result.getFiles().getEntries().size());
+        final JkDependencyNode app = result.getDependencyTree().getChildren().get(0);
+        assertEquals(JkModuleId.of(GROUP, "app"), app.getModuleInfo().getModuleId());
+        assertNotNull(app.getChild(JkModuleId.of(GROUP, "lib")));
+    }
+
+    @Test
+    public void runtimeScopeIncludesRuntimeDependencies() {
+        final JkResolveResult result = resolver().resolve(null,
+                JkDependencySet.of().and(GROUP + ":app:1.0", COMPILE, RUNTIME),
+                JkResolutionParameters.of(), RUNTIME);
+        result.assertNoError();
+        assertEquals(moduleNames("app", "commons", "driver", "lib", "logging"), moduleNames(result));
+    }
+
+    @Test
+    public void versionProviderAndDynamicVersionsAreHonoured() {
+        final JkResolveResult result = resolver().resolve(null,
+                JkDependencySet.of().and(GROUP + ":lib:1.+", COMPILE)
+                        .withVersionProvider(JkVersionProvider.of(GROUP + ":commons", "2.1")),
+                JkResolutionParameters.of(), COMPILE);
+        result.assertNoError();
+        assertEquals("1.0", result.getVersionOf(JkModuleId.of(GROUP, "lib")).getValue());
+        assertEquals("2.1", result.getVersionOf(JkModuleId.of(GROUP, "commons")).getValue());
+        assertTrue(result.contains(JkModuleId.of(GROUP, "legacy")));
+    }
+
+    @Test
+    public void exclusionsAndMissingModulesAreHandled() {
+        final JkResolveResult result = resolver().resolve(null,
+                JkDependencySet.of().and(GROUP + ":lib:1.0", COMPILE).and(GROUP + ":missing:1.0", COMPILE)
+                        .withGlobalExclusion(JkDepExclude.of(GROUP, "logging")),
+                JkResolutionParameters.of(), COMPILE);
+        assertFalse(result.contains(JkModuleId.of(GROUP, "logging")));
+        assertTrue(result.getErrorReport().hasErrors());
+        assertEquals(JkModuleId.of(GROUP, "missing"), result.getErrorReport().getModuleProblems().get(0).getModuleId());
+    }
+
+    @Test
+    public void versionsAreSelectedIndependentlyForEachScope() {
+        final JkResolveResult result = resolver().resolve(null,
+                JkDependencySet.of().and(GROUP + ":commons:2.1", TEST).and(GROUP + ":lib:1.0", COMPILE),
+                JkResolutionParameters.of(), TEST, COMPILE);
+        result.assertNoError();
+        final JkModuleId commons = JkModuleId.of(GROUP, "commons");
+        assertEquals("2.1", result.withScopesOnly(TEST).getVersionOf(commons).getValue());
+        assertEquals("2.0", result.withScopesOnly(COMPILE).getVersionOf(commons).getValue());
+        assertEquals(1, result.withScopesOnly(COMPILE).getFiles().getEntries().stream()
+                .filter(file -> file.getFileName().toString().startsWith("commons")).count());
+    }
+
+    @Test
+    public void modulesAreExcludedOnlyIfExcludedAlongAllPaths() throws IOException {
+        publish("wrapper", "1.0", "<dependencies>" + dep("lib", "1.0", null) + "</dependencies>", true);
+        final JkResolveResult result = resolver().resolve(null,
+                JkDependencySet.of().and(GROUP + ":app:1.0", COMPILE).and(GROUP + ":wrapper:1.0", COMPILE),
+                JkResolutionParameters.of(), COMPILE);
+        result.assertNoError();
+        assertTrue(result.contains(JkModuleId.of(GROUP, "legacy")));
+    }
+
+    @Test
+    public void managedExclusionsAreMergedWithDeclaredOnes() throws IOException {
+        publish("managed-app", "1.0", "<dependencyManagement><dependencies>"
+                + dep("lib", "1.0", null).replace("</dependency>", "<exclusions><exclusion><groupId>" + GROUP
+                + "</groupId><artifactId>logging</artifactId></exclusion></exclusions></dependency>")
+                + "</dependencies></dependencyManagement><dependencies>"
+                + dep("lib", null, null).replace("</dependency>", "<exclusions><exclusion><groupId>" + GROUP
+                + "</groupId><artifactId>legacy</artifactId></exclusion></exclusions></dependency>")
+                + "</dependencies>", true);
+        final JkResolveResult result = resolver().resolve(null,
+                JkDependencySet.of().and(GROUP + ":managed-app:1.0", COMPILE),
+                JkResolutionParameters.of(), COMPILE);
+        result.assertNoError();
+        assertTrue(result.contains(JkModuleId.of(GROUP, "lib")));
+        assertFalse(result.contains(JkModuleId.of(GROUP, "legacy")));
+        assertFalse(result.contains(JkModuleId.of(GROUP, "logging")));
+    }
+
+    @Test
+    public void downloadedArtifactsAreVerified() throws Exception {
+        final byte[] jar = "jar content".getBytes(StandardCharsets.UTF_8);
+        final String base = "/" + GROUP.replace('.', '/') + "/remote/1.0/remote-1.0";
+        final HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            final String path = exchange.getRequestURI().getPath();
+            final byte[] body;
+            if (path.equals(base + ".jar")) {
+                body = jar;
+            } else if (path.equals(base + ".jar.sha1")) {
+                body = sha1("other content".getBytes(StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+            } else {
+                body = null;
+            }
+            exchange.sendResponseHeaders(body == null ? 404 : 200, body == null ? -1 : body.length);
+            if (body != null) {
+                try (OutputStream outputStream = exchange.getResponseBody()) {
+                    outputStream.write(body);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+        try {
+            final JkRepoSet repos = JkRepoSet.of("http://localhost:" + server.getAddress().getPort());
+            final JkResolveResult result = MavenInternalDepResolver.of(repos, cacheDir).resolve(null,
+                    JkDependencySet.of().and(GROUP + ":remote:1.0", COMPILE), JkResolutionParameters.of(), COMPILE);
+            assertTrue(result.getErrorReport().hasErrors());
+            assertTrue(result.getErrorReport().getModuleProblems().get(0).getProblemText().contains("SHA-1"));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void metadataAreFetchedConditionallyOnKeptAliveConnections() throws Exception {
+        final byte[] metadata = ("<metadata><versioning><versions><version>1.0</version><version>1.1</version>"
+                + "</versions></versioning></metadata>").getBytes(StandardCharsets.UTF_8);
+        final String base = "/" + GROUP.replace('.', '/') + "/dynamic";
+        final Set<Integer> clientPorts = new HashSet<>();
+        final AtomicInteger notModifiedCount = new AtomicInteger();
+        final AtomicInteger metadataRequestCount = new AtomicInteger();
+        final HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            final String path = exchange.getRequestURI().getPath();
+            // Not found responses carry a body, otherwise the server would close the connection
+            byte[] body = "not found".getBytes(StandardCharsets.UTF_8);
+            int code = 404;
+            if (path.equals(base + "/maven-metadata.xml")) {
+                metadataRequestCount.incrementAndGet();
+                exchange.getResponseHeaders().add("ETag", "\"v1\"");
+                if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    notModifiedCount.incrementAndGet();
+                    body = null;
+                    code = 304;
+                } else {
+                    body = metadata;
+                    code = 200;
+                }
+            } else if (path.equals(base + "/1.1/dynamic-1.1.jar")) {
+                body = "jar".getBytes(StandardCharsets.UTF_8);
+                code = 200;
+            }
+            exchange.sendResponseHeaders(code, body == null ? -1 : body.length);
+            if (body != null) {
+                try (OutputStream outputStream = exchange.getResponseBody()) {
+                    outputStream.write(body);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+        try {
+            final JkRepo repo = JkRepo.of("http://localhost:" + server.getAddress().getPort());
+            final JkDependencySet dependencies = JkDependencySet.of().and(GROUP + ":dynamic:1.+", COMPILE);
+            for (int i = 0; i < 2; i++) {
+                resolveDynamic(repo.withUpdatePolicy(JkRepo.JkUpdatePolicy.ALWAYS), dependencies);
+            }
+            assertEquals(1, notModifiedCount.get());
+            // The test server closes connections after body-less responses as the 304 one
+            assertEquals(2, clientPorts.size());
+
+            // Metadata checked a moment ago are not checked again until the update policy expires
+            resolveDynamic(repo.withUpdatePolicy(JkRepo.JkUpdatePolicy.DAILY), dependencies);
+            resolveDynamic(repo.withUpdatePolicy(JkRepo.JkUpdatePolicy.ofInterval(60)), dependencies);
+            assertEquals(2, metadataRequestCount.get());
+            resolveDynamic(repo.withUpdatePolicy(JkRepo.JkUpdatePolicy.DAILY), dependencies,
+                    JkResolutionParameters.of().isRefreshed(true));
+            assertEquals(3, metadataRequestCount.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private void resolveDynamic(JkRepo repo, JkDependencySet dependencies) {
+        resolveDynamic(repo, dependencies, JkResolutionParameters.of());
+    }
+
+    private void resolveDynamic(JkRepo repo, JkDependencySet dependencies, JkResolutionParameters parameters) {
+        final JkResolveResult result = MavenInternalDepResolver.of(repo.toSet(), cacheDir).resolve(null,
+                dependencies, parameters, COMPILE);
+        assertFalse(result.getErrorReport().toString(), result.getErrorReport().hasErrors());
+        assertEquals("1.1", result.getVersionOf(JkModuleId.of(GROUP, "dynamic")).getValue());
+    }
+
+    @Test
+    public void versionsAreComparedBlockByBlock() {
+        assertTrue(MavenVersionRange.compare("1.10", "1.9") > 0);
+        assertTrue(MavenVersionRange.compare("1.0", "1.0-rc1") > 0);
+        assertEquals(0, MavenVersionRange.compare("1.0", "1.0.0"));
+        assertTrue(MavenVersionRange.of("[1.0,2.0)").contains("1.5"));
+        assertFalse(MavenVersionRange.of("[1.0,2.0)").contains("2.0"));
+        assertTrue(MavenVersionRange.of("[1.0,2.0[").contains("1.0"));
+    }
+
+    private MavenInternalDepResolver resolver() {
+        return MavenInternalDepResolver.of(JkRepoSet.of(JkRepo.ofMaven(repoDir)), cacheDir);
+    }
+
+    private static List<String> moduleNames(String... names) {
+        return Arrays.asList(names);
+    }
+
+    private static List<String> moduleNames(JkResolveResult result) {
+        return result.getInvolvedModules().stream()
+                .map(module -> module.getModuleId().getName())
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    private void publish(String name, String version, String content, boolean withJar) throws IOException {
+        final Path dir = repoDir.resolve(GROUP.replace('.', '/')).resolve(name).resolve(version);
+        Files.createDirectories(dir);
+        Files.write(dir.resolve(name + "-" + version + ".pom"), ("<project><modelVersion>4.0.0</modelVersion>"
+                + "<groupId>" + GROUP + "</groupId><artifactId>" + name + "</artifactId><version>" + version
+                + "</version>" + content + "</project>").getBytes(StandardCharsets.UTF_8));
+        if (withJar) {
+            Files.write(dir.resolve(name + "-" + version + ".jar"), name.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String parent() {
+        return "<parent><groupId>" + GROUP + "</groupId><artifactId>parent</artifactId><version>1.0</version></parent>";
+    }
+
+    private static String dep(String name, String version, String scope) {
+        return "<dependency><groupId>" + GROUP + "</groupId><artifactId>" + name + "</artifactId>"
+                + (version == null ? "" : "<version>" + version + "</version>")
+                + (scope == null ? "" : "<scope>" + scope + "</scope>") + "</dependency>";
+    }
+
+    private static String sha1(byte[] bytes) {
+        try {
+            return JkUtilsString.toHexString(MessageDigest.getInstance("SHA-1").digest(bytes));
+        } catch (final Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
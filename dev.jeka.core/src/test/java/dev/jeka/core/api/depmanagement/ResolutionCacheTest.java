@@ -0,0 +1,99 @@
+package dev.jeka.core.api.depmanagement;
+
+import dev.jeka.core.api.depmanagement.JkDependencyNode.JkModuleNodeInfo;
+import dev.jeka.core.api.utils.JkUtilsIterable;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedList;
+
+import static dev.jeka.core.api.depmanagement.JkJavaDepScopes.COMPILE;
+import static dev.jeka.core.api.depmanagement.JkJavaDepScopes.RUNTIME;
+import static org.junit.Assert.*;
+
+public class ResolutionCacheTest {
+
+    @Test
+    public void putThenGetReturnsSameTree() throws IOException {
+        final Path dir = Files.createTempDirectory("jeka-resolution-cache");
+        final Path guavaJar = Files.createFile(dir.resolve("guava.jar"));
+        final Path jsr305Jar = Files.createFile(dir.resolve("jsr305.jar"));
+        final JkResolveResult resolveResult = JkResolveResult.of(tree(guavaJar, jsr305Jar),
+                JkResolveResult.JkErrorReport.allFine());
+        final ResolutionCache cache = ResolutionCache.of(dir.resolve("cache"));
+        cache.put("key", resolveResult);
+
+        final JkResolveResult cachedResult = cache.get("key", JkUtilsIterable.setOf(COMPILE, RUNTIME));
+        assertNotNull(cachedResult);
+        assertEquals(resolveResult.getDependencyTree().toStringTree(),
+                cachedResult.getDependencyTree().toStringTree());
+        assertEquals(resolveResult.getFiles(), cachedResult.getFiles());
+        assertNull(cache.get("otherKey", Collections.emptySet()));
+
+        Files.delete(jsr305Jar);
+        assertNull(cache.get("key", Collections.emptySet()));
+    }
+
+    @Test
+    public void resultsWithErrorsAreNotCached() throws IOException {
+        final Path dir = Files.createTempDirectory("jeka-resolution-cache");
+        final ResolutionCache cache = ResolutionCache.of(dir);
+        cache.put("key", JkResolveResult.of(tree(), JkResolveResult.JkErrorReport.failure(new LinkedList<>())));
+        assertNull(cache.get("key", Collections.emptySet()));
+    }
+
+    @Test
+    public void dynamicVersionsAreNotCacheable() {
+        assertTrue(ResolutionCache.isCacheable(JkDependencySet.of().and("com.google.guava:guava:21.0")));
+        assertFalse(ResolutionCache.isCacheable(JkDependencySet.of().and("com.google.guava:guava:21.+")));
+        assertFalse(ResolutionCache.isCacheable(JkDependencySet.of().and("foo:bar:1.0-SNAPSHOT")));
+        assertFalse(ResolutionCache.isCacheable(JkDependencySet.of().and("foo:bar")
+                .withVersionProvider(JkVersionProvider.of("foo:bar", "1.0-SNAPSHOT"))));
+    }
+
+    @Test
+    public void resultsHavingTransitiveSnapshotsAreNotCached() throws IOException {
+        final Path dir = Files.createTempDirectory("jeka-resolution-cache");
+        final ResolutionCache cache = ResolutionCache.of(dir);
+        final JkResolveResult resolveResult = JkResolveResult.of(tree("1.0-SNAPSHOT"),
+                JkResolveResult.JkErrorReport.allFine());
+        assertFalse(ResolutionCache.isCacheable(resolveResult));
+        assertTrue(ResolutionCache.isCacheable(JkResolveResult.of(tree(), JkResolveResult.JkErrorReport.allFine())));
+        cache.put("key", resolveResult);
+        assertNull(cache.get("key", Collections.emptySet()));
+    }
+
+    @Test
+    public void keyDependsOnRepos() {
+        final JkDependencySet dependencies = JkDependencySet.of().and("com.google.guava:guava:21.0", COMPILE);
+        final JkResolutionParameters parameters = JkResolutionParameters.of();
+        final JkScope[] scopes = new JkScope[] {COMPILE};
+        final String key = ResolutionCache.key("IVY", null, dependencies, parameters, JkRepoSet.of("http://repo1"), scopes);
+        assertEquals(key, ResolutionCache.key("IVY", null, dependencies, parameters, JkRepoSet.of("http://repo1"), scopes));
+        assertNotEquals(key, ResolutionCache.key("IVY", null, dependencies, parameters, JkRepoSet.of("http://repo2"), scopes));
+        assertNotEquals(key, ResolutionCache.key("IVY", null, dependencies, parameters, JkRepoSet.of("http://repo1"),
+                new JkScope[] {RUNTIME}));
+    }
+
+    private static JkDependencyNode tree(Path... files) {
+        return tree("1.3.9", files);
+    }
+
+    private static JkDependencyNode tree(String jsr305Version, Path... files) {
+        final JkDependencyNode jsr305 = JkDependencyNode.ofModuleDep(JkModuleNodeInfo.of(
+                JkModuleId.of("com.google.code.findbugs:jsr305"), JkVersion.of(jsr305Version),
+                JkUtilsIterable.setOf(COMPILE), JkUtilsIterable.setOf(COMPILE, RUNTIME), JkVersion.of(jsr305Version),
+                files.length > 1 ? Collections.singletonList(files[1]) : new LinkedList<>()), new LinkedList<>());
+        final JkDependencyNode guava = JkDependencyNode.ofModuleDep(JkModuleNodeInfo.of(
+                JkModuleId.of("com.google.guava:guava"), JkVersion.of("21.0"),
+                JkUtilsIterable.setOf(COMPILE), JkUtilsIterable.setOf(COMPILE, RUNTIME), JkVersion.of("21.0"),
+                files.length > 0 ? Collections.singletonList(files[0]) : new LinkedList<>()),
+                JkUtilsIterable.listOf(jsr305));
+        return JkDependencyNode.ofModuleDep(JkModuleNodeInfo.ofRoot(JkVersionedModule.of("my:module:1.0")),
+                JkUtilsIterable.listOf(guava));
+    }
+
+}
@@ -0,0 +1,72 @@
+package dev.jeka.core.api.depmanagement;
+
+import dev.jeka.core.api.depmanagement.JkDependencyNode.JkModuleNodeInfo;
+import dev.jeka.core.api.utils.JkUtilsIterable;
+import org.junit.Test;
+
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedList;
+
+import static dev.jeka.core.api.depmanagement.JkJavaDepScopes.COMPILE;
+import static org.junit.Assert.*;
+
+public class ResolutionSessionTest {
+
+    @Test
+    public void resolversArePooledPerRepositories() {
+        final JkInternalDepResolver resolver = JkDependencyResolver.Engine.MAVEN.internalResolver(
+                JkRepoSet.of("http://session.repo1"));
+        assertSame(resolver, JkDependencyResolver.Engine.MAVEN.internalResolver(JkRepoSet.of("http://session.repo1")));
+        assertNotSame(resolver, JkDependencyResolver.Engine.MAVEN.internalResolver(
+                JkRepoSet.of("http://session.repo2")));
+        assertNotSame(resolver, JkDependencyResolver.Engine.MAVEN.internalResolver(
+                JkRepoSet.of(JkRepo.of("http://session.repo1").withOptionalCredentials("user", "pwd"))));
+    }
+
+    @Test
+    public void memoizedResultsAreRootedToRequestingModule() {
+        final JkDependencyNode guava = JkDependencyNode.ofModuleDep(JkModuleNodeInfo.of(
+                JkModuleId.of("com.google.guava:guava"), JkVersion.of("21.0"), JkUtilsIterable.setOf(COMPILE),
+                JkUtilsIterable.setOf(COMPILE), JkVersion.of("21.0"), Collections.singletonList(Paths.get("guava.jar"))),
+                new LinkedList<>());
+        final JkDependencyNode tree = JkDependencyNode.ofModuleDep(
+                JkModuleNodeInfo.ofRoot(JkVersionedModule.of("my:module1:1.0")), JkUtilsIterable.listOf(guava));
+        ResolutionSession.putResult("session-key", JkResolveResult.of(tree, JkResolveResult.JkErrorReport.allFine()));
+
+        final JkResolveResult result = ResolutionSession.result("session-key",
+                JkVersionedModule.of("my:module2:1.0"));
+        assertEquals(JkModuleId.of("my:module2"), result.getDependencyTree().getModuleInfo().getModuleId());
+        assertEquals(JkVersion.of("21.0"), result.getVersionOf(JkModuleId.of("com.google.guava:guava")));
+        assertNull(ResolutionSession.result("other-key", null));
+
+        ResolutionSession.putResult("failed-key", JkResolveResult.of(tree,
+                JkResolveResult.JkErrorReport.failure(new LinkedList<>())));
+        assertNull(ResolutionSession.result("failed-key", null));
+
+        JkDependencyResolver.resetSession();
+        assertNull(ResolutionSession.result("session-key", null));
+    }
+
+    @Test
+    public void resultsInvolvingSnapshotsAreNotMemoized() {
+        final JkDependencyNode snapshot = JkDependencyNode.ofModuleDep(JkModuleNodeInfo.of(
+                JkModuleId.of("foo:bar"), JkVersion.of("1.0-SNAPSHOT"), JkUtilsIterable.setOf(COMPILE),
+                JkUtilsIterable.setOf(COMPILE), JkVersion.of("1.0-SNAPSHOT"),
+                Collections.singletonList(Paths.get("bar.jar"))), new LinkedList<>());
+        final JkDependencyNode tree = JkDependencyNode.ofModuleDep(
+                JkModuleNodeInfo.ofRoot(JkVersionedModule.of("my:module1:1.0")), JkUtilsIterable.listOf(snapshot));
+        ResolutionSession.putResult("snapshot-key", JkResolveResult.of(tree, JkResolveResult.JkErrorReport.allFine()));
+        assertNull(ResolutionSession.result("snapshot-key", null));
+    }
+
+    @Test
+    public void resetSessionDropsPooledResolvers() {
+        final JkInternalDepResolver resolver = JkDependencyResolver.Engine.MAVEN.internalResolver(
+                JkRepoSet.of("http://session.repo3"));
+        JkDependencyResolver.resetSession();
+        assertNotSame(resolver, JkDependencyResolver.Engine.MAVEN.internalResolver(
+                JkRepoSet.of("http://session.repo3")));
+    }
+
+}
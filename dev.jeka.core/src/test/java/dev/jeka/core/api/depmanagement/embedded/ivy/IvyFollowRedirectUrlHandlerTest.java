@@ -0,0 +1,130 @@
+package dev.jeka.core.api.depmanagement.embedded.ivy;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.jeka.core.api.utils.JkUtilsIO;
+import org.apache.ivy.util.url.URLHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class IvyFollowRedirectUrlHandlerTest {
+
+    private static final String METADATA_PATH = "/dev/jeka/test/handler/maven-metadata.xml";
+
+    private static final byte[] METADATA = "<metadata><versioning><versions><version>1.0</version></versions>"
+            .concat("</versioning></metadata>").getBytes(StandardCharsets.UTF_8);
+
+    private final Map<String, byte[]> uploads = new ConcurrentHashMap<>();
+
+    private final AtomicInteger notModifiedCount = new AtomicInteger();
+
+    private final IvyFollowRedirectUrlHandler handler = new IvyFollowRedirectUrlHandler();
+
+    private HttpServer server;
+
+    @Before
+    public void startRepo() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    @After
+    public void stopRepo() throws IOException {
+        server.stop(0);
+        final Path cachedFile = IvyFollowRedirectUrlHandler.metadataCacheFile(url(METADATA_PATH));
+        Files.deleteIfExists(cachedFile);
+        Files.deleteIfExists(cachedFile.resolveSibling(cachedFile.getFileName() + ".validators"));
+    }
+
+    @Test
+    public void unchangedMetadataAreTakenFromCache() throws IOException {
+        assertArrayEquals(METADATA, read(handler.openStream(url(METADATA_PATH))));
+        assertEquals(0, notModifiedCount.get());
+        assertArrayEquals(METADATA, read(handler.openStream(url(METADATA_PATH))));
+        assertEquals(1, notModifiedCount.get());
+    }
+
+    @Test
+    public void uploadPutsFileContent() throws IOException {
+        final Path file = Files.createTempFile("jeka-upload", ".jar");
+        Files.write(file, "uploaded".getBytes(StandardCharsets.UTF_8));
+        handler.upload(file.toFile(), url("/dev/jeka/test/handler/1.0/handler-1.0.jar"), null);
+        assertArrayEquals(Files.readAllBytes(file), uploads.get("/dev/jeka/test/handler/1.0/handler-1.0.jar"));
+        Files.delete(file);
+    }
+
+    @Test
+    public void urlInfoReflectsResourceAvailability() {
+        final URLHandler.URLInfo info = handler.getURLInfo(url(METADATA_PATH), null);
+        assertTrue(info.isReachable());
+        assertEquals(METADATA.length, info.getContentLength());
+        assertFalse(handler.getURLInfo(url("/missing.pom"), null).isReachable());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        final String path = exchange.getRequestURI().getPath();
+        byte[] body = "not found".getBytes(StandardCharsets.UTF_8);
+        int code = 404;
+        if ("PUT".equals(exchange.getRequestMethod())) {
+            uploads.put(path, read(exchange.getRequestBody()));
+            body = null;
+            code = 201;
+        } else if (path.equals(METADATA_PATH)) {
+            exchange.getResponseHeaders().add("ETag", "\"v1\"");
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModifiedCount.incrementAndGet();
+                body = null;
+                code = 304;
+            } else {
+                body = METADATA;
+                code = 200;
+            }
+        }
+        // Responses to HEAD requests announce the length of the body they do not carry
+        final boolean head = "HEAD".equals(exchange.getRequestMethod());
+        if (head && body != null) {
+            exchange.getResponseHeaders().set("Content-Length", Integer.toString(body.length));
+        }
+        exchange.sendResponseHeaders(code, body == null || head ? -1 : body.length);
+        if (body != null && !head) {
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        }
+        exchange.close();
+    }
+
+    private URL url(String path) {
+        try {
+            return new URL("http://localhost:" + server.getAddress().getPort() + path);
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] read(InputStream inputStream) throws IOException {
+        try (InputStream stream = inputStream) {
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            JkUtilsIO.copy(stream, outputStream);
+            return outputStream.toByteArray();
+        }
+    }
+
+}
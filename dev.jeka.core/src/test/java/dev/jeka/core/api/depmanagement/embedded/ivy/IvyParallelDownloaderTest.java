@@ -0,0 +1,244 @@
+package dev.jeka.core.api.depmanagement.embedded.ivy;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.jeka.core.api.depmanagement.*;
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.system.JkLocator;
+import dev.jeka.core.api.utils.JkUtilsString;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class IvyParallelDownloaderTest {
+
+    private static final String GROUP = "dev.jeka.test.download";
+
+    private static final int MODULE_COUNT = 6;
+
+    private final Map<String, byte[]> contents = new ConcurrentHashMap<>();
+
+    private final AtomicInteger runningJarDownloads = new AtomicInteger();
+
+    private final AtomicInteger maxRunningJarDownloads = new AtomicInteger();
+
+    private final Map<String, String> rangeRequests = new ConcurrentHashMap<>();
+
+    private final AtomicInteger partialResponses = new AtomicInteger();
+
+    private HttpServer server;
+
+    @Before
+    public void startRepo() throws Exception {
+        deleteCachedModules();
+        for (int i = 0; i < MODULE_COUNT; i++) {
+            final String module = "lib" + i;
+            final String base = "/" + GROUP.replace('.', '/') + "/" + module + "/1.0/" + module + "-1.0";
+            final byte[] jar = JkUtilsString.repeat("content of " + module + " ", 5000).getBytes(StandardCharsets.UTF_8);
+            contents.put(base + ".jar", jar);
+            contents.put(base + ".pom", pom(module).getBytes(StandardCharsets.UTF_8));
+        }
+        for (final String path : contents.keySet().toArray(new String[0])) {
+            contents.put(path + ".sha1", sha1(contents.get(path)).getBytes(StandardCharsets.UTF_8));
+        }
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(java.util.concurrent.Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @After
+    public void stopRepo() {
+        server.stop(0);
+        deleteCachedModules();
+    }
+
+    @Test
+    public void artifactsAreDownloadedConcurrently() throws Exception {
+        final JkResolveResult resolveResult = resolver(8).resolve(dependencies());
+        resolveResult.assertNoError();
+        assertEquals(MODULE_COUNT, resolveResult.getFiles().getEntries().size());
+        for (final Path file : resolveResult.getFiles()) {
+            final String module = JkUtilsString.substringBeforeFirst(file.getFileName().toString(), "-");
+            assertArrayEquals(contents.get(jarPath(module)), Files.readAllBytes(file));
+        }
+        assertTrue("Max concurrent downloads was " + maxRunningJarDownloads.get(), maxRunningJarDownloads.get() > 1);
+    }
+
+    @Test
+    public void sequentialDownloadStillWorks() {
+        final JkResolveResult resolveResult = resolver(1).resolve(dependencies());
+        resolveResult.assertNoError();
+        assertEquals(MODULE_COUNT, resolveResult.getFiles().getEntries().size());
+        assertEquals(1, maxRunningJarDownloads.get());
+    }
+
+    @Test
+    public void interruptedDownloadIsResumed() throws Exception {
+        final byte[] jar = contents.get(jarPath("lib0"));
+        writePartialDownload("lib0", Arrays.copyOf(jar, jar.length / 2), etag(jar));
+
+        final JkResolveResult resolveResult = resolver(8).resolve(dependencies());
+
+        resolveResult.assertNoError();
+        assertEquals("bytes=" + (jar.length / 2) + "-", rangeRequests.get(jarPath("lib0")));
+        assertEquals(1, partialResponses.get());
+        assertArrayEquals(jar, Files.readAllBytes(resolveResult.getFilesFor(JkModuleId.of(GROUP, "lib0")).getEntries().get(0)));
+        assertFalse(Files.exists(partFile("lib0").resolveSibling("lib0-1.0.jar.part.validators")));
+    }
+
+    @Test
+    public void interruptedDownloadOfChangedArtifactRestartsFromZero() throws Exception {
+        final byte[] jar = contents.get(jarPath("lib0"));
+        final byte[] previousJar = JkUtilsString.repeat("previous content ", 5000).getBytes(StandardCharsets.UTF_8);
+        writePartialDownload("lib0", Arrays.copyOf(previousJar, previousJar.length / 2), etag(previousJar));
+
+        final JkResolveResult resolveResult = resolver(8).resolve(dependencies());
+
+        resolveResult.assertNoError();
+        assertEquals("bytes=" + (previousJar.length / 2) + "-", rangeRequests.get(jarPath("lib0")));
+        assertEquals(0, partialResponses.get());
+        assertArrayEquals(jar, Files.readAllBytes(resolveResult.getFilesFor(JkModuleId.of(GROUP, "lib0")).getEntries().get(0)));
+    }
+
+    @Test
+    public void partialDownloadWithoutValidatorsRestartsFromZero() throws Exception {
+        final byte[] jar = contents.get(jarPath("lib0"));
+        Files.createDirectories(partFile("lib0").getParent());
+        Files.write(partFile("lib0"), Arrays.copyOf(jar, jar.length / 2));
+
+        final JkResolveResult resolveResult = resolver(8).resolve(dependencies());
+
+        resolveResult.assertNoError();
+        assertNull(rangeRequests.get(jarPath("lib0")));
+        assertArrayEquals(jar, Files.readAllBytes(resolveResult.getFilesFor(JkModuleId.of(GROUP, "lib0")).getEntries().get(0)));
+    }
+
+    @Test
+    public void corruptedArtifactIsReported() {
+        contents.put(jarPath("lib1") + ".sha1", sha1(new byte[] {1, 2, 3}).getBytes(StandardCharsets.UTF_8));
+        final JkResolveResult resolveResult = resolver(8).resolve(dependencies());
+        assertTrue(resolveResult.getErrorReport().hasErrors());
+    }
+
+    private JkDependencyResolver resolver(int downloadThreads) {
+        return JkDependencyResolver.of(JkRepo.of("http://localhost:" + server.getAddress().getPort() + "/"))
+                .withParams(JkResolutionParameters.of().withDownloadThreads(downloadThreads))
+                .withResolutionCacheDir(null);
+    }
+
+    private static JkDependencySet dependencies() {
+        JkDependencySet result = JkDependencySet.of();
+        for (int i = 0; i < MODULE_COUNT; i++) {
+            result = result.and(GROUP + ":lib" + i + ":1.0");
+        }
+        return result;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        final String path = exchange.getRequestURI().getPath();
+        final byte[] content = contents.get(path);
+        if (content == null) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+        final boolean jar = path.endsWith(".jar") && !"HEAD".equals(exchange.getRequestMethod());
+        if (jar) {
+            final int running = runningJarDownloads.incrementAndGet();
+            maxRunningJarDownloads.accumulateAndGet(running, Math::max);
+        }
+        try {
+            if (jar) {
+                Thread.sleep(200);
+                runningJarDownloads.decrementAndGet();
+            }
+            final String range = exchange.getRequestHeaders().getFirst("Range");
+            final String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+            byte[] body = content;
+            int status = 200;
+            if (jar) {
+                exchange.getResponseHeaders().add("ETag", etag(content));
+            }
+            if (range != null) {
+                rangeRequests.put(path, range);
+            }
+            if (range != null && etag(content).equals(ifRange)) {
+                partialResponses.incrementAndGet();
+                final int from = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+                body = Arrays.copyOfRange(content, from, content.length);
+                status = 206;
+                exchange.getResponseHeaders().add("Content-Range",
+                        "bytes " + from + "-" + (content.length - 1) + "/" + content.length);
+            }
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().add("Content-Length", Integer.toString(body.length));
+                exchange.sendResponseHeaders(status, -1);
+            } else {
+                exchange.sendResponseHeaders(status, body.length);
+                try (OutputStream outputStream = exchange.getResponseBody()) {
+                    outputStream.write(body);
+                }
+            }
+        } catch (final InterruptedException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void writePartialDownload(String module, byte[] content, String etag) throws IOException {
+        final Path partFile = partFile(module);
+        Files.createDirectories(partFile.getParent());
+        Files.write(partFile, content);
+        Files.write(partFile.resolveSibling(partFile.getFileName() + ".validators"),
+                ("ETag: " + etag).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Path partFile(String module) {
+        return JkLocator.getJekaRepositoryCache().resolve(GROUP).resolve(module + "/jars/" + module + "-1.0.jar.part");
+    }
+
+    private static String etag(byte[] content) {
+        return "\"" + sha1(content) + "\"";
+    }
+
+    private static String jarPath(String module) {
+        return "/" + GROUP.replace('.', '/') + "/" + module + "/1.0/" + module + "-1.0.jar";
+    }
+
+    private static String pom(String module) {
+        return "<project><modelVersion>4.0.0</modelVersion><groupId>" + GROUP + "</groupId><artifactId>"
+                + module + "</artifactId><version>1.0</version></project>";
+    }
+
+    private static String sha1(byte[] bytes) {
+        try {
+            return JkUtilsString.toHexString(MessageDigest.getInstance("SHA-1").digest(bytes));
+        } catch (final Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void deleteCachedModules() {
+        final Path cachedModules = JkLocator.getJekaRepositoryCache().resolve(GROUP);
+        if (Files.exists(cachedModules)) {
+            JkPathTree.of(cachedModules).deleteRoot();
+        }
+    }
+
+}
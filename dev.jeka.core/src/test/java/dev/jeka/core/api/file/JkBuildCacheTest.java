@@ -0,0 +1,93 @@
+package dev.jeka.core.api.file;
+
+import dev.jeka.core.api.utils.JkUtilsPath;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class JkBuildCacheTest {
+
+    @Test
+    public void testRunOrRestore() throws Exception {
+        Path root = JkUtilsPath.createTempDirectory("jeka-build-cache");
+        JkBuildCache cache = JkBuildCache.of(root.resolve("cache"));
+        Path input = root.resolve("input/foo.txt");
+        write(input, "foo");
+        Path outputDir = root.resolve("output");
+        Path outputFile = root.resolve("out.txt");
+        AtomicInteger runCount = new AtomicInteger();
+        Runnable task = () -> {
+            runCount.incrementAndGet();
+            write(outputDir.resolve("sub/bar.txt"), "bar");
+            write(outputFile, "out");
+        };
+
+        assertFalse(cache.runOrRestore(fingerprint(input), task, outputDir, outputFile));
+        assertEquals(1, runCount.get());
+
+        // Outputs are deleted then restored without running the task
+        JkPathTree.of(outputDir).deleteRoot();
+        Files.delete(outputFile);
+        assertTrue(cache.runOrRestore(fingerprint(input), task, outputDir, outputFile));
+        assertEquals(1, runCount.get());
+        assertEquals("bar", new String(Files.readAllBytes(outputDir.resolve("sub/bar.txt")), StandardCharsets.UTF_8));
+        assertTrue(Files.exists(outputFile));
+
+        // Input changes : task runs again
+        write(input, "foo2");
+        assertFalse(cache.runOrRestore(fingerprint(input), task, outputDir, outputFile));
+        assertEquals(2, runCount.get());
+        JkPathTree.of(root).deleteRoot();
+    }
+
+    @Test
+    public void testFingerprintDoesNotDependOnLocation() {
+        Path root = JkUtilsPath.createTempDirectory("jeka-build-cache");
+        write(root.resolve("a/src/Foo.java"), "class Foo {}");
+        write(root.resolve("b/src/Foo.java"), "class Foo {}");
+        assertEquals(JkBuildCache.fingerprint("compile").and(JkPathTree.of(root.resolve("a/src"))).get(),
+                JkBuildCache.fingerprint("compile").and(JkPathTree.of(root.resolve("b/src"))).get());
+        assertNotEquals(JkBuildCache.fingerprint("compile").and(JkPathTree.of(root.resolve("a/src"))).get(),
+                JkBuildCache.fingerprint("test").and(JkPathTree.of(root.resolve("a/src"))).get());
+        JkPathTree.of(root).deleteRoot();
+    }
+
+    @Test
+    public void testEntriesUnusedForLongerThanMaxAgeAreEvicted() throws Exception {
+        Path root = JkUtilsPath.createTempDirectory("jeka-build-cache");
+        JkBuildCache cache = JkBuildCache.of(root.resolve("cache")).withMaxAge(Duration.ofDays(2));
+        Path output = root.resolve("out.txt");
+        write(output, "out");
+        cache.store("aa01", output);
+        cache.store("aa02", output);
+        cache.store("bb01", output);
+        FileTime old = FileTime.fromMillis(System.currentTimeMillis() - Duration.ofDays(3).toMillis());
+        Files.setLastModifiedTime(root.resolve("cache/aa/aa01"), old);
+        Files.setLastModifiedTime(root.resolve("cache/aa/aa02"), old);
+
+        // Restoring an entry renews it
+        assertTrue(cache.restore("aa02", output));
+        assertEquals(1, cache.prune());
+        assertFalse(cache.restore("aa01", output));
+        assertTrue(cache.restore("aa02", output));
+        assertTrue(cache.restore("bb01", output));
+        JkPathTree.of(root).deleteRoot();
+    }
+
+    private static JkBuildCache.JkFingerprint fingerprint(Path input) {
+        return JkBuildCache.fingerprint("task").andFiles(JkUtilsPath.listDirectChildren(input.getParent()));
+    }
+
+    private static void write(Path file, String content) {
+        JkUtilsPath.createDirectories(file.getParent());
+        JkUtilsPath.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
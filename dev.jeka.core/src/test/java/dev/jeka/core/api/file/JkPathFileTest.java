@@ -7,9 +7,11 @@ import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 public class JkPathFileTest {
 
@@ -30,4 +32,26 @@ public class JkPathFileTest {
         System.out.println(to);
     }
 
+    @Test
+    public void testGetChecksums() throws Exception {
+        Path file = Files.createTempFile("test", ".bin");
+        byte[] content = new byte[3 * 1024 * 1024 + 17];  // Spans several read buffers
+        new Random(1).nextBytes(content);
+        Files.write(file, content);
+        Map<String, String> checksums = JkPathFile.of(file).getChecksums("MD5", "sha1", "SHA-256");
+        Assert.assertEquals(hex(MessageDigest.getInstance("MD5").digest(content)), checksums.get("MD5"));
+        Assert.assertEquals(hex(MessageDigest.getInstance("SHA-1").digest(content)), checksums.get("sha1"));
+        Assert.assertEquals(hex(MessageDigest.getInstance("SHA-256").digest(content)), checksums.get("SHA-256"));
+        Assert.assertEquals(checksums.get("sha1"), JkPathFile.of(file).getChecksum("sha1"));
+        Files.delete(file);
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder();
+        for (byte b : bytes) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+
 }
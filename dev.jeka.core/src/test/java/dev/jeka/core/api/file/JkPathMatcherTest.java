@@ -6,7 +6,10 @@ import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -54,6 +57,42 @@ public class JkPathMatcherTest {
 
     }
 
+    @Test
+    public void testIncludeAndExclude() {
+        JkPathMatcher matcher = JkPathMatcher.of(FileSystems.getDefault(), Arrays.asList("**.java"),
+                Arrays.asList("**/_*", "_*"));
+        assertTrue(matcher.matches(Paths.get("foo/Bar.java")));
+        assertTrue(matcher.matches(Paths.get("Bar.java")));
+        assertFalse(matcher.matches(Paths.get("foo/_Bar.java")));
+        assertFalse(matcher.matches(Paths.get("_Bar.java")));
+        assertFalse(matcher.matches(Paths.get("foo/Bar.txt")));
+
+        matcher = JkPathMatcher.of(true, "**/*.java", "*.java").and(JkPathMatcher.of(false, "**/_*"));
+        assertTrue(matcher.matches(Paths.get("foo/Bar.java")));
+        assertFalse(matcher.matches(Paths.get("foo/_Bar.java")));
+    }
+
+    @Test
+    public void testSameResultAsFileSystemMatcher() {
+        List<String> patterns = Arrays.asList("**", "*", "**/*", "**.java", "**/*.java", "*.java", "foo/**",
+                "foo/**/*.txt", "foo/bar.txt", "f*/bar.txt", "*/bar.txt", "foo/b?r.txt", "**/b[a-c]r.*",
+                "**/b[!a]r.*", "**/*.{java,txt}", "{foo,com}/**", "com/**/*", "**/_*", "*/**/b*", "foo\\*",
+                "**/bar.txt", "foo/", "**/*Test.class", "[^a]*", "meta-inf/*.sf");
+        List<String> paths = Arrays.asList("", "foo", "foo/bar.txt", "foo/bar.java", "Bar.java", "foo/sub/bar.txt",
+                "foo/sub/_Bar.java", "_Bar.java", "com", "com/foo", "bar/foo/bar.txt", "foo/bir.txt", "foo/bbr.txt",
+                "foo*", "a/b/c/FooTest.class", "FooTest.class", "^abc", "meta-inf/x.sf", ".java", "foo/.java");
+        for (String pattern : patterns) {
+            PathMatcher expected = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+            JkPathMatcher positive = JkPathMatcher.of(true, pattern);
+            JkPathMatcher negative = JkPathMatcher.of(false, pattern);
+            for (String pathString : paths) {
+                Path path = Paths.get(pathString);
+                assertEquals(pattern + " on " + pathString, expected.matches(path), positive.matches(path));
+                assertEquals(pattern + " on " + pathString, !expected.matches(path), negative.matches(path));
+            }
+        }
+    }
+
     private void testDoMatchOk(String pathString) {
 
         Path path = Paths.get(pathString).normalize();
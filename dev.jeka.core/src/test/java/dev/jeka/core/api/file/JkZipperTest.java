@@ -0,0 +1,147 @@
+package dev.jeka.core.api.file;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.jar.JarInputStream;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+public class JkZipperTest {
+
+    @Test
+    public void testZipIsReproducibleAndReadable() throws IOException {
+        final Path dir = sampleDir();
+        final Path zip1 = Files.createTempDirectory("jeka-zipper").resolve("out1.jar");
+        final Path zip2 = zip1.resolveSibling("out2.jar");
+        JkPathTree.of(dir).zipTo(zip1);
+        Files.setLastModifiedTime(dir.resolve("a/b/Foo.class"), FileTime.fromMillis(0));
+        JkPathTree.of(dir).zipTo(zip2, JkZipper.of().withThreads(1));
+        assertArrayEquals(Files.readAllBytes(zip1), Files.readAllBytes(zip2));
+
+        assertEquals(Arrays.asList("META-INF/", "META-INF/MANIFEST.MF", "a/", "a/b/", "a/b/Foo.class",
+                "a/b/big.txt", "z.txt"), entryNames(zip1));
+        try (ZipFile zipFile = new ZipFile(zip1.toFile())) {
+            assertEquals(ZipEntry.DEFLATED, zipFile.getEntry("a/b/big.txt").getMethod());
+            assertEquals(bigContent(), read(zipFile, "a/b/big.txt"));
+        }
+        try (JarInputStream jarInputStream = new JarInputStream(Files.newInputStream(zip1))) {
+            assertNotNull(jarInputStream.getManifest());
+        }
+    }
+
+    @Test
+    public void testStoreOnly() throws IOException {
+        final Path zip = Files.createTempDirectory("jeka-zipper").resolve("out.zip");
+        JkPathTree.of(sampleDir()).zipTo(zip, JkZipper.of().withCompressionLevel(JkZipper.STORE_ONLY));
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            final ZipEntry entry = zipFile.getEntry("a/b/big.txt");
+            assertEquals(ZipEntry.STORED, entry.getMethod());
+            assertEquals(entry.getSize(), entry.getCompressedSize());
+            assertEquals(bigContent(), read(zipFile, "a/b/big.txt"));
+        }
+    }
+
+    @Test
+    public void testLaterTreesOverrideExistingEntries() throws IOException {
+        final Path dir1 = Files.createTempDirectory("jeka-zipper");
+        final Path dir2 = Files.createTempDirectory("jeka-zipper");
+        write(dir1.resolve("common.txt"), "dir1");
+        write(dir1.resolve("only1.txt"), "only1");
+        write(dir2.resolve("common.txt"), "dir2");
+        final Path zip = Files.createTempDirectory("jeka-zipper").resolve("out.zip");
+        JkPathTreeSet.of(dir1, dir2).zipTo(zip);
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            assertEquals("dir2", read(zipFile, "common.txt"));
+            assertEquals("only1", read(zipFile, "only1.txt"));
+        }
+
+        // Zipping to an existing archive keeps entries not overridden
+        final Path dir3 = Files.createTempDirectory("jeka-zipper");
+        write(dir3.resolve("only1.txt"), "dir3");
+        write(dir3.resolve("only3.txt"), "only3");
+        JkPathTree.of(dir3).zipTo(zip);
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            assertEquals("dir2", read(zipFile, "common.txt"));
+            assertEquals("dir3", read(zipFile, "only1.txt"));
+            assertEquals("only3", read(zipFile, "only3.txt"));
+        }
+        assertEquals(Arrays.asList("common.txt", "only1.txt", "only3.txt"),
+                JkPathTree.ofZip(zip).getRelativeFiles().stream().map(Path::toString).sorted()
+                        .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testArchiveEntryNamesAreDecodedAccordingToTheirFlag() throws IOException {
+        final Charset cp437 = Charset.forName("IBM437");
+        final Path legacyArchive = Files.createTempDirectory("jeka-zipper").resolve("legacy.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(legacyArchive), cp437)) {
+            zip.putNextEntry(new ZipEntry("caf\u00e9.txt"));
+            zip.write("legacy".getBytes(StandardCharsets.UTF_8));
+        }
+        final Path utf8Archive = legacyArchive.resolveSibling("utf8.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(utf8Archive), StandardCharsets.UTF_8)) {
+            zip.putNextEntry(new ZipEntry("\u00e9t\u00e9.txt"));
+            zip.write("utf8".getBytes(StandardCharsets.UTF_8));
+        }
+        final Path zip = legacyArchive.resolveSibling("out.zip");
+        JkZipper.of().withArchiveCharset(cp437).zip(JkPathTreeSet.ofEmpty(), Arrays.asList(legacyArchive, utf8Archive),
+                JkPathMatcher.of(), zip);
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            assertEquals("legacy", read(zipFile, "caf\u00e9.txt"));
+            assertEquals("utf8", read(zipFile, "\u00e9t\u00e9.txt"));
+        }
+    }
+
+    private static Path sampleDir() throws IOException {
+        final Path dir = Files.createTempDirectory("jeka-zipper");
+        write(dir.resolve("META-INF/MANIFEST.MF"), "Manifest-Version: 1.0\r\n\r\n");
+        write(dir.resolve("a/b/Foo.class"), "foo");
+        write(dir.resolve("a/b/big.txt"), bigContent());
+        write(dir.resolve("z.txt"), "accent");
+        return dir;
+    }
+
+    private static String bigContent() {
+        return String.join("\n", Collections.nCopies(10_000, "Some text compressing well"));
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(ZipFile zipFile, String entryName) throws IOException {
+        try (InputStream inputStream = zipFile.getInputStream(zipFile.getEntry(entryName))) {
+            final byte[] bytes = new byte[(int) zipFile.getEntry(entryName).getSize()];
+            int offset = 0;
+            while (offset < bytes.length) {
+                offset += inputStream.read(bytes, offset, bytes.length - offset);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static List<String> entryNames(Path zip) throws IOException {
+        final List<String> result = new LinkedList<>();
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            zipFile.stream().forEach(entry -> result.add(entry.getName()));
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,60 @@
+package dev.jeka.core.api.java;
+
+import dev.jeka.core.api.utils.JkUtilsIO;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class JkClassFileTest {
+
+    @Test
+    public void testReadOwnClass() throws IOException {
+        JkClassFile classFile = JkClassFile.of(bytes(Sample.class));
+        assertEquals(Sample.class.getName(), classFile.getClassName());
+        assertEquals("dev.jeka.core.api.java", classFile.getPackageName());
+        assertEquals(Object.class.getName(), classFile.getSuperClassName());
+        assertTrue(classFile.getInterfaceNames().contains(Serializable.class.getName()));
+        assertEquals("JkClassFileTest.java", classFile.getSourceFileName());
+        assertTrue(classFile.getReferencedClassNames().contains(Map.class.getName()));
+        assertTrue(classFile.getReferencedClassNames().contains(InputStream.class.getName()));
+        assertTrue(classFile.getReferencedClassNames().contains(List.class.getName()));
+        assertTrue(classFile.hasConstants());
+        assertTrue(classFile.isAnnotatedWith(Deprecated.class.getName()));
+    }
+
+    @Test
+    public void testReadTestClass() throws IOException {
+        JkClassFile classFile = JkClassFile.of(bytes(JkClassFileTest.class));
+        assertTrue(classFile.isAnnotatedWith(Test.class.getName()));
+        assertFalse(classFile.hasConstants());
+    }
+
+    private static byte[] bytes(Class<?> clazz) throws IOException {
+        String resource = "/" + clazz.getName().replace('.', '/') + ".class";
+        try (InputStream inputStream = clazz.getResourceAsStream(resource)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            JkUtilsIO.copy(inputStream, out);
+            return out.toByteArray();
+        }
+    }
+
+    static class Sample<T extends List<String>> implements Serializable {
+
+        static final String CONSTANT = "constant";
+
+        private Map<String, T> map;
+
+        @Deprecated
+        InputStream stream() {
+            return null;
+        }
+    }
+
+}
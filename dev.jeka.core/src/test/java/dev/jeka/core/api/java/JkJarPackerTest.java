@@ -0,0 +1,87 @@
+package dev.jeka.core.api.java;
+
+import dev.jeka.core.api.file.JkPathMatcher;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+public class JkJarPackerTest {
+
+    private static final String SERVICE = "META-INF/services/my.Service";
+
+    @Test
+    public void testMakeFatJar() throws IOException {
+        final Path classDir = Files.createTempDirectory("jeka-fat-jar");
+        write(classDir.resolve("my/Main.class"), "main");
+        write(classDir.resolve("my/Shared.class"), "main-shared");
+        write(classDir.resolve(SERVICE), "my.MainImpl\n");
+        final Path jar1 = jar("jar1", "dep1/A.class", "a1", "my/Shared.class", "jar1-shared", "lib/Dup.class",
+                "jar1-dup", SERVICE, "dep1.Impl\nmy.MainImpl\n", "META-INF/SIGNER.SF", "signature",
+                "big.txt", String.join("\n", Collections.nCopies(1000, "compressible")));
+        final Path jar2 = jar("jar2", "lib/Dup.class", "jar2-dup", SERVICE, "dep2.Impl", "excluded/X.class", "x");
+        final Path fatJar = classDir.resolveSibling(classDir.getFileName() + "-fat.jar");
+
+        JkJarPacker.of(classDir).withManifest(JkManifest.ofEmpty().addMainClass("my.Main"))
+                .makeFatJar(fatJar, Arrays.asList(jar1, jar2), JkPathMatcher.of(false, "excluded/**"));
+
+        try (ZipFile zipFile = new ZipFile(fatJar.toFile())) {
+            assertEquals("META-INF/", zipFile.stream().findFirst().get().getName());
+            assertEquals("main-shared", read(zipFile, "my/Shared.class"));
+            assertEquals("jar1-dup", read(zipFile, "lib/Dup.class"));
+            assertEquals("a1", read(zipFile, "dep1/A.class"));
+            assertEquals("my.MainImpl\ndep1.Impl\ndep2.Impl\n", read(zipFile, SERVICE));
+            assertNull(zipFile.getEntry("META-INF/SIGNER.SF"));
+            assertNull(zipFile.getEntry("excluded/X.class"));
+            assertNotNull(zipFile.getEntry("dep1/"));
+            assertTrue(read(zipFile, "META-INF/MANIFEST.MF").contains("my.Main"));
+            try (ZipFile sourceJar = new ZipFile(jar1.toFile())) {  // Copied as is
+                assertEquals(sourceJar.getEntry("big.txt").getCompressedSize(),
+                        zipFile.getEntry("big.txt").getCompressedSize());
+            }
+        }
+    }
+
+    private static Path jar(String name, String... entryNamesAndContents) throws IOException {
+        final Path result = Files.createTempFile(name, ".jar");
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(Files.newOutputStream(result))) {
+            for (int i = 0; i < entryNamesAndContents.length; i += 2) {
+                zipOutputStream.putNextEntry(new ZipEntry(entryNamesAndContents[i]));
+                zipOutputStream.write(entryNamesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return result;
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (OutputStream outputStream = Files.newOutputStream(file)) {
+            outputStream.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String read(ZipFile zipFile, String entryName) throws IOException {
+        final ZipEntry entry = zipFile.getEntry(entryName);
+        assertNotNull(entryName, entry);
+        try (InputStream inputStream = zipFile.getInputStream(entry)) {
+            final byte[] bytes = new byte[(int) entry.getSize()];
+            int offset = 0;
+            while (offset < bytes.length) {
+                offset += inputStream.read(bytes, offset, bytes.length - offset);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+}
@@ -1,7 +1,15 @@
 package dev.jeka.core.api.java;
 
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.utils.JkUtilsPath;
 import org.junit.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+
 import static org.junit.Assert.*;
 
 public class JkJavaCompilerTest {
@@ -12,4 +20,134 @@ public class JkJavaCompilerTest {
         assertEquals("8", JkJavaCompiler.currentJdkSourceVersion("1.8.0_211"));
         assertEquals("9", JkJavaCompiler.currentJdkSourceVersion("9.0.1"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void incrementalCompileRecompilesOnlyChangedSourcesAndDependents() throws Exception {
+        Path root = JkUtilsPath.createTempDirectory("jeka-incremental");
+        Path src = root.resolve("src");
+        Path classes = root.resolve("classes");
+        write(src.resolve("pkg/A.java"), "package pkg; public class A { B b = new B(); }");
+        write(src.resolve("pkg/B.java"), "package pkg; public class B { int value() { return 1; } }");
+        write(src.resolve("pkg/C.java"), "package pkg; public class C { }");
+        JkJavaCompiler compiler = JkJavaCompiler.ofJdk().withIncremental(true);
+        JkJavaCompileSpec spec = JkJavaCompileSpec.of().addSources(src).setOutputDir(classes);
+
+        assertTrue(compiler.compile(spec));
+        assertTrue(Files.exists(JkJavaCompiler.getIncrementalIndexFile(classes)));
+        FileTime old = FileTime.fromMillis(0);
+        for (Path classFile : JkPathTree.of(classes).andMatching("**/*.class").getFiles()) {
+            Files.setLastModifiedTime(classFile, old);
+        }
+
+        // Nothing changed : nothing is recompiled
+        assertTrue(compiler.compile(spec));
+        assertEquals(old, Files.getLastModifiedTime(classes.resolve("pkg/A.class")));
+
+        // B changes : B and A, which depends on B, are recompiled but not C
+        write(src.resolve("pkg/B.java"), "package pkg; public class B { int value() { return 2; } }");
+        assertTrue(compiler.compile(spec));
+        assertNotEquals(old, Files.getLastModifiedTime(classes.resolve("pkg/A.class")));
+        assertNotEquals(old, Files.getLastModifiedTime(classes.resolve("pkg/B.class")));
+        assertEquals(old, Files.getLastModifiedTime(classes.resolve("pkg/C.class")));
+
+        // Only A changes : A is recompiled against the unchanged B class
+        Files.setLastModifiedTime(classes.resolve("pkg/B.class"), old);
+        write(src.resolve("pkg/A.java"), "package pkg; public class A { B b = new B(); int i = b.value(); }");
+        assertTrue(compiler.compile(spec));
+        assertEquals(old, Files.getLastModifiedTime(classes.resolve("pkg/B.class")));
+
+        // C is removed : its class file is deleted
+        Files.delete(src.resolve("pkg/C.java"));
+        assertTrue(compiler.compile(spec));
+        assertFalse(Files.exists(classes.resolve("pkg/C.class")));
+        assertTrue(Files.exists(classes.resolve("pkg/A.class")));
+
+        // A class file is missing while the index is kept : its source is compiled again
+        Files.delete(classes.resolve("pkg/B.class"));
+        assertTrue(compiler.compile(spec));
+        assertTrue(Files.exists(classes.resolve("pkg/B.class")));
+        JkPathTree.of(root).deleteRoot();
+    }
+
+    @Test
+    public void incrementalCompileRecompilesOnlyConsumersOfChangedAbi() throws Exception {
+        Path root = JkUtilsPath.createTempDirectory("jeka-abi");
+        Path libSrc = root.resolve("lib-src");
+        Path libClasses = root.resolve("lib-classes");
+        Path src = root.resolve("src");
+        Path classes = root.resolve("classes");
+        write(libSrc.resolve("lib/Lib.java"), "package lib; public class Lib { public int value() { return 1; } }");
+        write(libSrc.resolve("lib/Other.java"), "package lib; public class Other { }");
+        write(src.resolve("pkg/UsesLib.java"), "package pkg; public class UsesLib { long i = new lib.Lib().value(); }");
+        write(src.resolve("pkg/UsesOther.java"), "package pkg; public class UsesOther { lib.Other other; }");
+        JkJavaCompiler compiler = JkJavaCompiler.ofJdk();
+        JkJavaCompiler incrementalCompiler = compiler.withIncremental(true);
+        JkJavaCompileSpec libSpec = JkJavaCompileSpec.of().addSources(libSrc).setOutputDir(libClasses);
+        assertTrue(compiler.compile(libSpec));
+        JkJavaCompileSpec spec = JkJavaCompileSpec.of().addSources(src).setOutputDir(classes)
+                .setClasspath(Collections.singletonList(libClasses));
+        String abi = JkClasspathAbi.hash(Collections.singletonList(libClasses));
+        assertTrue(incrementalCompiler.compile(spec));
+        FileTime old = FileTime.fromMillis(0);
+        for (Path classFile : JkPathTree.of(classes).andMatching("**/*.class").getFiles()) {
+            Files.setLastModifiedTime(classFile, old);
+        }
+
+        // Lib is rebuilt with a method body change only : nothing is recompiled
+        write(libSrc.resolve("lib/Lib.java"), "package lib; public class Lib { public int value() { return 2; } }");
+        assertTrue(compiler.compile(libSpec));
+        assertEquals(abi, JkClasspathAbi.hash(Collections.singletonList(libClasses)));
+        assertTrue(incrementalCompiler.compile(spec));
+        assertEquals(old, Files.getLastModifiedTime(classes.resolve("pkg/UsesLib.class")));
+
+        // Lib signature changes : only the source using Lib is recompiled
+        write(libSrc.resolve("lib/Lib.java"), "package lib; public class Lib { public long value() { return 2; } }");
+        assertTrue(compiler.compile(libSpec));
+        assertNotEquals(abi, JkClasspathAbi.hash(Collections.singletonList(libClasses)));
+        assertTrue(incrementalCompiler.compile(spec));
+        assertNotEquals(old, Files.getLastModifiedTime(classes.resolve("pkg/UsesLib.class")));
+        assertEquals(old, Files.getLastModifiedTime(classes.resolve("pkg/UsesOther.class")));
+        JkPathTree.of(root).deleteRoot();
+    }
+
+    @Test
+    public void annotationProcessorImplementationChangesAreTakenInAccount() throws Exception {
+        Path root = JkUtilsPath.createTempDirectory("jeka-abi-processor");
+        Path src = root.resolve("src");
+        Path classes = root.resolve("classes");
+        write(src.resolve("proc/Proc.java"), "package proc; public class Proc { public int value() { return 1; } }");
+        JkJavaCompileSpec spec = JkJavaCompileSpec.of().addSources(src).setOutputDir(classes);
+        assertTrue(JkJavaCompiler.ofJdk().compile(spec));
+        write(classes.resolve("META-INF/services/javax.annotation.processing.Processor"), "proc.Proc");
+        String abi = JkClasspathAbi.hash(Collections.singletonList(classes));
+
+        // A method body change alters what the processor generates
+        write(src.resolve("proc/Proc.java"), "package proc; public class Proc { public int value() { return 2; } }");
+        assertTrue(JkJavaCompiler.ofJdk().compile(spec));
+        assertNotEquals(abi, JkClasspathAbi.hash(Collections.singletonList(classes)));
+        JkPathTree.of(root).deleteRoot();
+    }
+
+    @Test
+    public void forkedCompileOnWorkerReportsStatus() {
+        Path root = JkUtilsPath.createTempDirectory("jeka-worker");
+        Path src = root.resolve("src");
+        Path classes = root.resolve("classes");
+        write(src.resolve("pkg/A.java"), "package pkg; public class A { }");
+        JkJavaCompiler compiler = JkJavaCompiler.ofJdk().withForking().withFailOnError(false);
+        JkJavaCompileSpec spec = JkJavaCompileSpec.of().addSources(src).setOutputDir(classes);
+
+        assertTrue(compiler.compile(spec));
+        assertTrue(Files.exists(classes.resolve("pkg/A.class")));
+
+        // Same warm worker reports compilation errors
+        write(src.resolve("pkg/B.java"), "package pkg; public class B { int i = ; }");
+        assertFalse(compiler.compile(spec));
+        JkPathTree.of(root).deleteRoot();
+    }
+
+    private static void write(Path file, String content) {
+        JkUtilsPath.createDirectories(file.getParent());
+        JkUtilsPath.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,50 @@
+package dev.jeka.core.api.java.junit;
+
+import dev.jeka.core.api.file.JkPathTreeSet;
+import org.junit.Test;
+
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestClassScannerTest {
+
+    @Test
+    public void testFindTestClassNames() throws IOException {
+        final Path classDir = Files.createTempDirectory("jeka-test-scanner");
+        compile(classDir, "t/Helper.java", "package t; public class Helper { public void test() {} }");
+        compile(classDir, "t/Junit4Test.java", "package t; public class Junit4Test { @org.junit.Test public void a() {} }");
+        compile(classDir, "t/AbstractBaseTest.java",
+                "package t; public abstract class AbstractBaseTest { @org.junit.Test public void a() {} }");
+        compile(classDir, "t/InheritedTest.java", "package t; public class InheritedTest extends AbstractBaseTest {}");
+        compile(classDir, "t/AbstractCase.java",
+                "package t; public abstract class AbstractCase extends junit.framework.TestCase {}");
+        compile(classDir, "t/Junit3Test.java",
+                "package t; public class Junit3Test extends AbstractCase { public void testA() {} }");
+        final List<Path> classpath = Collections.singletonList(classDir);
+
+        assertEquals(new HashSet<>(Arrays.asList("t.Junit4Test", "t.InheritedTest", "t.Junit3Test")),
+                new HashSet<>(TestClassScanner.findTestClassNames(JkPathTreeSet.of(classDir), classpath, true)));
+        assertEquals(Collections.singletonList("t.Junit3Test"),
+                TestClassScanner.findTestClassNames(JkPathTreeSet.of(classDir), classpath, false));
+    }
+
+    private static void compile(Path outputDir, String relativePath, String code) throws IOException {
+        final Path source = outputDir.resolveSibling(outputDir.getFileName() + "-src").resolve(relativePath);
+        Files.createDirectories(source.getParent());
+        Files.write(source, code.getBytes(StandardCharsets.UTF_8));
+        final String classpath = outputDir + System.getProperty("path.separator")
+                + System.getProperty("java.class.path");
+        assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null, "-d", outputDir.toString(),
+                "-cp", classpath, source.toString()));
+    }
+
+}
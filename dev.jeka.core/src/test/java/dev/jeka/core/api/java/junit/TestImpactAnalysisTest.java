@@ -0,0 +1,133 @@
+package dev.jeka.core.api.java.junit;
+
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.java.JkClasspath;
+import dev.jeka.core.api.java.junit.JkUnit.JunitReportDetail;
+import org.hamcrest.Matcher;
+import org.junit.Test;
+
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestImpactAnalysisTest {
+
+    private static final List<String> SETTINGS = Collections.singletonList("in-process");
+
+    @Test
+    public void testOnlyImpactedTestClassesAreSelected() throws IOException {
+        final Path dir = Files.createTempDirectory("jeka-test-impact");
+        final Path prodDir = dir.resolve("classes");
+        final Path testDir = dir.resolve("test-classes");
+        final Path indexFile = dir.resolve("test-classes.jkimpact");
+        compile(prodDir, prodDir, "a/A.java", "package a; public class A { public int v() { return 1; } }");
+        compile(prodDir, prodDir, "a/B.java", "package a; public class B { }");
+        compile(testDir, prodDir, "t/ATest.java", "package t; public class ATest { Object o = new a.A(); }");
+        compile(testDir, prodDir, "t/BTest.java", "package t; public class BTest { Object o = new a.B(); }");
+        final JkJavaTestClasses testClasses = JkJavaTestClasses.of(JkClasspath.of(testDir, prodDir),
+                JkPathTree.of(testDir).andMatching(true, "**/*Test.class"));
+
+        TestImpactAnalysis analysis = TestImpactAnalysis.of(indexFile, testClasses, SETTINGS);
+        assertEquals(new HashSet<>(Arrays.asList("t.ATest", "t.BTest")), analysis.impactedClassNames());
+        analysis.record(result(), Collections.emptySet());
+        assertEquals(Collections.emptySet(), TestImpactAnalysis.of(indexFile, testClasses, SETTINGS).impactedClassNames());
+
+        compile(prodDir, prodDir, "a/A.java", "package a; public class A { public int v() { return 2; } }");
+        analysis = TestImpactAnalysis.of(indexFile, testClasses, SETTINGS);
+        assertEquals(Collections.singleton("t.ATest"), analysis.impactedClassNames());
+        assertEquals(Collections.singletonList(testDir.resolve("t/ATest.class")),
+                analysis.select(testClasses).getClassesToTest().getFiles());
+
+        // Failed test classes are run again
+        analysis.record(result(JkTestSuiteResult.JkTestCaseFailure.of("t.BTest", "test", 0,
+                JkTestSuiteResult.JkExceptionDescription.of(new AssertionError()))), Collections.emptySet());
+        assertEquals(Collections.singleton("t.BTest"),
+                TestImpactAnalysis.of(indexFile, testClasses, SETTINGS).impactedClassNames());
+
+        // Changing settings of the test JVM impacts every test class
+        assertEquals(new HashSet<>(Arrays.asList("t.ATest", "t.BTest")), TestImpactAnalysis.of(indexFile,
+                testClasses, Arrays.asList("forked", "-Dfoo=bar")).impactedClassNames());
+    }
+
+    @Test
+    public void runWithoutImpactedClassStillRunsPostActionsAndWritesReport() throws Exception {
+        final Path dir = Files.createTempDirectory("jeka-test-impact");
+        final Path testDir = dir.resolve("test-classes");
+        final Path reportDir = dir.resolve("report");
+        final JkClasspath junit = JkClasspath.of(location(Test.class), location(Matcher.class));
+        compile(testDir, junit, "t/PassingTest.java",
+                "package t; public class PassingTest { @org.junit.Test public void test() { } }");
+        final JkJavaTestClasses testClasses = JkJavaTestClasses.of(junit.and(testDir),
+                JkPathTree.of(testDir).andMatching(true, "**/*Test.class"));
+        final AtomicInteger postActionCount = new AtomicInteger();
+        final JkUnit unit = JkUnit.of().withOutputOnConsole(false)
+                .withTestImpactIndex(dir.resolve("test-classes.jkimpact"))
+                .withReport(JunitReportDetail.BASIC).withReportDir(reportDir)
+                .withPostAction(postActionCount::incrementAndGet);
+
+        assertEquals(1, unit.run(testClasses).getRunCount());
+        JkPathTree.of(reportDir).deleteContent();
+        assertEquals(0, unit.run(testClasses).getRunCount());
+        assertEquals(2, postActionCount.get());
+        assertTrue(JkPathTree.of(reportDir).count(1, false) > 0);
+        JkPathTree.of(dir).deleteRoot();
+    }
+
+    @Test
+    public void testClassesSkippedByFailFastRemainImpacted() throws Exception {
+        final Path dir = Files.createTempDirectory("jeka-test-impact");
+        final Path testDir = dir.resolve("test-classes");
+        final JkClasspath junit = JkClasspath.of(location(Test.class), location(Matcher.class));
+        compile(testDir, junit, "t/AFailingTest.java",
+                "package t; public class AFailingTest { @org.junit.Test public void test() { org.junit.Assert.fail(); } }");
+        compile(testDir, junit, "t/BPassingTest.java",
+                "package t; public class BPassingTest { @org.junit.Test public void test() { } }");
+        compile(testDir, junit, "t/CPassingTest.java",
+                "package t; public class CPassingTest { @org.junit.Test public void test() { } }");
+        final JkJavaTestClasses testClasses = JkJavaTestClasses.of(junit.and(testDir),
+                JkPathTree.of(testDir).andMatching(true, "**/*Test.class"));
+        final JkUnit unit = JkUnit.of().withOutputOnConsole(false).withBreakOnFailure(false)
+                .withTestImpactIndex(dir.resolve("test-classes.jkimpact"));
+
+        final JkTestSuiteResult failFastResult = unit.withFailFast(true).run(testClasses);
+        assertEquals(1, failFastResult.getFailureCount());
+        final int skippedCount = 3 - failFastResult.getRunCount();
+        assertTrue(skippedCount > 0);
+
+        // Classes not run because of the failure are still impacted, along the failed one
+        assertEquals(1 + skippedCount, unit.run(testClasses).getRunCount());
+        assertEquals(1, unit.run(testClasses).getRunCount());
+        JkPathTree.of(dir).deleteRoot();
+    }
+
+    private static JkTestSuiteResult result(JkTestSuiteResult.JkTestCaseResult... caseResults) {
+        return new JkTestSuiteResult(new Properties(), "test", caseResults.length, 0, Arrays.asList(caseResults), 0);
+    }
+
+    private static Path location(Class<?> clazz) throws Exception {
+        return Paths.get(clazz.getProtectionDomain().getCodeSource().getLocation().toURI());
+    }
+
+    private static void compile(Path outputDir, Path classpath, String relativePath, String code) throws IOException {
+        compile(outputDir, JkClasspath.of(classpath), relativePath, code);
+    }
+
+    private static void compile(Path outputDir, JkClasspath classpath, String relativePath, String code)
+            throws IOException {
+        final Path source = outputDir.resolveSibling("src").resolve(relativePath);
+        Files.createDirectories(source.getParent());
+        Files.createDirectories(outputDir);
+        Files.write(source, code.getBytes(StandardCharsets.UTF_8));
+        assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null, "-d", outputDir.toString(),
+                "-cp", classpath.toString(), source.toString()));
+    }
+
+}
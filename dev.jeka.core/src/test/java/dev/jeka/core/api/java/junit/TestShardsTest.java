@@ -0,0 +1,59 @@
+package dev.jeka.core.api.java.junit;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings("rawtypes")
+public class TestShardsTest {
+
+    @Test
+    public void testPartitionIsBalancedByDurations() {
+        final Map<String, Long> durations = new HashMap<>();
+        durations.put(String.class.getName(), 100L);
+        durations.put(Integer.class.getName(), 60L);
+        durations.put(Long.class.getName(), 40L);
+        final List<Class> classes = Arrays.asList(Long.class, Integer.class, String.class);
+        final List<List<Class>> shards = TestShards.partition(classes, 2, durations);
+        assertEquals(2, shards.size());
+        assertEquals(Collections.singletonList(String.class), shards.get(0));
+        assertEquals(Arrays.asList(Integer.class, Long.class), shards.get(1));
+
+        // Classes without recorded duration weigh the average known duration
+        final List<List<Class>> otherShards = TestShards.partition(Arrays.asList(Long.class, Integer.class,
+                String.class, Double.class), 2, durations);
+        assertEquals(Arrays.asList(String.class, Long.class), otherShards.get(0));
+        assertEquals(Arrays.asList(Double.class, Integer.class), otherShards.get(1));
+    }
+
+    @Test
+    public void testPartitionNeverReturnsEmptyShards() {
+        final List<List<Class>> shards = TestShards.partition(Arrays.asList(String.class, Long.class), 8,
+                Collections.emptyMap());
+        assertEquals(2, shards.size());
+        shards.forEach(shard -> assertEquals(1, shard.size()));
+    }
+
+    @Test
+    public void testDurationsAreMergedWithPreviousOnes() throws IOException {
+        final Path file = Files.createTempDirectory("jeka-test-shards").resolve("junit.durations");
+        assertTrue(TestShards.loadDurations(file).isEmpty());
+        TestShards.saveDurations(file, Collections.singletonMap("a.ATest", 10L));
+        TestShards.saveDurations(file, Collections.singletonMap("b.BTest", 30L));
+        TestShards.saveDurations(file, Collections.singletonMap("a.ATest", 20L));
+        final Map<String, Long> durations = new HashMap<>();
+        durations.put("a.ATest", 20L);
+        durations.put("b.BTest", 30L);
+        assertEquals(durations, TestShards.loadDurations(file));
+    }
+
+}
@@ -1,18 +1,29 @@
 package dev.jeka.core.api.project.java;
 
+import dev.jeka.core.api.depmanagement.JkArtifactId;
 import dev.jeka.core.api.depmanagement.JkDependencySet;
 import dev.jeka.core.api.depmanagement.JkPopularModules;
+import dev.jeka.core.api.file.JkBuildCache;
 import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.file.JkZipper;
 import dev.jeka.core.api.java.project.JkJavaProject;
+import dev.jeka.core.api.java.project.JkJavaProjectMaker;
 import dev.jeka.core.api.java.project.JkProjectSourceLayout;
+import dev.jeka.core.api.system.JkException;
 import dev.jeka.core.api.tooling.eclipse.JkEclipseClasspathGeneratorTest;
+import dev.jeka.core.api.utils.JkUtilsPath;
 import org.junit.Test;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.*;
 
 
 public class JkJavaProjectTest {
@@ -48,6 +59,82 @@ public class JkJavaProjectTest {
         JkPathTree.of(top).deleteRoot();
     }
 
+    @Test
+    public void makeArtifactsInParallel() throws Exception {
+        final Path base = Files.createTempDirectory("jeka-parallel-artifacts");
+        final Path source = base.resolve("src/main/java/foo/Foo.java");
+        Files.createDirectories(source.getParent());
+        Files.write(source, "package foo; /** Foo. */ public class Foo {}".getBytes(StandardCharsets.UTF_8));
+        final JkJavaProject project = JkJavaProject.ofMavenLayout(base);
+        final JkJavaProjectMaker maker = project.getMaker();
+        maker.addJavadocArtifact().addTestArtifact().setParallelArtifacts(true);
+        maker.getTasksForTesting().setSkipTests(true);
+        maker.makeAllArtifacts();
+        for (JkArtifactId artifactId : maker.getArtifactIds()) {
+            assertTrue(Files.exists(maker.getArtifactPath(artifactId)));
+        }
+        JkPathTree.of(base).deleteRoot();
+    }
+
+    @Test
+    public void cachedJarsDependOnZipperSettings() throws Exception {
+        final Path base = Files.createTempDirectory("jeka-cached-jar");
+        final Path source = base.resolve("src/main/java/foo/Foo.java");
+        Files.createDirectories(source.getParent());
+        Files.write(source, "package foo; public class Foo { String text = \"aaaaaaaaaaaaaaaaaaaaaaaa\"; }"
+                .getBytes(StandardCharsets.UTF_8));
+        final JkJavaProjectMaker maker = JkJavaProject.ofMavenLayout(base).getMaker();
+        maker.setBuildCache(JkBuildCache.of(base.resolve("build-cache")));
+        maker.getTasksForTesting().setSkipTests(true);
+        final Path jar = maker.getArtifactPath(maker.getMainArtifactId());
+        maker.makeArtifact(maker.getMainArtifactId());
+        final long compressedSize = Files.size(jar);
+
+        maker.getTasksForPackaging().setZipper(JkZipper.of().withCompressionLevel(JkZipper.STORE_ONLY));
+        maker.makeArtifact(maker.getMainArtifactId());
+        assertTrue(Files.size(jar) > compressedSize);
+        JkPathTree.of(base).deleteRoot();
+    }
+
+    @Test
+    public void missingArtifactsAreProducedOnceAndCyclesAreDetected() throws Exception {
+        final Path base = Files.createTempDirectory("jeka-missing-artifacts");
+        final JkJavaProjectMaker maker = JkJavaProject.ofMavenLayout(base).getMaker();
+        final JkArtifactId slowId = JkArtifactId.of("slow", "txt");
+        final AtomicInteger slowCount = new AtomicInteger();
+        maker.putArtifact(slowId, () -> {
+            slowCount.incrementAndGet();
+            LockSupport.parkNanos(300_000_000L);  // Leaves time to the other thread to request the artifact
+            JkUtilsPath.createDirectories(maker.getArtifactPath(slowId).getParent());
+            JkUtilsPath.write(maker.getArtifactPath(slowId), "slow".getBytes(StandardCharsets.UTF_8));
+        });
+        final Thread thread = new Thread(() -> maker.makeMissingArtifacts(slowId));
+        thread.start();
+        maker.makeMissingArtifacts(slowId);
+        thread.join();
+        assertEquals(1, slowCount.get());
+
+        final JkArtifactId selfId = JkArtifactId.of("self", "txt");
+        maker.putArtifact(selfId, () -> maker.makeMissingArtifacts(selfId));
+        assertCycleDetected(maker, selfId);
+
+        final JkArtifactId firstId = JkArtifactId.of("first", "txt");
+        final JkArtifactId secondId = JkArtifactId.of("second", "txt");
+        maker.putArtifact(firstId, () -> maker.makeMissingArtifacts(secondId));
+        maker.putArtifact(secondId, () -> maker.makeArtifact(firstId));
+        assertCycleDetected(maker, firstId);
+        JkPathTree.of(base).deleteRoot();
+    }
+
+    private static void assertCycleDetected(JkJavaProjectMaker maker, JkArtifactId artifactId) {
+        try {
+            maker.makeMissingArtifacts(artifactId);
+            fail("Cycle on " + artifactId + " not detected");
+        } catch (JkException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("cycles"));
+        }
+    }
+
     private static Path unzipToDir(String zipName) throws IOException, URISyntaxException {
         final Path dest = Files.createTempDirectory(JkEclipseClasspathGeneratorTest.class.getName());
         final Path zip = Paths.get(JkEclipseClasspathGeneratorTest.class.getResource(zipName).toURI());
@@ -0,0 +1,48 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.file.JkPathTree;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class DaemonTest {
+
+    private static final String BUILD = "import dev.jeka.core.api.system.JkException;\n"
+            + "import dev.jeka.core.api.system.JkLog;\n"
+            + "import dev.jeka.core.tool.JkCommands;\n"
+            + "public class DaemonBuild extends JkCommands {\n"
+            + "    public void fail() { JkLog.startTask(\"Failing task\"); throw new JkException(\"Expected failure\"); }\n"
+            + "    public void pass() { JkLog.info(\"Build passed\"); }\n"
+            + "}\n";
+
+    @Test
+    public void buildFollowingAFailedOneIsNotAffected() throws IOException {
+        final Path baseDir = Files.createTempDirectory("jeka-daemon");
+        final Path defDir = baseDir.resolve(JkConstants.DEF_DIR);
+        Files.createDirectories(defDir);
+        Files.write(defDir.resolve("DaemonBuild.java"), BUILD.getBytes(StandardCharsets.UTF_8));
+        final PrintStream formerOut = System.out;
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output, true));
+        try {
+            assertEquals(1, DaemonClient.run(new String[] {"fail", "-UseDaemon"}, baseDir));
+            output.reset();
+            assertEquals(0, DaemonClient.run(new String[] {"pass", "-UseDaemon"}, baseDir));
+        } finally {
+            DaemonClient.run(new String[] {DaemonClient.STOP_DAEMON_OPTION}, baseDir);
+            System.setOut(formerOut);
+        }
+        final String[] lines = new String(output.toByteArray(), StandardCharsets.UTF_8).split("\\R");
+        assertTrue(Arrays.asList(lines).contains("Build passed"));
+        JkPathTree.of(baseDir).deleteRoot();
+    }
+
+}
@@ -0,0 +1,83 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.depmanagement.JkDependencySet;
+import dev.jeka.core.api.depmanagement.JkRepoSet;
+import dev.jeka.core.api.file.JkPathTree;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DefCompileCacheTest {
+
+    @Test
+    public void classpathAndClassesAreReusedUntilInputsChange() throws IOException {
+        final Path baseDir = Files.createTempDirectory("jeka-def-cache");
+        final Path sourceDir = baseDir.resolve(JkConstants.DEF_DIR);
+        final Path classDir = baseDir.resolve(JkConstants.DEF_BIN_DIR);
+        final Path workDir = baseDir.resolve(JkConstants.WORK_PATH);
+        final Path lib = baseDir.resolve("lib.jar");
+        Files.createDirectories(sourceDir);
+        Files.createDirectories(classDir);
+        Files.write(sourceDir.resolve("Build.java"), "class Build {}".getBytes(StandardCharsets.UTF_8));
+        Files.write(classDir.resolve("Build.class"), new byte[] {1});
+        Files.write(lib, new byte[] {1});
+        final JkDependencySet dependencies = JkDependencySet.of().andFile(lib)
+                .and("com.google.guava:guava:21.0");
+        final JkRepoSet repos = JkRepoSet.ofLocal();
+        final String dependencyFingerprint = DefCompileCache.dependencyFingerprint(dependencies, repos);
+        final String classesFingerprint = classesFingerprint(dependencyFingerprint, lib, sourceDir,
+                Collections.emptyList());
+
+        assertNull(DefCompileCache.of(workDir).getClasspath(dependencyFingerprint));
+        assertFalse(DefCompileCache.of(workDir).isUpToDate(classesFingerprint, classDir));
+        DefCompileCache.of(workDir).store(dependencyFingerprint, Collections.singletonList(lib), classesFingerprint);
+
+        final DefCompileCache cache = DefCompileCache.of(workDir);
+        assertEquals(Collections.singletonList(lib.toAbsolutePath()), cache.getClasspath(dependencyFingerprint));
+        assertTrue(cache.isUpToDate(classesFingerprint, classDir));
+        assertEquals(dependencyFingerprint, DefCompileCache.dependencyFingerprint(dependencies, repos));
+
+        // Changing sources or options requires recompiling, but the resolved classpath remains valid
+        assertFalse(cache.isUpToDate(classesFingerprint(dependencyFingerprint, lib, sourceDir,
+                Collections.singletonList("-g")), classDir));
+        final Path resolvedJar = baseDir.resolve("resolved.jar");
+        Files.write(resolvedJar, new byte[] {1});
+        final String withResolvedJar = classesFingerprint(dependencyFingerprint, resolvedJar, sourceDir,
+                Collections.emptyList());
+        Files.write(resolvedJar, new byte[] {1, 2});
+        assertNotEquals(withResolvedJar, classesFingerprint(dependencyFingerprint, resolvedJar, sourceDir,
+                Collections.emptyList()));
+        Files.write(sourceDir.resolve("Build.java"), "class Build { }".getBytes(StandardCharsets.UTF_8));
+        assertFalse(cache.isUpToDate(classesFingerprint(dependencyFingerprint, lib, sourceDir,
+                Collections.emptyList()), classDir));
+
+        // Changing dependencies invalidates the classpath
+        assertNotEquals(dependencyFingerprint, DefCompileCache.dependencyFingerprint(
+                dependencies.and("junit:junit:4.12"), repos));
+        Files.write(lib, new byte[] {1, 2});
+        assertNotEquals(dependencyFingerprint, DefCompileCache.dependencyFingerprint(dependencies, repos));
+
+        cache.invalidate();
+        assertFalse(DefCompileCache.of(workDir).isUpToDate(classesFingerprint, classDir));
+    }
+
+    @Test
+    public void dynamicVersionsAreNotCached() {
+        assertNull(DefCompileCache.dependencyFingerprint(JkDependencySet.of().and("junit:junit:4.+"),
+                JkRepoSet.ofLocal()));
+    }
+
+    private static String classesFingerprint(String dependencyFingerprint, Path classpathEntry, Path sourceDir,
+                                             List<String> options) {
+        return DefCompileCache.classesFingerprint(dependencyFingerprint, Collections.singletonList(classpathEntry),
+                JkPathTree.of(sourceDir), options, Collections.emptyList());
+    }
+
+}
@@ -0,0 +1,107 @@
+package dev.jeka.core.tool;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+public class JkPluginIndexTest {
+
+    @Test
+    public void indexListsPluginCandidatesOfClassDirectories() throws IOException {
+        final Path classDir = Files.createTempDirectory("jeka-plugin-index");
+        touch(classDir.resolve("my/pack/JkPluginFoo.class"));
+        touch(classDir.resolve("my/pack/Outer$JkPluginBar.class"));
+        touch(classDir.resolve("my/pack/JkPluginFoo$1.class"));
+        touch(classDir.resolve("my/pack/Other.class"));
+        touch(classDir.resolve("JkPluginRoot.class"));
+
+        assertTrue(JkPluginIndex.write(classDir));
+        final String index = new String(Files.readAllBytes(classDir.resolve(JkPluginIndex.LOCATION)),
+                StandardCharsets.UTF_8);
+        assertEquals("# Generated by Jeka\nJkPluginRoot\nmy.pack.JkPluginFoo\nmy.pack.JkPluginFoo$1", index);
+
+        // The index is trusted as long as no class file is newer : classes not listed are not discovered
+        final Path notIndexed = classDir.resolve("my/pack/JkPluginNotIndexed.class");
+        touch(notIndexed);
+        final FileTime indexTime = Files.getLastModifiedTime(classDir.resolve(JkPluginIndex.LOCATION));
+        Files.setLastModifiedTime(notIndexed, FileTime.fromMillis(indexTime.toMillis() - 10_000));
+        Set<String> candidates = candidates(classDir);
+        assertTrue(candidates.contains("my.pack.JkPluginFoo"));
+        assertFalse(candidates.contains("my.pack.JkPluginNotIndexed"));
+
+        // A class compiled after the index has been written makes it stale
+        Files.setLastModifiedTime(notIndexed, FileTime.fromMillis(indexTime.toMillis() + 10_000));
+        candidates = candidates(classDir);
+        assertTrue(candidates.contains("my.pack.JkPluginNotIndexed"));
+
+        Files.delete(classDir.resolve("my/pack/JkPluginNotIndexed.class"));
+        Files.delete(classDir.resolve("my/pack/JkPluginFoo.class"));
+        Files.delete(classDir.resolve("my/pack/JkPluginFoo$1.class"));
+        Files.delete(classDir.resolve("JkPluginRoot.class"));
+        assertFalse(JkPluginIndex.write(classDir));
+        assertFalse(Files.exists(classDir.resolve(JkPluginIndex.LOCATION)));
+    }
+
+    @Test
+    public void userProvidedIndexIsKept() throws IOException {
+        final Path classDir = Files.createTempDirectory("jeka-plugin-index");
+        touch(classDir.resolve("my/pack/JkPluginFoo.class"));
+        final Path indexFile = classDir.resolve(JkPluginIndex.LOCATION);
+        Files.createDirectories(indexFile.getParent());
+        Files.write(indexFile, "my.pack.JkPluginDeclared".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(indexFile, FileTime.fromMillis(0));
+
+        assertFalse(JkPluginIndex.write(classDir));
+        assertEquals("my.pack.JkPluginDeclared", new String(Files.readAllBytes(indexFile), StandardCharsets.UTF_8));
+        final Set<String> candidates = candidates(classDir);
+        assertTrue(candidates.contains("my.pack.JkPluginDeclared"));
+        assertFalse(candidates.contains("my.pack.JkPluginFoo"));
+    }
+
+    @Test
+    public void unindexedJarsAreListed() throws IOException {
+        final Path jar = Files.createTempFile("jeka-plugin-index", ".jar");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(jar))) {
+            zip.putNextEntry(new ZipEntry("a/JkPluginInJar.class"));
+            zip.putNextEntry(new ZipEntry("a/NotAPlugin.class"));
+        }
+        final Set<String> candidates = candidates(jar);
+        assertTrue(candidates.contains("a.JkPluginInJar"));
+        assertFalse(candidates.contains("a.NotAPlugin"));
+        assertEquals(candidates, candidates(jar));  // Taken from cache
+    }
+
+    @Test
+    public void builtinPluginsAreFound() {
+        final Set<String> candidates = JkPluginIndex.candidateClassNames(
+                Thread.currentThread().getContextClassLoader());
+        assertTrue(candidates.contains("dev.jeka.core.tool.builtins.java.JkPluginJava"));
+        assertNotNull(PluginDictionary.loadByName("java"));
+    }
+
+    private static Set<String> candidates(Path entry) throws IOException {
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] {entry.toUri().toURL()}, null)) {
+            return JkPluginIndex.candidateClassNames(classLoader);
+        }
+    }
+
+    private static void touch(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (OutputStream outputStream = Files.newOutputStream(file)) {
+            outputStream.write(0);
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+package dev.jeka.core.tool;
+
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ProjectGraphTest {
+
+    // root imports a and b, both importing core. a also imports b.
+    private static final Map<String, List<String>> IMPORTS = new HashMap<>();
+
+    static {
+        IMPORTS.put("root", Arrays.asList("a", "b"));
+        IMPORTS.put("a", Arrays.asList("core", "b"));
+        IMPORTS.put("b", Collections.singletonList("core"));
+        IMPORTS.put("core", Collections.emptyList());
+        IMPORTS.put("c", Collections.singletonList("core"));
+    }
+
+    @Test
+    public void getProjectsReturnsImportedProjectsFirst() {
+        final List<String> projects = graph("root").getProjects();
+        assertEquals(Arrays.asList("core", "b", "a", "root"), projects);
+    }
+
+    @Test
+    public void cyclicImportsAreIgnored() {
+        final Map<String, List<String>> imports = new HashMap<>();
+        imports.put("x", Collections.singletonList("y"));
+        imports.put("y", Collections.singletonList("x"));
+        final ProjectGraph<String> graph = ProjectGraph.of("x", ProjectGraphTest::dir, imports::get);
+        assertEquals(Arrays.asList("y", "x"), graph.getProjects());
+    }
+
+    @Test
+    public void runHonoursImports() {
+        final Map<String, List<String>> imports = new HashMap<>(IMPORTS);
+        imports.put("root", Arrays.asList("a", "c"));
+        final ProjectGraph<String> graph = ProjectGraph.of("root", ProjectGraphTest::dir, imports::get);
+        final Set<String> done = ConcurrentHashMap.newKeySet();
+        final AtomicInteger violations = new AtomicInteger();
+        graph.run(project -> {
+            for (final String imported : imports.get(project)) {
+                if (!done.contains(imported)) {
+                    violations.incrementAndGet();
+                }
+            }
+            done.add(project);
+        }, 4);
+        assertEquals(0, violations.get());
+        assertEquals(new HashSet<>(Arrays.asList("core", "a", "b", "c", "root")), done);
+    }
+
+    @Test
+    public void failureSkipsDependentProjects() {
+        final Set<String> done = ConcurrentHashMap.newKeySet();
+        try {
+            graph("root").run(project -> {
+                if (project.equals("b")) {
+                    throw new IllegalStateException("b failed");
+                }
+                done.add(project);
+            }, 4);
+            fail("Exception expected");
+        } catch (final IllegalStateException e) {
+            assertEquals("b failed", e.getMessage());
+        }
+        assertEquals(Collections.singleton("core"), done);
+    }
+
+    private static ProjectGraph<String> graph(String root) {
+        return ProjectGraph.of(root, ProjectGraphTest::dir, IMPORTS::get);
+    }
+
+    private static Path dir(String project) {
+        return Paths.get("/projects").resolve(project);
+    }
+
+}